@@ -22,27 +22,24 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
-import com.jayway.restassured.RestAssured;
+import org.jboss.aerogear.test.SessionSpecification;
+
 import com.jayway.restassured.specification.RequestSpecification;
 
 public class Session {
 
-    private URL baseUrl;
-    private String baseUri;
-    private int port;
-    private String basePath;
+    private volatile URL baseUrl;
+    private final SessionSpecification specification;
 
-    private String loginName;
-    private String password;
-    private Map<String, ?> cookies;
-    private boolean invalid;
+    private volatile String loginName;
+    private volatile String password;
+    private volatile Map<String, ?> cookies;
+    private volatile boolean invalid;
 
     public Session(URL baseUrl, String loginName, String password, Map<String, ?> cookies) {
 
         this.baseUrl = baseUrl;
-        this.baseUri = baseUrl.getProtocol() + "://" + baseUrl.getHost();
-        this.port = baseUrl.getPort() == -1 ? ("https".equals(baseUrl.getProtocol()) ? 443 : 80) : baseUrl.getPort();
-        this.basePath = baseUrl.getPath();
+        this.specification = new SessionSpecification(baseUrl);
 
         this.loginName = loginName;
         this.password = password;
@@ -56,12 +53,7 @@ public class Session {
     }
 
     public RequestSpecification given() {
-
-        RestAssured.baseURI = baseUri;
-        RestAssured.port = port;
-        RestAssured.basePath = basePath;
-
-        return RestAssured.given().cookies(cookies);
+        return specification.given().cookies(cookies);
     }
 
     public Map<String, ?> getCookies() {
@@ -94,6 +86,7 @@ public class Session {
         this.baseUrl = null;
         this.loginName = "";
         this.password = "";
+        this.specification.close();
         return this;
     }
 
@@ -19,10 +19,6 @@ package org.jboss.aerogear.unifiedpush.test.util;
 import category.APNS;
 import category.GCM;
 import category.SimplePush;
-import com.jayway.restassured.RestAssured;
-import com.jayway.restassured.config.DecoderConfig;
-import com.jayway.restassured.config.EncoderConfig;
-import com.jayway.restassured.config.RestAssuredConfig;
 import org.jboss.aerogear.test.api.sender.SenderRequest;
 
 import java.io.ByteArrayOutputStream;
@@ -63,18 +59,6 @@ public class TestUtils {
         return shouldRun(GCM.class);
     }
 
-    public static void setupRestAssured() {
-        RestAssured.config = RestAssuredConfig.newConfig()
-                .decoderConfig(DecoderConfig.decoderConfig().defaultContentCharset("UTF-8"))
-                .encoderConfig(EncoderConfig.encoderConfig().defaultContentCharset("UTF-8"));
-    }
-
-    public static void teardownRestAssured() {
-        RestAssured.config = RestAssuredConfig.newConfig()
-                .decoderConfig(DecoderConfig.decoderConfig().defaultContentCharset("ISO-8859-1"))
-                .encoderConfig(EncoderConfig.encoderConfig().defaultContentCharset("ISO-8859-1"));
-    }
-
     public static SenderRequest prepareSenderRequest() {
         return SenderRequest.request();
     }
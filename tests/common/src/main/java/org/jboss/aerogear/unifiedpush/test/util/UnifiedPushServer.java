@@ -6,6 +6,7 @@ import org.jboss.aerogear.test.api.UPSContext;
 import org.jboss.aerogear.test.api.UPSWorker;
 import org.jboss.aerogear.test.api.auth.LoginRequest;
 import org.jboss.aerogear.test.api.extension.TestExtensionRequest;
+import org.jboss.aerogear.test.load.EndpointStats;
 import org.jboss.arquillian.container.test.api.OperateOnDeployment;
 import org.jboss.arquillian.test.api.ArquillianResource;
 import org.junit.rules.MethodRule;
@@ -118,6 +119,7 @@ public abstract class UnifiedPushServer implements MethodRule {
                 if (session == null) {
                     try {
                         session = initializeSession(username, password);
+                        EndpointStats.reportOnExit(session);
                     } catch (Throwable t){
                         log.log(Level.SEVERE, "Session could not be established!");
                         throw t;
@@ -153,6 +155,7 @@ public abstract class UnifiedPushServer implements MethodRule {
                 .setAuthServerUrl(realAuthServerUrl)
                 .username(username)
                 .password(password)
+                .reuseToken(true)
                 .login();
     }
 
@@ -70,8 +70,6 @@ import org.jboss.arquillian.container.test.api.Deployment;
 import org.jboss.arquillian.container.test.api.TargetsContainer;
 import org.jboss.shrinkwrap.api.spec.WebArchive;
 import org.json.JSONObject;
-import org.junit.AfterClass;
-import org.junit.BeforeClass;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
@@ -160,16 +158,6 @@ public class MessageSendTest {
         }
     };
 
-    @BeforeClass
-    public static void setup() {
-        TestUtils.setupRestAssured();
-    }
-
-    @AfterClass
-    public static void cleanup() {
-        TestUtils.teardownRestAssured();
-    }
-
     @Deployment(name = Deployments.AUTH_SERVER, testable = false, order = 1)
     @TargetsContainer("main-server-group")
     public static WebArchive createAuthServerDeployment() {
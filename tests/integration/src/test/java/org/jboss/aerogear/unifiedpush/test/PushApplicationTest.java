@@ -28,13 +28,10 @@ import org.jboss.aerogear.unifiedpush.api.PushApplication;
 import org.jboss.aerogear.unifiedpush.test.util.CheckingExpectedException;
 import org.jboss.aerogear.unifiedpush.test.util.Deployments;
 import org.jboss.aerogear.unifiedpush.test.util.ModelAsserts;
-import org.jboss.aerogear.unifiedpush.test.util.TestUtils;
 import org.jboss.aerogear.unifiedpush.test.util.UnifiedPushServer;
 import org.jboss.arquillian.container.test.api.Deployment;
 import org.jboss.arquillian.container.test.api.TargetsContainer;
 import org.jboss.shrinkwrap.api.spec.WebArchive;
-import org.junit.AfterClass;
-import org.junit.BeforeClass;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -66,16 +63,6 @@ public class PushApplicationTest {
     @Rule
     public CheckingExpectedException thrown = CheckingExpectedException.none();
 
-    @BeforeClass
-    public static void setup() {
-        TestUtils.setupRestAssured();
-    }
-
-    @AfterClass
-    public static void cleanup() {
-        TestUtils.teardownRestAssured();
-    }
-
     @Deployment(name = Deployments.AUTH_SERVER, testable = false, order = 2)
     @TargetsContainer("main-server-group")
     public static WebArchive createAuthServerDeployment() {
@@ -34,12 +34,9 @@ import org.jboss.aerogear.unifiedpush.test.util.Deployments;
 import org.jboss.aerogear.unifiedpush.test.util.UnifiedPushServer;
 import org.jboss.aerogear.unifiedpush.test.util.CheckingExpectedException;
 import org.jboss.aerogear.unifiedpush.test.util.ContentTypes;
-import org.jboss.aerogear.unifiedpush.test.util.TestUtils;
 import org.jboss.arquillian.container.test.api.Deployment;
 import org.jboss.arquillian.container.test.api.TargetsContainer;
 import org.jboss.shrinkwrap.api.spec.WebArchive;
-import org.junit.AfterClass;
-import org.junit.BeforeClass;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
@@ -75,16 +72,6 @@ public class SimplePushVariantTest {
     @Rule
     public CheckingExpectedException exception = CheckingExpectedException.none();
 
-    @BeforeClass
-    public static void setup() {
-        TestUtils.setupRestAssured();
-    }
-
-    @AfterClass
-    public static void cleanup() {
-        TestUtils.teardownRestAssured();
-    }
-
     @Deployment(name = Deployments.AUTH_SERVER, testable = false, order = 1)
     @TargetsContainer("main-server-group")
     public static WebArchive createAuthServerDeployment() {
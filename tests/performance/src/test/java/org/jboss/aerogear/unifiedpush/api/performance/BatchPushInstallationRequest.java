@@ -16,14 +16,24 @@
  */
 package org.jboss.aerogear.unifiedpush.api.performance;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import org.apache.http.HttpStatus;
 import org.jboss.aerogear.test.*;
 import org.jboss.aerogear.test.api.AbstractSessionRequest;
-import org.jboss.aerogear.unifiedpush.api.Installation;
+import org.jboss.aerogear.test.api.BulkOperation;
+import org.jboss.aerogear.test.api.installation.DeviceTokens;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.jayway.restassured.response.Response;
 
 /**
@@ -33,10 +43,68 @@ import com.jayway.restassured.response.Response;
  */
 public class BatchPushInstallationRequest extends AbstractSessionRequest<BatchPushInstallationRequest> {
 
+    private static final Logger log = Logger.getLogger(BatchPushInstallationRequest.class.getName());
+
+    public static final int DEFAULT_BATCH_SIZE = 10000;
+
+    public static final String REGISTER_OPERATION = "BatchPushInstallationRequest.register";
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    /**
+     * Told about every batch of installations registered, possibly by several threads at once.
+     */
+    public interface ProgressListener {
+
+        void batchRegistered(long registered, long total, int batchSize, long latency, TimeUnit unit);
+    }
+
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    private int parallelism = 1;
+
+    private ProgressListener progressListener = new ProgressListener() {
+        @Override
+        public void batchRegistered(long registered, long total, int batchSize, long latency, TimeUnit unit) {
+            log.log(Level.INFO, "Registered {0} of {1} installations, batch of {2} took {3} ms",
+                new Object[] { registered, total, batchSize, unit.toMillis(latency) });
+        }
+    };
+
     public static BatchPushInstallationRequest request() {
         return new BatchPushInstallationRequest();
     }
 
+    /**
+     * @param batchSize number of installations sent in one request, {@link #DEFAULT_BATCH_SIZE} by default
+     */
+    public BatchPushInstallationRequest batchSize(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size has to be positive, was " + batchSize);
+        }
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * @param parallelism number of batches sent at once, 1 by default
+     */
+    public BatchPushInstallationRequest parallelism(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism has to be positive, was " + parallelism);
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * @param progressListener replaces logging of each registered batch
+     */
+    public BatchPushInstallationRequest progress(ProgressListener progressListener) {
+        this.progressListener = progressListener;
+        return this;
+    }
+
     /**
      * 
      * @param count count of installations we want to register
@@ -44,27 +112,50 @@ public class BatchPushInstallationRequest extends AbstractSessionRequest<BatchPu
      * @return
      */
     public void register(int count, String variantId) {
+        register(count, variantId, DeviceTokens.random(), 0);
+    }
 
-        MassInstallation massiveInstallation = new MassInstallation();
-        massiveInstallation.setVariantId(variantId);
-
-        List<Installation> installations = new ArrayList<Installation>();
-
-        for (int i = 0; i < count; i++) {
-            Installation inst = new Installation();
-            inst.setDeviceToken(Utilities.Strings.randomStringOfLength(100));
-            installations.add(inst);
+    /**
+     * Registers Android installations with the tokens of the given indexes. They are sent in batches, each batch body
+     * is written straight from the tokens when the batch is sent, so only the batches in flight are held in memory.
+     * Latency of each batch is recorded into the operation stats of the session.
+     *
+     * @param count count of installations we want to register
+     * @param variantId installations against this variant
+     * @param tokens tokens of the installations
+     * @param firstIndex index of the token of the first installation
+     */
+    public void register(final long count, final String variantId, final DeviceTokens tokens, final long firstIndex) {
+        List<Long> batchOffsets = new ArrayList<Long>();
+        for (long offset = 0; offset < count; offset += batchSize) {
+            batchOffsets.add(offset);
         }
 
-        massiveInstallation.setInstallations(installations);
-
-        Response response = getSession().givenAuthorized()
-            .contentType(Utilities.ContentTypes.json())
-            .header(Utilities.Headers.acceptJson())
-            .body(massiveInstallation)
-            .post("/rest/mass/installations");
-
-        UnexpectedResponseException.verifyResponse(response, HttpStatus.SC_OK);
+        final AtomicLong registered = new AtomicLong();
+        new BulkOperation<Long, Void>() {
+            @Override
+            protected Void perform(Long offset) {
+                int size = (int) Math.min(batchSize, count - offset);
+                byte[] body = massInstallationBody(size, variantId, tokens, firstIndex + offset);
+
+                long start = System.nanoTime();
+                Response response = getSession().givenAuthorized()
+                    .contentType(Utilities.ContentTypes.json())
+                    .header(Utilities.Headers.acceptJson())
+                    .body(body)
+                    .post("/rest/mass/installations");
+                long latency = System.nanoTime() - start;
+
+                UnexpectedResponseException.verifyResponse(response, HttpStatus.SC_OK);
+
+                getSession().getOperationStats().record(REGISTER_OPERATION, latency, TimeUnit.NANOSECONDS);
+                if (progressListener != null) {
+                    progressListener.batchRegistered(registered.addAndGet(size), count, size, latency,
+                        TimeUnit.NANOSECONDS);
+                }
+                return null;
+            }
+        }.run(batchOffsets, parallelism);
     }
 
     public long countAllInstallations(String variantId) {
@@ -77,4 +168,29 @@ public class BatchPushInstallationRequest extends AbstractSessionRequest<BatchPu
 
         return response.getBody().as(Long.class);
     }
+
+    private static byte[] massInstallationBody(int count, String variantId, DeviceTokens tokens, long firstIndex) {
+        // tokens are ASCII, 20 bytes cover the rest of each installation
+        ByteArrayOutputStream body = new ByteArrayOutputStream(count * (DeviceTokens.ANDROID_TOKEN_LENGTH + 20) + 64);
+        char[] token = new char[DeviceTokens.ANDROID_TOKEN_LENGTH];
+        try {
+            JsonGenerator generator = JSON_FACTORY.createGenerator(body, JsonEncoding.UTF8);
+            generator.writeStartObject();
+            generator.writeStringField("variantId", variantId);
+            generator.writeArrayFieldStart("installations");
+            for (int i = 0; i < count; i++) {
+                tokens.android(firstIndex + i, token);
+                generator.writeStartObject();
+                generator.writeFieldName("deviceToken");
+                generator.writeString(token, 0, token.length);
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+            generator.close();
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to serialize mass installation", e);
+        }
+        return body.toByteArray();
+    }
 }
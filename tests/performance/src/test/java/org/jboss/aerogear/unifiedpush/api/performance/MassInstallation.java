@@ -1,52 +0,0 @@
-/*
- * JBoss, Home of Professional Open Source
- * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
- * contributors by the @authors tag. See the copyright.txt in the
- * distribution for a full listing of individual contributors.
- *
- * Licensed under the Apache License, Version 2.0 (the "License");
- * you may not use this file except in compliance with the License.
- * You may obtain a copy of the License at
- * http://www.apache.org/licenses/LICENSE-2.0
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
- */
-package org.jboss.aerogear.unifiedpush.api.performance;
-
-import java.io.Serializable;
-import java.util.List;
-
-import org.jboss.aerogear.unifiedpush.api.Installation;
-
-/**
- * @author <a href="mailto:smikloso@redhat.com">Stefan Miklosovic</a>
- *
- */
-public class MassInstallation implements Serializable {
-
-    private static final long serialVersionUID = -6387683068231570357L;
-
-    private String variantId;
-
-    private List<Installation> installations;
-
-    public String getVariantId() {
-        return variantId;
-    }
-
-    public void setVariantId(String variantId) {
-        this.variantId = variantId;
-    }
-
-    public List<Installation> getInstallations() {
-        return installations;
-    }
-
-    public void setInstallations(List<Installation> installations) {
-        this.installations = installations;
-    }
-
-}
@@ -23,15 +23,8 @@ import org.jboss.aerogear.unifiedpush.test.util.UnifiedPushServer;
 import org.jboss.arquillian.container.test.api.Deployment;
 import org.jboss.arquillian.container.test.api.TargetsContainer;
 import org.jboss.shrinkwrap.api.spec.WebArchive;
-import org.junit.AfterClass;
-import org.junit.BeforeClass;
 import org.junit.runner.RunWith;
 
-import com.jayway.restassured.RestAssured;
-import com.jayway.restassured.config.DecoderConfig;
-import com.jayway.restassured.config.EncoderConfig;
-import com.jayway.restassured.config.RestAssuredConfig;
-
 /**
  * @author <a href="mailto:smikloso@redhat.com">Stefan Miklosovic</a>
  *
@@ -59,19 +52,4 @@ public abstract class AbstractBatchTest {
     public static WebArchive createDeployment() {
         return Deployments.unifiedPushServer();
     }
-
-    @BeforeClass
-    public static void setup() {
-        RestAssured.config = RestAssuredConfig.newConfig()
-            .decoderConfig(DecoderConfig.decoderConfig().defaultContentCharset("UTF-8"))
-            .encoderConfig(EncoderConfig.encoderConfig().defaultContentCharset("UTF-8"));
-
-    }
-
-    @AfterClass
-    public static void cleanup() {
-        RestAssured.config = RestAssuredConfig.newConfig()
-            .decoderConfig(DecoderConfig.decoderConfig().defaultContentCharset("ISO-8859-1"))
-            .encoderConfig(EncoderConfig.encoderConfig().defaultContentCharset("ISO-8859-1"));
-    }
 }
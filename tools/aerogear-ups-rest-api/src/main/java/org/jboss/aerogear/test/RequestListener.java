@@ -0,0 +1,16 @@
+package org.jboss.aerogear.test;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Told about every request made through a session it is added to, including the ones of workers and session requests.
+ * Called by the thread making the request right after the response arrived, so it must be quick and thread safe.
+ */
+public interface RequestListener {
+
+    /**
+     * @param path path of the request with ids replaced by placeholders, so requests to the same endpoint share it
+     * @param bytes length of the response body
+     */
+    void requestCompleted(String method, String path, int status, long bytes, long duration, TimeUnit unit);
+}
@@ -0,0 +1,71 @@
+package org.jboss.aerogear.test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import com.jayway.restassured.filter.Filter;
+import com.jayway.restassured.filter.FilterContext;
+import com.jayway.restassured.response.Response;
+import com.jayway.restassured.specification.FilterableRequestSpecification;
+import com.jayway.restassured.specification.FilterableResponseSpecification;
+
+/**
+ * Times requests of a session for its listeners.
+ */
+class RequestTimingFilter implements Filter {
+
+    // numbers, UUIDs and long tokens with digits, which words of paths do not have
+    private static final Pattern ID = Pattern.compile(
+            "[0-9]+|[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}"
+                    + "|(?=.*[0-9])[A-Za-z0-9_%.=-]{16,}");
+
+    private final List<RequestListener> listeners;
+
+    RequestTimingFilter(List<RequestListener> listeners) {
+        this.listeners = listeners;
+    }
+
+    @Override
+    public Response filter(FilterableRequestSpecification requestSpec, FilterableResponseSpecification responseSpec,
+            FilterContext ctx) {
+        long start = System.nanoTime();
+        Response response = ctx.next(requestSpec, responseSpec);
+        long duration = System.nanoTime() - start;
+
+        String method = String.valueOf(ctx.getRequestMethod());
+        String path = template(ctx.getRequestPath());
+        long bytes = bodyLength(response);
+        for (RequestListener listener : listeners) {
+            listener.requestCompleted(method, path, response.statusCode(), bytes, duration, TimeUnit.NANOSECONDS);
+        }
+        return response;
+    }
+
+    static String template(String path) {
+        int query = path.indexOf('?');
+        String[] segments = (query < 0 ? path : path.substring(0, query)).split("/", -1);
+
+        StringBuilder template = new StringBuilder(path.length());
+        for (int i = 0; i < segments.length; i++) {
+            if (i > 0) {
+                template.append('/');
+            }
+            template.append(ID.matcher(segments[i]).matches() ? "{id}" : segments[i]);
+        }
+        return template.toString();
+    }
+
+    private static long bodyLength(Response response) {
+        String contentLength = response.getHeader("Content-Length");
+        if (contentLength != null) {
+            try {
+                return Long.parseLong(contentLength.trim());
+            } catch (NumberFormatException e) {
+                // counted from the body below
+            }
+        }
+        // RestAssured holds the body in memory already
+        return response.asByteArray().length;
+    }
+}
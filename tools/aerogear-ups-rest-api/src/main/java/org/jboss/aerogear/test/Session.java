@@ -2,31 +2,39 @@ package org.jboss.aerogear.test;
 
 import java.net.URL;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
+import org.jboss.aerogear.test.api.EntityCache;
+import org.jboss.aerogear.test.api.auth.CachedAccessToken;
+import org.jboss.aerogear.test.load.OperationStats;
 import org.keycloak.representations.AccessTokenResponse;
 
-import com.jayway.restassured.RestAssured;
 import com.jayway.restassured.response.Header;
 import com.jayway.restassured.specification.RequestSpecification;
 
 public class Session {
 
-    private URL baseUrl;
-    private String baseUri;
-    private int port;
-    private String basePath;
+    private volatile URL baseUrl;
+    private final SessionSpecification specification;
 
-    private AccessTokenResponse accessTokenResponse;
+    private volatile AccessTokenResponse accessTokenResponse;
+    private volatile CachedAccessToken cachedAccessToken;
 
-    private Map<String, ?> cookies;
-    private boolean invalid;
+    private volatile Map<String, ?> cookies;
+    private volatile boolean invalid;
+
+    private final EntityCache entityCache = new EntityCache();
+
+    private volatile OperationStats operationStats = new OperationStats();
+
+    private final List<RequestListener> requestListeners = new CopyOnWriteArrayList<RequestListener>();
+    private final RequestTimingFilter requestTimingFilter = new RequestTimingFilter(requestListeners);
 
     public Session(URL baseUrl, AccessTokenResponse accessTokenResponse) {
         this.baseUrl = baseUrl;
-        this.baseUri = baseUrl.getProtocol() + "://" + baseUrl.getHost();
-        this.port = baseUrl.getPort() == -1 ? ("https".equals(baseUrl.getProtocol()) ? 443 : 80) : baseUrl.getPort();
-        this.basePath = baseUrl.getPath();
+        this.specification = new SessionSpecification(baseUrl);
 
         this.accessTokenResponse = accessTokenResponse;
 
@@ -35,27 +43,37 @@ public class Session {
 
     }
 
+    /**
+     * Session authorized by a token shared with other sessions of the user, refreshed while in use.
+     */
+    public Session(URL baseUrl, CachedAccessToken cachedAccessToken) {
+        this(baseUrl, new AccessTokenResponse());
+        this.cachedAccessToken = cachedAccessToken;
+    }
+
     public Session(String baseUrl, AccessTokenResponse accessTokenResponse) {
         this(Utilities.Urls.from(baseUrl), accessTokenResponse);
     }
 
     // FIXME chaining with given() would be better
     public RequestSpecification givenAuthorized() {
+        AccessTokenResponse accessTokenResponse = getAccessTokenResponse();
         if(accessTokenResponse.getToken() == null) {
             return given();
         }
 
-        return given().header(getAuthorization());
+        return given().header(getAuthorization(accessTokenResponse));
     }
 
+    /**
+     * @return new request to the server of this session, safe to call from several threads
+     */
     public RequestSpecification given() {
-
-        RestAssured.baseURI = baseUri;
-        RestAssured.port = port;
-        RestAssured.basePath = basePath;
-
-        return RestAssured
-                .given()
+        RequestSpecification request = specification.given();
+        if (!requestListeners.isEmpty()) {
+            request = request.filter(requestTimingFilter);
+        }
+        return request
                 .redirects().follow(false)
                 .cookies(cookies);
     }
@@ -65,6 +83,10 @@ public class Session {
     }
 
     public Header getAuthorization() {
+        return getAuthorization(getAccessTokenResponse());
+    }
+
+    private static Header getAuthorization(AccessTokenResponse accessTokenResponse) {
         String accessToken = "";
         if(accessTokenResponse.getToken() != null) {
             accessToken = accessTokenResponse.getToken();
@@ -72,10 +94,50 @@ public class Session {
         return new Header("Authorization", "Bearer " + accessToken);
     }
 
+    private AccessTokenResponse getAccessTokenResponse() {
+        CachedAccessToken cachedAccessToken = this.cachedAccessToken;
+        return cachedAccessToken != null ? cachedAccessToken.get() : accessTokenResponse;
+    }
+
     public URL getBaseUrl() {
         return baseUrl;
     }
 
+    /**
+     * @return cache of entities shared by the contexts of this session, disabled until configured
+     */
+    public EntityCache getEntityCache() {
+        return entityCache;
+    }
+
+    /**
+     * @return latencies of the worker calls made by contexts of this session
+     */
+    public OperationStats getOperationStats() {
+        return operationStats;
+    }
+
+    /**
+     * Lets several sessions record into the same stats.
+     */
+    public Session setOperationStats(OperationStats operationStats) {
+        this.operationStats = operationStats;
+        return this;
+    }
+
+    /**
+     * Lets the listener know of every request made through this session from now on.
+     */
+    public Session addRequestListener(RequestListener listener) {
+        requestListeners.add(listener);
+        return this;
+    }
+
+    public Session removeRequestListener(RequestListener listener) {
+        requestListeners.remove(listener);
+        return this;
+    }
+
     public boolean isValid() {
         return !invalid;
     }
@@ -89,6 +151,9 @@ public class Session {
         this.cookies = new HashMap<String, Object>();
         this.baseUrl = null;
         this.accessTokenResponse = new AccessTokenResponse();
+        this.cachedAccessToken = null;
+        this.entityCache.clear();
+        this.specification.close();
         return this;
     }
 
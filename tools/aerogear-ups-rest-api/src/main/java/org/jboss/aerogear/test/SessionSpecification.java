@@ -0,0 +1,132 @@
+package org.jboss.aerogear.test;
+
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.conn.ClientConnectionRequest;
+import org.apache.http.conn.ManagedClientConnection;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.impl.client.AbstractHttpClient;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
+
+import com.jayway.restassured.RestAssured;
+import com.jayway.restassured.builder.RequestSpecBuilder;
+import com.jayway.restassured.config.DecoderConfig;
+import com.jayway.restassured.config.EncoderConfig;
+import com.jayway.restassured.config.HttpClientConfig;
+import com.jayway.restassured.config.RestAssuredConfig;
+import com.jayway.restassured.specification.RequestSpecification;
+
+/**
+ * Base URL, configuration and connections of the requests of a session. Requests are built from it alone, the
+ * RestAssured statics are neither read nor written, so sessions to different servers can be used by several threads
+ * at once. Content is encoded and decoded as UTF-8.
+ *
+ * Every request gets its own HTTP client, as RestAssured does not share them, but all clients of a session take their
+ * connections from one pool, so connections are kept alive between requests instead of being opened for each. The pool
+ * is open until {@link #close()}.
+ */
+public final class SessionSpecification {
+
+    public static final int DEFAULT_MAX_CONNECTIONS = 20;
+
+    private final RequestSpecification specification;
+
+    private final RestAssuredConfig config;
+
+    private final PoolingClientConnectionManager pool;
+
+    public SessionSpecification(URL baseUrl) {
+        this(baseUrl, DEFAULT_MAX_CONNECTIONS);
+    }
+
+    /**
+     * @param maxConnections maximal number of connections the session keeps to the server
+     */
+    public SessionSpecification(URL baseUrl, int maxConnections) {
+        if (maxConnections <= 0) {
+            throw new IllegalArgumentException("Number of connections has to be positive, was " + maxConnections);
+        }
+
+        // RestAssured 2.3 has no base path in its specifications, the path of the base URI is kept instead
+        this.specification = new RequestSpecBuilder()
+            .setBaseUri(baseUrl.getProtocol() + "://" + baseUrl.getHost() + baseUrl.getPath())
+            .setPort(baseUrl.getPort() == -1 ? baseUrl.getDefaultPort() : baseUrl.getPort())
+            .build();
+
+        final PoolingClientConnectionManager pool = new PoolingClientConnectionManager();
+        pool.setMaxTotal(maxConnections);
+        pool.setDefaultMaxPerRoute(maxConnections);
+        this.pool = pool;
+
+        this.config = RestAssuredConfig.newConfig()
+            .decoderConfig(DecoderConfig.decoderConfig().defaultContentCharset("UTF-8"))
+            .encoderConfig(EncoderConfig.encoderConfig().defaultContentCharset("UTF-8"))
+            .httpClient(HttpClientConfig.httpClientConfig().httpClientFactory(
+                new HttpClientConfig.HttpClientFactory() {
+                    @Override
+                    public AbstractHttpClient createHttpClient() {
+                        return new DefaultHttpClient(new SharedConnectionManager(pool));
+                    }
+                }));
+    }
+
+    /**
+     * @return new request to the server of the session
+     */
+    public RequestSpecification given() {
+        return RestAssured.given().spec(specification).config(config);
+    }
+
+    /**
+     * Closes the connections of the session. Requests made afterwards fail, closing again does nothing.
+     */
+    public void close() {
+        pool.shutdown();
+    }
+
+    /**
+     * Lends the pool of the session to a client, which shuts its connection manager down once it is done.
+     */
+    private static final class SharedConnectionManager implements ClientConnectionManager {
+
+        private final ClientConnectionManager pool;
+
+        private SharedConnectionManager(ClientConnectionManager pool) {
+            this.pool = pool;
+        }
+
+        @Override
+        public SchemeRegistry getSchemeRegistry() {
+            return pool.getSchemeRegistry();
+        }
+
+        @Override
+        public ClientConnectionRequest requestConnection(HttpRoute route, Object state) {
+            return pool.requestConnection(route, state);
+        }
+
+        @Override
+        public void releaseConnection(ManagedClientConnection connection, long validDuration, TimeUnit timeUnit) {
+            pool.releaseConnection(connection, validDuration, timeUnit);
+        }
+
+        @Override
+        public void closeIdleConnections(long idleTime, TimeUnit timeUnit) {
+            pool.closeIdleConnections(idleTime, timeUnit);
+        }
+
+        @Override
+        public void closeExpiredConnections() {
+            pool.closeExpiredConnections();
+        }
+
+        @Override
+        public void shutdown() {
+            // the pool outlives the clients
+        }
+    }
+}
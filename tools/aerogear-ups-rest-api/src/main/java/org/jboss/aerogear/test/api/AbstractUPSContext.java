@@ -23,6 +23,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import org.jboss.aerogear.test.Session;
 import org.jboss.aerogear.test.Utilities;
@@ -77,19 +78,77 @@ public abstract class AbstractUPSContext<
 
     @Override
     public CONTEXT find(ENTITY_ID id) {
-        EDITOR editor = getWorker().read(castInstance(), id);
+        long start = System.nanoTime();
+        EDITOR editor;
+        try {
+            editor = getWorker().read(castInstance(), id);
+        } finally {
+            timed("read", start);
+        }
         store(editor);
+        cache(editor);
         return castInstance();
     }
 
+    /**
+     * Loads all entities, they are taken from the entity cache of the session when it holds them.
+     */
     @Override
+    @SuppressWarnings("unchecked")
     public CONTEXT findAll() {
         clear();
-        List<EDITOR> editors = getWorker().readAll(castInstance());
+        EntityCache.Key key = cacheKey(null);
+        List<ENTITY> cached = (List<ENTITY>) getSession().getEntityCache().get(key);
+        if (cached != null) {
+            for (ENTITY entity : cached) {
+                store(attach(entity));
+            }
+            return castInstance();
+        }
+
+        List<EDITOR> editors;
+        long start = System.nanoTime();
+        try {
+            editors = getWorker().readAll(castInstance());
+        } finally {
+            timed("readAll", start);
+        }
+        List<ENTITY> detached = new ArrayList<ENTITY>(editors.size());
+        for (EDITOR editor : editors) {
+            detached.add(detach(editor));
+            cache(editor);
+        }
+        getSession().getEntityCache().putAll(key, detached);
         store(editors);
         return castInstance();
     }
 
+    @Override
+    public CONTEXT findPage(int page, int perPage) {
+        clear();
+        List<EDITOR> editors = readPage(page, perPage);
+        store(editors);
+        for (EDITOR editor : editors) {
+            cache(editor);
+        }
+        return castInstance();
+    }
+
+    @Override
+    public PagedIterator<EDITOR> iterate() {
+        return iterate(PagedIterator.DEFAULT_PAGE_SIZE);
+    }
+
+    @Override
+    public PagedIterator<EDITOR> iterate(int perPage) {
+        return new PagedIterator<EDITOR>(new PagedIterator.PageReader<EDITOR>() {
+            @Override
+            public List<EDITOR> read(int page, int perPage) {
+                return readPage(page, perPage);
+            }
+        }, perPage);
+    }
+
     @Override
     public BlueprintList<ENTITY, ENTITY_ID, BLUEPRINT, EDITOR, PARENT, WORKER, CONTEXT> generate(int count) {
         BlueprintList<ENTITY, ENTITY_ID, BLUEPRINT, EDITOR, PARENT, WORKER, CONTEXT> list =
@@ -104,9 +163,6 @@ public abstract class AbstractUPSContext<
 
     @Override
     public EDITOR edit(ENTITY_ID id) {
-        if(!contains(id)) {
-            find(id);
-        }
         return retrieve(id);
     }
 
@@ -117,8 +173,18 @@ public abstract class AbstractUPSContext<
 
     @Override
     public CONTEXT persist(Collection<? extends BLUEPRINT> blueprints) {
-        List<EDITOR> editors = getWorker().create(castInstance(), blueprints);
+        long start = System.nanoTime();
+        List<EDITOR> editors;
+        try {
+            editors = getWorker().create(castInstance(), blueprints);
+        } finally {
+            timed("create", start);
+        }
         store(editors);
+        invalidateAll();
+        for (EDITOR editor : editors) {
+            cache(editor);
+        }
         return castInstance();
     }
 
@@ -129,20 +195,39 @@ public abstract class AbstractUPSContext<
 
     @Override
     public CONTEXT merge(Collection<? extends ENTITY> entities) {
-        getWorker().update(castInstance(), entities);
+        long start = System.nanoTime();
+        try {
+            getWorker().update(castInstance(), entities);
+        } finally {
+            timed("update", start);
+        }
+        invalidateEntities(entities);
         return castInstance();
     }
 
     @Override
     public CONTEXT removeAll() {
-        getWorker().delete(castInstance(), editors.values());
+        long start = System.nanoTime();
+        try {
+            getWorker().delete(castInstance(), editors.values());
+        } finally {
+            timed("delete", start);
+        }
+        invalidateEntities(editors.values());
         editors.clear();
         return castInstance();
     }
 
     @Override
     public CONTEXT removeById(ENTITY_ID id) {
-        getWorker().deleteById(castInstance(), id);
+        long start = System.nanoTime();
+        try {
+            getWorker().deleteById(castInstance(), id);
+        } finally {
+            timed("deleteById", start);
+        }
+        invalidateAll();
+        invalidate(id);
         return castInstance();
     }
 
@@ -153,7 +238,13 @@ public abstract class AbstractUPSContext<
 
     @Override
     public CONTEXT remove(Collection<? extends ENTITY> entities) {
-        getWorker().delete(castInstance(), entities);
+        long start = System.nanoTime();
+        try {
+            getWorker().delete(castInstance(), entities);
+        } finally {
+            timed("delete", start);
+        }
+        invalidateEntities(entities);
         for (ENTITY entity : entities) {
             localRemove(getEntityID(entity));
         }
@@ -205,9 +296,19 @@ public abstract class AbstractUPSContext<
         return editors.get(id);
     }
 
+    /**
+     * Returns editor of the context, an editor missing in the context is made from the entity cache of the session or
+     * read from UPS.
+     */
+    @SuppressWarnings("unchecked")
     protected EDITOR retrieve(ENTITY_ID id) {
         if (!contains(id)) {
-            find(id);
+            ENTITY cached = (ENTITY) getSession().getEntityCache().get(cacheKey(id));
+            if (cached != null) {
+                store(id, attach(cached));
+            } else {
+                find(id);
+            }
         }
         return editors.get(id);
     }
@@ -224,6 +325,78 @@ public abstract class AbstractUPSContext<
         editors.clear();
     }
 
+    /**
+     * Drops the changed entities as well as all entities of the context from the entity cache of the session.
+     */
+    protected void invalidateEntities(Collection<? extends ENTITY> entities) {
+        invalidateAll();
+        for (ENTITY entity : entities) {
+            invalidate(getEntityID(entity));
+        }
+    }
+
+    protected void invalidate(ENTITY_ID id) {
+        getSession().getEntityCache().invalidate(cacheKey(id));
+    }
+
+    /**
+     * Drops the entry holding all entities of the context from the entity cache of the session.
+     */
+    protected void invalidateAll() {
+        getSession().getEntityCache().invalidate(cacheKey(null));
+    }
+
+    /**
+     * Identifies the parent in keys of the entity cache, contexts of the same kind and parent share cached entities.
+     */
+    protected Object getParentID() {
+        return getParent();
+    }
+
+    /**
+     * Records latency of a worker call started at the given {@link System#nanoTime()} into the stats of the session,
+     * named by the worker and the call.
+     */
+    protected void timed(String call, long start) {
+        getSession().getOperationStats().record(getWorker().getClass().getSimpleName() + "." + call,
+                System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private List<EDITOR> readPage(int page, int perPage) {
+        long start = System.nanoTime();
+        try {
+            return getWorker().readAll(castInstance(), page, perPage);
+        } finally {
+            timed("readPage", start);
+        }
+    }
+
+    private void cache(EDITOR editor) {
+        getSession().getEntityCache().put(cacheKey(getEntityID(editor)), detach(editor));
+    }
+
+    /**
+     * @return copy of the entity bound to no context, as kept in the entity cache of the session
+     */
+    private ENTITY detach(ENTITY entity) {
+        ENTITY detached = createDetached();
+        copy(entity, detached);
+        return detached;
+    }
+
+    /**
+     * @return new editor of this context holding a copy of the entity
+     */
+    private EDITOR attach(ENTITY entity) {
+        EDITOR editor = createEditor();
+        copy(entity, editor);
+        return editor;
+    }
+
+    private EntityCache.Key cacheKey(ENTITY_ID id) {
+        return new EntityCache.Key(getWorker().getClass(), getParentID(), id);
+    }
+
     protected String randomString() {
         return randomStringOfLength(DEFAULT_RANDOM_STRING_LENGTH);
     }
@@ -232,6 +405,22 @@ public abstract class AbstractUPSContext<
         return Utilities.Strings.randomStringOfLength(length);
     }
 
+    /**
+     * @return editor of this context holding no state yet
+     */
+    protected abstract EDITOR createEditor();
+
+    /**
+     * @return entity holding no state yet and bound to no context
+     */
+    protected abstract ENTITY createDetached();
+
+    /**
+     * Copies the state UPS returns for an entity, so the entity cache of the session is kept apart from the editors
+     * handed out.
+     */
+    protected abstract void copy(ENTITY from, ENTITY to);
+
     // FIXME think of a better name
     protected abstract CONTEXT castInstance();
 }
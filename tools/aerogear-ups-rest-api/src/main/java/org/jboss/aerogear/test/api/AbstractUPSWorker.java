@@ -18,7 +18,9 @@ package org.jboss.aerogear.test.api;
 
 import org.jboss.aerogear.test.Utilities;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 // FIXME no need for abstract UPS worker?
 public abstract class AbstractUPSWorker<
@@ -45,6 +47,18 @@ public abstract class AbstractUPSWorker<
         }
     }
 
+    /**
+     * For endpoints which do not support paging, all entities are read once as page 0 and later pages are empty, so
+     * iterating reads them once rather than once per page.
+     */
+    @Override
+    public List<EDITOR> readAll(CONTEXT context, int page, int perPage) {
+        if (page > 0) {
+            return new ArrayList<EDITOR>();
+        }
+        return readAll(context);
+    }
+
     @SuppressWarnings("unchecked")
     public WORKER contentType(String contentType) {
         this.contentType = contentType;
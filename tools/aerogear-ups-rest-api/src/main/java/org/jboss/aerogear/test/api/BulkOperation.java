@@ -0,0 +1,94 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.test.api;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Request done once per item, by several threads at once when parallelism is above 1. Each thread takes the next
+ * item not taken yet, so slow requests do not hold the others back. Results are in the order of the items.
+ *
+ * The first failure stops all threads from taking further items and is rethrown once they finished, the results of
+ * the items done until then are lost. Parallelism above the connections of the session makes threads wait for a
+ * connection.
+ */
+public abstract class BulkOperation<ITEM, RESULT> {
+
+    protected abstract RESULT perform(ITEM item);
+
+    public List<RESULT> run(Collection<? extends ITEM> items, int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism has to be positive, was " + parallelism);
+        }
+
+        final List<ITEM> todo = new ArrayList<ITEM>(items);
+        final Object[] results = new Object[todo.size()];
+        final AtomicInteger next = new AtomicInteger();
+        final AtomicReference<RuntimeException> failure = new AtomicReference<RuntimeException>();
+
+        Runnable runner = new Runnable() {
+            @Override
+            public void run() {
+                int index;
+                while (failure.get() == null && (index = next.getAndIncrement()) < todo.size()) {
+                    try {
+                        results[index] = perform(todo.get(index));
+                    } catch (RuntimeException e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            }
+        };
+
+        int threadCount = Math.min(parallelism, todo.size());
+        List<Thread> threads = new ArrayList<Thread>(threadCount);
+        for (int i = 1; i < threadCount; i++) {
+            Thread thread = new Thread(runner, "BulkOperation-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+
+        // the calling thread takes its share as well
+        runner.run();
+        for (Thread thread : threads) {
+            join(thread, failure);
+        }
+
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+
+        @SuppressWarnings("unchecked")
+        List<RESULT> list = (List<RESULT>) Arrays.asList(results);
+        return new ArrayList<RESULT>(list);
+    }
+
+    private static void join(Thread thread, AtomicReference<RuntimeException> failure) {
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            failure.compareAndSet(null, new IllegalStateException("Interrupted while waiting for bulk operation!", e));
+            Thread.currentThread().interrupt();
+        }
+    }
+}
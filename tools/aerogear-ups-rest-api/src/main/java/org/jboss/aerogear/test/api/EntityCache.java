@@ -0,0 +1,156 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.test.api;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entities read by the contexts of a session, so a context needing an entity another context of the same kind has read
+ * recently does not go to UPS again. The cache holds copies bound to no context, each context gets editors of its own
+ * made from them. Entries expire after the time to live, which is the only way to notice changes
+ * made outside of the session as UPS does not support conditional requests. Changes made through the contexts
+ * invalidate the affected entries.
+ *
+ * The size is bound by the number of cached entities, an entry holding all entities of a context counts as many as it
+ * holds. Least recently used entries are evicted first. The cache is disabled until configured.
+ */
+public class EntityCache {
+
+    private final Map<Key, Entry> entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+
+    private int maxSize;
+
+    private long ttlNanos;
+
+    private int size;
+
+    /**
+     * @param maxSize maximal number of cached entities, 0 disables the cache
+     */
+    public synchronized void configure(int maxSize, long ttl, TimeUnit unit) {
+        if (maxSize < 0 || ttl < 0) {
+            throw new IllegalArgumentException("Cache size and time to live can not be negative!");
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = unit.toNanos(ttl);
+        evict();
+    }
+
+    public synchronized boolean isEnabled() {
+        return maxSize > 0 && ttlNanos > 0;
+    }
+
+    /**
+     * @return cached entity, null when there is none or it expired
+     */
+    public synchronized Object get(Key key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (System.nanoTime() - entry.created > ttlNanos) {
+            remove(key);
+            return null;
+        }
+        return entry.value;
+    }
+
+    public synchronized void put(Key key, Object entity) {
+        put(key, entity, 1);
+    }
+
+    /**
+     * Caches all entities of a context, the list is not copied and must not be modified afterwards.
+     */
+    public synchronized void putAll(Key key, List<?> entities) {
+        put(key, Collections.unmodifiableList(entities), entities.size());
+    }
+
+    public synchronized void invalidate(Key key) {
+        remove(key);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        size = 0;
+    }
+
+    private void put(Key key, Object value, int weight) {
+        remove(key);
+        if (!isEnabled() || weight > maxSize) {
+            return;
+        }
+        entries.put(key, new Entry(value, weight));
+        size += weight;
+        evict();
+    }
+
+    private void remove(Key key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            size -= entry.weight;
+        }
+    }
+
+    private void evict() {
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (size > maxSize && eldest.hasNext()) {
+            size -= eldest.next().weight;
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Identifies an entity, or all entities when the id is null, of contexts of one kind and parent.
+     */
+    public static final class Key {
+
+        private final Object[] parts;
+
+        public Key(Class<?> worker, Object parentID, Object entityID) {
+            this.parts = new Object[] { worker, parentID, entityID };
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && Arrays.equals(parts, ((Key) o).parts);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(parts);
+        }
+    }
+
+    private static final class Entry {
+
+        private final Object value;
+        private final int weight;
+        private final long created = System.nanoTime();
+
+        private Entry(Object value, int weight) {
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.test.api;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.jayway.restassured.response.Response;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams JSON entities straight into editors. Fields are bound as the parser walks the response, neither a tree
+ * of the response nor path expressions are involved, so reading tens of thousands of entities is cheap.
+ *
+ * Readers keep no state between calls, workers share one instance per entity type.
+ */
+public abstract class EntityReader<ENTITY> {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    public interface Factory<EDITOR> {
+
+        EDITOR create();
+    }
+
+    public <EDITOR extends ENTITY> List<EDITOR> readAll(Response response, Factory<EDITOR> factory) {
+        try {
+            return readAll(response.asInputStream(), factory);
+        } catch (IOException e) {
+            throw new IllegalStateException("Couldn't read entities from response!", e);
+        }
+    }
+
+    public <EDITOR extends ENTITY> List<EDITOR> readAll(InputStream json, Factory<EDITOR> factory)
+            throws IOException {
+        JsonParser parser = JSON_FACTORY.createParser(json);
+        try {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new JsonParseException("Expected array of entities", parser.getCurrentLocation());
+            }
+
+            List<EDITOR> editors = new ArrayList<EDITOR>();
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                EDITOR editor = factory.create();
+                readObject(editor, parser);
+                editors.add(editor);
+            }
+            return editors;
+        } finally {
+            parser.close();
+        }
+    }
+
+    /**
+     * Reads a single entity, the response body being one JSON object.
+     */
+    public <EDITOR extends ENTITY> EDITOR read(Response response, Factory<EDITOR> factory) {
+        try {
+            JsonParser parser = JSON_FACTORY.createParser(response.asInputStream());
+            try {
+                if (parser.nextToken() != JsonToken.START_OBJECT) {
+                    throw new JsonParseException("Expected entity", parser.getCurrentLocation());
+                }
+                EDITOR editor = factory.create();
+                readObject(editor, parser);
+                return editor;
+            } finally {
+                parser.close();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Couldn't read entity from response!", e);
+        }
+    }
+
+    /**
+     * Reads fields of the object the parser is at into the entity, null values are left out.
+     */
+    protected void readObject(ENTITY entity, JsonParser parser) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if (value == JsonToken.VALUE_NULL || !readField(entity, name, parser)) {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    /**
+     * Binds the value the parser is at to the field of given name.
+     *
+     * @return false for fields the entity does not have, their values are skipped
+     */
+    protected abstract boolean readField(ENTITY entity, String name, JsonParser parser) throws IOException;
+}
@@ -0,0 +1,139 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.test.api;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Walks entities page by page. While the entities of one page are handed out, the next page is already being read,
+ * so at most two pages are held at any time no matter how many entities there are.
+ *
+ * Iteration ends with the first empty page, a page shorter than requested does not end it as the server may cap the
+ * page size. Entities are not stored in the context they come from. Close the iterator when leaving it early so the
+ * page being read is not waited for.
+ */
+public class PagedIterator<EDITOR> implements Iterator<EDITOR>, Closeable {
+
+    public static final int DEFAULT_PAGE_SIZE = 500;
+
+    private static final AtomicInteger threadCount = new AtomicInteger();
+
+    private static final ExecutorService prefetchExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "PagedIteratorPrefetch-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    public interface PageReader<EDITOR> {
+
+        /**
+         * @param page index of the page starting with 0
+         */
+        List<EDITOR> read(int page, int perPage);
+    }
+
+    private final PageReader<EDITOR> reader;
+    private final int perPage;
+
+    private Iterator<EDITOR> current;
+    private Future<List<EDITOR>> next;
+    private int nextPage;
+
+    public PagedIterator(PageReader<EDITOR> reader, int perPage) {
+        if (perPage <= 0) {
+            throw new IllegalArgumentException("Page size has to be positive, was " + perPage);
+        }
+        this.reader = reader;
+        this.perPage = perPage;
+        this.next = prefetch();
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (current == null || !current.hasNext()) {
+            if (next == null) {
+                return false;
+            }
+
+            List<EDITOR> page = await(next);
+            next = page.isEmpty() ? null : prefetch();
+            current = page.iterator();
+        }
+        return true;
+    }
+
+    @Override
+    public EDITOR next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return current.next();
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("Entities can not be removed while iterating");
+    }
+
+    @Override
+    public void close() {
+        if (next != null) {
+            next.cancel(true);
+            next = null;
+        }
+        current = null;
+    }
+
+    private Future<List<EDITOR>> prefetch() {
+        final int page = nextPage++;
+        return prefetchExecutor.submit(new Callable<List<EDITOR>>() {
+            @Override
+            public List<EDITOR> call() {
+                return reader.read(page, perPage);
+            }
+        });
+    }
+
+    private List<EDITOR> await(Future<List<EDITOR>> page) {
+        try {
+            return page.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close();
+            throw new IllegalStateException("Interrupted while waiting for a page!", e);
+        } catch (ExecutionException e) {
+            close();
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Couldn't read a page!", e.getCause());
+        }
+    }
+}
@@ -38,6 +38,12 @@ public interface UPSContext<
 
     CONTEXT findAll();
 
+    CONTEXT findPage(int page, int perPage);
+
+    PagedIterator<EDITOR> iterate();
+
+    PagedIterator<EDITOR> iterate(int perPage);
+
     CONTEXT find(ENTITY_ID id);
 
     EDITOR edit(ENTITY_ID id);
@@ -1,6 +1,5 @@
 package org.jboss.aerogear.test.api;
 
-import com.jayway.restassured.path.json.JsonPath;
 import org.jboss.aerogear.test.Session;
 import org.json.simple.JSONObject;
 
@@ -20,12 +19,16 @@ public interface UPSWorker<
 
     JSONObject marshall(ENTITY entity);
 
-    EDITOR demarshall(CONTEXT context, JsonPath json);
-
     List<EDITOR> create(CONTEXT context, Collection<? extends BLUEPRINT> blueprints);
 
     List<EDITOR> readAll(CONTEXT context);
 
+    /**
+     * @param page index of the page starting with 0
+     * @return entities of the page, workers of endpoints without paging return all entities as page 0
+     */
+    List<EDITOR> readAll(CONTEXT context, int page, int perPage);
+
     EDITOR read(CONTEXT context, ENTITY_ID id);
 
     void update(CONTEXT context, Collection<? extends ENTITY> entities);
@@ -19,7 +19,9 @@ package org.jboss.aerogear.test.api.application;
 import org.jboss.aerogear.test.Session;
 import org.jboss.aerogear.test.api.AbstractUPSContext;
 import org.jboss.aerogear.unifiedpush.api.PushApplication;
+import org.jboss.aerogear.unifiedpush.api.Variant;
 
+import java.util.ArrayList;
 import java.util.UUID;
 
 public class PushApplicationContext extends AbstractUPSContext<PushApplication, String, PushApplicationBlueprint,
@@ -47,10 +49,39 @@ public class PushApplicationContext extends AbstractUPSContext<PushApplication,
     }
 
     public PushApplicationContext resetMasterSecret(String pushApplicationId) {
-        getWorker().resetMasterSecret(this, pushApplicationId);
+        long start = System.nanoTime();
+        try {
+            getWorker().resetMasterSecret(this, pushApplicationId);
+        } finally {
+            timed("resetMasterSecret", start);
+        }
+        invalidate(pushApplicationId);
         return this;
     }
 
+    @Override
+    protected PushApplicationEditor createEditor() {
+        return new PushApplicationEditor(this);
+    }
+
+    @Override
+    protected PushApplication createDetached() {
+        return new PushApplication();
+    }
+
+    @Override
+    protected void copy(PushApplication from, PushApplication to) {
+        to.setId(from.getId());
+        to.setName(from.getName());
+        to.setDescription(from.getDescription());
+        to.setPushApplicationID(from.getPushApplicationID());
+        to.setMasterSecret(from.getMasterSecret());
+        to.setDeveloper(from.getDeveloper());
+        if (from.getVariants() != null) {
+            to.setVariants(new ArrayList<Variant>(from.getVariants()));
+        }
+    }
+
     @Override
     protected PushApplicationContext castInstance() {
         return this;
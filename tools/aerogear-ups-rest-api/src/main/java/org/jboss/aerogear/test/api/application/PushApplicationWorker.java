@@ -16,21 +16,50 @@
  */
 package org.jboss.aerogear.test.api.application;
 
-import com.jayway.restassured.path.json.JsonPath;
+import com.fasterxml.jackson.core.JsonParser;
 import com.jayway.restassured.response.Response;
 import org.apache.http.HttpStatus;
 import org.jboss.aerogear.test.*;
 import org.jboss.aerogear.test.api.AbstractUPSWorker;
+import org.jboss.aerogear.test.api.EntityReader;
 import org.jboss.aerogear.unifiedpush.api.PushApplication;
 import org.json.simple.JSONObject;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 public class PushApplicationWorker extends AbstractUPSWorker<PushApplication, String, PushApplicationBlueprint, PushApplicationEditor, Void, PushApplicationContext, PushApplicationWorker> {
 
+    private static final EntityReader<PushApplication> READER = new EntityReader<PushApplication>() {
+        @Override
+        protected boolean readField(PushApplication application, String name, JsonParser parser) throws IOException {
+            switch (name) {
+                case "name":
+                    application.setName(parser.getValueAsString());
+                    return true;
+                case "description":
+                    application.setDescription(parser.getValueAsString());
+                    return true;
+                case "pushApplicationID":
+                    application.setPushApplicationID(parser.getValueAsString());
+                    return true;
+                case "masterSecret":
+                    application.setMasterSecret(parser.getValueAsString());
+                    return true;
+                case "developer":
+                    application.setDeveloper(parser.getValueAsString());
+                    return true;
+                default:
+                    return false;
+            }
+        }
+    };
+
     private String contentType = Utilities.ContentTypes.json();
 
     private PushApplicationWorker() {
@@ -50,17 +79,6 @@ public class PushApplicationWorker extends AbstractUPSWorker<PushApplication, St
         return jsonObject;
     }
 
-    @Override
-    public PushApplicationEditor demarshall(PushApplicationContext context, JsonPath jsonPath) {
-        PushApplicationEditor application = new PushApplicationEditor(context);
-        application.setName(jsonPath.getString("name"));
-        application.setDescription(jsonPath.getString("description"));
-        application.setPushApplicationID(jsonPath.getString("pushApplicationID"));
-        application.setMasterSecret(jsonPath.getString("masterSecret"));
-        application.setDeveloper(jsonPath.getString("developer"));
-        return application;
-    }
-
     @Override
     public List<PushApplicationEditor> create(PushApplicationContext context, Collection<? extends
             PushApplicationBlueprint> pushApplications) {
@@ -74,37 +92,34 @@ public class PushApplicationWorker extends AbstractUPSWorker<PushApplication, St
 
             UnexpectedResponseException.verifyResponse(response, HttpStatus.SC_CREATED);
 
-            registeredApplications.add(demarshall(context, response.jsonPath()));
+            registeredApplications.add(READER.read(response, editorFactory(context)));
         }
         return registeredApplications;
     }
 
     @Override
     public List<PushApplicationEditor> readAll(PushApplicationContext context) {
+        return readAll(context, Collections.<String, Object>emptyMap());
+    }
+
+    @Override
+    public List<PushApplicationEditor> readAll(PushApplicationContext context, int page, int perPage) {
+        Map<String, Object> queryParams = new HashMap<String, Object>();
+        queryParams.put("page", page);
+        queryParams.put("per_page", perPage);
+        return readAll(context, queryParams);
+    }
 
+    private List<PushApplicationEditor> readAll(PushApplicationContext context, Map<String, ?> queryParams) {
         Response response = context.getSession().givenAuthorized()
                 .contentType(Utilities.ContentTypes.json())
                 .header(Utilities.Headers.acceptJson())
+                .queryParams(queryParams)
                 .get("/rest/applications");
 
         UnexpectedResponseException.verifyResponse(response, HttpStatus.SC_OK);
 
-        List<PushApplicationEditor> applications = new ArrayList<PushApplicationEditor>();
-
-        JsonPath jsonPath = response.jsonPath();
-
-        List<Map<String, ?>> items = jsonPath.getList("");
-
-        for (int i = 0; i < items.size(); i++) {
-            jsonPath.setRoot("[" + i + "]");
-
-            // FIXME this might not be the right implementation
-            // it can actually leak values of previous implementation
-            PushApplicationEditor pushApplication = demarshall(context, jsonPath);
-            applications.add(pushApplication);
-        }
-
-        return applications;
+        return READER.readAll(response, editorFactory(context));
     }
 
     @Override
@@ -116,7 +131,7 @@ public class PushApplicationWorker extends AbstractUPSWorker<PushApplication, St
 
         UnexpectedResponseException.verifyResponse(response, HttpStatus.SC_OK);
 
-        return demarshall(context, response.jsonPath());
+        return READER.read(response, editorFactory(context));
     }
 
     @Override
@@ -161,6 +176,15 @@ public class PushApplicationWorker extends AbstractUPSWorker<PushApplication, St
         return this;
     }
 
+    private static EntityReader.Factory<PushApplicationEditor> editorFactory(final PushApplicationContext context) {
+        return new EntityReader.Factory<PushApplicationEditor>() {
+            @Override
+            public PushApplicationEditor create() {
+                return new PushApplicationEditor(context);
+            }
+        };
+    }
+
     public static PushApplicationWorker worker() {
         return new PushApplicationWorker();
     }
@@ -0,0 +1,78 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.test.api.auth;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Access tokens by auth server and user, so every login of a user after the first one reuses the token instead of
+ * going to the auth server. A login failing with the given credentials leaves nothing behind.
+ */
+public final class AccessTokenCache {
+
+    private static final AccessTokenCache INSTANCE = new AccessTokenCache();
+
+    private final ConcurrentMap<List<String>, CachedAccessToken> tokens =
+            new ConcurrentHashMap<List<String>, CachedAccessToken>();
+
+    private AccessTokenCache() {
+    }
+
+    public static AccessTokenCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return token of the user, logged in first unless already cached
+     */
+    public CachedAccessToken obtain(URI tokenEndpoint, String username, String password) {
+        List<String> key = Arrays.asList(tokenEndpoint.toString(), username, password);
+
+        CachedAccessToken token = tokens.get(key);
+        if (token == null) {
+            CachedAccessToken created = new CachedAccessToken(tokenEndpoint, username, password);
+            token = tokens.putIfAbsent(key, created);
+            if (token == null) {
+                token = created;
+            }
+        }
+
+        try {
+            token.get();
+        } catch (RuntimeException e) {
+            tokens.remove(key, token);
+            throw e;
+        }
+        return token;
+    }
+
+    /**
+     * Forgets and closes the tokens of all users. Sessions already holding one keep using its access token until it
+     * expires, they have to log in again afterwards.
+     */
+    public void clear() {
+        for (CachedAccessToken token : tokens.values()) {
+            if (tokens.values().remove(token)) {
+                token.close();
+            }
+        }
+    }
+}
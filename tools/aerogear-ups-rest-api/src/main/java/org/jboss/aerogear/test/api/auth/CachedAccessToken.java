@@ -0,0 +1,195 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.test.api.auth;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.http.HttpStatus;
+import org.jboss.aerogear.test.Session;
+import org.jboss.aerogear.test.UnexpectedResponseException;
+import org.jboss.aerogear.test.Utilities;
+import org.keycloak.OAuth2Constants;
+import org.keycloak.representations.AccessTokenResponse;
+import org.keycloak.util.JsonSerialization;
+
+import com.jayway.restassured.response.Response;
+import com.jayway.restassured.specification.RequestSpecification;
+
+/**
+ * Access token of a user, handed to the sessions logged in as that user. The token is refreshed in the background
+ * once three quarters of its lifespan passed, using the refresh token, or the password when the refresh token is no
+ * longer accepted. Tokens nobody asked for since their last refresh are left to expire and renewed on next use.
+ */
+public class CachedAccessToken {
+
+    private static final Logger log = Logger.getLogger(CachedAccessToken.class.getName());
+
+    private static final String CLIENT_ID = "unified-push-server-js";
+
+    private static final AtomicInteger threadCount = new AtomicInteger();
+
+    private static final ScheduledExecutorService refreshExecutor;
+
+    static {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "AccessTokenRefresh-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        refreshExecutor = executor;
+    }
+
+    private final Session authServerSession;
+    private final String username;
+    private final String password;
+
+    private volatile AccessTokenResponse response;
+    private volatile long issued;
+    private volatile long expires;
+    private volatile long lastUsed;
+    private volatile boolean closed;
+
+    CachedAccessToken(URI tokenEndpoint, String username, String password) {
+        this.authServerSession = Session.newSession(tokenEndpoint.toString());
+        this.username = username;
+        this.password = password;
+    }
+
+    /**
+     * @return valid token, obtained first when the cached one expired or there is none yet
+     * @throws UnexpectedResponseException when the user could not be logged in
+     */
+    public AccessTokenResponse get() {
+        long now = System.nanoTime();
+        lastUsed = now;
+
+        AccessTokenResponse current = response;
+        if (current != null && now - expires < 0) {
+            return current;
+        }
+        return renew();
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    /**
+     * Stops refreshing the token and closes the connections to the auth server.
+     */
+    synchronized void close() {
+        closed = true;
+        authServerSession.invalidate();
+    }
+
+    private synchronized AccessTokenResponse renew() {
+        if (response != null && System.nanoTime() - expires < 0) {
+            return response;
+        }
+        if (closed) {
+            throw new IllegalStateException("Access token of " + username + " was closed, log in again");
+        }
+        update(login());
+        return response;
+    }
+
+    private synchronized void refresh() {
+        if (closed) {
+            return;
+        }
+        // left to expire when unused since issued, next get() logs in again
+        if (lastUsed - issued < 0) {
+            log.log(Level.FINE, "Access token of {0} unused, not refreshing", username);
+            return;
+        }
+
+        AccessTokenResponse refreshed = null;
+        if (response != null && response.getRefreshToken() != null) {
+            try {
+                refreshed = grant(request()
+                        .formParam(OAuth2Constants.GRANT_TYPE, OAuth2Constants.REFRESH_TOKEN)
+                        .formParam(OAuth2Constants.REFRESH_TOKEN, response.getRefreshToken()));
+            } catch (RuntimeException e) {
+                log.log(Level.FINE, "Refresh token of " + username + " rejected, logging in again", e);
+            }
+        }
+
+        try {
+            update(refreshed != null ? refreshed : login());
+        } catch (RuntimeException e) {
+            log.log(Level.WARNING, "Access token of " + username + " could not be refreshed", e);
+        }
+    }
+
+    private AccessTokenResponse login() {
+        return grant(request()
+                .formParam(OAuth2Constants.GRANT_TYPE, "password")
+                .formParam("username", username)
+                .formParam("password", password));
+    }
+
+    private void update(AccessTokenResponse response) {
+        long now = System.nanoTime();
+        long lifespan = TimeUnit.SECONDS.toNanos(response.getExpiresIn());
+
+        this.response = response;
+        this.issued = now;
+        // tokens of unknown lifespan are never renewed
+        this.expires = lifespan > 0 ? now + lifespan / 10 * 9 : now + Long.MAX_VALUE / 2;
+
+        if (lifespan > 0) {
+            refreshExecutor.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    refresh();
+                }
+            }, lifespan / 4 * 3, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private RequestSpecification request() {
+        return authServerSession.given()
+                .header(Utilities.Headers.acceptJson())
+                .formParam(OAuth2Constants.CLIENT_ID, CLIENT_ID);
+    }
+
+    private static AccessTokenResponse grant(RequestSpecification request) {
+        Response response = request.post();
+
+        if (response.statusCode() != HttpStatus.SC_OK) {
+            throw new UnexpectedResponseException(response, HttpStatus.SC_OK);
+        }
+        try {
+            return JsonSerialization.readValue(response.asString(), AccessTokenResponse.class);
+        } catch (IOException ex) {
+            throw new RuntimeException(
+                    "Unable to demarshall payload from login request to AccessTokenResponse model class.", ex);
+        }
+    }
+}
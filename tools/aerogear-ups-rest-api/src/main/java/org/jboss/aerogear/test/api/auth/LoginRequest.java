@@ -16,25 +16,17 @@
  */
 package org.jboss.aerogear.test.api.auth;
 
-import java.io.IOException;
 import java.net.URI;
 
-import org.apache.http.HttpStatus;
 import org.jboss.aerogear.test.Session;
-import org.jboss.aerogear.test.UnexpectedResponseException;
-import org.jboss.aerogear.test.Utilities;
-import org.keycloak.OAuth2Constants;
 import org.keycloak.constants.ServiceUrlConstants;
-import org.keycloak.representations.AccessTokenResponse;
-import org.keycloak.util.JsonSerialization;
 import org.keycloak.util.KeycloakUriBuilder;
 
-import com.jayway.restassured.response.Response;
-
 public class LoginRequest extends AbstractAuthRequest<LoginRequest> {
 
     private String username;
     private String password;
+    private boolean reuseToken;
 
     public LoginRequest username(String username) {
         this.username = username;
@@ -46,31 +38,28 @@ public class LoginRequest extends AbstractAuthRequest<LoginRequest> {
         return this;
     }
 
+    /**
+     * @param reuseToken whether to share the access token with other sessions of the user through
+     *        {@link AccessTokenCache}, false by default
+     */
+    public LoginRequest reuseToken(boolean reuseToken) {
+        this.reuseToken = reuseToken;
+        return this;
+    }
+
     public Session login() {
 
         URI authServerEndpointUri = KeycloakUriBuilder.fromUri(getAuthServerUrl().toExternalForm())
                 .path(ServiceUrlConstants.TOKEN_PATH).build("aerogear");
 
-        Session session = Session.newSession(authServerEndpointUri.toString());
-        // FIXME dont use Session here! Fire up our own RestAssured
-        Response response = session.given()
-                .header(Utilities.Headers.acceptJson())
-                .formParam(OAuth2Constants.GRANT_TYPE, "password")
-                .formParam("username", username)
-                .formParam("password", password)
-                .formParam(OAuth2Constants.CLIENT_ID, "unified-push-server-js")
-                .post();
-
-        if(response.statusCode() == HttpStatus.SC_OK) {
-            try {
-                AccessTokenResponse tokenResponse = JsonSerialization.readValue(response.asString(), AccessTokenResponse.class);
-                return new Session(getUnifiedPushServerUrl(), tokenResponse);
-            } catch (IOException ex) {
-                throw new RuntimeException("Unable to demarshall payload from login request to AccessTokenResponse model class.", ex);
-            }
+        CachedAccessToken token;
+        if (reuseToken) {
+            token = AccessTokenCache.getInstance().obtain(authServerEndpointUri, username, password);
         } else {
-            throw new UnexpectedResponseException(response, HttpStatus.SC_OK);
+            token = new CachedAccessToken(authServerEndpointUri, username, password);
+            token.get();
         }
+        return new Session(getUnifiedPushServerUrl(), token);
     }
 
     public static LoginRequest request() {
@@ -0,0 +1,133 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.test.api.installation;
+
+import java.util.Random;
+
+/**
+ * Device tokens and aliases derived from a seed and an index, the same seed and index give the same token in every
+ * run. Nothing is stored, a token is computed from its index alone, so any number of them can be generated from
+ * several threads without the cost of random strings.
+ *
+ * Tokens look like the ones of the platforms: 64 hex characters for iOS, 100 base64url characters for Android.
+ */
+public class DeviceTokens {
+
+    public static final int IOS_TOKEN_LENGTH = 64;
+
+    public static final int ANDROID_TOKEN_LENGTH = 100;
+
+    public static final int ALIAS_LENGTH = 32;
+
+    private static final String SIMPLE_PUSH_ENDPOINT = "http://localhost:8081/";
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static final char[] BASE64URL =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".toCharArray();
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    // keep tokens of different kinds with the same index apart
+    private static final long IOS_SALT = 0x1L;
+    private static final long ANDROID_SALT = 0x2L;
+    private static final long SIMPLE_PUSH_SALT = 0x3L;
+    private static final long ALIAS_SALT = 0x4L;
+
+    private final long seed;
+
+    public DeviceTokens(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * @return tokens of a seed picked at random
+     */
+    public static DeviceTokens random() {
+        return new DeviceTokens(new Random().nextLong());
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public String ios(long index) {
+        char[] token = new char[IOS_TOKEN_LENGTH];
+        hex(index, IOS_SALT, token, 0, token.length);
+        return new String(token);
+    }
+
+    public String android(long index) {
+        char[] token = new char[ANDROID_TOKEN_LENGTH];
+        android(index, token);
+        return new String(token);
+    }
+
+    /**
+     * Writes the Android token into the start of the buffer, for serializing without a string per token.
+     */
+    public void android(long index, char[] buffer) {
+        long state = start(index, ANDROID_SALT);
+        long bits = 0;
+        for (int i = 0; i < ANDROID_TOKEN_LENGTH; i++) {
+            // 10 characters of 6 bits out of each 64 bit word
+            if (i % 10 == 0) {
+                state += GOLDEN_GAMMA;
+                bits = mix(state);
+            }
+            buffer[i] = BASE64URL[(int) (bits & 0x3F)];
+            bits >>>= 6;
+        }
+    }
+
+    public String simplePush(long index) {
+        char[] token = new char[SIMPLE_PUSH_ENDPOINT.length() + ALIAS_LENGTH];
+        SIMPLE_PUSH_ENDPOINT.getChars(0, SIMPLE_PUSH_ENDPOINT.length(), token, 0);
+        hex(index, SIMPLE_PUSH_SALT, token, SIMPLE_PUSH_ENDPOINT.length(), ALIAS_LENGTH);
+        return new String(token);
+    }
+
+    public String alias(long index) {
+        char[] alias = new char[ALIAS_LENGTH];
+        hex(index, ALIAS_SALT, alias, 0, alias.length);
+        return new String(alias);
+    }
+
+    private void hex(long index, long salt, char[] buffer, int offset, int length) {
+        long state = start(index, salt);
+        long bits = 0;
+        for (int i = 0; i < length; i++) {
+            if (i % 16 == 0) {
+                state += GOLDEN_GAMMA;
+                bits = mix(state);
+            }
+            buffer[offset + i] = HEX[(int) (bits & 0xF)];
+            bits >>>= 4;
+        }
+    }
+
+    private long start(long index, long salt) {
+        return mix(seed ^ mix(index * 8 + salt));
+    }
+
+    // finalizer of SplitMix64, spreads every bit of the input over the whole output
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
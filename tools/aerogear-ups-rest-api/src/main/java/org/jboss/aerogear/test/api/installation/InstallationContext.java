@@ -18,11 +18,15 @@ package org.jboss.aerogear.test.api.installation;
 
 import org.jboss.aerogear.test.Session;
 import org.jboss.aerogear.test.api.AbstractUPSContext;
+import org.jboss.aerogear.test.api.BlueprintList;
+import org.jboss.aerogear.unifiedpush.api.Category;
 import org.jboss.aerogear.unifiedpush.api.Installation;
 import org.jboss.aerogear.unifiedpush.api.Variant;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
 
 public abstract class InstallationContext<
         BLUEPRINT extends InstallationBlueprint<BLUEPRINT, EDITOR, PARENT, WORKER, CONTEXT>,
@@ -34,10 +38,47 @@ public abstract class InstallationContext<
 
         extends AbstractUPSContext<Installation, String, BLUEPRINT, EDITOR, PARENT, WORKER, CONTEXT> {
 
+    private final DeviceTokens tokens = DeviceTokens.random();
+    private long nextTokenIndex;
+
     public InstallationContext(WORKER worker, PARENT parent, Session session) {
         super(worker, parent, session);
     }
 
+    @Override
+    public BLUEPRINT generate() {
+        return generate(tokens, nextTokenIndex++);
+    }
+
+    @Override
+    public BlueprintList<Installation, String, BLUEPRINT, EDITOR, PARENT, WORKER, CONTEXT> generate(int count) {
+        BlueprintList<Installation, String, BLUEPRINT, EDITOR, PARENT, WORKER, CONTEXT> list =
+                generate(count, tokens, nextTokenIndex);
+        nextTokenIndex += count;
+        return list;
+    }
+
+    /**
+     * Generates blueprints of the tokens with indexes starting at the given one, the same tokens and indexes give the
+     * same blueprints in every run.
+     */
+    public BlueprintList<Installation, String, BLUEPRINT, EDITOR, PARENT, WORKER, CONTEXT> generate(int count,
+            DeviceTokens tokens, long firstIndex) {
+        BlueprintList<Installation, String, BLUEPRINT, EDITOR, PARENT, WORKER, CONTEXT> list =
+                new BlueprintList<Installation, String, BLUEPRINT, EDITOR, PARENT, WORKER, CONTEXT>(castInstance());
+        list.ensureCapacity(count);
+
+        for (int i = 0; i < count; i++) {
+            list.add(generate(tokens, firstIndex + i));
+        }
+        return list;
+    }
+
+    /**
+     * @return blueprint with the device token and alias of the index
+     */
+    public abstract BLUEPRINT generate(DeviceTokens tokens, long index);
+
     @Override
     public String getEntityID(Installation installation) {
         return installation.getId();
@@ -56,12 +97,51 @@ public abstract class InstallationContext<
     }
 
     public CONTEXT unregister(Collection<? extends Installation> installations) {
-        getWorker().unregister(castInstance(), installations);
+        long start = System.nanoTime();
+        try {
+            getWorker().unregister(castInstance(), installations);
+        } finally {
+            timed("unregister", start);
+        }
+        invalidateEntities(installations);
         for (Installation installation : installations) {
             localRemove(getEntityID(installation));
         }
         return castInstance();
     }
 
+    @Override
+    protected Object getParentID() {
+        return getParent().getVariantID();
+    }
+
+    @Override
     protected abstract EDITOR createEditor();
+
+    @Override
+    protected Installation createDetached() {
+        return new Installation();
+    }
+
+    @Override
+    protected void copy(Installation from, Installation to) {
+        to.setId(from.getId());
+        to.setEnabled(from.isEnabled());
+        to.setDeviceToken(from.getDeviceToken());
+        to.setDeviceType(from.getDeviceType());
+        to.setOperatingSystem(from.getOperatingSystem());
+        to.setOsVersion(from.getOsVersion());
+        to.setAlias(from.getAlias());
+        to.setPlatform(from.getPlatform());
+        to.setVariant(from.getVariant());
+        if (from.getCategories() != null) {
+            Set<Category> categories = new HashSet<Category>();
+            for (Category category : from.getCategories()) {
+                Category copy = new Category(category.getName());
+                copy.setId(category.getId());
+                categories.add(copy);
+            }
+            to.setCategories(categories);
+        }
+    }
 }
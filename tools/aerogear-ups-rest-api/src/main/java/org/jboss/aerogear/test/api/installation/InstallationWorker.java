@@ -1,22 +1,31 @@
 package org.jboss.aerogear.test.api.installation;
 
-import com.jayway.restassured.path.json.JsonPath;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.jayway.restassured.response.Response;
+import com.jayway.restassured.specification.RequestSpecification;
 import org.apache.http.HttpStatus;
 import org.jboss.aerogear.test.UnexpectedResponseException;
 import org.jboss.aerogear.test.Utilities;
 import org.jboss.aerogear.test.api.AbstractUPSWorker;
+import org.jboss.aerogear.test.api.BulkOperation;
+import org.jboss.aerogear.test.api.EntityReader;
 import org.jboss.aerogear.unifiedpush.api.Category;
 import org.jboss.aerogear.unifiedpush.api.Installation;
 import org.jboss.aerogear.unifiedpush.api.Variant;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 
 public abstract class InstallationWorker<
         BLUEPRINT extends InstallationBlueprint<BLUEPRINT, EDITOR, PARENT, WORKER, CONTEXT>,
@@ -27,6 +36,63 @@ public abstract class InstallationWorker<
 
         extends AbstractUPSWorker<Installation, String, BLUEPRINT, EDITOR, PARENT, CONTEXT, WORKER> {
 
+    private static final EntityReader<Installation> READER = new EntityReader<Installation>() {
+        @Override
+        protected boolean readField(Installation installation, String name, JsonParser parser) throws IOException {
+            switch (name) {
+                case "id":
+                    installation.setId(parser.getValueAsString());
+                    return true;
+                case "platform":
+                    installation.setPlatform(parser.getValueAsString());
+                    return true;
+                case "enabled":
+                    installation.setEnabled(parser.getValueAsBoolean());
+                    return true;
+                case "operatingSystem":
+                    installation.setOperatingSystem(parser.getValueAsString());
+                    return true;
+                case "osVersion":
+                    installation.setOsVersion(parser.getValueAsString());
+                    return true;
+                case "alias":
+                    installation.setAlias(parser.getValueAsString());
+                    return true;
+                case "deviceType":
+                    installation.setDeviceType(parser.getValueAsString());
+                    return true;
+                case "deviceToken":
+                    installation.setDeviceToken(parser.getValueAsString());
+                    return true;
+                case "categories":
+                    installation.setCategories(readCategories(parser));
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+        private Set<Category> readCategories(JsonParser parser) throws IOException {
+            Set<Category> categories = new HashSet<Category>();
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = parser.getCurrentName();
+                    parser.nextToken();
+                    if ("name".equals(name)) {
+                        categories.add(new Category(parser.getValueAsString()));
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            }
+            return categories;
+        }
+    };
+
+    private int parallelism = 1;
+
+    private boolean logging;
+
     @Override
     public JSONObject marshall(Installation entity) {
         JSONObject jsonObject = new JSONObject();
@@ -49,83 +115,119 @@ public abstract class InstallationWorker<
         return jsonObject;
     }
 
+    /**
+     * Registers the devices as they would register themselves, {@link #parallelism(int)} at once.
+     */
     @Override
-    public EDITOR demarshall(CONTEXT context, JsonPath jsonPath) {
-        EDITOR editor = context.createEditor();
-        editor.setId(jsonPath.getString("id"));
-        editor.setPlatform(jsonPath.getString("platform"));
-        editor.setEnabled(jsonPath.getBoolean("enabled"));
-        editor.setOperatingSystem(jsonPath.getString("operatingSystem"));
-        editor.setOsVersion(jsonPath.getString("osVersion"));
-        editor.setAlias(jsonPath.getString("alias"));
-        editor.setDeviceType(jsonPath.getString("deviceType"));
-        editor.setDeviceToken(jsonPath.getString("deviceToken"));
-        HashSet<Category> categories = new HashSet<Category>();
-        List<? extends Map<String, Object>> jsonCategories = jsonPath.getList("categories");
-        if (jsonCategories != null) {
-            for (Map<String, Object> jsonCategory : jsonCategories) {
-                String categoryName = (String) jsonCategory.get("name");
-                Category category = new Category(categoryName);
-                categories.add(category);
-            }
+    public List<EDITOR> create(final CONTEXT context, Collection<? extends BLUEPRINT> blueprints) {
+        if (blueprints.isEmpty()) {
+            return new ArrayList<EDITOR>();
         }
-        editor.setCategories(categories);
-        return editor;
+
+        final AtomicReference<RegistrationBodyTemplate> template = new AtomicReference<RegistrationBodyTemplate>(
+                new RegistrationBodyTemplate(blueprints.iterator().next()));
+        final EntityReader.Factory<EDITOR> factory = editorFactory(context);
+
+        return new BulkOperation<BLUEPRINT, EDITOR>() {
+            @Override
+            protected EDITOR perform(BLUEPRINT blueprint) {
+                RegistrationBodyTemplate current = template.get().forInstallation(blueprint);
+                template.set(current);
+
+                Response response = given(context)
+                        .header(Utilities.Headers.acceptJson())
+                        .body(current.body(blueprint))
+                        .post("/rest/registry/device");
+
+                UnexpectedResponseException.verifyResponse(response, HttpStatus.SC_OK);
+
+                return READER.read(response, factory);
+            }
+        }.run(blueprints, parallelism);
     }
 
-    @Override
-    public List<EDITOR> create(CONTEXT context, Collection<? extends BLUEPRINT> blueprints) {
-        List<EDITOR> editors = new ArrayList<EDITOR>();
-        for (InstallationBlueprint blueprint : blueprints) {
-            Response response = context.getSession().given()
-                    .contentType(getContentType())
-                    .auth().basic(context.getParent().getVariantID(), context.getParent().getSecret())
-                    .header(Utilities.Headers.acceptJson())
-                    .body(marshall(blueprint))
-                    .post("/rest/registry/device");
+    /**
+     * Unregisters the devices as they would unregister themselves, {@link #parallelism(int)} at once.
+     */
+    public void unregister(final CONTEXT context, Collection<? extends Installation> entities) {
+        new BulkOperation<Installation, Void>() {
+            @Override
+            protected Void perform(Installation entity) {
+                Response response = given(context)
+                        .urlEncodingEnabled(false)
+                        .delete("/rest/registry/device/{token}", entity.getDeviceToken());
 
-            UnexpectedResponseException.verifyResponse(response, HttpStatus.SC_OK);
+                UnexpectedResponseException.verifyResponse(response, HttpStatus.SC_NO_CONTENT);
+                return null;
+            }
+        }.run(entities, parallelism);
+    }
 
-            editors.add(demarshall(context, response.jsonPath()));
+    /**
+     * @param parallelism number of devices registered or unregistered at once, 1 by default
+     */
+    @SuppressWarnings("unchecked")
+    public WORKER parallelism(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism has to be positive, was " + parallelism);
         }
-        return editors;
+        this.parallelism = parallelism;
+        return (WORKER) this;
     }
 
-    public void unregister(CONTEXT context, Collection<? extends Installation> entities) {
-        for (Installation entity : entities) {
-            Response response = context.getSession().given().log().all()
-                    .contentType(getContentType())
-                    .auth().basic(context.getParent().getVariantID(), context.getParent().getSecret())
-                    .urlEncodingEnabled(false)
-                    .delete("/rest/registry/device/{token}", entity.getDeviceToken());
+    /**
+     * @param logging whether to log registration requests, off by default
+     */
+    @SuppressWarnings("unchecked")
+    public WORKER logging(boolean logging) {
+        this.logging = logging;
+        return (WORKER) this;
+    }
 
-            UnexpectedResponseException.verifyResponse(response, HttpStatus.SC_NO_CONTENT);
+    private EntityReader.Factory<EDITOR> editorFactory(final CONTEXT context) {
+        return new EntityReader.Factory<EDITOR>() {
+            @Override
+            public EDITOR create() {
+                EDITOR editor = context.createEditor();
+                editor.setCategories(new HashSet<Category>());
+                return editor;
+            }
+        };
+    }
+
+    private RequestSpecification given(CONTEXT context) {
+        RequestSpecification request = context.getSession().given();
+        if (logging) {
+            request = request.log().all();
         }
+        return request
+                .contentType(getContentType())
+                .auth().basic(context.getParent().getVariantID(), context.getParent().getSecret());
     }
 
     @Override
     public List<EDITOR> readAll(CONTEXT context) {
+        return readAll(context, Collections.<String, Object>emptyMap());
+    }
+
+    @Override
+    public List<EDITOR> readAll(CONTEXT context, int page, int perPage) {
+        Map<String, Object> queryParams = new HashMap<String, Object>();
+        queryParams.put("page", page);
+        queryParams.put("per_page", perPage);
+        return readAll(context, queryParams);
+    }
+
+    private List<EDITOR> readAll(CONTEXT context, Map<String, ?> queryParams) {
         Response response = context.getSession().givenAuthorized()
                 .contentType(getContentType())
                 .header(Utilities.Headers.acceptJson())
+                .queryParams(queryParams)
                 .get("/rest/applications/{variantID}/installations", context.getParent().getVariantID());
 
         UnexpectedResponseException.verifyResponse(response, HttpStatus.SC_OK);
 
-        List<EDITOR> editors = new ArrayList<EDITOR>();
-
-        JsonPath jsonPath = response.jsonPath();
-
-        List<Map<String, ?>> items = jsonPath.getList("");
-
-        for (int i = 0; i < items.size(); i++) {
-            jsonPath.setRoot("[" + i + "]");
-
-            EDITOR editor = demarshall(context, jsonPath);
-            editors.add(editor);
-        }
-
-        return editors;
+        return READER.readAll(response, editorFactory(context));
     }
 
     @Override
@@ -138,7 +240,7 @@ public abstract class InstallationWorker<
 
         UnexpectedResponseException.verifyResponse(response, HttpStatus.SC_OK);
 
-        return demarshall(context, response.jsonPath());
+        return READER.read(response, editorFactory(context));
     }
 
     @Override
@@ -0,0 +1,114 @@
+package org.jboss.aerogear.test.api.installation;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import org.jboss.aerogear.unifiedpush.api.Category;
+import org.jboss.aerogear.unifiedpush.api.Installation;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Device registration body serialized once and reused for every installation sharing its device type, operating
+ * system, version and categories, only the device token and alias are put in per installation.
+ */
+class RegistrationBodyTemplate {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final String deviceType;
+    private final String operatingSystem;
+    private final String osVersion;
+    private final List<String> categories;
+
+    // every field but device token and alias, ready for them to follow
+    private final String prefix;
+
+    RegistrationBodyTemplate(Installation installation) {
+        this.deviceType = installation.getDeviceType();
+        this.operatingSystem = installation.getOperatingSystem();
+        this.osVersion = installation.getOsVersion();
+        this.categories = categoryNames(installation.getCategories());
+        this.prefix = serializePrefix();
+    }
+
+    /**
+     * @return the same template when the installation shares its fields, a new one otherwise
+     */
+    RegistrationBodyTemplate forInstallation(Installation installation) {
+        if (equal(deviceType, installation.getDeviceType())
+                && equal(operatingSystem, installation.getOperatingSystem())
+                && equal(osVersion, installation.getOsVersion())
+                && equal(categories, categoryNames(installation.getCategories()))) {
+            return this;
+        }
+        return new RegistrationBodyTemplate(installation);
+    }
+
+    String body(Installation installation) {
+        StringBuilder body = new StringBuilder(prefix.length() + 256).append(prefix);
+        body.append("\"deviceToken\":");
+        appendString(body, installation.getDeviceToken());
+        body.append(",\"alias\":");
+        appendString(body, installation.getAlias());
+        return body.append('}').toString();
+    }
+
+    private String serializePrefix() {
+        StringWriter writer = new StringWriter();
+        try {
+            JsonGenerator generator = JSON_FACTORY.createGenerator(writer);
+            generator.writeStartObject();
+            generator.writeStringField("deviceType", deviceType);
+            generator.writeStringField("operatingSystem", operatingSystem);
+            generator.writeStringField("osVersion", osVersion);
+            if (categories != null) {
+                generator.writeArrayFieldStart("categories");
+                for (String category : categories) {
+                    generator.writeStartObject();
+                    generator.writeStringField("name", category);
+                    generator.writeEndObject();
+                }
+                generator.writeEndArray();
+            }
+            generator.writeEndObject();
+            generator.close();
+        } catch (IOException e) {
+            throw new IllegalStateException("Couldn't serialize registration body!", e);
+        }
+
+        // reopen the object so the remaining fields can be appended
+        String object = writer.toString();
+        String open = object.substring(0, object.length() - 1);
+        return open.endsWith("{") ? open : open + ",";
+    }
+
+    private static void appendString(StringBuilder body, String value) {
+        if (value == null) {
+            body.append("null");
+        } else {
+            body.append('"').append(JsonStringEncoder.getInstance().quoteAsString(value)).append('"');
+        }
+    }
+
+    private static List<String> categoryNames(Set<Category> categories) {
+        if (categories == null) {
+            return null;
+        }
+        List<String> names = new ArrayList<String>(categories.size());
+        for (Category category : categories) {
+            names.add(category.getName());
+        }
+        Collections.sort(names);
+        return names;
+    }
+
+    private static boolean equal(Object a, Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
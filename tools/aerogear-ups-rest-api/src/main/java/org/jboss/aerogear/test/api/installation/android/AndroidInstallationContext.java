@@ -17,6 +17,7 @@
 package org.jboss.aerogear.test.api.installation.android;
 
 import org.jboss.aerogear.test.Session;
+import org.jboss.aerogear.test.api.installation.DeviceTokens;
 import org.jboss.aerogear.test.api.installation.InstallationContext;
 import org.jboss.aerogear.unifiedpush.api.AndroidVariant;
 
@@ -43,9 +44,9 @@ public class AndroidInstallationContext extends InstallationContext<AndroidInsta
     }
 
     @Override
-    public AndroidInstallationBlueprint generate() {
+    public AndroidInstallationBlueprint generate(DeviceTokens tokens, long index) {
         return create()
-                .deviceToken(randomStringOfLength(100))
-                .alias(randomString());
+                .deviceToken(tokens.android(index))
+                .alias(tokens.alias(index));
     }
 }
@@ -17,6 +17,7 @@
 package org.jboss.aerogear.test.api.installation.ios;
 
 import org.jboss.aerogear.test.Session;
+import org.jboss.aerogear.test.api.installation.DeviceTokens;
 import org.jboss.aerogear.test.api.installation.InstallationContext;
 import org.jboss.aerogear.unifiedpush.api.iOSVariant;
 
@@ -43,10 +44,10 @@ public class iOSInstallationContext extends InstallationContext<iOSInstallationB
     }
 
     @Override
-    public iOSInstallationBlueprint generate() {
+    public iOSInstallationBlueprint generate(DeviceTokens tokens, long index) {
         return create()
-                .deviceToken(randomIOSDeviceToken())
-                .alias(randomString());
+                .deviceToken(tokens.ios(index))
+                .alias(tokens.alias(index));
     }
 
     public String randomIOSDeviceToken() {
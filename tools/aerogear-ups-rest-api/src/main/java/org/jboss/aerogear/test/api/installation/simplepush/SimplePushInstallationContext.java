@@ -17,6 +17,7 @@
 package org.jboss.aerogear.test.api.installation.simplepush;
 
 import org.jboss.aerogear.test.Session;
+import org.jboss.aerogear.test.api.installation.DeviceTokens;
 import org.jboss.aerogear.test.api.installation.InstallationContext;
 import org.jboss.aerogear.unifiedpush.api.SimplePushVariant;
 
@@ -43,9 +44,9 @@ public class SimplePushInstallationContext extends InstallationContext<SimplePus
     }
 
     @Override
-    public SimplePushInstallationBlueprint generate() {
+    public SimplePushInstallationBlueprint generate(DeviceTokens tokens, long index) {
         return create()
-                .deviceToken("http://localhost:8081/" + randomString())
-                .alias(randomString());
+                .deviceToken(tokens.simplePush(index))
+                .alias(tokens.alias(index));
     }
 }
@@ -18,6 +18,8 @@ package org.jboss.aerogear.test.api.variant;
 
 import org.jboss.aerogear.test.Session;
 import org.jboss.aerogear.test.api.AbstractUPSContext;
+import org.jboss.aerogear.unifiedpush.api.PushApplication;
+import org.jboss.aerogear.unifiedpush.api.Variant;
 
 public abstract class VariantContext<
         ENTITY,
@@ -36,7 +38,33 @@ public abstract class VariantContext<
     }
 
     public CONTEXT resetSecret(ENTITY_ID variantID) {
-        getWorker().resetSecret(castInstance(), variantID);
+        long start = System.nanoTime();
+        try {
+            getWorker().resetSecret(castInstance(), variantID);
+        } finally {
+            timed("resetSecret", start);
+        }
+        invalidate(variantID);
         return castInstance();
     }
+
+    /**
+     * Copies the state all kinds of variants have.
+     */
+    protected static void copyVariant(Variant from, Variant to) {
+        to.setId(from.getId());
+        to.setName(from.getName());
+        to.setDescription(from.getDescription());
+        to.setVariantID(from.getVariantID());
+        to.setSecret(from.getSecret());
+        to.setDeveloper(from.getDeveloper());
+    }
+
+    @Override
+    protected Object getParentID() {
+        if (getParent() instanceof PushApplication) {
+            return ((PushApplication) getParent()).getPushApplicationID();
+        }
+        return super.getParentID();
+    }
 }
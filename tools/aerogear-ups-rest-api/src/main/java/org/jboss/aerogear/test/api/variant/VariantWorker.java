@@ -16,7 +16,11 @@
  */
 package org.jboss.aerogear.test.api.variant;
 
+import com.fasterxml.jackson.core.JsonParser;
 import org.jboss.aerogear.test.api.AbstractUPSWorker;
+import org.jboss.aerogear.unifiedpush.api.Variant;
+
+import java.io.IOException;
 
 public abstract class VariantWorker<
         ENTITY,
@@ -31,4 +35,34 @@ public abstract class VariantWorker<
 
 
     public abstract void resetSecret(CONTEXT context, ENTITY_ID variantID);
+
+    /**
+     * Binds fields common to all variants, for use by the entity readers of the variant workers.
+     *
+     * @return false for fields not common to all variants
+     */
+    protected static boolean readVariantField(Variant variant, String name, JsonParser parser) throws IOException {
+        switch (name) {
+            case "id":
+                variant.setId(parser.getValueAsString());
+                return true;
+            case "name":
+                variant.setName(parser.getValueAsString());
+                return true;
+            case "description":
+                variant.setDescription(parser.getValueAsString());
+                return true;
+            case "variantID":
+                variant.setVariantID(parser.getValueAsString());
+                return true;
+            case "secret":
+                variant.setSecret(parser.getValueAsString());
+                return true;
+            case "developer":
+                variant.setDeveloper(parser.getValueAsString());
+                return true;
+            default:
+                return false;
+        }
+    }
 }
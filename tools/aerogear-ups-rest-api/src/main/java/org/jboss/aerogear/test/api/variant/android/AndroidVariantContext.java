@@ -42,6 +42,23 @@ public class AndroidVariantContext extends VariantContext<AndroidVariant, String
                 .projectNumber(randomString());
     }
 
+    @Override
+    protected AndroidVariantEditor createEditor() {
+        return new AndroidVariantEditor(this);
+    }
+
+    @Override
+    protected AndroidVariant createDetached() {
+        return new AndroidVariant();
+    }
+
+    @Override
+    protected void copy(AndroidVariant from, AndroidVariant to) {
+        copyVariant(from, to);
+        to.setGoogleKey(from.getGoogleKey());
+        to.setProjectNumber(from.getProjectNumber());
+    }
+
     @Override
     protected AndroidVariantContext castInstance() {
         return this;
@@ -1,24 +1,41 @@
 package org.jboss.aerogear.test.api.variant.android;
 
-import com.jayway.restassured.path.json.JsonPath;
+import com.fasterxml.jackson.core.JsonParser;
 import com.jayway.restassured.response.Response;
 import org.apache.http.HttpStatus;
 import org.jboss.aerogear.test.Session;
 import org.jboss.aerogear.test.UnexpectedResponseException;
 import org.jboss.aerogear.test.Utilities;
+import org.jboss.aerogear.test.api.EntityReader;
 import org.jboss.aerogear.test.api.variant.VariantWorker;
 import org.jboss.aerogear.unifiedpush.api.AndroidVariant;
 import org.jboss.aerogear.unifiedpush.api.PushApplication;
 import org.json.simple.JSONObject;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
-import java.util.Map;
 
 public class AndroidVariantWorker extends VariantWorker<AndroidVariant, String, AndroidVariantBlueprint,
         AndroidVariantEditor, PushApplication, AndroidVariantContext, AndroidVariantWorker> {
 
+    private static final EntityReader<AndroidVariant> READER = new EntityReader<AndroidVariant>() {
+        @Override
+        protected boolean readField(AndroidVariant variant, String name, JsonParser parser) throws IOException {
+            switch (name) {
+                case "googleKey":
+                    variant.setGoogleKey(parser.getValueAsString());
+                    return true;
+                case "projectNumber":
+                    variant.setProjectNumber(parser.getValueAsString());
+                    return true;
+                default:
+                    return readVariantField(variant, name, parser);
+            }
+        }
+    };
+
     private AndroidVariantWorker() {
 
     }
@@ -41,20 +58,6 @@ public class AndroidVariantWorker extends VariantWorker<AndroidVariant, String,
         return jsonObject;
     }
 
-    @Override
-    public AndroidVariantEditor demarshall(AndroidVariantContext context, JsonPath jsonPath) {
-        AndroidVariantEditor editor = new AndroidVariantEditor(context);
-        editor.setName(jsonPath.getString("name"));
-        editor.setDescription(jsonPath.getString("description"));
-        editor.setVariantID(jsonPath.getString("variantID"));
-        editor.setSecret(jsonPath.getString("secret"));
-        editor.setDeveloper(jsonPath.getString("developer"));
-        editor.setGoogleKey(jsonPath.getString("googleKey"));
-        editor.setId(jsonPath.getString("id"));
-        editor.setProjectNumber(jsonPath.getString("projectNumber"));
-        return editor;
-    }
-
     @Override
     public List<AndroidVariantEditor> create(AndroidVariantContext context, Collection<? extends
             AndroidVariantBlueprint> blueprints) {
@@ -68,7 +71,7 @@ public class AndroidVariantWorker extends VariantWorker<AndroidVariant, String,
 
             UnexpectedResponseException.verifyResponse(response, HttpStatus.SC_CREATED);
 
-            editors.add(demarshall(context, response.jsonPath()));
+            editors.add(READER.read(response, editorFactory(context)));
         }
         return editors;
     }
@@ -82,20 +85,7 @@ public class AndroidVariantWorker extends VariantWorker<AndroidVariant, String,
 
         UnexpectedResponseException.verifyResponse(response, HttpStatus.SC_OK);
 
-        List<AndroidVariantEditor> editors = new ArrayList<AndroidVariantEditor>();
-
-        JsonPath jsonPath = response.jsonPath();
-
-        List<Map<String, ?>> items = jsonPath.getList("");
-
-        for (int i = 0; i < items.size(); i++) {
-            jsonPath.setRoot("[" + i + "]");
-
-            AndroidVariantEditor editor = demarshall(context, jsonPath);
-            editors.add(editor);
-        }
-
-        return editors;
+        return READER.readAll(response, editorFactory(context));
     }
 
     @Override
@@ -108,7 +98,7 @@ public class AndroidVariantWorker extends VariantWorker<AndroidVariant, String,
 
         UnexpectedResponseException.verifyResponse(response, HttpStatus.SC_OK);
 
-        return demarshall(context, response.jsonPath());
+        return READER.read(response, editorFactory(context));
     }
 
     @Override
@@ -150,6 +140,15 @@ public class AndroidVariantWorker extends VariantWorker<AndroidVariant, String,
         UnexpectedResponseException.verifyResponse(response, HttpStatus.SC_OK);
     }
 
+    private static EntityReader.Factory<AndroidVariantEditor> editorFactory(final AndroidVariantContext context) {
+        return new EntityReader.Factory<AndroidVariantEditor>() {
+            @Override
+            public AndroidVariantEditor create() {
+                return new AndroidVariantEditor(context);
+            }
+        };
+    }
+
     public static AndroidVariantWorker worker() {
         return new AndroidVariantWorker();
     }
@@ -45,6 +45,26 @@ public class iOSVariantContext extends VariantContext<iOSVariant, String, iOSVar
                 .passphrase(getWorker().getDefaultPassphrase());
     }
 
+    @Override
+    protected iOSVariantEditor createEditor() {
+        return new iOSVariantEditor(this);
+    }
+
+    @Override
+    protected iOSVariant createDetached() {
+        return new iOSVariant();
+    }
+
+    @Override
+    protected void copy(iOSVariant from, iOSVariant to) {
+        copyVariant(from, to);
+        to.setProduction(from.isProduction());
+        to.setPassphrase(from.getPassphrase());
+        if (from.getCertificate() != null) {
+            to.setCertificate(from.getCertificate().clone());
+        }
+    }
+
     @Override
     protected iOSVariantContext castInstance() {
         return this;
@@ -60,7 +80,13 @@ public class iOSVariantContext extends VariantContext<iOSVariant, String, iOSVar
     }
 
     public iOSVariantContext mergePatch(Collection<? extends iOSVariant> entities) {
-        getWorker().updatePatch(this, entities);
+        long start = System.nanoTime();
+        try {
+            getWorker().updatePatch(this, entities);
+        } finally {
+            timed("updatePatch", start);
+        }
+        invalidateEntities(entities);
         return this;
     }
 }
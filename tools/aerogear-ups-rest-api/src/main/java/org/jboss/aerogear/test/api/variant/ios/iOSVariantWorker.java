@@ -1,23 +1,40 @@
 package org.jboss.aerogear.test.api.variant.ios;
 
-import com.jayway.restassured.path.json.JsonPath;
+import com.fasterxml.jackson.core.JsonParser;
 import com.jayway.restassured.response.Response;
 import org.apache.http.HttpStatus;
 import org.jboss.aerogear.test.*;
+import org.jboss.aerogear.test.api.EntityReader;
 import org.jboss.aerogear.test.api.variant.VariantWorker;
 import org.jboss.aerogear.unifiedpush.api.PushApplication;
 import org.jboss.aerogear.unifiedpush.api.iOSVariant;
 import org.json.simple.JSONObject;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
-import java.util.Map;
 
 public class iOSVariantWorker extends VariantWorker<iOSVariant, String, iOSVariantBlueprint, iOSVariantEditor,
         PushApplication, iOSVariantContext, iOSVariantWorker> {
 
+    private static final EntityReader<iOSVariant> READER = new EntityReader<iOSVariant>() {
+        @Override
+        protected boolean readField(iOSVariant variant, String name, JsonParser parser) throws IOException {
+            switch (name) {
+                case "production":
+                    variant.setProduction(parser.getValueAsBoolean());
+                    return true;
+                case "passphrase":
+                    variant.setPassphrase(parser.getValueAsString());
+                    return true;
+                default:
+                    return readVariantField(variant, name, parser);
+            }
+        }
+    };
+
     private byte[] defaultCertificate;
     private String defaultPassphrase;
 
@@ -42,20 +59,6 @@ public class iOSVariantWorker extends VariantWorker<iOSVariant, String, iOSVaria
         return jsonObject;
     }
 
-    @Override
-    public iOSVariantEditor demarshall(iOSVariantContext context, JsonPath jsonPath) {
-        iOSVariantEditor editor = new iOSVariantEditor(context);
-        editor.setName(jsonPath.getString("name"));
-        editor.setDescription(jsonPath.getString("description"));
-        editor.setVariantID(jsonPath.getString("variantID"));
-        editor.setSecret(jsonPath.getString("secret"));
-        editor.setDeveloper(jsonPath.getString("developer"));
-        editor.setProduction(jsonPath.getBoolean("production"));
-        editor.setId(jsonPath.getString("id"));
-        editor.setPassphrase(jsonPath.getString("passphrase"));
-        return editor;
-    }
-
     @Override
     public List<iOSVariantEditor> create(iOSVariantContext context, Collection<? extends
             iOSVariantBlueprint> blueprints) {
@@ -73,7 +76,7 @@ public class iOSVariantWorker extends VariantWorker<iOSVariant, String, iOSVaria
 
             UnexpectedResponseException.verifyResponse(response, HttpStatus.SC_CREATED);
 
-            editors.add(demarshall(context, response.jsonPath()));
+            editors.add(READER.read(response, editorFactory(context)));
         }
         return editors;
     }
@@ -87,20 +90,7 @@ public class iOSVariantWorker extends VariantWorker<iOSVariant, String, iOSVaria
 
         UnexpectedResponseException.verifyResponse(response, HttpStatus.SC_OK);
 
-        List<iOSVariantEditor> editors = new ArrayList<iOSVariantEditor>();
-
-        JsonPath jsonPath = response.jsonPath();
-
-        List<Map<String, ?>> items = jsonPath.getList("");
-
-        for (int i = 0; i < items.size(); i++) {
-            jsonPath.setRoot("[" + i + "]");
-
-            iOSVariantEditor editor = demarshall(context, jsonPath);
-            editors.add(editor);
-        }
-
-        return editors;
+        return READER.readAll(response, editorFactory(context));
     }
 
     @Override
@@ -113,7 +103,7 @@ public class iOSVariantWorker extends VariantWorker<iOSVariant, String, iOSVaria
 
         UnexpectedResponseException.verifyResponse(response, HttpStatus.SC_OK);
 
-        return demarshall(context, response.jsonPath());
+        return READER.read(response, editorFactory(context));
     }
 
     @Override
@@ -198,6 +188,15 @@ public class iOSVariantWorker extends VariantWorker<iOSVariant, String, iOSVaria
         return this;
     }
 
+    private static EntityReader.Factory<iOSVariantEditor> editorFactory(final iOSVariantContext context) {
+        return new EntityReader.Factory<iOSVariantEditor>() {
+            @Override
+            public iOSVariantEditor create() {
+                return new iOSVariantEditor(context);
+            }
+        };
+    }
+
     public static iOSVariantWorker worker() {
         return new iOSVariantWorker();
     }
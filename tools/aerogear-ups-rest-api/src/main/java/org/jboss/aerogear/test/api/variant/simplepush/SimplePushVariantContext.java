@@ -41,6 +41,21 @@ public class SimplePushVariantContext extends VariantContext<SimplePushVariant,
                 .description(randomString());
     }
 
+    @Override
+    protected SimplePushVariantEditor createEditor() {
+        return new SimplePushVariantEditor(this);
+    }
+
+    @Override
+    protected SimplePushVariant createDetached() {
+        return new SimplePushVariant();
+    }
+
+    @Override
+    protected void copy(SimplePushVariant from, SimplePushVariant to) {
+        copyVariant(from, to);
+    }
+
     @Override
     protected SimplePushVariantContext castInstance() {
         return this;
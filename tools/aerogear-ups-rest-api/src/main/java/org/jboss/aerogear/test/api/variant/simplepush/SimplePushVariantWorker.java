@@ -1,24 +1,32 @@
 package org.jboss.aerogear.test.api.variant.simplepush;
 
-import com.jayway.restassured.path.json.JsonPath;
+import com.fasterxml.jackson.core.JsonParser;
 import com.jayway.restassured.response.Response;
 import org.apache.http.HttpStatus;
 import org.jboss.aerogear.test.Session;
 import org.jboss.aerogear.test.UnexpectedResponseException;
 import org.jboss.aerogear.test.Utilities;
+import org.jboss.aerogear.test.api.EntityReader;
 import org.jboss.aerogear.test.api.variant.VariantWorker;
 import org.jboss.aerogear.unifiedpush.api.PushApplication;
 import org.jboss.aerogear.unifiedpush.api.SimplePushVariant;
 import org.json.simple.JSONObject;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
-import java.util.Map;
 
 public class SimplePushVariantWorker extends VariantWorker<SimplePushVariant, String, SimplePushVariantBlueprint,
         SimplePushVariantEditor, PushApplication, SimplePushVariantContext, SimplePushVariantWorker> {
 
+    private static final EntityReader<SimplePushVariant> READER = new EntityReader<SimplePushVariant>() {
+        @Override
+        protected boolean readField(SimplePushVariant variant, String name, JsonParser parser) throws IOException {
+            return readVariantField(variant, name, parser);
+        }
+    };
+
     private SimplePushVariantWorker() {
 
     }
@@ -39,18 +47,6 @@ public class SimplePushVariantWorker extends VariantWorker<SimplePushVariant, St
         return jsonObject;
     }
 
-    @Override
-    public SimplePushVariantEditor demarshall(SimplePushVariantContext context, JsonPath jsonPath) {
-        SimplePushVariantEditor editor = new SimplePushVariantEditor(context);
-        editor.setName(jsonPath.getString("name"));
-        editor.setDescription(jsonPath.getString("description"));
-        editor.setVariantID(jsonPath.getString("variantID"));
-        editor.setSecret(jsonPath.getString("secret"));
-        editor.setDeveloper(jsonPath.getString("developer"));
-        editor.setId(jsonPath.getString("id"));
-        return editor;
-    }
-
     @Override
     public List<SimplePushVariantEditor> create(SimplePushVariantContext context, Collection<? extends
 
@@ -66,7 +62,7 @@ public class SimplePushVariantWorker extends VariantWorker<SimplePushVariant, St
 
             UnexpectedResponseException.verifyResponse(response, HttpStatus.SC_CREATED);
 
-            editors.add(demarshall(context, response.jsonPath()));
+            editors.add(READER.read(response, editorFactory(context)));
         }
         return editors;
     }
@@ -80,20 +76,7 @@ public class SimplePushVariantWorker extends VariantWorker<SimplePushVariant, St
 
         UnexpectedResponseException.verifyResponse(response, HttpStatus.SC_OK);
 
-        List<SimplePushVariantEditor> editors = new ArrayList<SimplePushVariantEditor>();
-
-        JsonPath jsonPath = response.jsonPath();
-
-        List<Map<String, ?>> items = jsonPath.getList("");
-
-        for (int i = 0; i < items.size(); i++) {
-            jsonPath.setRoot("[" + i + "]");
-
-            SimplePushVariantEditor editor = demarshall(context, jsonPath);
-            editors.add(editor);
-        }
-
-        return editors;
+        return READER.readAll(response, editorFactory(context));
     }
 
     @Override
@@ -106,7 +89,7 @@ public class SimplePushVariantWorker extends VariantWorker<SimplePushVariant, St
 
         UnexpectedResponseException.verifyResponse(response, HttpStatus.SC_OK);
 
-        return demarshall(context, response.jsonPath());
+        return READER.read(response, editorFactory(context));
     }
 
     @Override
@@ -148,6 +131,15 @@ public class SimplePushVariantWorker extends VariantWorker<SimplePushVariant, St
         UnexpectedResponseException.verifyResponse(response, HttpStatus.SC_OK);
     }
 
+    private static EntityReader.Factory<SimplePushVariantEditor> editorFactory(final SimplePushVariantContext context) {
+        return new EntityReader.Factory<SimplePushVariantEditor>() {
+            @Override
+            public SimplePushVariantEditor create() {
+                return new SimplePushVariantEditor(context);
+            }
+        };
+    }
+
     public static SimplePushVariantWorker worker() {
         return new SimplePushVariantWorker();
     }
@@ -0,0 +1,215 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.test.load;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jboss.aerogear.test.RequestListener;
+import org.jboss.aerogear.test.Session;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Requests aggregated by method and path, with their latencies, status classes and response sizes. Written as JSON
+ * or CSV, so latencies of test runs can be compared.
+ */
+public class EndpointStats implements RequestListener {
+
+    private static final Logger log = Logger.getLogger(EndpointStats.class.getName());
+
+    /**
+     * Directory the requests of the whole run are reported to when it ends, nothing is reported when not set.
+     */
+    public static final String REPORT_DIRECTORY_PROPERTY = "requestReportDir";
+
+    private static final String REPORT_NAME = "ups-requests";
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static EndpointStats runStats;
+
+    private final ConcurrentMap<String, Endpoint> endpoints = new ConcurrentHashMap<String, Endpoint>();
+
+    /**
+     * Adds the session to the requests reported at the end of the run, if a report directory is set by
+     * {@link #REPORT_DIRECTORY_PROPERTY}.
+     */
+    public static synchronized void reportOnExit(Session session) {
+        final String directory = System.getProperty(REPORT_DIRECTORY_PROPERTY);
+        if (directory == null || directory.isEmpty()) {
+            return;
+        }
+
+        if (runStats == null) {
+            final EndpointStats stats = new EndpointStats();
+            Runtime.getRuntime().addShutdownHook(new Thread("EndpointStatsReport") {
+                @Override
+                public void run() {
+                    try {
+                        stats.writeReports(new File(directory), REPORT_NAME);
+                    } catch (IOException e) {
+                        log.log(Level.WARNING, "Request report could not be written to " + directory, e);
+                    }
+                }
+            });
+            runStats = stats;
+        }
+        session.removeRequestListener(runStats).addRequestListener(runStats);
+    }
+
+    @Override
+    public void requestCompleted(String method, String path, int status, long bytes, long duration, TimeUnit unit) {
+        String key = method + " " + path;
+        Endpoint endpoint = endpoints.get(key);
+        if (endpoint == null) {
+            Endpoint created = new Endpoint(method, path);
+            endpoint = endpoints.putIfAbsent(key, created);
+            if (endpoint == null) {
+                endpoint = created;
+            }
+        }
+        endpoint.record(status, bytes, duration, unit);
+    }
+
+    public void clear() {
+        endpoints.clear();
+    }
+
+    /**
+     * Writes {@code name.json} and {@code name.csv} into the directory, which is created when missing.
+     */
+    public void writeReports(File directory, String name) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Couldn't create directory " + directory);
+        }
+
+        Writer json = new OutputStreamWriter(new FileOutputStream(new File(directory, name + ".json")), "UTF-8");
+        try {
+            writeJson(json);
+        } finally {
+            json.close();
+        }
+
+        Writer csv = new OutputStreamWriter(new FileOutputStream(new File(directory, name + ".csv")), "UTF-8");
+        try {
+            writeCsv(csv);
+        } finally {
+            csv.close();
+        }
+    }
+
+    public void writeJson(Writer writer) throws IOException {
+        JsonGenerator generator = JSON_FACTORY.createGenerator(writer);
+        generator.useDefaultPrettyPrinter();
+        generator.writeStartArray();
+        for (Endpoint endpoint : sorted().values()) {
+            LatencyHistogram latency = endpoint.latency;
+            generator.writeStartObject();
+            generator.writeStringField("method", endpoint.method);
+            generator.writeStringField("path", endpoint.path);
+            generator.writeNumberField("count", latency.getCount());
+            generator.writeNumberField("bytes", endpoint.bytes.get());
+            generator.writeObjectFieldStart("status");
+            for (int i = 1; i < Endpoint.STATUS_CLASSES; i++) {
+                generator.writeNumberField(i + "xx", endpoint.statusClasses.get(i));
+            }
+            generator.writeNumberField("other", endpoint.statusClasses.get(0));
+            generator.writeEndObject();
+            generator.writeObjectFieldStart("latencyMillis");
+            generator.writeNumberField("mean", latency.getMean(TimeUnit.MICROSECONDS) / 1000);
+            generator.writeNumberField("min", millis(latency.getMin(TimeUnit.MICROSECONDS)));
+            generator.writeNumberField("p50", millis(latency.getPercentile(50, TimeUnit.MICROSECONDS)));
+            generator.writeNumberField("p95", millis(latency.getPercentile(95, TimeUnit.MICROSECONDS)));
+            generator.writeNumberField("p99", millis(latency.getPercentile(99, TimeUnit.MICROSECONDS)));
+            generator.writeNumberField("max", millis(latency.getMax(TimeUnit.MICROSECONDS)));
+            generator.writeEndObject();
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+        generator.flush();
+    }
+
+    public void writeCsv(Writer writer) {
+        PrintWriter csv = new PrintWriter(writer);
+        csv.println("method,path,count,bytes,1xx,2xx,3xx,4xx,5xx,other,mean_ms,min_ms,p50_ms,p95_ms,p99_ms,max_ms");
+        for (Endpoint endpoint : sorted().values()) {
+            LatencyHistogram latency = endpoint.latency;
+            csv.print(endpoint.method + ",\"" + endpoint.path.replace("\"", "\"\"") + "\"," + latency.getCount() + ","
+                    + endpoint.bytes.get());
+            for (int i = 1; i < Endpoint.STATUS_CLASSES; i++) {
+                csv.print("," + endpoint.statusClasses.get(i));
+            }
+            csv.print("," + endpoint.statusClasses.get(0));
+            csv.println(String.format(Locale.ROOT, ",%.3f,%.3f,%.3f,%.3f,%.3f,%.3f",
+                    latency.getMean(TimeUnit.MICROSECONDS) / 1000,
+                    millis(latency.getMin(TimeUnit.MICROSECONDS)),
+                    millis(latency.getPercentile(50, TimeUnit.MICROSECONDS)),
+                    millis(latency.getPercentile(95, TimeUnit.MICROSECONDS)),
+                    millis(latency.getPercentile(99, TimeUnit.MICROSECONDS)),
+                    millis(latency.getMax(TimeUnit.MICROSECONDS))));
+        }
+        csv.flush();
+    }
+
+    private Map<String, Endpoint> sorted() {
+        return new TreeMap<String, Endpoint>(endpoints);
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    private static final class Endpoint {
+
+        // index 0 counts statuses outside of 100 to 599
+        private static final int STATUS_CLASSES = 6;
+
+        private final String method;
+        private final String path;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicLongArray statusClasses = new AtomicLongArray(STATUS_CLASSES);
+
+        private Endpoint(String method, String path) {
+            this.method = method;
+            this.path = path;
+        }
+
+        private void record(int status, long bytes, long duration, TimeUnit unit) {
+            latency.record(duration, unit);
+            this.bytes.addAndGet(bytes);
+            int statusClass = status / 100;
+            statusClasses.incrementAndGet(statusClass > 0 && statusClass < STATUS_CLASSES ? statusClass : 0);
+        }
+    }
+}
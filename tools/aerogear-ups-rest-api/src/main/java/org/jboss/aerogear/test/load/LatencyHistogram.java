@@ -0,0 +1,151 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.test.load;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latencies counted in buckets of microseconds. Buckets double in width every 32 of them, so percentiles are off by
+ * at most about 3% no matter how far apart the latencies are, while memory stays fixed. Safe to record into from
+ * several threads.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    // about 25 days, longer latencies are counted as this
+    private static final long MAX_VALUE = (1L << 41) - 1;
+
+    private static final int BUCKETS = index(MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long duration, TimeUnit unit) {
+        long micros = Math.max(0, Math.min(unit.toMicros(duration), MAX_VALUE));
+
+        counts.incrementAndGet(index(micros));
+        count.incrementAndGet();
+        sum.addAndGet(micros);
+
+        long current;
+        while (micros < (current = min.get()) && !min.compareAndSet(current, micros)) {
+            // retry
+        }
+        while (micros > (current = max.get()) && !max.compareAndSet(current, micros)) {
+            // retry
+        }
+    }
+
+    /**
+     * Adds all latencies of the other histogram to this one.
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            long bucket = other.counts.get(i);
+            if (bucket > 0) {
+                counts.addAndGet(i, bucket);
+            }
+        }
+        count.addAndGet(other.count.get());
+        sum.addAndGet(other.sum.get());
+
+        long current;
+        long otherMin = other.min.get();
+        while (otherMin < (current = min.get()) && !min.compareAndSet(current, otherMin)) {
+            // retry
+        }
+        long otherMax = other.max.get();
+        while (otherMax > (current = max.get()) && !max.compareAndSet(current, otherMax)) {
+            // retry
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMin(TimeUnit unit) {
+        return count.get() == 0 ? 0 : unit.convert(min.get(), TimeUnit.MICROSECONDS);
+    }
+
+    public long getMax(TimeUnit unit) {
+        return unit.convert(max.get(), TimeUnit.MICROSECONDS);
+    }
+
+    public double getMean(TimeUnit unit) {
+        long n = count.get();
+        return n == 0 ? 0 : (double) unit.convert(sum.get(), TimeUnit.MICROSECONDS) / n;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return highest latency of the bucket the percentile falls into, never above the maximum recorded
+     */
+    public long getPercentile(double percentile, TimeUnit unit) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile has to be between 0 and 100, was " + percentile);
+        }
+
+        long n = count.get();
+        if (n == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return unit.convert(Math.min(highestValue(i), max.get()), TimeUnit.MICROSECONDS);
+            }
+        }
+        return getMax(unit);
+    }
+
+    @Override
+    public String toString() {
+        TimeUnit ms = TimeUnit.MILLISECONDS;
+        return String.format("count=%d, mean=%.1fms, p50=%dms, p95=%dms, p99=%dms, max=%dms", getCount(),
+                getMean(TimeUnit.MICROSECONDS) / 1000, getPercentile(50, ms), getPercentile(95, ms),
+                getPercentile(99, ms), getMax(ms));
+    }
+
+    private static int index(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int shift = exponent - SUB_BUCKET_BITS;
+        return SUB_BUCKETS + shift * SUB_BUCKETS + (int) (micros >>> shift) - SUB_BUCKETS;
+    }
+
+    private static long highestValue(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+        long subBucket = (index - SUB_BUCKETS) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
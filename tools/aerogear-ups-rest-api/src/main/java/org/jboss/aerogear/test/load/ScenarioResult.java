@@ -0,0 +1,86 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.test.load;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outcome of a scenario run, counts of users and latencies of their operations.
+ */
+public class ScenarioResult {
+
+    private final long durationNanos;
+    private final int started;
+    private final int completed;
+    private final int failed;
+    private final int dropped;
+    private final List<Exception> errors;
+    private final OperationStats stats;
+
+    ScenarioResult(long durationNanos, int started, int completed, int failed, int dropped, List<Exception> errors,
+            OperationStats stats) {
+        this.durationNanos = durationNanos;
+        this.started = started;
+        this.completed = completed;
+        this.failed = failed;
+        this.dropped = dropped;
+        this.errors = Collections.unmodifiableList(errors);
+        this.stats = stats;
+    }
+
+    public long getDuration(TimeUnit unit) {
+        return unit.convert(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public int getStarted() {
+        return started;
+    }
+
+    public int getCompleted() {
+        return completed;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    /**
+     * @return users not started as the maximum of concurrent users was running
+     */
+    public int getDropped() {
+        return dropped;
+    }
+
+    /**
+     * @return failures of the first few users failing
+     */
+    public List<Exception> getErrors() {
+        return errors;
+    }
+
+    public OperationStats getStats() {
+        return stats;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d users started in %ds, %d completed, %d failed, %d dropped%n%s", started,
+                getDuration(TimeUnit.SECONDS), completed, failed, dropped, stats);
+    }
+}
@@ -0,0 +1,312 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.test.load;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jboss.aerogear.test.Session;
+
+/**
+ * Runs a scenario by many virtual users at once. Users arrive in phases, all at once or at an arrival rate held
+ * constant or ramped linearly over the phase, and each user runs the scenario once. Arrivals do not wait for earlier
+ * users to finish, users arriving while the maximum of concurrent users is running are dropped and counted.
+ *
+ * <pre>
+ * ScenarioResult result = ScenarioRunner.scenario(scenario)
+ *         .session(session)
+ *         .rampArrivals(0, 50, 1, TimeUnit.MINUTES)
+ *         .arrivals(50, 5, TimeUnit.MINUTES)
+ *         .run();
+ * </pre>
+ *
+ * Worker calls of all users are timed into the stats of the run, as well as every whole run of the scenario under
+ * {@link #SCENARIO_OPERATION}. A session records into the stats of the run only while users of the run hold it, its
+ * own stats are given back once the last of them finishes.
+ */
+public class ScenarioRunner {
+
+    private static final Logger log = Logger.getLogger(ScenarioRunner.class.getName());
+
+    public static final String SCENARIO_OPERATION = "scenario";
+
+    public static final int DEFAULT_MAX_CONCURRENT_USERS = 100;
+
+    private static final int MAX_KEPT_ERRORS = 10;
+
+    public interface SessionFactory {
+
+        Session create(int userId);
+    }
+
+    private final Scenario scenario;
+    private final List<Phase> phases = new ArrayList<Phase>();
+    private SessionFactory sessionFactory;
+    private int maxConcurrentUsers = DEFAULT_MAX_CONCURRENT_USERS;
+
+    private ScenarioRunner(Scenario scenario) {
+        this.scenario = scenario;
+    }
+
+    public static ScenarioRunner scenario(Scenario scenario) {
+        return new ScenarioRunner(scenario);
+    }
+
+    /**
+     * Lets all users share the session, sessions are safe to use from several threads.
+     */
+    public ScenarioRunner session(final Session session) {
+        return sessions(new SessionFactory() {
+            @Override
+            public Session create(int userId) {
+                return session;
+            }
+        });
+    }
+
+    /**
+     * Gives each user a session of its own, e.g. logged in as a user of its own. Sessions of the same user logged in
+     * with {@link org.jboss.aerogear.test.api.auth.LoginRequest#reuseToken(boolean)} share one access token instead of
+     * logging in one by one.
+     */
+    public ScenarioRunner sessions(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+        return this;
+    }
+
+    /**
+     * Adds a phase in which the users arrive all at once.
+     */
+    public ScenarioRunner users(int count) {
+        phases.add(new Phase(count, 0, 0, 0));
+        return this;
+    }
+
+    /**
+     * Adds a phase in which users arrive at a constant rate.
+     */
+    public ScenarioRunner arrivals(double perSecond, long duration, TimeUnit unit) {
+        return rampArrivals(perSecond, perSecond, duration, unit);
+    }
+
+    /**
+     * Adds a phase over which the arrival rate changes linearly.
+     */
+    public ScenarioRunner rampArrivals(double fromPerSecond, double toPerSecond, long duration, TimeUnit unit) {
+        if (fromPerSecond < 0 || toPerSecond < 0 || duration < 0) {
+            throw new IllegalArgumentException("Arrival rates and duration can not be negative!");
+        }
+        phases.add(new Phase(0, fromPerSecond, toPerSecond, unit.toNanos(duration) / 1e9));
+        return this;
+    }
+
+    public ScenarioRunner maxConcurrentUsers(int maxConcurrentUsers) {
+        if (maxConcurrentUsers <= 0) {
+            throw new IllegalArgumentException("Maximum of concurrent users has to be positive, was "
+                    + maxConcurrentUsers);
+        }
+        this.maxConcurrentUsers = maxConcurrentUsers;
+        return this;
+    }
+
+    /**
+     * Runs all phases and waits for the last user to finish.
+     */
+    public ScenarioResult run() throws InterruptedException {
+        if (sessionFactory == null) {
+            throw new IllegalStateException("Sessions of the users have to be set before running!");
+        }
+
+        Run run = new Run();
+        try {
+            for (Phase phase : phases) {
+                phase.run(run);
+            }
+            run.executor.shutdown();
+            run.executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } finally {
+            run.executor.shutdownNow();
+        }
+        return run.result();
+    }
+
+    private final class Run {
+
+        private final long start = System.nanoTime();
+        private final OperationStats stats = new OperationStats();
+        private final Semaphore slots = new Semaphore(maxConcurrentUsers);
+        private final AtomicInteger started = new AtomicInteger();
+        private final AtomicInteger completed = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        private final AtomicInteger dropped = new AtomicInteger();
+        private final List<Exception> errors = Collections.synchronizedList(new ArrayList<Exception>());
+        private final AtomicInteger threadCount = new AtomicInteger();
+        private final Map<Session, Lease> leases = new IdentityHashMap<Session, Lease>();
+
+        private final ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "VirtualUser-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        private void arrive() {
+            if (!slots.tryAcquire()) {
+                dropped.incrementAndGet();
+                return;
+            }
+
+            final int id = started.getAndIncrement();
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    long userStart = System.nanoTime();
+                    Session session = null;
+                    try {
+                        session = lease(sessionFactory.create(id));
+                        scenario.run(new VirtualUser(id, session));
+                        completed.incrementAndGet();
+                    } catch (Exception e) {
+                        failed.incrementAndGet();
+                        if (errors.size() < MAX_KEPT_ERRORS) {
+                            errors.add(e);
+                        }
+                        log.log(Level.FINE, "Virtual user " + id + " failed", e);
+                    } finally {
+                        if (session != null) {
+                            release(session);
+                        }
+                        stats.record(SCENARIO_OPERATION, System.nanoTime() - userStart, TimeUnit.NANOSECONDS);
+                        slots.release();
+                    }
+                }
+            });
+        }
+
+        private Session lease(Session session) {
+            synchronized (leases) {
+                Lease lease = leases.get(session);
+                if (lease == null) {
+                    lease = new Lease(session.getOperationStats());
+                    leases.put(session, lease);
+                    session.setOperationStats(stats);
+                }
+                lease.users++;
+            }
+            return session;
+        }
+
+        private void release(Session session) {
+            synchronized (leases) {
+                Lease lease = leases.get(session);
+                if (--lease.users == 0) {
+                    leases.remove(session);
+                    session.setOperationStats(lease.previous);
+                }
+            }
+        }
+
+        private ScenarioResult result() {
+            return new ScenarioResult(System.nanoTime() - start, started.get(), completed.get(), failed.get(),
+                    dropped.get(), new ArrayList<Exception>(errors), stats);
+        }
+    }
+
+    /**
+     * Stats a session had before the run lent it to its users.
+     */
+    private static final class Lease {
+
+        private final OperationStats previous;
+        private int users;
+
+        private Lease(OperationStats previous) {
+            this.previous = previous;
+        }
+    }
+
+    private static final class Phase {
+
+        private final int users;
+        private final double fromRate;
+        private final double toRate;
+        private final double seconds;
+
+        private Phase(int users, double fromRate, double toRate, double seconds) {
+            this.users = users;
+            this.fromRate = fromRate;
+            this.toRate = toRate;
+            this.seconds = seconds;
+        }
+
+        private void run(Run run) throws InterruptedException {
+            for (int i = 0; i < users; i++) {
+                run.arrive();
+            }
+            if (seconds <= 0) {
+                return;
+            }
+
+            long phaseStart = System.nanoTime();
+            for (long arrival = 0; ; arrival++) {
+                double at = arrivalTime(arrival);
+                if (!(at < seconds)) {
+                    break;
+                }
+                sleepUntil(phaseStart + (long) (at * 1e9));
+                run.arrive();
+            }
+            sleepUntil(phaseStart + (long) (seconds * 1e9));
+        }
+
+        /**
+         * Time of the arrival from the start of the phase, found by solving when the arrivals expected by the rate
+         * so far reach its number.
+         */
+        private double arrivalTime(long arrival) {
+            double slope = (toRate - fromRate) / (2 * seconds);
+            if (Math.abs(slope) < 1e-12) {
+                return fromRate > 0 ? arrival / fromRate : Double.POSITIVE_INFINITY;
+            }
+            double discriminant = fromRate * fromRate + 4 * slope * arrival;
+            if (discriminant < 0) {
+                return Double.POSITIVE_INFINITY;
+            }
+            return (-fromRate + Math.sqrt(discriminant)) / (2 * slope);
+        }
+
+        private static void sleepUntil(long nanoTime) throws InterruptedException {
+            long remaining = nanoTime - System.nanoTime();
+            if (remaining > 0) {
+                TimeUnit.NANOSECONDS.sleep(remaining);
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.test.load;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.aerogear.test.Session;
+import org.jboss.aerogear.test.api.SessionRequest;
+import org.jboss.aerogear.test.api.UPSContext;
+import org.jboss.aerogear.test.api.UPSWorker;
+
+/**
+ * User running a scenario, it works with contexts the same way tests do. Worker calls of its contexts are timed into
+ * the stats of its session without further ado, other steps can be timed explicitly.
+ */
+public class VirtualUser {
+
+    private final int id;
+    private final Session session;
+
+    public VirtualUser(int id, Session session) {
+        this.id = id;
+        this.session = session;
+    }
+
+    /**
+     * @return number of the user, starting with 0 in order of arrival
+     */
+    public int getId() {
+        return id;
+    }
+
+    public Session getSession() {
+        return session;
+    }
+
+    public <ENTITY,
+            ENTITY_ID,
+            BLUEPRINT extends ENTITY,
+            EDITOR extends ENTITY,
+            PARENT,
+            CONTEXT extends UPSContext<ENTITY, ENTITY_ID, BLUEPRINT, EDITOR, PARENT, WORKER, CONTEXT>,
+            WORKER extends UPSWorker<ENTITY, ENTITY_ID, BLUEPRINT, EDITOR, PARENT, CONTEXT, WORKER>> CONTEXT
+    with(WORKER worker, PARENT parent) {
+
+        return worker.createContext(session, parent);
+    }
+
+    public <ENTITY,
+            ENTITY_ID,
+            BLUEPRINT extends ENTITY,
+            EDITOR extends ENTITY,
+            PARENT,
+            CONTEXT extends UPSContext<ENTITY, ENTITY_ID, BLUEPRINT, EDITOR, PARENT, WORKER, CONTEXT>,
+            WORKER extends UPSWorker<ENTITY, ENTITY_ID, BLUEPRINT, EDITOR, PARENT, CONTEXT, WORKER>> CONTEXT
+    with(WORKER worker) {
+
+        return with(worker, null);
+    }
+
+    public <REQUEST extends SessionRequest<REQUEST>> REQUEST with(REQUEST request) {
+        return request.withSession(session);
+    }
+
+    /**
+     * Runs and times a step which is not a worker call, such as sending a message.
+     */
+    public <T> T timed(String operation, Callable<T> step) throws Exception {
+        long start = System.nanoTime();
+        try {
+            return step.call();
+        } finally {
+            session.getOperationStats().record(operation, System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public void think(long duration, TimeUnit unit) throws InterruptedException {
+        unit.sleep(duration);
+    }
+
+    /**
+     * Pauses for a duration picked uniformly between the bounds.
+     */
+    public void think(long min, long max, TimeUnit unit) throws InterruptedException {
+        think(min == max ? min : ThreadLocalRandom.current().nextLong(min, max + 1), unit);
+    }
+}
@@ -0,0 +1,171 @@
+package org.jboss.aerogear.test.api;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.aerogear.test.Session;
+import org.jboss.aerogear.test.api.application.PushApplicationContext;
+import org.jboss.aerogear.test.api.application.PushApplicationWorker;
+import org.jboss.aerogear.unifiedpush.api.PushApplication;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class EntityCacheTestCase {
+
+    @Test
+    public void disabledByDefaultTest() {
+        EntityCache cache = new EntityCache();
+        cache.put(key("a"), "a");
+
+        Assert.assertFalse(cache.isEnabled());
+        Assert.assertNull(cache.get(key("a")));
+    }
+
+    @Test
+    public void leastRecentlyUsedEvictedFirstTest() {
+        EntityCache cache = cache(3, 1, TimeUnit.HOURS);
+        cache.put(key("a"), "a");
+        cache.put(key("b"), "b");
+        cache.put(key("c"), "c");
+
+        // reading a makes b the least recently used
+        Assert.assertEquals("a", cache.get(key("a")));
+        cache.put(key("d"), "d");
+
+        Assert.assertNull(cache.get(key("b")));
+        Assert.assertEquals("a", cache.get(key("a")));
+        Assert.assertEquals("c", cache.get(key("c")));
+        Assert.assertEquals("d", cache.get(key("d")));
+    }
+
+    @Test
+    public void putAllWeighsEveryEntityTest() {
+        EntityCache cache = cache(3, 1, TimeUnit.HOURS);
+        cache.put(key("a"), "a");
+        cache.put(key("b"), "b");
+
+        cache.putAll(key(null), Arrays.asList("x", "y"));
+
+        // the list counts as two, a is evicted to make room
+        Assert.assertNull(cache.get(key("a")));
+        Assert.assertEquals("b", cache.get(key("b")));
+        Assert.assertEquals(Arrays.asList("x", "y"), cache.get(key(null)));
+    }
+
+    @Test
+    public void oversizePutAllTest() {
+        EntityCache cache = cache(3, 1, TimeUnit.HOURS);
+        cache.put(key("a"), "a");
+        cache.putAll(key(null), Arrays.asList("x"));
+
+        cache.putAll(key(null), Arrays.asList("w", "x", "y", "z"));
+
+        // a list larger than the cache is not cached, it replaces the previous entry without evicting others
+        Assert.assertNull(cache.get(key(null)));
+        Assert.assertEquals("a", cache.get(key("a")));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void cachedListIsUnmodifiableTest() {
+        EntityCache cache = cache(3, 1, TimeUnit.HOURS);
+        cache.putAll(key(null), Arrays.asList("x"));
+
+        try {
+            ((List<Object>) cache.get(key(null))).add("y");
+            Assert.fail("Cached list has to be unmodifiable");
+        } catch (UnsupportedOperationException e) {
+            Assert.assertEquals(Arrays.asList("x"), cache.get(key(null)));
+        }
+    }
+
+    @Test
+    public void timeToLiveTest() throws InterruptedException {
+        EntityCache cache = cache(1, 50, TimeUnit.MILLISECONDS);
+        cache.put(key("a"), "a");
+        Assert.assertEquals("a", cache.get(key("a")));
+
+        TimeUnit.MILLISECONDS.sleep(100);
+
+        Assert.assertNull(cache.get(key("a")));
+        // the expired entry no longer takes room
+        cache.put(key("b"), "b");
+        Assert.assertEquals("b", cache.get(key("b")));
+    }
+
+    @Test
+    public void shrinkingEvictsTest() {
+        EntityCache cache = cache(3, 1, TimeUnit.HOURS);
+        cache.put(key("a"), "a");
+        cache.put(key("b"), "b");
+        cache.put(key("c"), "c");
+
+        cache.configure(1, 1, TimeUnit.HOURS);
+
+        Assert.assertNull(cache.get(key("a")));
+        Assert.assertNull(cache.get(key("b")));
+        Assert.assertEquals("c", cache.get(key("c")));
+    }
+
+    @Test
+    public void invalidateTest() {
+        EntityCache cache = cache(3, 1, TimeUnit.HOURS);
+        cache.put(key("a"), "a");
+        cache.put(key("b"), "b");
+
+        cache.invalidate(key("a"));
+        Assert.assertNull(cache.get(key("a")));
+
+        cache.clear();
+        Assert.assertNull(cache.get(key("b")));
+    }
+
+    @Test
+    public void keysTest() {
+        Assert.assertEquals(key("a"), key("a"));
+        Assert.assertEquals(key("a").hashCode(), key("a").hashCode());
+        Assert.assertNotEquals(key("a"), key(null));
+        Assert.assertNotEquals(key("a"), new EntityCache.Key(String.class, "parent", "a"));
+        Assert.assertNotEquals(key("a"), new EntityCache.Key(Object.class, "other", "a"));
+    }
+
+    @Test
+    public void detachedCopiesDoNotLeakIntoEditorsTest() {
+        Session session = Session.newSession("http://127.0.0.1:1");
+        try {
+            session.getEntityCache().configure(10, 1, TimeUnit.HOURS);
+
+            PushApplication cached = new PushApplication();
+            cached.setPushApplicationID("app");
+            cached.setName("cached");
+            // nothing is sent, all applications are taken from the cache
+            session.getEntityCache().putAll(
+                    new EntityCache.Key(PushApplicationWorker.class, null, null), Arrays.asList(cached));
+
+            PushApplicationContext first = new PushApplicationContext(PushApplicationWorker.worker(), session);
+            PushApplication editor = first.findAll().detachEntity();
+            Assert.assertNotSame(cached, editor);
+            editor.setName("changed");
+
+            PushApplicationContext second = new PushApplicationContext(PushApplicationWorker.worker(), session);
+            Assert.assertEquals("cached", second.findAll().detachEntity().getName());
+            Assert.assertEquals("cached", cached.getName());
+        } finally {
+            session.invalidate();
+        }
+    }
+
+    private static EntityCache cache(int maxSize, long ttl, TimeUnit unit) {
+        EntityCache cache = new EntityCache();
+        cache.configure(maxSize, ttl, unit);
+        return cache;
+    }
+
+    private static EntityCache.Key key(String id) {
+        return new EntityCache.Key(Object.class, "parent", id);
+    }
+}
@@ -0,0 +1,86 @@
+package org.jboss.aerogear.test.api.installation;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class DeviceTokensTestCase {
+
+    private static final String HEX = "[0-9a-f]";
+
+    private static final String BASE64URL = "[A-Za-z0-9_-]";
+
+    @Test
+    public void sameSeedAndIndexTest() {
+        DeviceTokens first = new DeviceTokens(42);
+        DeviceTokens second = new DeviceTokens(42);
+
+        for (long index = 0; index < 100; index++) {
+            Assert.assertEquals(first.ios(index), second.ios(index));
+            Assert.assertEquals(first.android(index), second.android(index));
+            Assert.assertEquals(first.simplePush(index), second.simplePush(index));
+            Assert.assertEquals(first.alias(index), second.alias(index));
+        }
+    }
+
+    @Test
+    public void otherSeedTest() {
+        Assert.assertNotEquals(new DeviceTokens(42).ios(0), new DeviceTokens(43).ios(0));
+        Assert.assertNotEquals(new DeviceTokens(42).android(0), new DeviceTokens(43).android(0));
+    }
+
+    @Test
+    public void distinctTokensTest() {
+        DeviceTokens tokens = new DeviceTokens(7);
+        Set<String> seen = new HashSet<String>();
+
+        for (long index = 0; index < 10000; index++) {
+            Assert.assertTrue(seen.add(tokens.ios(index)));
+            Assert.assertTrue(seen.add(tokens.android(index)));
+            Assert.assertTrue(seen.add(tokens.alias(index)));
+        }
+    }
+
+    @Test
+    public void iosTokenTest() {
+        String token = new DeviceTokens(1).ios(5);
+
+        Assert.assertEquals(DeviceTokens.IOS_TOKEN_LENGTH, token.length());
+        Assert.assertTrue(token, token.matches(HEX + "{64}"));
+    }
+
+    @Test
+    public void androidTokenTest() {
+        DeviceTokens tokens = new DeviceTokens(1);
+        String token = tokens.android(5);
+
+        Assert.assertEquals(DeviceTokens.ANDROID_TOKEN_LENGTH, token.length());
+        Assert.assertTrue(token, token.matches(BASE64URL + "{100}"));
+
+        char[] buffer = new char[DeviceTokens.ANDROID_TOKEN_LENGTH + 3];
+        buffer[DeviceTokens.ANDROID_TOKEN_LENGTH] = 'x';
+        tokens.android(5, buffer);
+        Assert.assertEquals(token, new String(buffer, 0, DeviceTokens.ANDROID_TOKEN_LENGTH));
+        Assert.assertEquals('x', buffer[DeviceTokens.ANDROID_TOKEN_LENGTH]);
+    }
+
+    @Test
+    public void simplePushEndpointTest() {
+        String endpoint = new DeviceTokens(1).simplePush(5);
+
+        Assert.assertTrue(endpoint, endpoint.matches("http://localhost:8081/" + HEX + "{32}"));
+    }
+
+    @Test
+    public void aliasTest() {
+        String alias = new DeviceTokens(1).alias(5);
+
+        Assert.assertEquals(DeviceTokens.ALIAS_LENGTH, alias.length());
+        Assert.assertTrue(alias, alias.matches(HEX + "{32}"));
+    }
+}
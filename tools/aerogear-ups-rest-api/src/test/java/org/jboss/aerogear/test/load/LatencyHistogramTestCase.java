@@ -0,0 +1,98 @@
+package org.jboss.aerogear.test.load;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class LatencyHistogramTestCase {
+
+    private static final TimeUnit US = TimeUnit.MICROSECONDS;
+
+    @Test
+    public void bucketBoundsTest() {
+        for (long value = 1; value < 1L << 40; value = value * 5 / 4 + 1) {
+            LatencyHistogram histogram = new LatencyHistogram();
+            histogram.record(value, US);
+            // a larger latency keeps the percentile from being capped at the maximum
+            histogram.record(1L << 40, US);
+
+            long bound = histogram.getPercentile(50, US);
+
+            Assert.assertTrue(value + " reported as " + bound, bound >= value);
+            // buckets are 1/32 as wide as their values
+            Assert.assertTrue(value + " reported as " + bound, bound - value <= value / 32);
+        }
+    }
+
+    @Test
+    public void percentilesTest() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1000; i >= 1; i--) {
+            histogram.record(i, TimeUnit.MILLISECONDS);
+        }
+
+        Assert.assertEquals(1000, histogram.getCount());
+        Assert.assertEquals(1, histogram.getMin(TimeUnit.MILLISECONDS));
+        Assert.assertEquals(1000, histogram.getMax(TimeUnit.MILLISECONDS));
+        Assert.assertEquals(500.5, histogram.getMean(TimeUnit.MILLISECONDS), 0.001);
+
+        assertWithin(500, histogram.getPercentile(50, TimeUnit.MILLISECONDS));
+        assertWithin(950, histogram.getPercentile(95, TimeUnit.MILLISECONDS));
+        assertWithin(990, histogram.getPercentile(99, TimeUnit.MILLISECONDS));
+        Assert.assertEquals(1, histogram.getPercentile(0, TimeUnit.MILLISECONDS));
+        Assert.assertEquals(1000, histogram.getPercentile(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void longLatenciesAreCappedTest() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1000, TimeUnit.DAYS);
+        histogram.record(-5, TimeUnit.SECONDS);
+
+        Assert.assertEquals(2, histogram.getCount());
+        Assert.assertEquals(0, histogram.getMin(US));
+        Assert.assertTrue(histogram.getMax(TimeUnit.DAYS) < 1000);
+        Assert.assertEquals(histogram.getMax(US), histogram.getPercentile(100, US));
+    }
+
+    @Test
+    public void addTest() {
+        LatencyHistogram first = new LatencyHistogram();
+        LatencyHistogram second = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            first.record(i, US);
+            second.record(i + 100, US);
+        }
+
+        first.add(second);
+
+        Assert.assertEquals(200, first.getCount());
+        Assert.assertEquals(1, first.getMin(US));
+        Assert.assertEquals(200, first.getMax(US));
+        assertWithin(100, first.getPercentile(50, US));
+        Assert.assertEquals(100, second.getCount());
+    }
+
+    @Test
+    public void emptyTest() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        Assert.assertEquals(0, histogram.getMin(US));
+        Assert.assertEquals(0, histogram.getMax(US));
+        Assert.assertEquals(0, histogram.getMean(US), 0);
+        Assert.assertEquals(0, histogram.getPercentile(99, US));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidPercentileTest() {
+        new LatencyHistogram().getPercentile(101, US);
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        Assert.assertTrue(expected + " reported as " + actual, actual >= expected && actual - expected <= expected / 32);
+    }
+}
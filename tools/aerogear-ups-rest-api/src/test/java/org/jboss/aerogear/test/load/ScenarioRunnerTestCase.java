@@ -0,0 +1,124 @@
+package org.jboss.aerogear.test.load;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.aerogear.test.Session;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class ScenarioRunnerTestCase {
+
+    private static final Scenario IDLE = new Scenario() {
+        @Override
+        public void run(VirtualUser user) {
+        }
+    };
+
+    private Session session;
+
+    @Before
+    public void createSession() {
+        // nothing is sent, the scenarios do not use the session
+        session = Session.newSession("http://127.0.0.1:1");
+    }
+
+    @After
+    public void closeSession() {
+        session.invalidate();
+    }
+
+    @Test
+    public void usersTest() throws InterruptedException {
+        ScenarioResult result = ScenarioRunner.scenario(IDLE).session(session).users(5).run();
+
+        Assert.assertEquals(5, result.getStarted());
+        Assert.assertEquals(5, result.getCompleted());
+        Assert.assertEquals(5, result.getStats().getHistogram(ScenarioRunner.SCENARIO_OPERATION).getCount());
+    }
+
+    @Test
+    public void rampArrivalsTest() throws InterruptedException {
+        // rising from 0 to 100 per second over a second, half of 100 users arrive
+        ScenarioResult result = ScenarioRunner.scenario(IDLE)
+                .session(session)
+                .rampArrivals(0, 100, 1, TimeUnit.SECONDS)
+                .run();
+
+        Assert.assertEquals(50, result.getStarted());
+        Assert.assertEquals(0, result.getDropped());
+        Assert.assertTrue(result.toString(), result.getDuration(TimeUnit.MILLISECONDS) >= 1000);
+    }
+
+    @Test
+    public void rampDownArrivalsTest() throws InterruptedException {
+        ScenarioResult result = ScenarioRunner.scenario(IDLE)
+                .session(session)
+                .rampArrivals(100, 0, 500, TimeUnit.MILLISECONDS)
+                .arrivals(20, 500, TimeUnit.MILLISECONDS)
+                .run();
+
+        Assert.assertEquals(25 + 10, result.getStarted());
+    }
+
+    @Test
+    public void maxConcurrentUsersTest() throws InterruptedException {
+        ScenarioResult result = ScenarioRunner.scenario(new Scenario() {
+            @Override
+            public void run(VirtualUser user) throws InterruptedException {
+                user.think(200, TimeUnit.MILLISECONDS);
+            }
+        }).session(session).maxConcurrentUsers(2).users(5).run();
+
+        Assert.assertEquals(2, result.getStarted());
+        Assert.assertEquals(3, result.getDropped());
+    }
+
+    @Test
+    public void failuresTest() throws InterruptedException {
+        ScenarioResult result = ScenarioRunner.scenario(new Scenario() {
+            @Override
+            public void run(VirtualUser user) {
+                if (user.getId() % 2 == 0) {
+                    throw new IllegalStateException("user " + user.getId());
+                }
+            }
+        }).session(session).users(4).run();
+
+        Assert.assertEquals(2, result.getCompleted());
+        Assert.assertEquals(2, result.getFailed());
+        Assert.assertEquals(2, result.getErrors().size());
+    }
+
+    @Test
+    public void sessionStatsRestoredTest() throws InterruptedException {
+        OperationStats own = new OperationStats();
+        session.setOperationStats(own);
+
+        ScenarioResult result = ScenarioRunner.scenario(new Scenario() {
+            @Override
+            public void run(VirtualUser user) throws Exception {
+                user.timed("step", new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        return null;
+                    }
+                });
+            }
+        }).session(session).users(3).run();
+
+        Assert.assertEquals(3, result.getStats().getHistogram("step").getCount());
+        Assert.assertSame(own, session.getOperationStats());
+        Assert.assertTrue(own.getHistograms().isEmpty());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void missingSessionTest() throws InterruptedException {
+        ScenarioRunner.scenario(IDLE).users(1).run();
+    }
+}
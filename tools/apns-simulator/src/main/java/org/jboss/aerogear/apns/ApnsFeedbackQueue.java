@@ -0,0 +1,166 @@
+package org.jboss.aerogear.apns;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Holds invalidated device tokens until a client of the feedback service picks them up.
+ *
+ * Gateway connections only append to a lock-free queue and feedback connections drain it incrementally, tuples are
+ * packed into a batch buffer which is written to the socket at once instead of flushing every single token.
+ */
+public class ApnsFeedbackQueue {
+
+    /**
+     * Default size of the buffer tuples are gathered in before they are written, it fits any token APNS allows.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 128 * 1024;
+
+    public static final int DEFAULT_TOKEN_LENGTH = 32;
+
+    // 4 bytes of time, 2 bytes of token length
+    private static final int TUPLE_HEADER_LENGTH = 6;
+
+    private final Queue<byte[]> tokens = new ConcurrentLinkedQueue<byte[]>();
+
+    // ConcurrentLinkedQueue.size() traverses the whole queue
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final AtomicLong syntheticSequence = new AtomicLong();
+
+    private final int batchSize;
+
+    private volatile int maxTokensPerConnection;
+
+    public ApnsFeedbackQueue() {
+        this(DEFAULT_BATCH_SIZE);
+    }
+
+    public ApnsFeedbackQueue(int batchSize) {
+        if (batchSize < TUPLE_HEADER_LENGTH + 0xFFFF + 1) {
+            throw new IllegalArgumentException("Batch size has to fit at least one token of maximal length.");
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Queues the token when it starts with the invalidation prefix.
+     *
+     * @return true if the token was queued
+     */
+    public boolean offerIfInvalid(byte[] deviceToken) {
+        if (!ApnsTokens.isInvalidationToken(deviceToken)) {
+            return false;
+        }
+        offer(deviceToken);
+        return true;
+    }
+
+    public void offer(byte[] deviceToken) {
+        tokens.offer(deviceToken);
+        size.incrementAndGet();
+    }
+
+    /**
+     * Queues synthetic invalidated tokens so the feedback processing of the sender can be stressed without sending
+     * that many notifications first.
+     *
+     * @param count number of tokens to queue
+     * @param tokenLength length of each token in bytes
+     */
+    public void generate(int count, int tokenLength) {
+        for (int i = 0; i < count; i++) {
+            offer(ApnsTokens.newInvalidationToken(tokenLength, syntheticSequence.incrementAndGet()));
+        }
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    public int getMaxTokensPerConnection() {
+        return maxTokensPerConnection;
+    }
+
+    /**
+     * @param maxTokensPerConnection maximal number of tokens a single feedback connection receives, the rest is left for
+     *        the next connection, 0 or less means no limit
+     */
+    public void setMaxTokensPerConnection(int maxTokensPerConnection) {
+        this.maxTokensPerConnection = maxTokensPerConnection;
+    }
+
+    /**
+     * Drains queued tokens into the socket and terminates the stream with -1. Tokens offered while draining are sent
+     * as well unless the per connection limit is reached.
+     *
+     * Tokens of a batch whose write fails are queued again for the next connection, so a client may see a token twice
+     * but never misses one. Tokens of batches written before stay sent.
+     *
+     * @return number of tokens written
+     */
+    public int drainTo(final InputOutputSocket inputOutputSocket) throws IOException {
+        final int limit = maxTokensPerConnection > 0 ? maxTokensPerConnection : Integer.MAX_VALUE;
+        final int unixTime = (int) (System.currentTimeMillis() / 1000);
+
+        final byte[] batch = new byte[batchSize];
+        int position = 0;
+        int written = 0;
+
+        // polled tokens which are not on the wire yet
+        final List<byte[]> unsent = new ArrayList<byte[]>();
+
+        try {
+            byte[] token;
+            while (written < limit && (token = tokens.poll()) != null) {
+                size.decrementAndGet();
+                unsent.add(token);
+
+                if (position + TUPLE_HEADER_LENGTH + token.length > batch.length) {
+                    inputOutputSocket.syncWrite(batch, 0, position);
+                    position = 0;
+                    // all but the token just polled, it goes to the next batch
+                    unsent.subList(0, unsent.size() - 1).clear();
+                }
+
+                position = putInt(batch, position, unixTime);
+                batch[position++] = (byte) (token.length >>> 8);
+                batch[position++] = (byte) token.length;
+                System.arraycopy(token, 0, batch, position, token.length);
+                position += token.length;
+
+                written++;
+            }
+
+            if (position == batch.length) {
+                inputOutputSocket.syncWrite(batch, 0, position);
+                position = 0;
+                unsent.clear();
+            }
+
+            // Write -1 to indicate a closing socket. This might be a workaround, I'm not sure if it should be done this way.
+            batch[position++] = -1;
+            inputOutputSocket.syncWrite(batch, 0, position);
+        } catch (IOException e) {
+            for (byte[] token : unsent) {
+                offer(token);
+            }
+            throw e;
+        }
+
+        return written;
+    }
+
+    private static int putInt(byte[] buffer, int position, int value) {
+        buffer[position] = (byte) (value >>> 24);
+        buffer[position + 1] = (byte) (value >>> 16);
+        buffer[position + 2] = (byte) (value >>> 8);
+        buffer[position + 3] = (byte) value;
+        return position + 4;
+    }
+}
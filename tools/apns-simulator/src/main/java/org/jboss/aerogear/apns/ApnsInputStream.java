@@ -0,0 +1,124 @@
+package org.jboss.aerogear.apns;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads notifications of the binary APNS protocol, the command byte is expected to be consumed by the caller.
+ *
+ * Items of framed notifications are picked straight from the frame buffer, the only allocations per notification are
+ * the token and payload arrays.
+ */
+public class ApnsInputStream extends DataInputStream {
+
+    public static final byte ID_DEVICE_TOKEN = 1;
+    public static final byte ID_PAYLOAD = 2;
+    public static final byte ID_NOTIFICATION_IDENTIFIER = 3;
+    public static final byte ID_EXPIRATION_DATE = 4;
+    public static final byte ID_PRIORITY = 5;
+
+    // 1 byte of item id, 2 bytes of item length
+    private static final int ITEM_HEADER_LENGTH = 3;
+
+    private static final byte[] EMPTY = new byte[0];
+
+    public ApnsInputStream(final InputStream inputStream) {
+        super(inputStream);
+    }
+
+    public Notification readLegacyNotification() throws IOException {
+        final byte[] deviceToken = readBlob();
+        final byte[] payload = readBlob();
+        return new Notification(0, deviceToken, payload);
+    }
+
+    public Notification readEnhancedNotification() throws IOException {
+        final int identifier = readInt();
+        final int expiry = readInt();
+        final byte[] deviceToken = readBlob();
+        final byte[] payload = readBlob();
+        return new Notification(1, identifier, expiry, deviceToken, payload);
+    }
+
+    /**
+     * Reads a frame of items, missing items get zero or empty value and a truncated trailing item is ignored.
+     */
+    public Notification readFramedNotification() throws IOException {
+        final byte[] frame = readFrame();
+
+        byte[] deviceToken = EMPTY;
+        byte[] payload = EMPTY;
+        int identifier = 0;
+        int expiry = 0;
+        byte priority = 0;
+
+        int position = 0;
+        while (position + ITEM_HEADER_LENGTH <= frame.length) {
+            final byte itemId = frame[position];
+            final int length = ((frame[position + 1] & 0xFF) << 8) | (frame[position + 2] & 0xFF);
+            position += ITEM_HEADER_LENGTH;
+
+            if (position + length > frame.length) {
+                break;
+            }
+
+            switch (itemId) {
+                case ID_DEVICE_TOKEN:
+                    deviceToken = copy(frame, position, length);
+                    break;
+                case ID_PAYLOAD:
+                    payload = copy(frame, position, length);
+                    break;
+                case ID_NOTIFICATION_IDENTIFIER:
+                    identifier = getInt(frame, position, length);
+                    break;
+                case ID_EXPIRATION_DATE:
+                    expiry = getInt(frame, position, length);
+                    break;
+                case ID_PRIORITY:
+                    priority = length < 1 ? 0 : frame[position];
+                    break;
+                default:
+                    break;
+            }
+
+            position += length;
+        }
+
+        return new Notification(2, identifier, expiry, deviceToken, payload, priority);
+    }
+
+    byte[] readBlob() throws IOException {
+        int length = readUnsignedShort();
+        byte[] blob = new byte[length];
+        readFully(blob);
+        return blob;
+    }
+
+    byte[] readFrame() throws IOException {
+        int length = readInt();
+        if (length < 0) {
+            throw new IOException("Negative frame length " + length);
+        }
+        byte[] frame = new byte[length];
+        readFully(frame);
+        return frame;
+    }
+
+    private static byte[] copy(byte[] frame, int position, int length) {
+        byte[] item = new byte[length];
+        System.arraycopy(frame, position, item, 0, length);
+        return item;
+    }
+
+    private static int getInt(byte[] frame, int position, int length) {
+        if (length < 4) {
+            return 0;
+        }
+        return ((frame[position] & 0xFF) << 24)
+            | ((frame[position + 1] & 0xFF) << 16)
+            | ((frame[position + 2] & 0xFF) << 8)
+            | (frame[position + 3] & 0xFF);
+    }
+}
@@ -0,0 +1,302 @@
+package org.jboss.aerogear.apns;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Buffered reader of the binary APNS protocol. Every read from the stream is followed by decoding all notifications
+ * complete in the buffer, so a client writing notifications back to back is served by a few large reads instead of
+ * several small ones per notification.
+ *
+ * A notification breaking the protocol fails the reader with {@link ApnsProtocolException}, the notifications decoded
+ * before it are returned first. The stream can not be resynchronized afterwards, the connection has to be closed as
+ * the real gateway does.
+ */
+public class ApnsNotificationReader {
+
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Longest notification accepted, well above the payload and token size limits of APNS.
+     */
+    public static final int MAX_NOTIFICATION_LENGTH = 64 * 1024;
+
+    // command byte followed by frame length
+    private static final int FRAME_HEADER_LENGTH = 5;
+
+    // command byte followed by identifier and expiry
+    private static final int ENHANCED_HEADER_LENGTH = 9;
+
+    // 1 byte of item id, 2 bytes of item length
+    private static final int ITEM_HEADER_LENGTH = 3;
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final InputStream in;
+
+    private byte[] buffer;
+
+    private int position;
+
+    private int limit;
+
+    private ApnsProtocolException failure;
+
+    /**
+     * @param bufferSize initial size of the buffer, it grows when a single notification does not fit
+     */
+    public ApnsNotificationReader(InputStream in, int bufferSize) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Buffer size has to be positive, was " + bufferSize);
+        }
+        this.in = in;
+        this.buffer = new byte[bufferSize];
+    }
+
+    /**
+     * Blocks until at least one notification is complete and adds all complete ones to the list.
+     *
+     * @return number of notifications added, -1 when the stream ended
+     * @throws ApnsProtocolException when no notification precedes a broken one
+     */
+    public int read(List<Notification> notifications) throws IOException {
+        while (true) {
+            if (failure != null) {
+                throw failure;
+            }
+
+            int decoded = decode(notifications);
+            if (decoded > 0) {
+                return decoded;
+            }
+            if (failure == null && !fill()) {
+                return -1;
+            }
+        }
+    }
+
+    private int decode(List<Notification> notifications) {
+        int decoded = 0;
+
+        while (position < limit) {
+            final int length;
+            try {
+                length = length();
+            } catch (ApnsProtocolException ex) {
+                failure = ex;
+                break;
+            }
+
+            if (length < 0 || limit - position < length) {
+                ensureCapacity(Math.abs(length));
+                break;
+            }
+
+            try {
+                notifications.add(decode(length));
+                decoded++;
+            } catch (ApnsProtocolException ex) {
+                failure = ex;
+                break;
+            } finally {
+                position += length;
+            }
+        }
+
+        return decoded;
+    }
+
+    /**
+     * @return length of the notification at the position including its command byte, negated number of bytes
+     * needed to tell the length if they are not buffered yet
+     */
+    private int length() throws ApnsProtocolException {
+        final byte command = buffer[position];
+        final int length;
+
+        switch (command) {
+            case 0:
+                length = blobsLength(1);
+                break;
+            case 1:
+                length = blobsLength(ENHANCED_HEADER_LENGTH);
+                break;
+            case 2:
+                if (limit - position < FRAME_HEADER_LENGTH) {
+                    return -FRAME_HEADER_LENGTH;
+                }
+                long frameLength = getInt(buffer, position + 1) & 0xFFFFFFFFL;
+                length = (int) Math.min(FRAME_HEADER_LENGTH + frameLength, Integer.MAX_VALUE);
+                break;
+            default:
+                throw new ApnsProtocolException("Unknown command " + (command & 0xFF), ApnsProtocolException.UNKNOWN,
+                    0);
+        }
+
+        if (Math.abs(length) > MAX_NOTIFICATION_LENGTH) {
+            throw new ApnsProtocolException("Notification of " + Math.abs(length) + " bytes exceeds "
+                + MAX_NOTIFICATION_LENGTH + " bytes", ApnsProtocolException.INVALID_PAYLOAD_SIZE,
+                command == 1 ? getInt(buffer, position + 1) : 0);
+        }
+        return length;
+    }
+
+    /**
+     * Length of legacy and enhanced notification, both end with the device token and the payload each prefixed by
+     * its length.
+     */
+    private int blobsLength(int headerLength) {
+        final int tokenLengthAt = headerLength;
+        if (limit - position < tokenLengthAt + 2) {
+            return -(tokenLengthAt + 2);
+        }
+
+        final int payloadLengthAt = tokenLengthAt + 2 + getUnsignedShort(buffer, position + tokenLengthAt);
+        if (limit - position < payloadLengthAt + 2) {
+            return -(payloadLengthAt + 2);
+        }
+
+        return payloadLengthAt + 2 + getUnsignedShort(buffer, position + payloadLengthAt);
+    }
+
+    private Notification decode(int length) throws ApnsProtocolException {
+        final byte command = buffer[position];
+
+        switch (command) {
+            case 0: {
+                int tokenLength = getUnsignedShort(buffer, position + 1);
+                byte[] deviceToken = copy(buffer, position + 3, tokenLength);
+                byte[] payload = copy(buffer, position + 5 + tokenLength, length - 5 - tokenLength);
+                return validate(new Notification(0, deviceToken, payload));
+            }
+            case 1: {
+                int identifier = getInt(buffer, position + 1);
+                int expiry = getInt(buffer, position + 5);
+                int tokenLength = getUnsignedShort(buffer, position + ENHANCED_HEADER_LENGTH);
+                byte[] deviceToken = copy(buffer, position + ENHANCED_HEADER_LENGTH + 2, tokenLength);
+                byte[] payload = copy(buffer, position + ENHANCED_HEADER_LENGTH + 4 + tokenLength,
+                    length - ENHANCED_HEADER_LENGTH - 4 - tokenLength);
+                return validate(new Notification(1, identifier, expiry, deviceToken, payload));
+            }
+            default:
+                return validate(decodeFrame(position + FRAME_HEADER_LENGTH, position + length));
+        }
+    }
+
+    /**
+     * Decodes items of a frame, unknown items are skipped and an item overrunning the frame breaks it.
+     */
+    private Notification decodeFrame(int start, int end) throws ApnsProtocolException {
+        byte[] deviceToken = EMPTY;
+        byte[] payload = EMPTY;
+        int identifier = 0;
+        int expiry = 0;
+        byte priority = 0;
+
+        int at = start;
+        while (at < end) {
+            if (at + ITEM_HEADER_LENGTH > end) {
+                throw new ApnsProtocolException("Truncated item header in frame", ApnsProtocolException.UNKNOWN,
+                    identifier);
+            }
+
+            final byte itemId = buffer[at];
+            final int length = getUnsignedShort(buffer, at + 1);
+            at += ITEM_HEADER_LENGTH;
+
+            if (at + length > end) {
+                throw new ApnsProtocolException("Item " + itemId + " of " + length + " bytes overruns the frame",
+                    ApnsProtocolException.UNKNOWN, identifier);
+            }
+
+            switch (itemId) {
+                case ApnsInputStream.ID_DEVICE_TOKEN:
+                    deviceToken = copy(buffer, at, length);
+                    break;
+                case ApnsInputStream.ID_PAYLOAD:
+                    payload = copy(buffer, at, length);
+                    break;
+                case ApnsInputStream.ID_NOTIFICATION_IDENTIFIER:
+                    identifier = length < 4 ? 0 : getInt(buffer, at);
+                    break;
+                case ApnsInputStream.ID_EXPIRATION_DATE:
+                    expiry = length < 4 ? 0 : getInt(buffer, at);
+                    break;
+                case ApnsInputStream.ID_PRIORITY:
+                    priority = length < 1 ? 0 : buffer[at];
+                    break;
+                default:
+                    break;
+            }
+
+            at += length;
+        }
+
+        return new Notification(2, identifier, expiry, deviceToken, payload, priority);
+    }
+
+    private static Notification validate(Notification notification) throws ApnsProtocolException {
+        if (notification.getDeviceToken().length == 0) {
+            throw new ApnsProtocolException("Missing device token", ApnsProtocolException.MISSING_DEVICE_TOKEN,
+                notification.getIdentifier());
+        }
+        if (notification.getPayload().length == 0) {
+            throw new ApnsProtocolException("Missing payload", ApnsProtocolException.MISSING_PAYLOAD,
+                notification.getIdentifier());
+        }
+        return notification;
+    }
+
+    /**
+     * Reads what the stream has got into the free part of the buffer, moving the unread bytes to its start first.
+     *
+     * @return false when the stream ended
+     */
+    private boolean fill() throws IOException {
+        compact();
+        int read = in.read(buffer, limit, buffer.length - limit);
+        if (read < 0) {
+            return false;
+        }
+        limit += read;
+        return true;
+    }
+
+    private void ensureCapacity(int length) {
+        if (length > buffer.length) {
+            compact();
+            byte[] larger = new byte[Math.max(length, Math.min(buffer.length * 2, MAX_NOTIFICATION_LENGTH))];
+            System.arraycopy(buffer, 0, larger, 0, limit);
+            buffer = larger;
+        }
+    }
+
+    private void compact() {
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, limit - position);
+            limit -= position;
+            position = 0;
+        }
+    }
+
+    private static byte[] copy(byte[] buffer, int position, int length) {
+        if (length == 0) {
+            return EMPTY;
+        }
+        byte[] copy = new byte[length];
+        System.arraycopy(buffer, position, copy, 0, length);
+        return copy;
+    }
+
+    private static int getUnsignedShort(byte[] buffer, int position) {
+        return ((buffer[position] & 0xFF) << 8) | (buffer[position + 1] & 0xFF);
+    }
+
+    private static int getInt(byte[] buffer, int position) {
+        return ((buffer[position] & 0xFF) << 24)
+            | ((buffer[position + 1] & 0xFF) << 16)
+            | ((buffer[position + 2] & 0xFF) << 8)
+            | (buffer[position + 3] & 0xFF);
+    }
+}
@@ -0,0 +1,10 @@
+package org.jboss.aerogear.apns;
+
+/**
+ * Receives notifications read by {@link ApnsServerSimulator}. The simulator calls the sink on the thread of the
+ * gateway connection the notification came from, so implementations have to be thread safe and should not block.
+ */
+public interface ApnsNotificationSink {
+
+    void onNotification(Notification notification);
+}
@@ -0,0 +1,38 @@
+package org.jboss.aerogear.apns;
+
+import java.io.IOException;
+
+/**
+ * Notification breaking the binary APNS protocol, carries the status and identifier of the error response the gateway
+ * answers it with.
+ */
+public class ApnsProtocolException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final byte MISSING_DEVICE_TOKEN = 2;
+    public static final byte MISSING_PAYLOAD = 4;
+    public static final byte INVALID_PAYLOAD_SIZE = 7;
+    public static final byte UNKNOWN = (byte) 255;
+
+    private final byte status;
+
+    private final int identifier;
+
+    public ApnsProtocolException(String message, byte status, int identifier) {
+        super(message);
+        this.status = status;
+        this.identifier = identifier;
+    }
+
+    public byte getStatus() {
+        return status;
+    }
+
+    /**
+     * @return identifier of the broken notification, 0 when it has none or it could not be read
+     */
+    public int getIdentifier() {
+        return identifier;
+    }
+}
@@ -0,0 +1,491 @@
+package org.jboss.aerogear.apns;
+
+import javax.net.ServerSocketFactory;
+import javax.net.ssl.SSLServerSocket;
+import javax.net.ssl.SSLSocket;
+
+import org.jboss.aerogear.metrics.Counter;
+import org.jboss.aerogear.metrics.MockMetrics;
+import org.jboss.aerogear.metrics.Timer;
+import org.jboss.aerogear.metrics.TlsHandshakeMetrics;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Simulates the gateway and the feedback service of the binary APNS protocol. What happens with received notifications
+ * is up to the {@link ApnsNotificationSink}, tokens starting with the invalidation prefix are queued for the feedback
+ * service.
+ *
+ * Every connection is served by a thread of a pool owned by the simulator, stopping the simulator closes the listening
+ * sockets as well as all open connections.
+ */
+public class ApnsServerSimulator {
+
+    private static final Logger logger = Logger.getLogger(ApnsServerSimulator.class.getName());
+
+    private static final AtomicInteger threadNameCount = new AtomicInteger(0);
+
+    /**
+     * Status of the error response sent for injected failures.
+     */
+    public static final byte PROCESSING_ERROR = 1;
+
+    private static final Timer gatewayLatency = MockMetrics.handlerLatency(MockMetrics.ENDPOINT_APNS_GATEWAY);
+    private static final Timer feedbackLatency = MockMetrics.handlerLatency(MockMetrics.ENDPOINT_APNS_FEEDBACK);
+
+    private static final Counter gatewayProtocolErrors = MockMetrics.protocolErrors(MockMetrics.ENDPOINT_APNS_GATEWAY);
+
+    private static final TlsHandshakeMetrics gatewayHandshakes =
+        new TlsHandshakeMetrics(MockMetrics.ENDPOINT_APNS_GATEWAY);
+    private static final TlsHandshakeMetrics feedbackHandshakes =
+        new TlsHandshakeMetrics(MockMetrics.ENDPOINT_APNS_FEEDBACK);
+
+    private final Semaphore startUp = new Semaphore(0);
+    private final ServerSocketFactory sslFactory;
+
+    private final InetAddress gatewayHost;
+    private final int gatewayPort;
+    private final InetAddress feedbackHost;
+    private final int feedbackPort;
+
+    private final ApnsNotificationSink sink;
+
+    private final ApnsFeedbackQueue feedbackQueue = new ApnsFeedbackQueue();
+
+    private final Set<InputOutputSocket> connections =
+        Collections.newSetFromMap(new ConcurrentHashMap<InputOutputSocket, Boolean>());
+
+    private volatile int effectiveGatewayPort;
+    private volatile int effectiveFeedbackPort;
+
+    private volatile int latencyMillis;
+    private volatile double errorRate;
+
+    private volatile boolean started = false;
+
+    private volatile int readBufferSize = ApnsNotificationReader.DEFAULT_BUFFER_SIZE;
+    private volatile boolean tcpNoDelay;
+
+    private String[] enabledCipherSuites;
+    private int receiveBufferSize;
+
+    private Thread gatewayThread;
+    private Thread feedbackThread;
+    private ServerSocket gatewaySocket;
+    private ServerSocket feedbackSocket;
+    private ExecutorService connectionExecutor;
+
+    public ApnsServerSimulator(ServerSocketFactory sslFactory,
+        InetAddress gatewayHost, int gatewayPort,
+        InetAddress feedbackHost, int feedbackPort,
+        ApnsNotificationSink sink) {
+        this.sslFactory = sslFactory;
+
+        this.gatewayHost = gatewayHost;
+        this.gatewayPort = gatewayPort;
+        this.feedbackHost = feedbackHost;
+        this.feedbackPort = feedbackPort;
+
+        this.sink = sink;
+    }
+
+    public synchronized void start() {
+        logger.info("Starting ApnsServerSimulator");
+
+        final int simulator = threadNameCount.incrementAndGet();
+        connectionExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+
+            private final AtomicInteger connectionCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "ApnsConnection" + simulator + "-" + connectionCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        gatewayThread = new GatewayListener("GatewayListener" + simulator);
+        feedbackThread = new FeedbackRunner("FeedbackRunner" + simulator);
+        gatewayThread.start();
+        feedbackThread.start();
+        startUp.acquireUninterruptibly(2);
+
+        started = true;
+    }
+
+    public synchronized void stop() {
+        logger.info("Stopping ApnsServerSimulator");
+
+        closeServerSocket(gatewaySocket);
+        closeServerSocket(feedbackSocket);
+
+        if (gatewayThread != null) {
+            gatewayThread.interrupt();
+        }
+
+        if (feedbackThread != null) {
+            feedbackThread.interrupt();
+        }
+
+        if (connectionExecutor != null) {
+            connectionExecutor.shutdownNow();
+        }
+
+        // blocked reads are not interrupted, closing the socket releases them
+        for (InputOutputSocket connection : connections) {
+            connection.close();
+        }
+
+        started = false;
+    }
+
+    /**
+     * Injects faults into the gateway, can be changed while the simulator runs.
+     *
+     * @param latencyMillis time to wait before handling a notification
+     * @param errorRate share of notifications rejected with {@link #PROCESSING_ERROR}, the connection is closed
+     *        afterwards as by the real gateway
+     */
+    public void setFaults(int latencyMillis, double errorRate) {
+        this.latencyMillis = latencyMillis;
+        this.errorRate = errorRate;
+    }
+
+    /**
+     * Restricts cipher suites of sockets listening after the next start, by default all suites enabled by the socket
+     * factory are used.
+     */
+    public void setEnabledCipherSuites(String... enabledCipherSuites) {
+        this.enabledCipherSuites = enabledCipherSuites;
+    }
+
+    /**
+     * Sets size of the buffer gateway connections are read through, applies to connections accepted from now on.
+     */
+    public void setReadBufferSize(int readBufferSize) {
+        if (readBufferSize <= 0) {
+            throw new IllegalArgumentException("Read buffer size has to be positive, was " + readBufferSize);
+        }
+        this.readBufferSize = readBufferSize;
+    }
+
+    /**
+     * Sets SO_RCVBUF of sockets listening after the next start, 0 leaves the system default. Sizes above 64 kB take
+     * effect as the sockets are configured before binding.
+     */
+    public void setReceiveBufferSize(int receiveBufferSize) {
+        this.receiveBufferSize = receiveBufferSize;
+    }
+
+    /**
+     * Sets TCP_NODELAY of connections accepted from now on, so error responses and feedback are not delayed.
+     */
+    public void setTcpNoDelay(boolean tcpNoDelay) {
+        this.tcpNoDelay = tcpNoDelay;
+    }
+
+    public boolean isStarted() {
+        return started;
+    }
+
+    public int getEffectiveGatewayPort() {
+        return effectiveGatewayPort;
+    }
+
+    public int getEffectiveFeedbackPort() {
+        return effectiveFeedbackPort;
+    }
+
+    public ApnsFeedbackQueue getFeedbackQueue() {
+        return feedbackQueue;
+    }
+
+    protected void fail(final byte status, final int identifier, final InputOutputSocket inputOutputSocket) throws IOException {
+        logger.log(Level.WARNING, String.format("%s - %s", status & 0xFF, identifier));
+
+        // Here comes the fun ... we need to write the feedback packet as one single packet
+        // or the client will notice the connection to be closed before it read the complete packet.
+        // But - only on linux, however. (I was not able to see that problem on Windows 7 or OS X)
+        // What also helped was inserting a little sleep between the flush and closing the connection.
+        //
+        // I believe this is irregular (writing to a tcp socket then closing it should result in ALL data
+        // being visible at the client) but interestingly in Netty there is (was) a similar problem:
+        // https://github.com/netty/netty/issues/1952
+        //
+        // Funnily that appeared as somebody ported this library to use netty.
+        ByteBuffer bb = ByteBuffer.allocate(6);
+        bb.put((byte) 8);
+        bb.put(status);
+        bb.putInt(identifier);
+        inputOutputSocket.syncWrite(bb.array());
+        inputOutputSocket.close();
+        logger.warning("FAIL - closed");
+    }
+
+    private void serve(final InputOutputSocket inputOutputSocket, final ConnectionHandler handler,
+        final TlsHandshakeMetrics handshakes) {
+        connections.add(inputOutputSocket);
+        try {
+            connectionExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        if (inputOutputSocket.getSocket() instanceof SSLSocket) {
+                            handshake((SSLSocket) inputOutputSocket.getSocket(), handshakes);
+                        }
+                        handler.handle(inputOutputSocket);
+                    } catch (IOException ioe) {
+                        // An exception is unexpected here. Close the current connection and bail out.
+                        logger.log(Level.WARNING, "APNS connection failed", ioe);
+                    } finally {
+                        inputOutputSocket.close();
+                        connections.remove(inputOutputSocket);
+                    }
+                }
+            });
+        } catch (RuntimeException ex) {
+            // rejected because the simulator is stopping
+            inputOutputSocket.close();
+            connections.remove(inputOutputSocket);
+        }
+    }
+
+    /**
+     * Completes the handshake on the connection thread, otherwise it would happen on the first read and the accepting
+     * thread would not notice it anyway.
+     */
+    private static void handshake(SSLSocket socket, TlsHandshakeMetrics handshakes) throws IOException {
+        long startMillis = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
+        try {
+            socket.startHandshake();
+        } catch (IOException ex) {
+            handshakes.failed();
+            throw ex;
+        }
+        handshakes.completed(socket.getSession(), startMillis, startNanos);
+    }
+
+    private ServerSocket createServerSocket(int port, InetAddress host) throws IOException {
+        final ServerSocket serverSocket;
+        if (receiveBufferSize > 0) {
+            serverSocket = sslFactory.createServerSocket();
+            serverSocket.setReceiveBufferSize(receiveBufferSize);
+            serverSocket.bind(new InetSocketAddress(host, port));
+        } else {
+            serverSocket = sslFactory.createServerSocket(port, 0, host);
+        }
+        if (enabledCipherSuites != null && serverSocket instanceof SSLServerSocket) {
+            ((SSLServerSocket) serverSocket).setEnabledCipherSuites(enabledCipherSuites);
+        }
+        return serverSocket;
+    }
+
+    private Socket configure(Socket socket) throws SocketException {
+        if (tcpNoDelay) {
+            socket.setTcpNoDelay(true);
+        }
+        return socket;
+    }
+
+    private static void closeServerSocket(ServerSocket serverSocket) {
+        try {
+            if (serverSocket != null) {
+                serverSocket.close();
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Unable to close APNS server socket", e);
+        }
+    }
+
+    private interface ConnectionHandler {
+
+        void handle(InputOutputSocket inputOutputSocket) throws IOException;
+    }
+
+    private class GatewayListener extends Thread implements ConnectionHandler {
+
+        private GatewayListener(String name) {
+            super(name);
+        }
+
+        public void run() {
+            logger.info("Launched " + getName());
+            try {
+                try {
+                    gatewaySocket = createServerSocket(gatewayPort, gatewayHost);
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                } finally {
+                    effectiveGatewayPort = gatewaySocket != null ? gatewaySocket.getLocalPort() : -1;
+                    startUp.release();
+                }
+
+                logger.info("GatewayListener listening to connections");
+
+                while (!isInterrupted()) {
+                    try {
+                        Socket socket = configure(gatewaySocket.accept());
+                        serve(new InputOutputSocket(socket, MockMetrics.ENDPOINT_APNS_GATEWAY), this, gatewayHandshakes);
+                    } catch (SocketException ex) {
+                        interrupt();
+                    } catch (IOException ioe) {
+                        logger.log(Level.WARNING, "Unable to accept APNS gateway connection", ioe);
+                    }
+                }
+            } finally {
+                logger.info("Terminating " + getName());
+            }
+        }
+
+        @Override
+        public void handle(final InputOutputSocket inputOutputSocket) {
+            if (logger.isLoggable(Level.FINE)) {
+                logger.fine(String.format("Running parseNotifications %s", inputOutputSocket.getSocket()));
+            }
+
+            final ApnsNotificationReader reader =
+                new ApnsNotificationReader(inputOutputSocket.getInputStream(), readBufferSize);
+            final List<Notification> notifications = new ArrayList<Notification>();
+
+            while (!Thread.currentThread().isInterrupted()) {
+                final long start;
+                notifications.clear();
+                try {
+                    if (reader.read(notifications) < 0) {
+                        return;
+                    }
+                    start = System.nanoTime();
+                } catch (ApnsProtocolException ex) {
+                    gatewayProtocolErrors.inc();
+                    logger.log(Level.WARNING, String.format("Malformed notification from %s: %s",
+                        inputOutputSocket.getSocket().getRemoteSocketAddress(), ex.getMessage()));
+                    try {
+                        fail(ex.getStatus(), ex.getIdentifier(), inputOutputSocket);
+                    } catch (IOException ioe) {
+                        logger.log(Level.FINE, "Unable to send error response", ioe);
+                    }
+                    return;
+                } catch (IOException ioe) {
+                    // connection closed by the client or by stop()
+                    logger.log(Level.FINE, "APNS gateway connection closed", ioe);
+                    return;
+                }
+
+                for (Notification notification : notifications) {
+                    if (!process(notification, inputOutputSocket, start)) {
+                        return;
+                    }
+                }
+            }
+        }
+
+        /**
+         * @return false when the connection was closed
+         */
+        private boolean process(Notification notification, InputOutputSocket inputOutputSocket, long start) {
+            if (logger.isLoggable(Level.FINE)) {
+                logger.fine(String.format("Read notification %s", notification));
+            }
+
+            if (latencyMillis > 0) {
+                try {
+                    Thread.sleep(latencyMillis);
+                } catch (InterruptedException ex) {
+                    return false;
+                }
+            }
+
+            if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                try {
+                    fail(PROCESSING_ERROR, notification.getIdentifier(), inputOutputSocket);
+                } catch (IOException ex) {
+                    logger.log(Level.FINE, "Unable to send injected error", ex);
+                }
+                return false;
+            }
+
+            feedbackQueue.offerIfInvalid(notification.getDeviceToken());
+
+            sink.onNotification(notification);
+
+            gatewayLatency.recordSince(start);
+            return true;
+        }
+
+        @Override
+        public void interrupt() {
+            logger.info("Interrupted, closing socket");
+            super.interrupt();
+            closeServerSocket(gatewaySocket);
+        }
+    }
+
+    private class FeedbackRunner extends Thread implements ConnectionHandler {
+
+        private FeedbackRunner(String name) {
+            super(name);
+        }
+
+        public void run() {
+            logger.info("Launched " + getName());
+            try {
+                try {
+                    feedbackSocket = createServerSocket(feedbackPort, feedbackHost);
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                } finally {
+                    effectiveFeedbackPort = feedbackSocket != null ? feedbackSocket.getLocalPort() : -1;
+                    startUp.release();
+                }
+
+                while (!isInterrupted()) {
+                    try {
+                        Socket socket = configure(feedbackSocket.accept());
+                        serve(new InputOutputSocket(socket, MockMetrics.ENDPOINT_APNS_FEEDBACK), this, feedbackHandshakes);
+                    } catch (SocketException ex) {
+                        interrupt();
+                    } catch (IOException ioe) {
+                        logger.log(Level.WARNING, "Unable to accept APNS feedback connection", ioe);
+                    }
+                }
+            } finally {
+                logger.info("Terminating " + getName());
+            }
+        }
+
+        @Override
+        public void handle(final InputOutputSocket inputOutputSocket) throws IOException {
+            long start = System.nanoTime();
+            int sent = feedbackQueue.drainTo(inputOutputSocket);
+            feedbackLatency.recordSince(start);
+            logger.info(String.format("Sent %s invalidated tokens, %s left for next connections", sent, feedbackQueue.size()));
+        }
+
+        @Override
+        public void interrupt() {
+            super.interrupt();
+            closeServerSocket(feedbackSocket);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package org.jboss.aerogear.apns;
+
+/**
+ * Device token helpers shared by the APNS mocks.
+ */
+public final class ApnsTokens {
+
+    /**
+     * Tokens starting with this prefix are reported as invalid by the feedback service.
+     */
+    public static final String TOKEN_INVALIDATION_PREFIX = String.format("%08X", 0xcafedead).toLowerCase();
+
+    /**
+     * Binary form of {@link #TOKEN_INVALIDATION_PREFIX} so raw device tokens can be checked without hex encoding them.
+     */
+    private static final byte[] TOKEN_INVALIDATION_PREFIX_BYTES = { (byte) 0xca, (byte) 0xfe, (byte) 0xde, (byte) 0xad };
+
+    private static final char[] HEX = { '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f' };
+
+    private ApnsTokens() {
+    }
+
+    public static boolean isInvalidationToken(final byte[] deviceToken) {
+        if (deviceToken == null || deviceToken.length < TOKEN_INVALIDATION_PREFIX_BYTES.length) {
+            return false;
+        }
+
+        for (int i = 0; i < TOKEN_INVALIDATION_PREFIX_BYTES.length; i++) {
+            if (deviceToken[i] != TOKEN_INVALIDATION_PREFIX_BYTES[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Creates device token starting with the invalidation prefix, the rest of the token is filled with the big endian
+     * representation of the sequence so tokens with different sequence numbers do not collide.
+     *
+     * @param length length of the token in bytes, at least the length of the prefix
+     * @param sequence number distinguishing the token
+     */
+    public static byte[] newInvalidationToken(final int length, final long sequence) {
+        if (length < TOKEN_INVALIDATION_PREFIX_BYTES.length) {
+            throw new IllegalArgumentException("Token has to be at least " + TOKEN_INVALIDATION_PREFIX_BYTES.length + " bytes long.");
+        }
+
+        final byte[] token = new byte[length];
+        System.arraycopy(TOKEN_INVALIDATION_PREFIX_BYTES, 0, token, 0, TOKEN_INVALIDATION_PREFIX_BYTES.length);
+
+        long remaining = sequence;
+        for (int i = length - 1; i >= TOKEN_INVALIDATION_PREFIX_BYTES.length && remaining != 0; i--) {
+            token[i] = (byte) remaining;
+            remaining >>>= 8;
+        }
+
+        return token;
+    }
+
+    /**
+     * @return lower case hex representation of the token, the form UPS stores device tokens in
+     */
+    public static String encodeHex(final byte[] bytes) {
+        final char[] chars = new char[bytes.length * 2];
+
+        for (int i = 0; i < bytes.length; ++i) {
+            final int b = bytes[i] & 0xFF;
+            chars[2 * i] = HEX[b >>> 4];
+            chars[2 * i + 1] = HEX[b & 0xF];
+        }
+
+        return new String(chars);
+    }
+}
@@ -1,9 +1,14 @@
-package org.jboss.aerogear.proxy.apns;
+package org.jboss.aerogear.apns;
 
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.net.Socket;
 
+import org.jboss.aerogear.metrics.CountingInputStream;
+import org.jboss.aerogear.metrics.CountingOutputStream;
+import org.jboss.aerogear.metrics.Gauge;
+import org.jboss.aerogear.metrics.MockMetrics;
+
 /**
  * Wrap some of the boilerplate code using socket, enable passing around a socket together with its streams.
  */
@@ -12,8 +17,14 @@ public class InputOutputSocket {
     private final Socket socket;
     private final ApnsInputStream inputStream;
     private final DataOutputStream outputStream;
+    private final Gauge activeConnections;
+
+    private boolean closed;
 
-    public InputOutputSocket(final Socket socket) throws IOException {
+    /**
+     * @param endpoint name of the endpoint traffic and connections of this socket are accounted to in {@link MockMetrics}
+     */
+    public InputOutputSocket(final Socket socket, final String endpoint) throws IOException {
         if (socket == null) {
             throw new NullPointerException("socket may not be null");
         }
@@ -22,8 +33,11 @@ public class InputOutputSocket {
 
         // Hack, work around JVM deadlock ... https://community.oracle.com/message/10989561#10989561
         socket.setSoLinger(true, 1);
-        outputStream = new DataOutputStream(socket.getOutputStream());
-        inputStream = new ApnsInputStream(socket.getInputStream());
+        outputStream = new DataOutputStream(new CountingOutputStream(socket.getOutputStream(), MockMetrics.bytesSent(endpoint)));
+        inputStream = new ApnsInputStream(new CountingInputStream(socket.getInputStream(), MockMetrics.bytesReceived(endpoint)));
+
+        activeConnections = MockMetrics.activeConnections(endpoint);
+        activeConnections.inc();
     }
 
     public Socket getSocket() {
@@ -39,6 +53,10 @@ public class InputOutputSocket {
     }
 
     public synchronized void close() {
+        if (!closed) {
+            closed = true;
+            activeConnections.dec();
+        }
 
         try {
             inputStream.close();
@@ -70,4 +88,17 @@ public class InputOutputSocket {
         outputStream.write(bytes);
         outputStream.flush();
     }
+
+    /**
+     * Writes a region of the buffer with a single write followed by a flush.
+     *
+     * @param bytes The buffer holding the data
+     * @param offset The start offset in the buffer
+     * @param length The number of bytes to write
+     * @throws IOException if an error occurs
+     */
+    public void syncWrite(byte[] bytes, int offset, int length) throws IOException {
+        outputStream.write(bytes, offset, length);
+        outputStream.flush();
+    }
 }
@@ -0,0 +1,81 @@
+package org.jboss.aerogear.apns;
+
+/**
+ * Notification as read from the binary APNS protocol. The arrays are handed out without copying, sinks must not
+ * modify them.
+ */
+public class Notification {
+
+    public static final byte DEFAULT_PRIORITY = 10;
+
+    private final int type;
+    private final int identifier;
+    private final int expiry;
+    private final byte[] deviceToken;
+    private final byte[] payload;
+    private final byte priority;
+
+    public Notification(final int type, final byte[] deviceToken, final byte[] payload) {
+        this(type, 0, 0, deviceToken, payload);
+    }
+
+    public Notification(final int type, final int identifier, final int expiry, final byte[] deviceToken, final byte[] payload) {
+        this(type, identifier, expiry, deviceToken, payload, DEFAULT_PRIORITY);
+    }
+
+    public Notification(final int type, final int identifier, final int expiry, final byte[] deviceToken, final byte[] payload,
+        final byte priority) {
+        this.type = type;
+        this.identifier = identifier;
+        this.expiry = expiry;
+        this.deviceToken = deviceToken;
+        this.payload = payload;
+        this.priority = priority;
+    }
+
+    /**
+     * @return 0 for legacy, 1 for enhanced and 2 for framed notification
+     */
+    public int getType() {
+        return type;
+    }
+
+    public int getIdentifier() {
+        return identifier;
+    }
+
+    public int getExpiry() {
+        return expiry;
+    }
+
+    public byte[] getDeviceToken() {
+        return deviceToken;
+    }
+
+    /**
+     * @return device token in lower case hex
+     */
+    public String getDeviceTokenHex() {
+        return ApnsTokens.encodeHex(deviceToken);
+    }
+
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    public byte getPriority() {
+        return priority;
+    }
+
+    @Override
+    public String toString() {
+        return "Notification{" +
+            "type=" + type +
+            ", identifier=" + identifier +
+            ", expiry=" + expiry +
+            ", deviceToken=" + getDeviceTokenHex() +
+            ", payload=" + ApnsTokens.encodeHex(payload) +
+            ", priority=" + priority +
+            '}';
+    }
+}
@@ -0,0 +1,122 @@
+package org.jboss.aerogear.apns;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class ApnsFeedbackQueueTestCase {
+
+    // the smallest batch allowed
+    private static final int BATCH_SIZE = 6 + 0xFFFF + 1;
+
+    private static final int TUPLE_LENGTH = 6 + ApnsFeedbackQueue.DEFAULT_TOKEN_LENGTH;
+
+    private static final int TUPLES_PER_BATCH = BATCH_SIZE / TUPLE_LENGTH;
+
+    private static final int TOKENS = TUPLES_PER_BATCH + 100;
+
+    private ServerSocket serverSocket;
+
+    private Socket client;
+
+    private Socket accepted;
+
+    @Before
+    public void connect() throws IOException {
+        serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        client = new Socket(InetAddress.getLoopbackAddress(), serverSocket.getLocalPort());
+        accepted = serverSocket.accept();
+    }
+
+    @After
+    public void close() throws IOException {
+        accepted.close();
+        client.close();
+        serverSocket.close();
+    }
+
+    @Test
+    public void drainTest() throws IOException {
+        ApnsFeedbackQueue queue = queue();
+        FailingSocket socket = new FailingSocket(accepted, -1);
+
+        Assert.assertEquals(TOKENS, queue.drainTo(socket));
+
+        Assert.assertEquals(0, queue.size());
+        Assert.assertEquals(2, socket.writes);
+        Assert.assertEquals(TOKENS * TUPLE_LENGTH + 1, socket.sent.size());
+    }
+
+    @Test
+    public void failedFirstBatchTest() throws IOException {
+        ApnsFeedbackQueue queue = queue();
+
+        try {
+            queue.drainTo(new FailingSocket(accepted, 0));
+            Assert.fail("Failed write has to be reported");
+        } catch (IOException e) {
+            // nothing reached the client, all tokens are left for the next connection
+            Assert.assertEquals(TOKENS, queue.size());
+        }
+    }
+
+    @Test
+    public void failedLastBatchTest() throws IOException {
+        ApnsFeedbackQueue queue = queue();
+        FailingSocket socket = new FailingSocket(accepted, 1);
+
+        try {
+            queue.drainTo(socket);
+            Assert.fail("Failed write has to be reported");
+        } catch (IOException e) {
+            // the first batch is out, the rest is queued again
+            Assert.assertEquals(TOKENS - TUPLES_PER_BATCH, queue.size());
+            Assert.assertEquals(TUPLES_PER_BATCH * TUPLE_LENGTH, socket.sent.size());
+        }
+
+        FailingSocket next = new FailingSocket(accepted, -1);
+        Assert.assertEquals(TOKENS - TUPLES_PER_BATCH, queue.drainTo(next));
+        Assert.assertEquals(0, queue.size());
+    }
+
+    private static ApnsFeedbackQueue queue() {
+        ApnsFeedbackQueue queue = new ApnsFeedbackQueue(BATCH_SIZE);
+        queue.generate(TOKENS, ApnsFeedbackQueue.DEFAULT_TOKEN_LENGTH);
+        return queue;
+    }
+
+    /**
+     * Keeps written data in memory and fails the given write.
+     */
+    private static class FailingSocket extends InputOutputSocket {
+
+        private final ByteArrayOutputStream sent = new ByteArrayOutputStream();
+
+        private final int failingWrite;
+
+        private int writes;
+
+        FailingSocket(Socket socket, int failingWrite) throws IOException {
+            super(socket, "feedback-test");
+            this.failingWrite = failingWrite;
+        }
+
+        @Override
+        public void syncWrite(byte[] bytes, int offset, int length) throws IOException {
+            if (writes++ == failingWrite) {
+                throw new IOException("Connection reset");
+            }
+            sent.write(bytes, offset, length);
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package org.jboss.aerogear.apns;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class ApnsNotificationReaderTestCase {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final byte[] TOKEN = { 1, 2, 3, 4, 5, 6, 7, 8 };
+
+    private static final byte[] PAYLOAD = "{\"aps\":{\"alert\":\"hi\"}}".getBytes(UTF_8);
+
+    @Test
+    public void legacyNotificationTest() throws IOException {
+        Notification notification = readOne(legacy(TOKEN, PAYLOAD), 1024);
+
+        Assert.assertEquals(0, notification.getType());
+        Assert.assertArrayEquals(TOKEN, notification.getDeviceToken());
+        Assert.assertArrayEquals(PAYLOAD, notification.getPayload());
+    }
+
+    @Test
+    public void enhancedNotificationTest() throws IOException {
+        Notification notification = readOne(enhanced(7, 1400000000, TOKEN, PAYLOAD), 1024);
+
+        Assert.assertEquals(1, notification.getType());
+        Assert.assertEquals(7, notification.getIdentifier());
+        Assert.assertEquals(1400000000, notification.getExpiry());
+        Assert.assertArrayEquals(TOKEN, notification.getDeviceToken());
+        Assert.assertArrayEquals(PAYLOAD, notification.getPayload());
+    }
+
+    @Test
+    public void frameWithAllItemsTest() throws IOException {
+        Frame frame = new Frame()
+            .item(ApnsInputStream.ID_DEVICE_TOKEN, TOKEN)
+            .item(ApnsInputStream.ID_PAYLOAD, PAYLOAD)
+            .item(ApnsInputStream.ID_NOTIFICATION_IDENTIFIER, intBytes(42))
+            .item(ApnsInputStream.ID_EXPIRATION_DATE, intBytes(1400000000))
+            .item(ApnsInputStream.ID_PRIORITY, new byte[] { 5 });
+
+        Notification notification = readOne(frame.toBytes(), 1024);
+
+        Assert.assertEquals(2, notification.getType());
+        Assert.assertEquals(42, notification.getIdentifier());
+        Assert.assertEquals(1400000000, notification.getExpiry());
+        Assert.assertEquals(5, notification.getPriority());
+        Assert.assertArrayEquals(TOKEN, notification.getDeviceToken());
+        Assert.assertArrayEquals(PAYLOAD, notification.getPayload());
+    }
+
+    @Test
+    public void frameSkipsUnknownItemsTest() throws IOException {
+        Frame frame = new Frame()
+            .item((byte) 99, new byte[] { 1, 2, 3 })
+            .item(ApnsInputStream.ID_PAYLOAD, PAYLOAD)
+            .item(ApnsInputStream.ID_DEVICE_TOKEN, TOKEN);
+
+        Notification notification = readOne(frame.toBytes(), 1024);
+
+        Assert.assertArrayEquals(TOKEN, notification.getDeviceToken());
+        Assert.assertEquals(0, notification.getIdentifier());
+    }
+
+    @Test
+    public void notificationsSplitAcrossReadsTest() throws IOException {
+        byte[] stream = concat(legacy(TOKEN, PAYLOAD), enhanced(1, 0, TOKEN, PAYLOAD), frame(2), legacy(TOKEN, PAYLOAD),
+            frame(3));
+
+        // every read returns at most a few bytes, so every header and item is split at some point
+        for (int chunk = 1; chunk <= 7; chunk++) {
+            List<Notification> notifications = readAll(new ChunkedInputStream(stream, chunk), 16);
+
+            Assert.assertEquals("chunk " + chunk, 5, notifications.size());
+            Assert.assertEquals(Arrays.asList(0, 1, 2, 0, 2), types(notifications));
+            Assert.assertEquals(3, notifications.get(4).getIdentifier());
+        }
+    }
+
+    @Test
+    public void bufferGrowsForLargeNotificationTest() throws IOException {
+        byte[] payload = new byte[5000];
+        Arrays.fill(payload, (byte) 'a');
+
+        Notification notification = readOne(enhanced(1, 0, TOKEN, payload), 64);
+
+        Assert.assertArrayEquals(payload, notification.getPayload());
+    }
+
+    @Test
+    public void endOfStreamTest() throws IOException {
+        ApnsNotificationReader reader = new ApnsNotificationReader(new ByteArrayInputStream(new byte[0]), 16);
+
+        Assert.assertEquals(-1, reader.read(new ArrayList<Notification>()));
+    }
+
+    @Test
+    public void unknownCommandTest() throws IOException {
+        ApnsProtocolException ex = readFailure(new byte[] { 9, 0, 0, 0 });
+
+        Assert.assertEquals(ApnsProtocolException.UNKNOWN, ex.getStatus());
+    }
+
+    @Test
+    public void missingDeviceTokenTest() throws IOException {
+        ApnsProtocolException ex = readFailure(enhanced(5, 0, new byte[0], PAYLOAD));
+
+        Assert.assertEquals(ApnsProtocolException.MISSING_DEVICE_TOKEN, ex.getStatus());
+        Assert.assertEquals(5, ex.getIdentifier());
+    }
+
+    @Test
+    public void missingPayloadTest() throws IOException {
+        Frame frame = new Frame()
+            .item(ApnsInputStream.ID_DEVICE_TOKEN, TOKEN)
+            .item(ApnsInputStream.ID_NOTIFICATION_IDENTIFIER, intBytes(6));
+
+        ApnsProtocolException ex = readFailure(frame.toBytes());
+
+        Assert.assertEquals(ApnsProtocolException.MISSING_PAYLOAD, ex.getStatus());
+        Assert.assertEquals(6, ex.getIdentifier());
+    }
+
+    @Test
+    public void oversizedNotificationTest() throws IOException {
+        byte[] header = { 2, 0, 1, 0, 0 };
+
+        ApnsProtocolException ex = readFailure(header);
+
+        Assert.assertEquals(ApnsProtocolException.INVALID_PAYLOAD_SIZE, ex.getStatus());
+    }
+
+    @Test
+    public void itemOverrunningFrameTest() throws IOException {
+        byte[] frame = new Frame().item(ApnsInputStream.ID_DEVICE_TOKEN, TOKEN).toBytes();
+        // the token claims one byte more than the frame holds
+        frame[7] = (byte) (TOKEN.length + 1);
+
+        Assert.assertEquals(ApnsProtocolException.UNKNOWN, readFailure(frame).getStatus());
+    }
+
+    @Test
+    public void truncatedItemHeaderTest() throws IOException {
+        byte[] items = new Frame().item(ApnsInputStream.ID_DEVICE_TOKEN, TOKEN).itemBytes();
+        byte[] frame = frame(concat(items, new byte[] { ApnsInputStream.ID_PAYLOAD, 0 }));
+
+        Assert.assertEquals(ApnsProtocolException.UNKNOWN, readFailure(frame).getStatus());
+    }
+
+    @Test
+    public void notificationsBeforeFailureAreReturnedTest() throws IOException {
+        byte[] stream = concat(legacy(TOKEN, PAYLOAD), frame(2), new byte[] { 9 });
+        ApnsNotificationReader reader = new ApnsNotificationReader(new ByteArrayInputStream(stream), 1024);
+
+        List<Notification> notifications = new ArrayList<Notification>();
+        Assert.assertEquals(2, reader.read(notifications));
+
+        try {
+            reader.read(notifications);
+            Assert.fail("Unknown command has to fail the reader");
+        } catch (ApnsProtocolException ex) {
+            Assert.assertEquals(ApnsProtocolException.UNKNOWN, ex.getStatus());
+        }
+
+        // the stream can not be resynchronized, the reader keeps failing
+        try {
+            reader.read(notifications);
+            Assert.fail("Failed reader has to keep failing");
+        } catch (ApnsProtocolException ex) {
+            Assert.assertEquals(2, notifications.size());
+        }
+    }
+
+    private static Notification readOne(byte[] stream, int bufferSize) throws IOException {
+        List<Notification> notifications = readAll(new ByteArrayInputStream(stream), bufferSize);
+        Assert.assertEquals(1, notifications.size());
+        return notifications.get(0);
+    }
+
+    private static List<Notification> readAll(InputStream in, int bufferSize) throws IOException {
+        ApnsNotificationReader reader = new ApnsNotificationReader(in, bufferSize);
+        List<Notification> notifications = new ArrayList<Notification>();
+        while (reader.read(notifications) >= 0) {
+            // keep reading until the stream ends
+        }
+        return notifications;
+    }
+
+    private static ApnsProtocolException readFailure(byte[] stream) throws IOException {
+        try {
+            readAll(new ByteArrayInputStream(stream), 1024);
+        } catch (ApnsProtocolException ex) {
+            return ex;
+        }
+        throw new AssertionError("Expected ApnsProtocolException");
+    }
+
+    private static List<Integer> types(List<Notification> notifications) {
+        List<Integer> types = new ArrayList<Integer>();
+        for (Notification notification : notifications) {
+            types.add(notification.getType());
+        }
+        return types;
+    }
+
+    private static byte[] legacy(byte[] token, byte[] payload) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(0);
+        out.writeShort(token.length);
+        out.write(token);
+        out.writeShort(payload.length);
+        out.write(payload);
+        return bytes.toByteArray();
+    }
+
+    private static byte[] enhanced(int identifier, int expiry, byte[] token, byte[] payload) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(1);
+        out.writeInt(identifier);
+        out.writeInt(expiry);
+        out.writeShort(token.length);
+        out.write(token);
+        out.writeShort(payload.length);
+        out.write(payload);
+        return bytes.toByteArray();
+    }
+
+    private static byte[] frame(int identifier) throws IOException {
+        return new Frame()
+            .item(ApnsInputStream.ID_DEVICE_TOKEN, TOKEN)
+            .item(ApnsInputStream.ID_PAYLOAD, PAYLOAD)
+            .item(ApnsInputStream.ID_NOTIFICATION_IDENTIFIER, intBytes(identifier))
+            .toBytes();
+    }
+
+    private static byte[] frame(byte[] items) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(2);
+        out.writeInt(items.length);
+        out.write(items);
+        return bytes.toByteArray();
+    }
+
+    private static byte[] intBytes(int value) {
+        return new byte[] { (byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value };
+    }
+
+    private static byte[] concat(byte[]... arrays) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        for (byte[] array : arrays) {
+            bytes.write(array, 0, array.length);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Items of a command 2 notification.
+     */
+    private static final class Frame {
+
+        private final ByteArrayOutputStream items = new ByteArrayOutputStream();
+
+        private Frame item(byte id, byte[] data) {
+            items.write(id);
+            items.write(data.length >>> 8);
+            items.write(data.length);
+            items.write(data, 0, data.length);
+            return this;
+        }
+
+        private byte[] itemBytes() {
+            return items.toByteArray();
+        }
+
+        private byte[] toBytes() throws IOException {
+            return frame(itemBytes());
+        }
+    }
+
+    /**
+     * Returns at most a given number of bytes per read, as a socket may.
+     */
+    private static final class ChunkedInputStream extends ByteArrayInputStream {
+
+        private final int chunk;
+
+        private ChunkedInputStream(byte[] bytes, int chunk) {
+            super(bytes);
+            this.chunk = chunk;
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) {
+            return super.read(b, off, Math.min(len, chunk));
+        }
+    }
+}
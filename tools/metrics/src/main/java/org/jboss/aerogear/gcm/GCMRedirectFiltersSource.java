@@ -0,0 +1,147 @@
+package org.jboss.aerogear.gcm;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Logger;
+
+import org.littleshoot.proxy.HttpFilters;
+import org.littleshoot.proxy.HttpFiltersAdapter;
+import org.littleshoot.proxy.HttpFiltersSourceAdapter;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpObject;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.LastHttpContent;
+
+/**
+ * Filters of the HTTP proxy in front of the GCM mock. Requests to Google hosts are sent to the mock, everything else
+ * passes through untouched. The decision is made once per request from its host, bodies are never looked at so they
+ * go through as they came.
+ *
+ * A share of requests given by the capture rate is logged together with its response status, sizes and duration.
+ *
+ * Used by both the proxy and the test extension. LittleProxy and Netty are not dependencies of this module, the
+ * filters may be used only where both are on the classpath.
+ */
+public class GCMRedirectFiltersSource extends HttpFiltersSourceAdapter {
+
+    private static final Logger logger = Logger.getLogger(GCMRedirectFiltersSource.class.getName());
+
+    private static final String GOOGLE = "google";
+
+    // stateless, LittleProxy keeps the filters of the previous request on the connection when given null
+    private static final HttpFilters PASS_THROUGH = new HttpFiltersAdapter(null);
+
+    private final String mockAddress;
+
+    private final double captureRate;
+
+    /**
+     * @param captureRate share of requests to log, from 0 (none) to 1 (all)
+     */
+    public GCMRedirectFiltersSource(String mockServerHost, int mockServerPort, double captureRate) {
+        if (captureRate < 0 || captureRate > 1) {
+            throw new IllegalArgumentException("Capture rate has to be between 0 and 1, was " + captureRate);
+        }
+        this.mockAddress = mockServerHost + ":" + mockServerPort;
+        this.captureRate = captureRate;
+    }
+
+    @Override
+    public HttpFilters filterRequest(HttpRequest originalRequest, ChannelHandlerContext ctx) {
+        final boolean redirect = isGoogleHost(originalRequest.uri());
+        final boolean capture = captureRate > 0 && ThreadLocalRandom.current().nextDouble() < captureRate;
+
+        if (capture) {
+            return new CapturingFilters(originalRequest, redirect ? mockAddress : null);
+        }
+        if (redirect) {
+            return new RedirectingFilters(originalRequest, mockAddress);
+        }
+        return PASS_THROUGH;
+    }
+
+    /**
+     * Checks the host of absolute or authority form URI ({@code CONNECT android.googleapis.com:443}), path and query
+     * are not taken into account.
+     */
+    static boolean isGoogleHost(String uri) {
+        int begin = uri.indexOf("://");
+        begin = begin < 0 ? 0 : begin + 3;
+
+        int end = begin;
+        while (end < uri.length()) {
+            char c = uri.charAt(end);
+            if (c == '/' || c == ':' || c == '?') {
+                break;
+            }
+            end++;
+        }
+
+        for (int i = begin; i <= end - GOOGLE.length(); i++) {
+            if (uri.regionMatches(true, i, GOOGLE, 0, GOOGLE.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static class RedirectingFilters extends HttpFiltersAdapter {
+
+        final String target;
+
+        private RedirectingFilters(HttpRequest originalRequest, String target) {
+            super(originalRequest);
+            this.target = target;
+        }
+
+        @Override
+        public HttpResponse clientToProxyRequest(HttpObject httpObject) {
+            if (target != null && httpObject instanceof HttpRequest) {
+                ((HttpRequest) httpObject).setUri(target);
+            }
+            return null;
+        }
+    }
+
+    private static final class CapturingFilters extends RedirectingFilters {
+
+        private final long start = System.nanoTime();
+
+        private long requestBytes;
+
+        private long responseBytes;
+
+        private String status = "-";
+
+        private CapturingFilters(HttpRequest originalRequest, String target) {
+            super(originalRequest, target);
+        }
+
+        @Override
+        public HttpResponse clientToProxyRequest(HttpObject httpObject) {
+            if (httpObject instanceof HttpContent) {
+                requestBytes += ((HttpContent) httpObject).content().readableBytes();
+            }
+            return super.clientToProxyRequest(httpObject);
+        }
+
+        @Override
+        public HttpObject proxyToClientResponse(HttpObject httpObject) {
+            if (httpObject instanceof HttpResponse) {
+                status = ((HttpResponse) httpObject).status().toString();
+            }
+            if (httpObject instanceof HttpContent) {
+                responseBytes += ((HttpContent) httpObject).content().readableBytes();
+            }
+            if (httpObject instanceof LastHttpContent) {
+                logger.info(String.format("%s %s%s -> %s, request %d B, response %d B, %d us",
+                    originalRequest.method(), originalRequest.uri(),
+                    target != null ? " (GCM mock)" : "", status, requestBytes,
+                    responseBytes, (System.nanoTime() - start) / 1000));
+            }
+            return httpObject;
+        }
+    }
+}
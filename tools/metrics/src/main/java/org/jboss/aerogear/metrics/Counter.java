@@ -0,0 +1,32 @@
+package org.jboss.aerogear.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Monotonically increasing value, e.g. number of received notifications.
+ */
+public class Counter extends Metric {
+
+    private final AtomicLong value = new AtomicLong();
+
+    Counter(String name, String[] labels) {
+        super(name, labels);
+    }
+
+    public void inc() {
+        value.incrementAndGet();
+    }
+
+    public void add(long delta) {
+        value.addAndGet(delta);
+    }
+
+    public long get() {
+        return value.get();
+    }
+
+    @Override
+    public MetricType getType() {
+        return MetricType.COUNTER;
+    }
+}
@@ -0,0 +1,45 @@
+package org.jboss.aerogear.metrics;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Adds every byte read from the stream to the counter.
+ */
+public class CountingInputStream extends FilterInputStream {
+
+    private final Counter counter;
+
+    public CountingInputStream(InputStream in, Counter counter) {
+        super(in);
+        this.counter = counter;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b != -1) {
+            counter.inc();
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int read = super.read(b, off, len);
+        if (read > 0) {
+            counter.add(read);
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        if (skipped > 0) {
+            counter.add(skipped);
+        }
+        return skipped;
+    }
+}
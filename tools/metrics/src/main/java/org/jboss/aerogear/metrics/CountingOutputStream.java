@@ -0,0 +1,31 @@
+package org.jboss.aerogear.metrics;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Adds every byte written to the stream to the counter.
+ */
+public class CountingOutputStream extends FilterOutputStream {
+
+    private final Counter counter;
+
+    public CountingOutputStream(OutputStream out, Counter counter) {
+        super(out);
+        this.counter = counter;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        out.write(b);
+        counter.inc();
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        // FilterOutputStream would write byte by byte
+        out.write(b, off, len);
+        counter.add(len);
+    }
+}
@@ -0,0 +1,40 @@
+package org.jboss.aerogear.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Value which goes up and down, e.g. number of open connections.
+ */
+public class Gauge extends Metric {
+
+    private final AtomicLong value = new AtomicLong();
+
+    Gauge(String name, String[] labels) {
+        super(name, labels);
+    }
+
+    public void inc() {
+        value.incrementAndGet();
+    }
+
+    public void dec() {
+        value.decrementAndGet();
+    }
+
+    public void add(long delta) {
+        value.addAndGet(delta);
+    }
+
+    public void set(long newValue) {
+        value.set(newValue);
+    }
+
+    public long get() {
+        return value.get();
+    }
+
+    @Override
+    public MetricType getType() {
+        return MetricType.GAUGE;
+    }
+}
@@ -0,0 +1,33 @@
+package org.jboss.aerogear.metrics;
+
+/**
+ * Single time series - a metric name together with concrete label values.
+ */
+public abstract class Metric {
+
+    private final String name;
+
+    private final String[] labels;
+
+    Metric(String name, String[] labels) {
+        this.name = name;
+        this.labels = labels;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return label names and values alternating
+     */
+    public String[] getLabels() {
+        return labels.clone();
+    }
+
+    public abstract MetricType getType();
+
+    String[] labels() {
+        return labels;
+    }
+}
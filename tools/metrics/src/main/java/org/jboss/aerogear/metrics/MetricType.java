@@ -0,0 +1,18 @@
+package org.jboss.aerogear.metrics;
+
+public enum MetricType {
+
+    COUNTER("counter"),
+    GAUGE("gauge"),
+    TIMER("summary");
+
+    private final String prometheusType;
+
+    MetricType(String prometheusType) {
+        this.prometheusType = prometheusType;
+    }
+
+    public String getPrometheusType() {
+        return prometheusType;
+    }
+}
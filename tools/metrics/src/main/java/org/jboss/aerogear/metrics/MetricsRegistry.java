@@ -0,0 +1,261 @@
+package org.jboss.aerogear.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Holds metrics and publishes them in Prometheus text format and as a JMX MBean.
+ *
+ * Metrics are looked up by name and labels, lookups are not free so callers on hot paths should keep the returned
+ * instance around instead of resolving it for every event.
+ */
+public class MetricsRegistry {
+
+    public static final String PROMETHEUS_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final MetricsRegistry DEFAULT = new MetricsRegistry();
+
+    private final ConcurrentMap<String, Family> families = new ConcurrentSkipListMap<String, Family>();
+
+    /**
+     * @return registry shared by everything loaded by the same class loader
+     */
+    public static MetricsRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * @param labels label names and values alternating
+     */
+    public Counter counter(String name, String help, String... labels) {
+        return (Counter) register(name, help, MetricType.COUNTER, labels);
+    }
+
+    /**
+     * @param labels label names and values alternating
+     */
+    public Gauge gauge(String name, String help, String... labels) {
+        return (Gauge) register(name, help, MetricType.GAUGE, labels);
+    }
+
+    /**
+     * @param labels label names and values alternating
+     */
+    public Timer timer(String name, String help, String... labels) {
+        return (Timer) register(name, help, MetricType.TIMER, labels);
+    }
+
+    public String scrape() {
+        StringBuilder sb = new StringBuilder();
+        writePrometheus(sb);
+        return sb.toString();
+    }
+
+    /**
+     * Writes all metrics in Prometheus text exposition format. Timers are written as summaries with count and sum in
+     * seconds, their maximum is exposed as a separate gauge with _max suffix.
+     */
+    public void writePrometheus(StringBuilder sb) {
+        for (Family family : families.values()) {
+            writeHeader(sb, family.name, family.help, family.type.getPrometheusType());
+
+            for (Metric metric : family.series.values()) {
+                switch (family.type) {
+                    case COUNTER:
+                        writeSample(sb, family.name, metric, ((Counter) metric).get());
+                        break;
+                    case GAUGE:
+                        writeSample(sb, family.name, metric, ((Gauge) metric).get());
+                        break;
+                    case TIMER:
+                        writeSample(sb, family.name + "_count", metric, ((Timer) metric).getCount());
+                        writeSample(sb, family.name + "_sum", metric, ((Timer) metric).getTotalSeconds());
+                        break;
+                }
+            }
+
+            if (family.type == MetricType.TIMER) {
+                writeHeader(sb, family.name + "_max", family.help, MetricType.GAUGE.getPrometheusType());
+
+                for (Metric metric : family.series.values()) {
+                    writeSample(sb, family.name + "_max", metric, ((Timer) metric).getMaxSeconds());
+                }
+            }
+        }
+    }
+
+    /**
+     * @return current values keyed by metric name with labels, timers contribute count, sum and max
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<String, Object>();
+
+        for (Family family : families.values()) {
+            for (Metric metric : family.series.values()) {
+                String key = family.name + jmxLabels(metric.labels());
+
+                switch (family.type) {
+                    case COUNTER:
+                        snapshot.put(key, ((Counter) metric).get());
+                        break;
+                    case GAUGE:
+                        snapshot.put(key, ((Gauge) metric).get());
+                        break;
+                    case TIMER:
+                        Timer timer = (Timer) metric;
+                        snapshot.put(key + ".count", timer.getCount());
+                        snapshot.put(key + ".sumSeconds", timer.getTotalSeconds());
+                        snapshot.put(key + ".maxSeconds", timer.getMaxSeconds());
+                        break;
+                }
+            }
+        }
+
+        return snapshot;
+    }
+
+    /**
+     * Publishes the registry to the platform MBean server as {@code <domain>:type=Metrics}, an MBean registered by
+     * previous deployment under the same name is replaced.
+     */
+    public void registerMBean(String domain) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName objectName = objectName(domain);
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(new MetricsMBean(this), objectName);
+        } catch (JMException ex) {
+            throw new IllegalStateException("Unable to register metrics MBean for domain " + domain, ex);
+        }
+    }
+
+    public void unregisterMBean(String domain) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName objectName = objectName(domain);
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        } catch (JMException ex) {
+            throw new IllegalStateException("Unable to unregister metrics MBean for domain " + domain, ex);
+        }
+    }
+
+    private static ObjectName objectName(String domain) throws JMException {
+        return new ObjectName(domain + ":type=Metrics");
+    }
+
+    private Metric register(String name, String help, MetricType type, String[] labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels of " + name + " have to be name and value pairs.");
+        }
+
+        Family family = families.get(name);
+        if (family == null) {
+            Family created = new Family(name, help, type);
+            family = families.putIfAbsent(name, created);
+            if (family == null) {
+                family = created;
+            }
+        }
+
+        if (family.type != type) {
+            throw new IllegalArgumentException(String.format("Metric %s is already registered as %s.", name, family.type));
+        }
+
+        String key = prometheusLabels(labels);
+
+        Metric metric = family.series.get(key);
+        if (metric == null) {
+            Metric created = newMetric(name, type, labels.clone());
+            metric = family.series.putIfAbsent(key, created);
+            if (metric == null) {
+                metric = created;
+            }
+        }
+
+        return metric;
+    }
+
+    private static Metric newMetric(String name, MetricType type, String[] labels) {
+        switch (type) {
+            case COUNTER:
+                return new Counter(name, labels);
+            case GAUGE:
+                return new Gauge(name, labels);
+            case TIMER:
+                return new Timer(name, labels);
+            default:
+                throw new IllegalArgumentException("Unknown metric type " + type);
+        }
+    }
+
+    private static void writeHeader(StringBuilder sb, String name, String help, String type) {
+        if (help != null) {
+            sb.append("# HELP ").append(name).append(' ').append(help.replace("\\", "\\\\").replace("\n", "\\n")).append('\n');
+        }
+        sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void writeSample(StringBuilder sb, String name, Metric metric, Object value) {
+        sb.append(name).append(prometheusLabels(metric.labels())).append(' ').append(value).append('\n');
+    }
+
+    private static String prometheusLabels(String[] labels) {
+        if (labels.length == 0) {
+            return "";
+        }
+
+        StringBuilder sb = new StringBuilder("{");
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(labels[i]).append("=\"")
+                .append(labels[i + 1].replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n"))
+                .append('"');
+        }
+        return sb.append('}').toString();
+    }
+
+    private static String jmxLabels(String[] labels) {
+        if (labels.length == 0) {
+            return "";
+        }
+
+        StringBuilder sb = new StringBuilder("{");
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(labels[i]).append('=').append(labels[i + 1]);
+        }
+        return sb.append('}').toString();
+    }
+
+    private static final class Family {
+
+        private final String name;
+
+        private final String help;
+
+        private final MetricType type;
+
+        private final ConcurrentMap<String, Metric> series = new ConcurrentSkipListMap<String, Metric>();
+
+        private Family(String name, String help, MetricType type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+    }
+}
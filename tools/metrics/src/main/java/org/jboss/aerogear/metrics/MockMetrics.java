@@ -0,0 +1,81 @@
+package org.jboss.aerogear.metrics;
+
+/**
+ * Metrics shared by the push network mocks of the proxy and of the test extension so dashboards can scrape both the
+ * same way. Endpoint label distinguishes the servers of one platform, e.g. APNS gateway and feedback.
+ */
+public final class MockMetrics {
+
+    public static final String PLATFORM_APNS = "apns";
+    public static final String PLATFORM_GCM = "gcm";
+    public static final String PLATFORM_SIMPLE_PUSH = "simplepush";
+
+    public static final String ENDPOINT_APNS_GATEWAY = "apns_gateway";
+    public static final String ENDPOINT_APNS_FEEDBACK = "apns_feedback";
+    public static final String ENDPOINT_APNS_HTTP2 = "apns_http2";
+    public static final String ENDPOINT_GCM = "gcm";
+    public static final String ENDPOINT_SIMPLE_PUSH = "simplepush";
+
+    private MockMetrics() {
+    }
+
+    public static Counter notifications(String platform) {
+        return MetricsRegistry.getDefault().counter("ups_mock_notifications_total",
+            "Notifications received by the mock", "platform", platform);
+    }
+
+    public static Counter bytesReceived(String endpoint) {
+        return MetricsRegistry.getDefault().counter("ups_mock_received_bytes_total",
+            "Bytes read from the clients of the mock", "endpoint", endpoint);
+    }
+
+    public static Counter bytesSent(String endpoint) {
+        return MetricsRegistry.getDefault().counter("ups_mock_sent_bytes_total",
+            "Bytes written to the clients of the mock", "endpoint", endpoint);
+    }
+
+    public static Gauge activeConnections(String endpoint) {
+        return MetricsRegistry.getDefault().gauge("ups_mock_active_connections",
+            "Currently open client connections", "endpoint", endpoint);
+    }
+
+    public static Timer handlerLatency(String endpoint) {
+        return MetricsRegistry.getDefault().timer("ups_mock_handler_latency_seconds",
+            "Time from reading a notification to answering it", "endpoint", endpoint);
+    }
+
+    public static Gauge registerSize(String platform) {
+        return MetricsRegistry.getDefault().gauge("ups_mock_register_size",
+            "Notifications held by the register", "platform", platform);
+    }
+
+    public static Counter registerEvictions(String platform) {
+        return MetricsRegistry.getDefault().counter("ups_mock_register_evictions_total",
+            "Notifications dropped from the register", "platform", platform);
+    }
+
+    public static Counter duplicateDeliveries(String platform) {
+        return MetricsRegistry.getDefault().counter("ups_mock_duplicate_deliveries_total",
+            "Notifications of a message a token already received", "platform", platform);
+    }
+
+    public static Counter reorderedDeliveries(String platform) {
+        return MetricsRegistry.getDefault().counter("ups_mock_reordered_deliveries_total",
+            "Notifications of a message arriving after a newer message to the same token", "platform", platform);
+    }
+
+    public static Counter protocolErrors(String endpoint) {
+        return MetricsRegistry.getDefault().counter("ups_mock_protocol_errors_total",
+            "Connections closed because the client broke the protocol", "endpoint", endpoint);
+    }
+
+    public static Counter tlsHandshakes(String endpoint, String result) {
+        return MetricsRegistry.getDefault().counter("ups_mock_tls_handshakes_total",
+            "TLS handshakes with the clients of the mock by result", "endpoint", endpoint, "result", result);
+    }
+
+    public static Timer tlsHandshakeLatency(String endpoint) {
+        return MetricsRegistry.getDefault().timer("ups_mock_tls_handshake_seconds",
+            "Time from accepting a connection to completing the TLS handshake", "endpoint", endpoint);
+    }
+}
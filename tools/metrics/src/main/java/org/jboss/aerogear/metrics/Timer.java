@@ -0,0 +1,73 @@
+package org.jboss.aerogear.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks count, total and maximum of measured durations.
+ *
+ * <pre>
+ * long start = System.nanoTime();
+ * handle(request);
+ * timer.recordSince(start);
+ * </pre>
+ */
+public class Timer extends Metric {
+
+    private final AtomicLong count = new AtomicLong();
+
+    private final AtomicLong totalNanos = new AtomicLong();
+
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    Timer(String name, String[] labels) {
+        super(name, labels);
+    }
+
+    public void record(long nanos) {
+        if (nanos < 0) {
+            return;
+        }
+
+        count.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+
+        long max;
+        do {
+            max = maxNanos.get();
+        } while (nanos > max && !maxNanos.compareAndSet(max, nanos));
+    }
+
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.get();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    public double getTotalSeconds() {
+        return toSeconds(getTotalNanos());
+    }
+
+    public double getMaxSeconds() {
+        return toSeconds(getMaxNanos());
+    }
+
+    @Override
+    public MetricType getType() {
+        return MetricType.TIMER;
+    }
+
+    private static double toSeconds(long nanos) {
+        return (double) nanos / TimeUnit.SECONDS.toNanos(1);
+    }
+}
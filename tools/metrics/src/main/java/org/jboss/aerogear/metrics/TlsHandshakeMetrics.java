@@ -0,0 +1,49 @@
+package org.jboss.aerogear.metrics;
+
+import javax.net.ssl.SSLSession;
+
+/**
+ * Counts TLS handshakes of one endpoint by result and measures how long they take. A handshake counts as resumed when
+ * its session was created before the handshake started; session creation time of OpenSSL has one second resolution,
+ * so sessions resumed within the second they were created in count as full handshakes. TLS 1.3 resumptions of the
+ * JDK provider get a new session and count as full too.
+ */
+public class TlsHandshakeMetrics {
+
+    public static final String RESULT_FULL = "full";
+    public static final String RESULT_RESUMED = "resumed";
+    public static final String RESULT_FAILED = "failed";
+
+    private final Counter full;
+
+    private final Counter resumed;
+
+    private final Counter failed;
+
+    private final Timer latency;
+
+    public TlsHandshakeMetrics(String endpoint) {
+        full = MockMetrics.tlsHandshakes(endpoint, RESULT_FULL);
+        resumed = MockMetrics.tlsHandshakes(endpoint, RESULT_RESUMED);
+        failed = MockMetrics.tlsHandshakes(endpoint, RESULT_FAILED);
+        latency = MockMetrics.tlsHandshakeLatency(endpoint);
+    }
+
+    /**
+     * @param startMillis wall clock time the handshake started at
+     * @param startNanos {@link System#nanoTime()} the handshake started at
+     */
+    public void completed(SSLSession session, long startMillis, long startNanos) {
+        latency.recordSince(startNanos);
+
+        if (session.getCreationTime() < startMillis / 1000 * 1000) {
+            resumed.inc();
+        } else {
+            full.inc();
+        }
+    }
+
+    public void failed() {
+        failed.inc();
+    }
+}
@@ -0,0 +1,49 @@
+package org.jboss.aerogear.metrics;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.ssl.SslHandshakeCompletionEvent;
+
+/**
+ * Reports the TLS handshake of a channel to {@link TlsHandshakeMetrics} and removes itself from the pipeline once it
+ * is done. It holds the start of the handshake so every channel needs its own instance, placed after the
+ * {@link SslHandler}.
+ *
+ * Netty is not a dependency of this module, the handler may be used only where Netty is on the classpath.
+ */
+public class TlsHandshakeMetricsHandler extends ChannelInboundHandlerAdapter {
+
+    private final TlsHandshakeMetrics metrics;
+
+    private long startMillis;
+
+    private long startNanos;
+
+    public TlsHandshakeMetricsHandler(TlsHandshakeMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        startMillis = System.currentTimeMillis();
+        startNanos = System.nanoTime();
+        super.channelActive(ctx);
+    }
+
+    @Override
+    public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+        if (evt instanceof SslHandshakeCompletionEvent) {
+            SslHandler sslHandler = ctx.pipeline().get(SslHandler.class);
+            if (((SslHandshakeCompletionEvent) evt).isSuccess() && sslHandler != null) {
+                metrics.completed(sslHandler.engine().getSession(), startMillis, startNanos);
+            } else {
+                metrics.failed();
+            }
+            super.userEventTriggered(ctx, evt);
+            ctx.pipeline().remove(this);
+            return;
+        }
+        super.userEventTriggered(ctx, evt);
+    }
+}
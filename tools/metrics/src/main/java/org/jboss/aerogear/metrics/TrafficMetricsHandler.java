@@ -0,0 +1,63 @@
+package org.jboss.aerogear.metrics;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufHolder;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+
+/**
+ * Counts connections and raw bytes of a Netty server. It has to be the first handler of the pipeline, otherwise it
+ * sees decrypted or decoded traffic. One instance is shared by all channels of the server.
+ *
+ * Netty is not a dependency of this module, the handler may be used only where Netty is on the classpath.
+ */
+@Sharable
+public class TrafficMetricsHandler extends ChannelDuplexHandler {
+
+    private final Gauge activeConnections;
+
+    private final Counter bytesReceived;
+
+    private final Counter bytesSent;
+
+    public TrafficMetricsHandler(String endpoint) {
+        activeConnections = MockMetrics.activeConnections(endpoint);
+        bytesReceived = MockMetrics.bytesReceived(endpoint);
+        bytesSent = MockMetrics.bytesSent(endpoint);
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        activeConnections.inc();
+        super.channelActive(ctx);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        activeConnections.dec();
+        super.channelInactive(ctx);
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        bytesReceived.add(readableBytes(msg));
+        super.channelRead(ctx, msg);
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        bytesSent.add(readableBytes(msg));
+        super.write(ctx, msg, promise);
+    }
+
+    private static long readableBytes(Object msg) {
+        if (msg instanceof ByteBuf) {
+            return ((ByteBuf) msg).readableBytes();
+        } else if (msg instanceof ByteBufHolder) {
+            return ((ByteBufHolder) msg).content().readableBytes();
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,68 @@
+package org.jboss.aerogear.metrics;
+
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class MetricsRegistryTestCase {
+
+    @Test
+    public void sameNameAndLabelsResolveToSameMetricTest() {
+        MetricsRegistry registry = new MetricsRegistry();
+
+        Counter counter = registry.counter("notifications_total", "help", "platform", "apns");
+
+        Assert.assertSame(counter, registry.counter("notifications_total", "help", "platform", "apns"));
+        Assert.assertNotSame(counter, registry.counter("notifications_total", "help", "platform", "gcm"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void conflictingTypeIsRejectedTest() {
+        MetricsRegistry registry = new MetricsRegistry();
+
+        registry.counter("connections", "help");
+        registry.gauge("connections", "help");
+    }
+
+    @Test
+    public void prometheusFormatTest() {
+        MetricsRegistry registry = new MetricsRegistry();
+
+        registry.counter("notifications_total", "Received notifications", "platform", "apns").add(3);
+        registry.gauge("connections", null, "endpoint", "gcm").inc();
+        registry.timer("latency_seconds", "Latency", "endpoint", "gcm").record(1500000000L);
+
+        Assert.assertEquals(
+            "# TYPE connections gauge\n"
+                + "connections{endpoint=\"gcm\"} 1\n"
+                + "# HELP latency_seconds Latency\n"
+                + "# TYPE latency_seconds summary\n"
+                + "latency_seconds_count{endpoint=\"gcm\"} 1\n"
+                + "latency_seconds_sum{endpoint=\"gcm\"} 1.5\n"
+                + "# HELP latency_seconds_max Latency\n"
+                + "# TYPE latency_seconds_max gauge\n"
+                + "latency_seconds_max{endpoint=\"gcm\"} 1.5\n"
+                + "# HELP notifications_total Received notifications\n"
+                + "# TYPE notifications_total counter\n"
+                + "notifications_total{platform=\"apns\"} 3\n",
+            registry.scrape());
+    }
+
+    @Test
+    public void snapshotTest() {
+        MetricsRegistry registry = new MetricsRegistry();
+
+        registry.counter("notifications_total", null, "platform", "apns").inc();
+        registry.timer("latency_seconds", null).record(10);
+
+        Map<String, Object> snapshot = registry.snapshot();
+
+        Assert.assertEquals(1L, snapshot.get("notifications_total{platform=apns}"));
+        Assert.assertEquals(1L, snapshot.get("latency_seconds.count"));
+        Assert.assertEquals(10e-9, (Double) snapshot.get("latency_seconds.maxSeconds"), 1e-12);
+    }
+}
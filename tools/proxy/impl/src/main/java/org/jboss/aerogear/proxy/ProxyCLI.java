@@ -1,7 +1,10 @@
 package org.jboss.aerogear.proxy;
 
+import org.jboss.aerogear.proxy.command.AllProxiesCommand;
 import org.jboss.aerogear.proxy.command.ApnsProxyCommand;
 import org.jboss.aerogear.proxy.command.GCMProxyCommand;
+import org.jboss.aerogear.proxy.command.JournalCommand;
+import org.jboss.aerogear.proxy.command.SimplePushProxyCommand;
 
 import io.airlift.airline.Cli;
 import io.airlift.airline.Cli.CliBuilder;
@@ -18,7 +21,10 @@ public class ProxyCLI {
             .withDefaultCommand(Help.class)
             .withCommand(Help.class)
             .withCommand(ApnsProxyCommand.class)
-            .withCommand(GCMProxyCommand.class);
+            .withCommand(GCMProxyCommand.class)
+            .withCommand(SimplePushProxyCommand.class)
+            .withCommand(AllProxiesCommand.class)
+            .withCommand(JournalCommand.class);
 
         builder.build().parse(args).run();
     }
@@ -0,0 +1,316 @@
+package org.jboss.aerogear.proxy.apns;
+
+import static io.netty.buffer.Unpooled.copiedBuffer;
+import static io.netty.handler.codec.http.HttpResponseStatus.BAD_REQUEST;
+import static io.netty.handler.codec.http.HttpResponseStatus.GONE;
+import static io.netty.handler.codec.http.HttpResponseStatus.METHOD_NOT_ALLOWED;
+import static io.netty.handler.codec.http.HttpResponseStatus.NOT_FOUND;
+import static io.netty.handler.codec.http.HttpResponseStatus.OK;
+import static io.netty.handler.codec.http.HttpResponseStatus.REQUEST_ENTITY_TOO_LARGE;
+
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jboss.aerogear.metrics.MockMetrics;
+import org.jboss.aerogear.metrics.Timer;
+import org.jboss.aerogear.proxy.endpoint.model.ApnsNotification;
+import org.jboss.aerogear.proxy.utils.Tokens;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http2.AbstractHttp2ConnectionHandlerBuilder;
+import io.netty.handler.codec.http2.DefaultHttp2Headers;
+import io.netty.handler.codec.http2.Http2ConnectionDecoder;
+import io.netty.handler.codec.http2.Http2ConnectionEncoder;
+import io.netty.handler.codec.http2.Http2ConnectionHandler;
+import io.netty.handler.codec.http2.Http2Flags;
+import io.netty.handler.codec.http2.Http2FrameListener;
+import io.netty.handler.codec.http2.Http2Headers;
+import io.netty.handler.codec.http2.Http2Settings;
+import io.netty.util.CharsetUtil;
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.IntObjectMap;
+
+/**
+ * Handles one HTTP/2 connection of the APNs provider API. Every stream is a single notification which is answered
+ * with its own status and, in case of a failure, with a JSON body carrying the reason as the real APNs does.
+ *
+ * Instances are not shared between connections, so the stream state needs no synchronization - all the callbacks
+ * are invoked from the event loop of the channel.
+ */
+public class ApnsHttp2Handler extends Http2ConnectionHandler implements Http2FrameListener {
+
+    private static final Logger logger = Logger.getLogger(ApnsHttp2Handler.class.getName());
+
+    /**
+     * Type of {@link ApnsNotification} received over HTTP/2, binary protocol uses 0 - 2.
+     */
+    public static final int NOTIFICATION_TYPE = 3;
+
+    public static final String DEVICE_PATH_PREFIX = "/3/device/";
+
+    public static final int MAX_PAYLOAD_SIZE = 4096;
+
+    private static final CharSequence APNS_ID = "apns-id";
+    private static final CharSequence APNS_EXPIRATION = "apns-expiration";
+    private static final CharSequence APNS_PRIORITY = "apns-priority";
+    private static final CharSequence CONTENT_TYPE = "content-type";
+
+    private static final Timer latency = MockMetrics.handlerLatency(MockMetrics.ENDPOINT_APNS_HTTP2);
+
+    private final IntObjectMap<StreamState> streams = new IntObjectHashMap<StreamState>();
+
+    private ApnsHttp2Handler(Http2ConnectionDecoder decoder, Http2ConnectionEncoder encoder, Http2Settings initialSettings) {
+        super(decoder, encoder, initialSettings);
+    }
+
+    @Override
+    public void onHeadersRead(ChannelHandlerContext ctx, int streamId, Http2Headers headers, int padding, boolean endOfStream) {
+        if (!streams.containsKey(streamId)) {
+            // trailing headers of an already opened stream carry nothing we are interested in
+            streams.put(streamId, new StreamState(headers, ctx.alloc().compositeBuffer()));
+        }
+
+        if (endOfStream) {
+            onStreamEnd(ctx, streamId);
+        }
+    }
+
+    @Override
+    public void onHeadersRead(ChannelHandlerContext ctx, int streamId, Http2Headers headers, int streamDependency,
+        short weight, boolean exclusive, int padding, boolean endOfStream) {
+        onHeadersRead(ctx, streamId, headers, padding, endOfStream);
+    }
+
+    @Override
+    public int onDataRead(ChannelHandlerContext ctx, int streamId, ByteBuf data, int padding, boolean endOfStream) {
+        int processed = data.readableBytes() + padding;
+
+        StreamState state = streams.get(streamId);
+        if (state != null) {
+            state.payload.addComponent(true, data.retain());
+
+            if (endOfStream) {
+                onStreamEnd(ctx, streamId);
+            }
+        }
+
+        return processed;
+    }
+
+    @Override
+    public void onRstStreamRead(ChannelHandlerContext ctx, int streamId, long errorCode) {
+        StreamState state = streams.remove(streamId);
+        if (state != null) {
+            state.payload.release();
+        }
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        for (StreamState state : streams.values()) {
+            state.payload.release();
+        }
+        streams.clear();
+        super.channelInactive(ctx);
+    }
+
+    private void onStreamEnd(ChannelHandlerContext ctx, int streamId) {
+        StreamState state = streams.remove(streamId);
+
+        try {
+            CharSequence apnsId = state.headers.get(APNS_ID);
+            if (apnsId == null) {
+                apnsId = UUID.randomUUID().toString();
+            }
+
+            String reason = resolveFailure(state);
+
+            if (reason == null) {
+                String deviceToken = state.deviceToken.toLowerCase();
+                ApnsNotification notification = new ApnsNotification(NOTIFICATION_TYPE, streamId,
+                    parseInt(state.headers.get(APNS_EXPIRATION), 0), deviceToken,
+                    state.payload.toString(CharsetUtil.UTF_8), (byte) parseInt(state.headers.get(APNS_PRIORITY), 10));
+
+                if (logger.isLoggable(Level.FINE)) {
+                    logger.fine(String.format("Read HTTP/2 notification %s", notification));
+                }
+
+                ApnsNotificationRegister.addNotification(notification);
+
+                if (deviceToken.startsWith(Tokens.TOKEN_INVALIDATION_PREFIX)) {
+                    writeResponse(ctx, streamId, apnsId, GONE, "Unregistered", System.currentTimeMillis());
+                } else {
+                    writeResponse(ctx, streamId, apnsId, OK, null, 0);
+                }
+            } else {
+                writeResponse(ctx, streamId, apnsId, failureStatus(reason), reason, 0);
+            }
+
+            latency.recordSince(state.startNanos);
+        } finally {
+            state.payload.release();
+        }
+    }
+
+    /**
+     * @return reason of the rejection as defined by the APNs provider API or null when the notification is accepted
+     */
+    private String resolveFailure(StreamState state) {
+        CharSequence method = state.headers.method();
+        if (method == null || !"POST".contentEquals(method)) {
+            return "MethodNotAllowed";
+        }
+
+        CharSequence path = state.headers.path();
+        if (path == null || path.length() < DEVICE_PATH_PREFIX.length()
+            || !DEVICE_PATH_PREFIX.contentEquals(path.subSequence(0, DEVICE_PATH_PREFIX.length()))) {
+            return "BadPath";
+        }
+
+        if (path.length() == DEVICE_PATH_PREFIX.length()) {
+            return "MissingDeviceToken";
+        }
+
+        state.deviceToken = path.subSequence(DEVICE_PATH_PREFIX.length(), path.length()).toString();
+        if (!isHex(state.deviceToken)) {
+            return "BadDeviceToken";
+        }
+
+        if (state.payload.readableBytes() == 0) {
+            return "PayloadEmpty";
+        }
+
+        if (state.payload.readableBytes() > MAX_PAYLOAD_SIZE) {
+            return "PayloadTooLarge";
+        }
+
+        return null;
+    }
+
+    private void writeResponse(ChannelHandlerContext ctx, int streamId, CharSequence apnsId, HttpResponseStatus status,
+        String reason, long timestamp) {
+        Http2Headers headers = new DefaultHttp2Headers().status(status.codeAsText());
+        headers.set(APNS_ID, apnsId);
+
+        if (reason == null) {
+            encoder().writeHeaders(ctx, streamId, headers, 0, true, ctx.newPromise());
+            return;
+        }
+
+        String body = timestamp > 0
+            ? String.format("{\"reason\":\"%s\",\"timestamp\":%d}", reason, timestamp)
+            : String.format("{\"reason\":\"%s\"}", reason);
+
+        headers.set(CONTENT_TYPE, "application/json");
+        encoder().writeHeaders(ctx, streamId, headers, 0, false, ctx.newPromise());
+        encoder().writeData(ctx, streamId, copiedBuffer(body, CharsetUtil.UTF_8), 0, true, ctx.newPromise());
+    }
+
+    private static HttpResponseStatus failureStatus(String reason) {
+        if ("MethodNotAllowed".equals(reason)) {
+            return METHOD_NOT_ALLOWED;
+        } else if ("BadPath".equals(reason)) {
+            return NOT_FOUND;
+        } else if ("PayloadTooLarge".equals(reason)) {
+            return REQUEST_ENTITY_TOO_LARGE;
+        }
+        return BAD_REQUEST;
+    }
+
+    private static boolean isHex(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (!((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F'))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int parseInt(CharSequence value, int defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.toString());
+        } catch (NumberFormatException ex) {
+            return defaultValue;
+        }
+    }
+
+    @Override
+    public void onPriorityRead(ChannelHandlerContext ctx, int streamId, int streamDependency, short weight, boolean exclusive) {
+    }
+
+    @Override
+    public void onSettingsAckRead(ChannelHandlerContext ctx) {
+    }
+
+    @Override
+    public void onSettingsRead(ChannelHandlerContext ctx, Http2Settings settings) {
+    }
+
+    @Override
+    public void onPingRead(ChannelHandlerContext ctx, ByteBuf data) {
+    }
+
+    @Override
+    public void onPingAckRead(ChannelHandlerContext ctx, ByteBuf data) {
+    }
+
+    @Override
+    public void onPushPromiseRead(ChannelHandlerContext ctx, int streamId, int promisedStreamId, Http2Headers headers, int padding) {
+    }
+
+    @Override
+    public void onGoAwayRead(ChannelHandlerContext ctx, int lastStreamId, long errorCode, ByteBuf debugData) {
+    }
+
+    @Override
+    public void onWindowUpdateRead(ChannelHandlerContext ctx, int streamId, int windowSizeIncrement) {
+    }
+
+    @Override
+    public void onUnknownFrame(ChannelHandlerContext ctx, byte frameType, int streamId, Http2Flags flags, ByteBuf payload) {
+    }
+
+    private static final class StreamState {
+
+        private final Http2Headers headers;
+
+        private final CompositeByteBuf payload;
+
+        private final long startNanos = System.nanoTime();
+
+        private String deviceToken;
+
+        private StreamState(Http2Headers headers, CompositeByteBuf payload) {
+            this.headers = headers;
+            this.payload = payload;
+        }
+    }
+
+    public static final class Builder extends AbstractHttp2ConnectionHandlerBuilder<ApnsHttp2Handler, Builder> {
+
+        public Builder withMaxConcurrentStreams(long maxConcurrentStreams) {
+            initialSettings().maxConcurrentStreams(maxConcurrentStreams);
+            return this;
+        }
+
+        @Override
+        public ApnsHttp2Handler build() {
+            return super.build();
+        }
+
+        @Override
+        protected ApnsHttp2Handler build(Http2ConnectionDecoder decoder, Http2ConnectionEncoder encoder, Http2Settings initialSettings) {
+            ApnsHttp2Handler handler = new ApnsHttp2Handler(decoder, encoder, initialSettings);
+            frameListener(handler);
+            return handler;
+        }
+    }
+}
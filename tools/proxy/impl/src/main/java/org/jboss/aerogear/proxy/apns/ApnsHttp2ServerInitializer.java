@@ -0,0 +1,45 @@
+package org.jboss.aerogear.proxy.apns;
+
+import org.jboss.aerogear.metrics.MockMetrics;
+import org.jboss.aerogear.metrics.TlsHandshakeMetrics;
+import org.jboss.aerogear.metrics.TlsHandshakeMetricsHandler;
+import org.jboss.aerogear.metrics.TrafficMetricsHandler;
+
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.handler.ssl.SslContext;
+
+public class ApnsHttp2ServerInitializer extends ChannelInitializer<SocketChannel> {
+
+    private static final TrafficMetricsHandler trafficMetricsHandler = new TrafficMetricsHandler(MockMetrics.ENDPOINT_APNS_HTTP2);
+
+    private static final TlsHandshakeMetrics handshakeMetrics =
+        new TlsHandshakeMetrics(MockMetrics.ENDPOINT_APNS_HTTP2);
+
+    private final SslContext sslCtx;
+
+    private final long maxConcurrentStreams;
+
+    public ApnsHttp2ServerInitializer(SslContext sslCtx, long maxConcurrentStreams) {
+        this.sslCtx = sslCtx;
+        this.maxConcurrentStreams = maxConcurrentStreams;
+    }
+
+    @Override
+    public void initChannel(SocketChannel ch) {
+        ChannelPipeline p = ch.pipeline();
+
+        p.addLast(trafficMetricsHandler);
+
+        // APNs clients negotiate only h2 via ALPN, without TLS the client has to speak HTTP/2 with prior knowledge
+        if (sslCtx != null) {
+            p.addLast(sslCtx.newHandler(ch.alloc()));
+            p.addLast(new TlsHandshakeMetricsHandler(handshakeMetrics));
+        }
+
+        p.addLast(new ApnsHttp2Handler.Builder()
+            .withMaxConcurrentStreams(maxConcurrentStreams)
+            .build());
+    }
+}
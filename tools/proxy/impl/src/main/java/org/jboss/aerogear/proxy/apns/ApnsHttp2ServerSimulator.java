@@ -0,0 +1,139 @@
+package org.jboss.aerogear.proxy.apns;
+
+import java.net.InetSocketAddress;
+import java.util.logging.Logger;
+
+import org.jboss.aerogear.proxy.utils.EventLoops;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelOption;
+import io.netty.handler.ssl.SslContext;
+
+/**
+ * Simulates the HTTP/2 APNs provider API, it runs alongside the legacy binary protocol of
+ * {@link org.jboss.aerogear.apns.ApnsServerSimulator} and feeds the same {@link ApnsNotificationRegister}.
+ *
+ * @see ApnsHttp2Handler
+ */
+public class ApnsHttp2ServerSimulator {
+
+    private static final Logger logger = Logger.getLogger(ApnsHttp2ServerSimulator.class.getName());
+
+    private final SslContext sslContext;
+
+    private final String host;
+
+    private final int port;
+
+    private final long maxConcurrentStreams;
+
+    private final EventLoops sharedEventLoops;
+
+    private EventLoops eventLoops;
+
+    private Channel channel;
+
+    private int effectivePort;
+
+    private ApnsHttp2ServerSimulator(Builder builder) {
+        sslContext = builder.sslContext;
+        host = builder.host;
+        port = builder.port;
+        maxConcurrentStreams = builder.maxConcurrentStreams;
+        sharedEventLoops = builder.eventLoops;
+    }
+
+    public synchronized void start() {
+        logger.info("Starting ApnsHttp2ServerSimulator");
+
+        eventLoops = sharedEventLoops != null ? sharedEventLoops : EventLoops.create(0);
+
+        try {
+            ServerBootstrap serverBootstrap = eventLoops.serverBootstrap();
+            serverBootstrap.option(ChannelOption.SO_BACKLOG, 1024);
+            serverBootstrap.childHandler(new ApnsHttp2ServerInitializer(sslContext, maxConcurrentStreams));
+
+            channel = serverBootstrap.bind(host, port).sync().channel();
+            effectivePort = ((InetSocketAddress) channel.localAddress()).getPort();
+
+            logger.info(String.format("APNS HTTP/2 simulator started at %s:%s (%s, max concurrent streams %s)",
+                host, effectivePort, sslContext == null ? "h2c" : "h2", maxConcurrentStreams));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            stop();
+            throw new IllegalStateException("Interrupted while starting APNS HTTP/2 simulator.", ex);
+        }
+    }
+
+    public synchronized void stop() {
+        logger.info("Stopping ApnsHttp2ServerSimulator");
+
+        if (channel != null) {
+            channel.close().syncUninterruptibly();
+            channel = null;
+        }
+
+        if (eventLoops != null && eventLoops != sharedEventLoops) {
+            eventLoops.shutdownGracefully();
+        }
+        eventLoops = null;
+    }
+
+    public synchronized boolean isStarted() {
+        return channel != null;
+    }
+
+    public int getEffectivePort() {
+        return effectivePort;
+    }
+
+    public static class Builder {
+
+        private SslContext sslContext;
+
+        private String host = "127.0.0.1";
+
+        private int port;
+
+        private long maxConcurrentStreams = 1000;
+
+        private EventLoops eventLoops;
+
+        /**
+         * @param sslContext context with h2 ALPN, null makes the simulator accept cleartext HTTP/2 with prior knowledge
+         */
+        public Builder withSslContext(SslContext sslContext) {
+            this.sslContext = sslContext;
+            return this;
+        }
+
+        public Builder withHost(String host) {
+            this.host = host;
+            return this;
+        }
+
+        public Builder withPort(int port) {
+            this.port = port;
+            return this;
+        }
+
+        public Builder withMaxConcurrentStreams(long maxConcurrentStreams) {
+            this.maxConcurrentStreams = maxConcurrentStreams;
+            return this;
+        }
+
+        /**
+         * @param eventLoops event loops shared with other servers, they are not shut down when the simulator stops, when
+         *        not set the simulator creates its own
+         */
+        public Builder withEventLoops(EventLoops eventLoops) {
+            this.eventLoops = eventLoops;
+            return this;
+        }
+
+        public ApnsHttp2ServerSimulator build() {
+            return new ApnsHttp2ServerSimulator(this);
+        }
+    }
+}
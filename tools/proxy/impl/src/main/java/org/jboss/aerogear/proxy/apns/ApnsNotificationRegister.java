@@ -4,7 +4,13 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Logger;
 
+import org.jboss.aerogear.metrics.Counter;
+import org.jboss.aerogear.metrics.Gauge;
+import org.jboss.aerogear.metrics.MockMetrics;
 import org.jboss.aerogear.proxy.endpoint.model.ApnsNotification;
+import org.jboss.aerogear.proxy.reconciliation.DeliveredTokens;
+import org.jboss.aerogear.proxy.reconciliation.DeliveryOrderTracker;
+import org.jboss.aerogear.proxy.sink.NotificationSinks;
 
 import com.google.gson.Gson;
 
@@ -14,8 +20,23 @@ public class ApnsNotificationRegister {
 
     private static final List<ApnsNotification> notifications = new ArrayList<ApnsNotification>();
 
-    public static synchronized void addNotification(ApnsNotification notification) {
-        notifications.add(notification);
+    private static final Counter notificationCounter = MockMetrics.notifications(MockMetrics.PLATFORM_APNS);
+    private static final Gauge registerSize = MockMetrics.registerSize(MockMetrics.PLATFORM_APNS);
+    private static final Counter registerEvictions = MockMetrics.registerEvictions(MockMetrics.PLATFORM_APNS);
+
+    public static void addNotification(ApnsNotification notification) {
+        notificationCounter.inc();
+        DeliveredTokens.add(notification.getDeviceToken());
+        DeliveryOrderTracker.onApnsNotification(notification);
+
+        if (NotificationSinks.isRetainInMemory()) {
+            synchronized (ApnsNotificationRegister.class) {
+                notifications.add(notification);
+                registerSize.set(notifications.size());
+            }
+        }
+
+        NotificationSinks.onApnsNotification(notification);
     }
 
     public static synchronized List<ApnsNotification> getNotifications() {
@@ -24,7 +45,9 @@ public class ApnsNotificationRegister {
 
     public static synchronized void clear() {
         logger.info("CLEARING APNS REGISTER");
+        registerEvictions.add(notifications.size());
         notifications.clear();
+        registerSize.set(0);
     }
 
     @Override
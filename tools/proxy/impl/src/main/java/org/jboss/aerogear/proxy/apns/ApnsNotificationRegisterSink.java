@@ -0,0 +1,33 @@
+package org.jboss.aerogear.proxy.apns;
+
+import org.jboss.aerogear.apns.ApnsNotificationSink;
+import org.jboss.aerogear.apns.Notification;
+import org.jboss.aerogear.proxy.endpoint.model.ApnsNotification;
+import org.jboss.aerogear.proxy.utils.Encoders;
+
+/**
+ * Feeds notifications of the binary APNS simulator to {@link ApnsNotificationRegister}.
+ */
+public class ApnsNotificationRegisterSink implements ApnsNotificationSink {
+
+    @Override
+    public void onNotification(Notification notification) {
+        ApnsNotificationRegister.addNotification(toApnsNotification(notification));
+    }
+
+    static ApnsNotification toApnsNotification(Notification notification) {
+        final String deviceToken = notification.getDeviceTokenHex();
+
+        switch (notification.getType()) {
+            case 0:
+                return new ApnsNotification(0, deviceToken, Encoders.encodeHex(notification.getPayload()));
+            case 1:
+                // enhanced notifications have always been registered with plain text payload
+                return new ApnsNotification(1, notification.getIdentifier(), notification.getExpiry(), deviceToken,
+                    new String(notification.getPayload()));
+            default:
+                return new ApnsNotification(notification.getType(), notification.getIdentifier(), notification.getExpiry(),
+                    deviceToken, Encoders.encodeHex(notification.getPayload()), notification.getPriority());
+        }
+    }
+}
@@ -2,11 +2,26 @@ package org.jboss.aerogear.proxy.apns;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.InputStream;
 
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLServerSocketFactory;
 
 import org.jboss.aerogear.proxy.utils.SSLHelper;
+import org.jboss.aerogear.proxy.utils.TlsOptions;
+
+import io.netty.handler.codec.http2.Http2SecurityUtil;
+import io.netty.handler.ssl.ApplicationProtocolConfig;
+import io.netty.handler.ssl.ApplicationProtocolConfig.Protocol;
+import io.netty.handler.ssl.ApplicationProtocolConfig.SelectedListenerFailureBehavior;
+import io.netty.handler.ssl.ApplicationProtocolConfig.SelectorFailureBehavior;
+import io.netty.handler.ssl.ApplicationProtocolNames;
+import io.netty.handler.ssl.OpenSsl;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslProvider;
 
 /**
  *
@@ -14,6 +29,9 @@ import org.jboss.aerogear.proxy.utils.SSLHelper;
  */
 public class ApnsSocketFactory {
 
+    // put on the boot class path by alpn-boot, Netty supports ALPN of the JDK provider only through it
+    private static final String JDK_ALPN_CLASS = "sun.security.ssl.ALPNExtension";
+
     private String apnsKeystore;
 
     private String apnsKeystorePassword;
@@ -24,33 +42,88 @@ public class ApnsSocketFactory {
 
     private String resourceServerStore;
 
+    private TlsOptions tlsOptions;
+
     private ApnsSocketFactory(Builder builder) {
         apnsKeystore = builder.apnsKeystore;
         apnsKeystorePassword = builder.apnsKeystorePassword;
         apnsKeystoreType = builder.apnsKeystoreType;
         apnsKeystoreAlgorithm = builder.apnsKeystoreAlgorithm;
         resourceServerStore = builder.resourceServerStore;
+        tlsOptions = builder.tlsOptions != null ? builder.tlsOptions : new TlsOptions();
     }
 
     public SSLServerSocketFactory build() {
         try {
-            InputStream stream;
-            File externalApnsCertificateFile = (apnsKeystore == null ? null : new File(apnsKeystore));
-            if (externalApnsCertificateFile != null) {
-                stream = new FileInputStream(externalApnsCertificateFile);
-            } else {
-                stream = SSLHelper.class.getResourceAsStream("/" + resourceServerStore);
-            }
-            assert stream != null;
-            return SSLHelper.newSSLSocketFactory(stream,
+            SSLContext sslContext = SSLHelper.newSSLContext(openKeystore(),
                 apnsKeystorePassword,
                 apnsKeystoreType,
                 apnsKeystoreAlgorithm);
+            tlsOptions.configure(sslContext);
+            return sslContext.getServerSocketFactory();
         } catch (Exception ex) {
             throw new RuntimeException("Unable to build SSLServerSocketFactory", ex.getCause());
         }
     }
 
+    /**
+     * Builds server context for the HTTP/2 provider API from the same keystore, APNs clients require h2 to be
+     * negotiated via ALPN. OpenSSL is used when netty-tcnative is on the classpath unless {@link TlsOptions} say
+     * otherwise, JDK provider needs alpn-boot matching the running JVM on the boot class path.
+     *
+     * @throws IllegalStateException when the provider can not negotiate ALPN
+     */
+    public SslContext buildHttp2() {
+        SslProvider provider = tlsOptions.provider();
+        if (provider == SslProvider.OPENSSL && !OpenSsl.isAlpnSupported()) {
+            throw new IllegalStateException("OPENSSL provider does not support ALPN needed by HTTP/2 over TLS, "
+                + "netty-tcnative with ALPN support has to be on the classpath", OpenSsl.unavailabilityCause());
+        }
+        if (provider == SslProvider.JDK && !isJdkAlpnAvailable()) {
+            throw new IllegalStateException("JDK provider does not support ALPN needed by HTTP/2 over TLS, put "
+                + "netty-tcnative with ALPN support on the classpath, alpn-boot matching the JVM on the boot class "
+                + "path or use cleartext HTTP/2");
+        }
+
+        try {
+            KeyManagerFactory keyManagerFactory = SSLHelper.newKeyManagerFactory(openKeystore(),
+                apnsKeystorePassword,
+                apnsKeystoreType,
+                apnsKeystoreAlgorithm);
+
+            return tlsOptions.build(SslContextBuilder.forServer(keyManagerFactory)
+                .applicationProtocolConfig(new ApplicationProtocolConfig(
+                    Protocol.ALPN,
+                    SelectorFailureBehavior.NO_ADVERTISE,
+                    SelectedListenerFailureBehavior.ACCEPT,
+                    ApplicationProtocolNames.HTTP_2)),
+                Http2SecurityUtil.CIPHERS);
+        } catch (Exception ex) {
+            throw new RuntimeException("Unable to build HTTP/2 SslContext", ex);
+        }
+    }
+
+    private static boolean isJdkAlpnAvailable() {
+        try {
+            Class.forName(JDK_ALPN_CLASS, false, null);
+            return true;
+        } catch (ClassNotFoundException ex) {
+            return false;
+        }
+    }
+
+    private InputStream openKeystore() throws FileNotFoundException {
+        InputStream stream;
+        File externalApnsCertificateFile = (apnsKeystore == null ? null : new File(apnsKeystore));
+        if (externalApnsCertificateFile != null) {
+            stream = new FileInputStream(externalApnsCertificateFile);
+        } else {
+            stream = SSLHelper.class.getResourceAsStream("/" + resourceServerStore);
+        }
+        assert stream != null;
+        return stream;
+    }
+
     public static class Builder {
 
         private String resourceServerStore;
@@ -58,6 +131,7 @@ public class ApnsSocketFactory {
         private String apnsKeystoreType;
         private String apnsKeystorePassword;
         private String apnsKeystore;
+        private TlsOptions tlsOptions;
 
         public Builder withResourceServerStore(String resourceServerStore) {
             this.resourceServerStore = resourceServerStore;
@@ -84,6 +158,11 @@ public class ApnsSocketFactory {
             return this;
         }
 
+        public Builder withTlsOptions(TlsOptions tlsOptions) {
+            this.tlsOptions = tlsOptions;
+            return this;
+        }
+
         public ApnsSocketFactory build() {
             return new ApnsSocketFactory(this);
         }
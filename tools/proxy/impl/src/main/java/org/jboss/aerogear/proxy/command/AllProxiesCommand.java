@@ -0,0 +1,75 @@
+package org.jboss.aerogear.proxy.command;
+
+import java.util.logging.Logger;
+
+import javax.inject.Inject;
+
+import org.jboss.aerogear.proxy.endpoint.NotificationRegisterEndpoint;
+import org.jboss.aerogear.proxy.utils.EventLoops;
+
+import io.airlift.airline.Command;
+import io.airlift.airline.Option;
+
+/**
+ * Starts APNS, GCM and SimplePush mocks in one process with one notification register endpoint. All Netty servers
+ * share the same event loops so the process does not end up with a set of threads per server.
+ */
+@Command(name = "allProxies", description = "starts APNS, GCM and SimplePush mocks sharing event loops")
+public class AllProxiesCommand extends NotificationRegisterEndpoint {
+
+    private static final Logger logger = Logger.getLogger(AllProxiesCommand.class.getName());
+
+    @Inject
+    public ApnsProxyCommand apnsProxy = new ApnsProxyCommand();
+
+    @Inject
+    public GCMProxyCommand gcmProxy = new GCMProxyCommand();
+
+    @Inject
+    public SimplePushProxyCommand simplePushProxy = new SimplePushProxyCommand();
+
+    @Option(name = "--eventLoopThreads", description = "number of shared worker event loop threads, defaults to the number of cores")
+    private int eventLoopThreads = Runtime.getRuntime().availableProcessors();
+
+    @Option(name = "--epoll", description = "uses native epoll transport when available, defaults to false")
+    private boolean epoll = false;
+
+    @Override
+    public void run() {
+
+        final EventLoops eventLoops = EventLoops.create(eventLoopThreads, epoll);
+
+        logger.info(String.format("Starting all proxies on %d shared %s event loop threads", eventLoopThreads,
+            eventLoops.isEpoll() ? "epoll" : "NIO"));
+
+        startNotificationRegisterEndpoint(notificationEndpointHost, notificationEndpointPort, eventLoops);
+
+        Runtime.getRuntime().addShutdownHook(new AllProxiesShutdownHook(this, eventLoops));
+
+        apnsProxy.start(eventLoops);
+        gcmProxy.start(eventLoops);
+        simplePushProxy.start(eventLoops);
+    }
+
+    private static class AllProxiesShutdownHook extends Thread {
+
+        private final AllProxiesCommand command;
+
+        private final EventLoops eventLoops;
+
+        public AllProxiesShutdownHook(AllProxiesCommand command, EventLoops eventLoops) {
+            this.command = command;
+            this.eventLoops = eventLoops;
+        }
+
+        @Override
+        public void run() {
+            command.apnsProxy.stop();
+            command.gcmProxy.stop();
+            command.simplePushProxy.stop();
+            command.stopNotificationRegisterEndpoint();
+
+            eventLoops.shutdownGracefully();
+        }
+    }
+}
@@ -1,10 +1,19 @@
 package org.jboss.aerogear.proxy.command;
 
+import java.net.InetAddress;
 import java.net.UnknownHostException;
 
-import org.jboss.aerogear.proxy.apns.ApnsServerSimulator;
+import javax.inject.Inject;
+
+import org.jboss.aerogear.apns.ApnsFeedbackQueue;
+import org.jboss.aerogear.apns.ApnsNotificationReader;
+import org.jboss.aerogear.apns.ApnsServerSimulator;
+import org.jboss.aerogear.proxy.apns.ApnsHttp2ServerSimulator;
+import org.jboss.aerogear.proxy.apns.ApnsNotificationRegisterSink;
 import org.jboss.aerogear.proxy.apns.ApnsSocketFactory;
 import org.jboss.aerogear.proxy.endpoint.NotificationRegisterEndpoint;
+import org.jboss.aerogear.proxy.utils.EventLoops;
+import org.jboss.aerogear.proxy.utils.TlsOptions;
 
 import io.airlift.airline.Command;
 import io.airlift.airline.Option;
@@ -30,6 +39,42 @@ public class ApnsProxyCommand extends NotificationRegisterEndpoint {
     @Option(name = "--apnsMockFeedbackPort", description = "defaults to 16003")
     private int apnsMockFeedbackPort = 16003;
 
+    @Option(name = "--apnsFeedbackTokens", description = "number of synthetic invalidated tokens queued for the feedback service on start, defaults to 0")
+    private int apnsFeedbackTokens = 0;
+
+    @Option(name = "--apnsFeedbackTokenLength", description = "length of synthetic invalidated tokens in bytes, defaults to 32")
+    private int apnsFeedbackTokenLength = ApnsFeedbackQueue.DEFAULT_TOKEN_LENGTH;
+
+    @Option(name = "--apnsFeedbackMaxTokensPerConnection", description = "maximal number of tokens sent by one feedback connection, defaults to 0 (unlimited)")
+    private int apnsFeedbackMaxTokensPerConnection = 0;
+
+    @Option(name = "--apnsReadBufferSize", description = "bytes of gateway connections read and decoded at once, "
+        + "defaults to 65536")
+    private int apnsReadBufferSize = ApnsNotificationReader.DEFAULT_BUFFER_SIZE;
+
+    @Option(name = "--apnsReceiveBufferSize", description = "SO_RCVBUF of gateway and feedback sockets, defaults to 0 "
+        + "(system default)")
+    private int apnsReceiveBufferSize = 0;
+
+    @Option(name = "--apnsTcpNoDelay", description = "disables Nagle's algorithm on gateway and feedback connections, "
+        + "defaults to false")
+    private boolean apnsTcpNoDelay = false;
+
+    // HTTP/2 provider API related
+
+    @Option(name = "--apnsHttp2Host", description = "defaults to 127.0.0.1")
+    private String apnsHttp2Host = "127.0.0.1";
+
+    @Option(name = "--apnsHttp2Port", description = "starts HTTP/2 simulator on the port, e.g. 16004, defaults to -1 "
+        + "(not started)")
+    private int apnsHttp2Port = -1;
+
+    @Option(name = "--apnsHttp2MaxConcurrentStreams", description = "defaults to 1000")
+    private long apnsHttp2MaxConcurrentStreams = 1000;
+
+    @Option(name = "--apnsHttp2Cleartext", description = "serves HTTP/2 without TLS (prior knowledge), defaults to false")
+    private boolean apnsHttp2Cleartext = false;
+
     // Certificate related
 
     @Option(name = "--apnsKeystore", description = "defaults to serverStore.p12 loaded from the jar")
@@ -46,54 +91,99 @@ public class ApnsProxyCommand extends NotificationRegisterEndpoint {
 
     private String resourceServerStore = "serverStore.p12";
 
+    @Inject
+    public TlsOptions tlsOptions = new TlsOptions();
+
+    private ApnsServerSimulator apnsServerSimulator;
+
+    private ApnsHttp2ServerSimulator apnsHttp2ServerSimulator;
+
     @Override
     public void run() {
 
         startNotificationRegisterEndpoint(notificationEndpointHost, notificationEndpointPort);
 
+        Runtime.getRuntime().addShutdownHook(new ApnsProxyShutdownHook(this));
+
+        start(null);
+    }
+
+    /**
+     * Starts the binary and HTTP/2 simulators, the notification register endpoint is left to the caller.
+     *
+     * @param eventLoops event loops the HTTP/2 simulator runs on, null to let it create its own
+     */
+    public void start(EventLoops eventLoops) {
+
         ApnsSocketFactory apnsSocketFactory = new ApnsSocketFactory.Builder()
             .withApnsKeystore(apnsKeystore)
             .withApnsKeystoreAlgorithm(apnsKeystoreAlgorithm)
             .withApnsKeystorePassword(apnsKeystorePassword)
             .withApnsKeystoreType(apnsKeystoreType)
             .withResourceServerStore(resourceServerStore)
+            .withTlsOptions(tlsOptions)
             .build();
 
-        ApnsServerSimulator apnsServerSimulator;
-
         try {
             apnsServerSimulator = new ApnsServerSimulator(
                 apnsSocketFactory.build(),
-                apnsMockGatewayHost,
+                InetAddress.getByName(apnsMockGatewayHost),
                 apnsMockGatewayPort,
-                apnsMockFeedbackHost,
-                apnsMockFeedbackPort);
+                InetAddress.getByName(apnsMockFeedbackHost),
+                apnsMockFeedbackPort,
+                new ApnsNotificationRegisterSink());
         } catch (UnknownHostException ex) {
             throw new IllegalStateException("Unable to instantiate APNS server simulator.", ex);
         }
 
-        Runtime.getRuntime().addShutdownHook(new ApnsProxyShutdownHook(apnsServerSimulator, this));
+        if (tlsOptions.ciphers() != null) {
+            apnsServerSimulator.setEnabledCipherSuites(tlsOptions.ciphers().toArray(new String[0]));
+        }
+
+        apnsServerSimulator.setReadBufferSize(apnsReadBufferSize);
+        apnsServerSimulator.setReceiveBufferSize(apnsReceiveBufferSize);
+        apnsServerSimulator.setTcpNoDelay(apnsTcpNoDelay);
+        apnsServerSimulator.getFeedbackQueue().setMaxTokensPerConnection(apnsFeedbackMaxTokensPerConnection);
+        apnsServerSimulator.getFeedbackQueue().generate(apnsFeedbackTokens, apnsFeedbackTokenLength);
+
+        if (apnsHttp2Port >= 0) {
+            apnsHttp2ServerSimulator = new ApnsHttp2ServerSimulator.Builder()
+                .withSslContext(apnsHttp2Cleartext ? null : apnsSocketFactory.buildHttp2())
+                .withHost(apnsHttp2Host)
+                .withPort(apnsHttp2Port)
+                .withMaxConcurrentStreams(apnsHttp2MaxConcurrentStreams)
+                .withEventLoops(eventLoops)
+                .build();
+        }
 
         apnsServerSimulator.start();
+
+        if (apnsHttp2ServerSimulator != null) {
+            apnsHttp2ServerSimulator.start();
+        }
     }
 
-    private static class ApnsProxyShutdownHook extends Thread {
+    public void stop() {
+        if (apnsServerSimulator != null && apnsServerSimulator.isStarted()) {
+            apnsServerSimulator.stop();
+        }
+
+        if (apnsHttp2ServerSimulator != null && apnsHttp2ServerSimulator.isStarted()) {
+            apnsHttp2ServerSimulator.stop();
+        }
+    }
 
-        private final ApnsServerSimulator apnsServerSimulator;
+    private static class ApnsProxyShutdownHook extends Thread {
 
         private final ApnsProxyCommand apnsProxyCommand;
 
-        public ApnsProxyShutdownHook(final ApnsServerSimulator apnsServerSimulator, ApnsProxyCommand apnsProxyCommand) {
-            this.apnsServerSimulator = apnsServerSimulator;
+        public ApnsProxyShutdownHook(ApnsProxyCommand apnsProxyCommand) {
             this.apnsProxyCommand = apnsProxyCommand;
         }
 
         @Override
         public void run() {
-            if (apnsServerSimulator.isStarted()) {
-                apnsServerSimulator.stop();
-            }
-
+            apnsProxyCommand.stop();
             apnsProxyCommand.stopNotificationRegisterEndpoint();
         }
     }
@@ -1,17 +1,25 @@
 package org.jboss.aerogear.proxy.command;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import javax.inject.Inject;
+
 import org.jboss.aerogear.proxy.endpoint.NotificationRegisterEndpoint;
+import org.jboss.aerogear.proxy.gcm.GCMHostsOverride;
 import org.jboss.aerogear.proxy.gcm.MockingGCMProxyServer;
 import org.littleshoot.proxy.HttpProxyServer;
 
 import org.jboss.aerogear.proxy.gcm.MockingGCMServerBackgroundThread;
+import org.jboss.aerogear.proxy.utils.EventLoops;
+import org.jboss.aerogear.proxy.utils.TlsOptions;
 
 import io.airlift.airline.Command;
 import io.airlift.airline.Option;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
 
 /**
  *
@@ -34,72 +42,138 @@ public class GCMProxyCommand extends NotificationRegisterEndpoint implements Run
     @Option(name = "--gcmMockServerPort", description = "defaults to 16001")
     private int gcmMockServerPort = 16001;
 
+    @Option(name = "--captureRate", description = "share of proxied requests to log, from 0 to 1, defaults to 0")
+    private double captureRate = 0;
+
+    @Option(name = "--gcmDirect", description = "no HTTP proxy is started, senders connect to the GCM mock directly, "
+        + "defaults to false")
+    private boolean gcmDirect = false;
+
+    @Option(name = "--gcmHostsFile", description = "hosts file GCM hosts are mapped to the GCM mock in while running, "
+        + "e.g. /etc/hosts")
+    private String gcmHostsFile;
+
     @Option(name = "--gcmCertificate", required = true)
     private String gcmCertificate;
 
     @Option(name = "--gcmCertificateKey", required = true)
     private String gcmCertificateKey;
 
+    @Inject
+    public TlsOptions tlsOptions = new TlsOptions();
+
+    private HttpProxyServer server;
+
+    private MockingGCMServerBackgroundThread backgroundThread;
+
+    private GCMHostsOverride hostsOverride;
+
     public void run() {
 
-        validate();
+        start(null);
 
         startNotificationRegisterEndpoint(notificationEndpointHost, notificationEndpointPort);
 
-        MockingGCMServerBackgroundThread backgroundThread = new MockingGCMServerBackgroundThread(gcmMockServerHost,
+        Runtime.getRuntime().addShutdownHook(new ServerCleanupThread(this));
+    }
+
+    /**
+     * Starts the GCM mock server and, unless in direct mode, the HTTP proxy in front of it, the notification register
+     * endpoint is left to the caller. LittleProxy always runs on its own thread pools.
+     *
+     * @param eventLoops event loops the GCM mock server runs on, null to let it create its own
+     */
+    public void start(EventLoops eventLoops) {
+
+        validate();
+
+        SslContext sslContext;
+        try {
+            sslContext = tlsOptions.build(
+                SslContextBuilder.forServer(new File(gcmCertificate), new File(gcmCertificateKey)), null);
+        } catch (IOException ex) {
+            throw new IllegalStateException("Unable to create GCM mock SSL context", ex);
+        }
+
+        backgroundThread = new MockingGCMServerBackgroundThread(gcmMockServerHost,
             gcmMockServerPort,
-            new File(gcmCertificate),
-            new File(gcmCertificateKey));
+            sslContext,
+            eventLoops);
 
         backgroundThread.start();
 
         logger.log(Level.INFO, "Background thread started in GCMProxyCommand");
 
-        HttpProxyServer server = new MockingGCMProxyServer.Builder()
+        if (gcmHostsFile != null) {
+            hostsOverride = new GCMHostsOverride(new File(gcmHostsFile).toPath(), gcmMockServerHost);
+            try {
+                hostsOverride.apply();
+            } catch (IOException ex) {
+                hostsOverride = null;
+                // the mock is already listening, do not leave it running behind a failed start
+                stop();
+                throw new IllegalStateException("Unable to map GCM hosts in " + gcmHostsFile, ex);
+            }
+        }
+
+        if (gcmDirect) {
+            if (gcmMockServerPort != 443) {
+                logger.log(Level.WARNING, "GCM mock listens on port {0}, GCM clients connect to 443",
+                    gcmMockServerPort);
+            }
+            logger.log(Level.INFO, "Direct mode, no proxy server started in GCMProxyCommand");
+            return;
+        }
+
+        server = new MockingGCMProxyServer.Builder()
             .withHost(httpProxyHost)
             .withPort(httpProxyPort)
             .withMockServerHost(gcmMockServerHost)
             .withMockServerPort(gcmMockServerPort)
+            .withCaptureRate(captureRate)
             .build()
             .start();
 
         logger.log(Level.INFO, "Proxy server started in GCMProxyCommand");
-
-        Runtime.getRuntime().addShutdownHook(new ServerCleanupThread(server, backgroundThread, this));
     }
 
-    private final static class ServerCleanupThread extends Thread {
+    public void stop() {
+        if (server != null) {
+            server.stop();
+            server = null;
+            logger.log(Level.INFO, "Proxy server stopped.");
+        }
 
-        private static final Logger logger = Logger.getLogger(ServerCleanupThread.class.getName());
+        if (backgroundThread != null) {
+            if (backgroundThread.isAlive() && !backgroundThread.isInterrupted()) {
+                backgroundThread.closeChannel();
+                backgroundThread.interrupt();
+                logger.log(Level.INFO, "Background thread interrupted.");
+            }
+            backgroundThread = null;
+        }
 
-        private final HttpProxyServer proxyServer;
+        if (hostsOverride != null) {
+            try {
+                hostsOverride.remove();
+            } catch (IOException ex) {
+                logger.log(Level.WARNING, "Unable to remove GCM hosts from " + gcmHostsFile, ex);
+            }
+            hostsOverride = null;
+        }
+    }
 
-        private MockingGCMServerBackgroundThread backgroundThread;
+    private final static class ServerCleanupThread extends Thread {
 
-        private GCMProxyCommand command;
+        private final GCMProxyCommand command;
 
-        public ServerCleanupThread(HttpProxyServer proxyServer, MockingGCMServerBackgroundThread backgroundThread, GCMProxyCommand command) {
-            this.proxyServer = proxyServer;
-            this.backgroundThread = backgroundThread;
+        public ServerCleanupThread(GCMProxyCommand command) {
             this.command = command;
         }
 
         @Override
         public void run() {
-            if (proxyServer != null) {
-                proxyServer.stop();
-                logger.log(Level.INFO, "Proxy server stopped.");
-            }
-
-            if (backgroundThread != null) {
-                if (backgroundThread.isAlive() && !backgroundThread.isInterrupted()) {
-                    backgroundThread.closeChannel();
-                    backgroundThread.interrupt();
-                    logger.log(Level.INFO, "Background thread interrupted in ServerCleanupThread.");
-                }
-                backgroundThread = null;
-            }
-
+            command.stop();
             command.stopNotificationRegisterEndpoint();
         }
     }
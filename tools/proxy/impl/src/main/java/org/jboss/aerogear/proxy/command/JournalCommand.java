@@ -0,0 +1,182 @@
+package org.jboss.aerogear.proxy.command;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.aerogear.proxy.endpoint.model.ApnsNotification;
+import org.jboss.aerogear.proxy.endpoint.model.GCMNotification;
+import org.jboss.aerogear.proxy.endpoint.model.SimplePushNotification;
+import org.jboss.aerogear.proxy.sink.NotificationJournalReader;
+import org.jboss.aerogear.proxy.sink.NotificationSink;
+
+import io.airlift.airline.Command;
+import io.airlift.airline.Option;
+
+/**
+ * Replays a notification journal written by the proxies and summarizes it. With a list of expected tokens it tells
+ * which devices got no notification at all, which got more than one and which were not expected.
+ */
+@Command(name = "journal", description = "verifies notification journal against expected device tokens")
+public class JournalCommand implements Runnable {
+
+    private static final int MISSING_SAMPLE = 10;
+
+    @Option(name = "--file", description = "journal written by a proxy started with --journal", required = true)
+    private String file;
+
+    @Option(name = "--expectedTokens", description = "file with one expected device token, registration id or "
+        + "SimplePush endpoint per line")
+    private String expectedTokens;
+
+    @Option(name = "--print", description = "prints every replayed notification")
+    private boolean print;
+
+    @Override
+    public void run() {
+        final Map<String, Integer> deliveries = new HashMap<String, Integer>();
+        final long[] notifications = new long[3];
+
+        NotificationSink counting = new NotificationSink() {
+
+            @Override
+            public void onApnsNotification(ApnsNotification notification) {
+                notifications[0]++;
+                delivered(notification.getDeviceToken());
+                print(notification);
+            }
+
+            @Override
+            public void onGcmNotification(GCMNotification notification) {
+                notifications[1]++;
+                if (notification.getDeviceTokens() != null) {
+                    for (String token : notification.getDeviceTokens()) {
+                        delivered(token);
+                    }
+                }
+                print(notification);
+            }
+
+            @Override
+            public void onSimplePushNotification(SimplePushNotification notification) {
+                notifications[2]++;
+                delivered(notification.getEndpoint());
+                print(notification);
+            }
+
+            @Override
+            public void close() {
+            }
+
+            private void delivered(String token) {
+                Integer count = deliveries.get(token);
+                deliveries.put(token, count == null ? 1 : count + 1);
+            }
+
+            private void print(Object notification) {
+                if (print) {
+                    System.out.println(notification);
+                }
+            }
+        };
+
+        NotificationJournalReader reader = null;
+        try {
+            reader = new NotificationJournalReader(new File(file));
+            reader.replay(counting);
+
+            System.out.println(String.format("Replayed %d notifications: %d APNS, %d GCM, %d SimplePush",
+                reader.getRecords(), notifications[0], notifications[1], notifications[2]));
+
+            if (reader.getRecords() > 0) {
+                System.out.println(String.format("Time span: %d seconds",
+                    TimeUnit.MILLISECONDS.toSeconds(reader.getLastTime() - reader.getFirstTime())));
+            }
+            if (reader.getCorruptedRecords() > 0) {
+                System.out.println(String.format("Skipped %d corrupted records", reader.getCorruptedRecords()));
+            }
+            if (reader.isTruncated()) {
+                System.out.println("Journal ends with an incomplete record, the proxy was likely killed while writing it");
+            }
+        } catch (IOException ex) {
+            throw new IllegalStateException("Unable to read notification journal " + file, ex);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException ex) {
+                    // nothing left to read
+                }
+            }
+        }
+
+        long duplicates = 0;
+        for (Integer count : deliveries.values()) {
+            if (count > 1) {
+                duplicates++;
+            }
+        }
+        System.out.println(String.format("Distinct tokens: %d, tokens notified more than once: %d", deliveries.size(),
+            duplicates));
+
+        if (expectedTokens != null) {
+            verify(deliveries);
+        }
+    }
+
+    private void verify(Map<String, Integer> deliveries) {
+        long expected = 0;
+        long delivered = 0;
+        List<String> missing = new ArrayList<String>();
+        long missingCount = 0;
+
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(expectedTokens), Charset.forName("UTF-8")));
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String token = line.trim();
+                if (token.isEmpty()) {
+                    continue;
+                }
+                expected++;
+
+                // removing leaves only unexpected tokens in the map afterwards
+                if (deliveries.remove(token) != null) {
+                    delivered++;
+                } else {
+                    missingCount++;
+                    if (missing.size() < MISSING_SAMPLE) {
+                        missing.add(token);
+                    }
+                }
+            }
+        } catch (IOException ex) {
+            throw new IllegalStateException("Unable to read expected tokens " + expectedTokens, ex);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException ex) {
+                    // nothing left to read
+                }
+            }
+        }
+
+        System.out.println(String.format("Expected tokens: %d, notified: %d, missing: %d, unexpected: %d", expected,
+            delivered, missingCount, deliveries.size()));
+
+        if (!missing.isEmpty()) {
+            System.out.println("Missing tokens, e.g.: " + missing);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package org.jboss.aerogear.proxy.command;
+
+import org.jboss.aerogear.proxy.endpoint.NotificationRegisterEndpoint;
+import org.jboss.aerogear.proxy.simplepush.SimplePushServerSimulator;
+import org.jboss.aerogear.proxy.utils.EventLoops;
+
+import io.airlift.airline.Command;
+import io.airlift.airline.Option;
+
+@Command(name = "simplePushProxy", description = "starts SimplePush endpoint mock")
+public class SimplePushProxyCommand extends NotificationRegisterEndpoint {
+
+    @Option(name = "--simplePushHost", description = "defaults to 127.0.0.1")
+    private String simplePushHost = "127.0.0.1";
+
+    @Option(name = "--simplePushPort", description = "defaults to 8081")
+    private int simplePushPort = 8081;
+
+    @Option(name = "--simplePushWorkerThreads", description = "defaults to 0 (twice the number of cores)")
+    private int simplePushWorkerThreads = 0;
+
+    private SimplePushServerSimulator simplePushServerSimulator;
+
+    @Override
+    public void run() {
+
+        startNotificationRegisterEndpoint(notificationEndpointHost, notificationEndpointPort);
+
+        Runtime.getRuntime().addShutdownHook(new SimplePushProxyShutdownHook(this));
+
+        start(null);
+    }
+
+    /**
+     * Starts the SimplePush endpoint mock, the notification register endpoint is left to the caller.
+     *
+     * @param eventLoops event loops the mock runs on, null to let it create its own
+     */
+    public void start(EventLoops eventLoops) {
+        simplePushServerSimulator = new SimplePushServerSimulator.Builder()
+            .withHost(simplePushHost)
+            .withPort(simplePushPort)
+            .withWorkerThreads(simplePushWorkerThreads)
+            .withEventLoops(eventLoops)
+            .build();
+
+        simplePushServerSimulator.start();
+    }
+
+    public void stop() {
+        if (simplePushServerSimulator != null && simplePushServerSimulator.isStarted()) {
+            simplePushServerSimulator.stop();
+        }
+    }
+
+    private static class SimplePushProxyShutdownHook extends Thread {
+
+        private final SimplePushProxyCommand simplePushProxyCommand;
+
+        public SimplePushProxyShutdownHook(SimplePushProxyCommand simplePushProxyCommand) {
+            this.simplePushProxyCommand = simplePushProxyCommand;
+        }
+
+        @Override
+        public void run() {
+            simplePushProxyCommand.stop();
+            simplePushProxyCommand.stopNotificationRegisterEndpoint();
+        }
+    }
+}
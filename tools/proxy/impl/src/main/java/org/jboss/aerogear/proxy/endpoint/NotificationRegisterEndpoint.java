@@ -1,14 +1,19 @@
 package org.jboss.aerogear.proxy.endpoint;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.logging.Logger;
 
+import org.jboss.aerogear.metrics.MetricsRegistry;
+import org.jboss.aerogear.proxy.reconciliation.DeliveryOrderTracker;
+import org.jboss.aerogear.proxy.sink.NotificationJournal;
+import org.jboss.aerogear.proxy.sink.NotificationSinks;
+import org.jboss.aerogear.proxy.utils.EventLoops;
+
 import io.airlift.airline.Option;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelOption;
-import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.handler.logging.LogLevel;
 import io.netty.handler.logging.LoggingHandler;
 
@@ -20,35 +25,67 @@ public abstract class NotificationRegisterEndpoint implements Runnable {
 
     private static final Logger logger = Logger.getLogger(NotificationRegisterEndpoint.class.getName());
 
-    private EventLoopGroup bossGroup = null;
-    private EventLoopGroup workerGroup = null;
+    /**
+     * JMX domain metrics of the proxy are registered in.
+     */
+    public static final String METRICS_DOMAIN = "org.jboss.aerogear.proxy";
 
     private Thread notificationEndpointThread;
 
+    private NotificationJournal notificationJournal;
+
     @Option(name = "--notificationEndpointHost", description = "defaults to 127.0.0.1")
     public String notificationEndpointHost = "127.0.0.1";
 
     @Option(name = "--notificationEndpointPort", description = "defaults to 17000")
     public int notificationEndpointPort = 17000;
 
+    @Option(name = "--maxTrackedTokens", description = "tokens checked for duplicate and reordered notifications at "
+        + "most, 0 disables the check, defaults to 10000000")
+    public int maxTrackedTokens = DeliveryOrderTracker.DEFAULT_MAX_TRACKED_TOKENS;
+
+    @Option(name = "--journal", description = "file notifications are appended to, see the journal command")
+    public String journal;
+
+    @Option(name = "--journalFsyncInterval", description = "milliseconds between forcing the journal to disk, "
+        + "defaults to 1000")
+    public long journalFsyncInterval = NotificationJournal.DEFAULT_FSYNC_INTERVAL_MILLIS;
+
+    @Option(name = "--journalOnly", description = "notifications are written to the journal only, the notification "
+        + "register endpoint returns no notifications")
+    public boolean journalOnly;
+
     protected void startNotificationRegisterEndpoint(final String host, final int port) {
+        startNotificationRegisterEndpoint(host, port, null);
+    }
+
+    /**
+     * @param sharedEventLoops event loops shared with the proxies, they are left running when the endpoint stops, when
+     *        null the endpoint creates its own
+     */
+    protected void startNotificationRegisterEndpoint(final String host, final int port, final EventLoops sharedEventLoops) {
+
+        MetricsRegistry.getDefault().registerMBean(METRICS_DOMAIN);
+
+        DeliveryOrderTracker.setMaxTrackedTokens(maxTrackedTokens);
+        DeliveryOrderTracker.clear();
+
+        openJournal();
 
         Runnable notificationRegisterEndpointRunnable = new Runnable() {
 
             @Override
             public void run() {
-                bossGroup = new NioEventLoopGroup(1);
-                workerGroup = new NioEventLoopGroup();
+                EventLoops eventLoops = sharedEventLoops != null ? sharedEventLoops : EventLoops.create(0);
+                Channel ch = null;
 
                 try {
-                    ServerBootstrap b = new ServerBootstrap();
+                    ServerBootstrap b = eventLoops.serverBootstrap();
                     b.option(ChannelOption.SO_BACKLOG, 1024);
-                    b.group(bossGroup, workerGroup)
-                        .channel(NioServerSocketChannel.class)
-                        .handler(new LoggingHandler(LogLevel.INFO))
+                    b.handler(new LoggingHandler(LogLevel.INFO))
                         .childHandler(new NotificationRegisterServerInitializer());
 
-                    Channel ch = b.bind(host, port).sync().channel();
+                    ch = b.bind(host, port).sync().channel();
 
                     logger.info(String.format("Notification register endpoint started at %s:%s", host, port));
 
@@ -56,8 +93,11 @@ public abstract class NotificationRegisterEndpoint implements Runnable {
                 } catch (InterruptedException ex) {
                     logger.info("Notification register endpoint was interrupted.");
                 } finally {
-                    bossGroup.shutdownGracefully();
-                    workerGroup.shutdownGracefully();
+                    if (eventLoops != sharedEventLoops) {
+                        eventLoops.shutdownGracefully();
+                    } else if (ch != null) {
+                        ch.close();
+                    }
                 }
 
             }
@@ -71,5 +111,32 @@ public abstract class NotificationRegisterEndpoint implements Runnable {
         if (notificationEndpointThread != null) {
             notificationEndpointThread.interrupt();
         }
+
+        MetricsRegistry.getDefault().unregisterMBean(METRICS_DOMAIN);
+
+        closeJournal();
+    }
+
+    private synchronized void openJournal() {
+        if (journal == null || notificationJournal != null) {
+            return;
+        }
+
+        try {
+            notificationJournal = new NotificationJournal(new File(journal), journalFsyncInterval);
+        } catch (IOException ex) {
+            throw new IllegalStateException("Unable to open notification journal " + journal, ex);
+        }
+
+        NotificationSinks.add(notificationJournal);
+        NotificationSinks.setRetainInMemory(!journalOnly);
+    }
+
+    private synchronized void closeJournal() {
+        if (notificationJournal != null) {
+            NotificationSinks.remove(notificationJournal);
+            NotificationSinks.setRetainInMemory(true);
+            notificationJournal = null;
+        }
     }
 }
@@ -1,15 +1,20 @@
 package org.jboss.aerogear.proxy.endpoint;
 
-import static io.netty.handler.codec.http.HttpHeaders.Names.CONNECTION;
-import static io.netty.handler.codec.http.HttpHeaders.Names.CONTENT_LENGTH;
-import static io.netty.handler.codec.http.HttpHeaders.Names.CONTENT_TYPE;
+import static io.netty.handler.codec.http.HttpHeaderNames.CONNECTION;
+import static io.netty.handler.codec.http.HttpHeaderNames.CONTENT_LENGTH;
+import static io.netty.handler.codec.http.HttpHeaderNames.CONTENT_TYPE;
 import static io.netty.handler.codec.http.HttpResponseStatus.CONTINUE;
 import static io.netty.handler.codec.http.HttpResponseStatus.OK;
 import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
 
+import org.jboss.aerogear.metrics.MetricsRegistry;
 import org.jboss.aerogear.proxy.apns.ApnsNotificationRegister;
 import org.jboss.aerogear.proxy.endpoint.model.NotificationRegisterResponse;
 import org.jboss.aerogear.proxy.gcm.GCMNotificationRegister;
+import org.jboss.aerogear.proxy.reconciliation.DeliveredTokens;
+import org.jboss.aerogear.proxy.reconciliation.DeliveryOrderTracker;
+import org.jboss.aerogear.proxy.reconciliation.TokenReconciler;
+import org.jboss.aerogear.proxy.simplepush.SimplePushNotificationRegister;
 
 import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelFutureListener;
@@ -17,8 +22,13 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.handler.codec.http.DefaultFullHttpResponse;
 import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpMethod;
 import io.netty.handler.codec.http.HttpRequest;
-import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.util.CharsetUtil;
 
 /**
  *
@@ -26,6 +36,13 @@ import io.netty.handler.codec.http.HttpHeaders;
  */
 public class NotificationRegisterServerHandler extends SimpleChannelInboundHandler<Object> {
 
+    private static final String BINARY_CONTENT_TYPE = "application/octet-stream";
+
+    // set while the body of a reconcile request is being read
+    private TokenReconciler reconciler;
+
+    private boolean reconcileKeepAlive;
+
     @Override
     public void channelReadComplete(ChannelHandlerContext ctx) {
         ctx.flush();
@@ -42,48 +59,100 @@ public class NotificationRegisterServerHandler extends SimpleChannelInboundHandl
         if (msg instanceof HttpRequest) {
             HttpRequest req = (HttpRequest) msg;
 
-            String uri = req.getUri();
+            String uri = req.uri();
 
-            if (HttpHeaders.is100ContinueExpected(req)) {
+            if (HttpUtil.is100ContinueExpected(req)) {
                 ctx.write(new DefaultFullHttpResponse(HTTP_1_1, CONTINUE));
             }
 
-            boolean keepAlive = HttpHeaders.isKeepAlive(req);
+            boolean keepAlive = HttpUtil.isKeepAlive(req);
 
-            FullHttpResponse response = null;
-
-            if (uri.endsWith("clear")) {
-                GCMNotificationRegister.clear();
-                ApnsNotificationRegister.clear();
-                String responseBody = "{\"result\": \"cleared\" }";
-                response = new DefaultFullHttpResponse(HTTP_1_1, OK, Unpooled.wrappedBuffer(responseBody.getBytes()));
-                HttpHeaders.setHeader(response, CONTENT_TYPE, "application/json");
-                HttpHeaders.setIntHeader(response, CONTENT_LENGTH, responseBody.getBytes().length);
+            if (HttpMethod.POST.equals(req.method()) && uri.endsWith("reconcile")) {
+                // the expected tokens follow as body content, the response is written after the last chunk
+                reconciler = new TokenReconciler(isBinary(req));
+                reconcileKeepAlive = keepAlive;
             } else {
-                final String responsePayload = constructResponse();
-                final byte[] responsePayloadBytes = responsePayload.getBytes();
-                final int responsePayloadLength = responsePayloadBytes.length;
+                reconciler = null;
+                writeResponse(ctx, uri, keepAlive);
+            }
+        }
 
-                response = new DefaultFullHttpResponse(HTTP_1_1, OK, Unpooled.wrappedBuffer(responsePayloadBytes));
+        if (msg instanceof HttpContent && reconciler != null) {
+            reconciler.update(((HttpContent) msg).content());
 
-                HttpHeaders.setHeader(response, CONTENT_TYPE, "application/json");
-                HttpHeaders.setIntHeader(response, CONTENT_LENGTH, responsePayloadLength);
-            }
+            if (msg instanceof LastHttpContent) {
+                final byte[] result = reconciler.reconcile().toString().getBytes(CharsetUtil.UTF_8);
+                reconciler = null;
 
-            if (!keepAlive) {
-                ctx.write(response).addListener(ChannelFutureListener.CLOSE);
-            } else {
-                response.headers().set(CONNECTION, HttpHeaders.Values.KEEP_ALIVE);
-                ctx.write(response);
+                FullHttpResponse response = new DefaultFullHttpResponse(HTTP_1_1, OK, Unpooled.wrappedBuffer(result));
+                response.headers().set(CONTENT_TYPE, "application/json");
+                response.headers().setInt(CONTENT_LENGTH, result.length);
+                write(ctx, response, reconcileKeepAlive);
             }
         }
     }
 
+    /**
+     * Compares the media type only, clients add parameters such as charset to the content type.
+     */
+    static boolean isBinary(HttpRequest req) {
+        CharSequence mimeType = HttpUtil.getMimeType(req);
+        return mimeType != null && BINARY_CONTENT_TYPE.equalsIgnoreCase(mimeType.toString().trim());
+    }
+
+    private void writeResponse(ChannelHandlerContext ctx, String uri, boolean keepAlive) {
+        FullHttpResponse response = null;
+
+        if (uri.endsWith("clear")) {
+            GCMNotificationRegister.clear();
+            ApnsNotificationRegister.clear();
+            SimplePushNotificationRegister.clear();
+            DeliveredTokens.clear();
+            DeliveryOrderTracker.clear();
+            String responseBody = "{\"result\": \"cleared\" }";
+            response = new DefaultFullHttpResponse(HTTP_1_1, OK, Unpooled.wrappedBuffer(responseBody.getBytes()));
+            response.headers().set(CONTENT_TYPE, "application/json");
+            response.headers().setInt(CONTENT_LENGTH, responseBody.getBytes().length);
+        } else if (uri.endsWith("anomalies")) {
+            final byte[] anomalies = DeliveryOrderTracker.getAnomalies().toString().getBytes(CharsetUtil.UTF_8);
+            response = new DefaultFullHttpResponse(HTTP_1_1, OK, Unpooled.wrappedBuffer(anomalies));
+            response.headers().set(CONTENT_TYPE, "application/json");
+            response.headers().setInt(CONTENT_LENGTH, anomalies.length);
+        } else if (uri.endsWith("metrics")) {
+            final byte[] metrics = MetricsRegistry.getDefault().scrape().getBytes(CharsetUtil.UTF_8);
+            response = new DefaultFullHttpResponse(HTTP_1_1, OK, Unpooled.wrappedBuffer(metrics));
+            response.headers().set(CONTENT_TYPE, MetricsRegistry.PROMETHEUS_CONTENT_TYPE);
+            response.headers().setInt(CONTENT_LENGTH, metrics.length);
+        } else {
+            final String responsePayload = constructResponse();
+            final byte[] responsePayloadBytes = responsePayload.getBytes();
+            final int responsePayloadLength = responsePayloadBytes.length;
+
+            response = new DefaultFullHttpResponse(HTTP_1_1, OK, Unpooled.wrappedBuffer(responsePayloadBytes));
+
+            response.headers().set(CONTENT_TYPE, "application/json");
+            response.headers().setInt(CONTENT_LENGTH, responsePayloadLength);
+        }
+
+        write(ctx, response, keepAlive);
+    }
+
+    private static void write(ChannelHandlerContext ctx, FullHttpResponse response, boolean keepAlive) {
+        if (!keepAlive) {
+            ctx.write(response).addListener(ChannelFutureListener.CLOSE);
+        } else {
+            response.headers().set(CONNECTION, HttpHeaderValues.KEEP_ALIVE);
+            ctx.write(response);
+        }
+    }
+
     private String constructResponse() {
 
         NotificationRegisterResponse response = new NotificationRegisterResponse();
         response.setApnsNotifications(ApnsNotificationRegister.getNotifications());
         response.setGcmNotifications(GCMNotificationRegister.getNotifications());
+        response.setSimplePushNotifications(SimplePushNotificationRegister.getNotifications());
+        response.setSimplePushEndpoints(SimplePushNotificationRegister.getEndpointStatistics());
 
         return response.toString();
     }
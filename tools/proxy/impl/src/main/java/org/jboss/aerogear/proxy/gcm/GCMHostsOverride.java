@@ -0,0 +1,74 @@
+package org.jboss.aerogear.proxy.gcm;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Maps the hosts GCM clients send to onto the GCM mock in a hosts file, so a sender on the same machine or in a
+ * container sharing the file talks to the mock directly instead of going through the HTTP proxy. Entries are marked
+ * so they are replaced on the next start and removed on stop without touching the rest of the file.
+ *
+ * The file is rewritten in place as {@code /etc/hosts} of a container is usually a mount which can not be replaced.
+ */
+public class GCMHostsOverride {
+
+    private static final Logger logger = Logger.getLogger(GCMHostsOverride.class.getName());
+
+    /**
+     * Hosts of the GCM HTTP endpoint used by the gcm-server library and its successors.
+     */
+    public static final List<String> GCM_HOSTS = Collections.unmodifiableList(Arrays.asList(
+        "android.googleapis.com", "gcm-http.googleapis.com", "fcm.googleapis.com"));
+
+    private static final String MARKER = "# aerogear-gcm-mock";
+
+    private static final Charset CHARSET = Charset.forName("UTF-8");
+
+    private final Path hostsFile;
+
+    private final String address;
+
+    /**
+     * @param address address the GCM hosts resolve to, a wildcard bind address is mapped to the loopback one
+     */
+    public GCMHostsOverride(Path hostsFile, String address) {
+        this.hostsFile = hostsFile;
+        this.address = "0.0.0.0".equals(address) || "::".equals(address) ? "127.0.0.1" : address;
+    }
+
+    public void apply() throws IOException {
+        List<String> lines = withoutOverride(Files.readAllLines(hostsFile, CHARSET));
+        for (String host : GCM_HOSTS) {
+            lines.add(address + " " + host + " " + MARKER);
+        }
+        Files.write(hostsFile, lines, CHARSET);
+
+        logger.info(String.format("GCM hosts %s resolve to %s through %s", GCM_HOSTS, address, hostsFile));
+    }
+
+    public void remove() throws IOException {
+        List<String> lines = Files.readAllLines(hostsFile, CHARSET);
+        List<String> kept = withoutOverride(lines);
+        if (kept.size() != lines.size()) {
+            Files.write(hostsFile, kept, CHARSET);
+            logger.info(String.format("GCM hosts override removed from %s", hostsFile));
+        }
+    }
+
+    private static List<String> withoutOverride(List<String> lines) {
+        List<String> kept = new ArrayList<String>(lines.size() + GCM_HOSTS.size());
+        for (String line : lines) {
+            if (!line.endsWith(MARKER)) {
+                kept.add(line);
+            }
+        }
+        return kept;
+    }
+}
@@ -5,7 +5,13 @@ import java.util.List;
 import java.util.logging.Logger;
 
 import com.google.gson.Gson;
+import org.jboss.aerogear.metrics.Counter;
+import org.jboss.aerogear.metrics.Gauge;
+import org.jboss.aerogear.metrics.MockMetrics;
 import org.jboss.aerogear.proxy.endpoint.model.GCMNotification;
+import org.jboss.aerogear.proxy.reconciliation.DeliveredTokens;
+import org.jboss.aerogear.proxy.reconciliation.DeliveryOrderTracker;
+import org.jboss.aerogear.proxy.sink.NotificationSinks;
 
 public class GCMNotificationRegister {
 
@@ -13,8 +19,28 @@ public class GCMNotificationRegister {
 
     private static final List<GCMNotification> notifications = new ArrayList<GCMNotification>();
 
-    public static synchronized void addNotification(GCMNotification notification) {
-        notifications.add(notification);
+    private static final Counter notificationCounter = MockMetrics.notifications(MockMetrics.PLATFORM_GCM);
+    private static final Gauge registerSize = MockMetrics.registerSize(MockMetrics.PLATFORM_GCM);
+    private static final Counter registerEvictions = MockMetrics.registerEvictions(MockMetrics.PLATFORM_GCM);
+
+    public static void addNotification(GCMNotification notification) {
+        notificationCounter.inc();
+
+        if (notification.getDeviceTokens() != null) {
+            for (String token : notification.getDeviceTokens()) {
+                DeliveredTokens.add(token);
+            }
+        }
+        DeliveryOrderTracker.onGcmNotification(notification);
+
+        if (NotificationSinks.isRetainInMemory()) {
+            synchronized (GCMNotificationRegister.class) {
+                notifications.add(notification);
+                registerSize.set(notifications.size());
+            }
+        }
+
+        NotificationSinks.onGcmNotification(notification);
     }
 
     public static synchronized List<GCMNotification> getNotifications() {
@@ -23,7 +49,9 @@ public class GCMNotificationRegister {
 
     public static synchronized void clear() {
         logger.info("CLEARING GCM NOIFICATION REGISTER");
+        registerEvictions.add(notifications.size());
         notifications.clear();
+        registerSize.set(0);
     }
 
     @Override
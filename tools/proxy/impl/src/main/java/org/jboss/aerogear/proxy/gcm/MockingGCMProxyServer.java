@@ -1,13 +1,8 @@
 package org.jboss.aerogear.proxy.gcm;
 
-import io.netty.handler.codec.http.HttpObject;
-import io.netty.handler.codec.http.HttpRequest;
-import io.netty.handler.codec.http.HttpResponse;
-
 import java.net.InetSocketAddress;
-import org.littleshoot.proxy.HttpFilters;
-import org.littleshoot.proxy.HttpFiltersAdapter;
-import org.littleshoot.proxy.HttpFiltersSourceAdapter;
+
+import org.jboss.aerogear.gcm.GCMRedirectFiltersSource;
 import org.littleshoot.proxy.HttpProxyServer;
 import org.littleshoot.proxy.impl.DefaultHttpProxyServer;
 
@@ -21,42 +16,22 @@ public class MockingGCMProxyServer {
 
     private int mockPort;
 
+    private double captureRate;
+
     private MockingGCMProxyServer(Builder builder) {
         host = builder.host;
         port = builder.port;
         mockServer = builder.mockServer;
         mockPort = builder.mockPort;
+        captureRate = builder.captureRate;
     }
 
     public HttpProxyServer start() {
 
         return DefaultHttpProxyServer.bootstrap()
             .withAddress(new InetSocketAddress(host, port))
-            .withFiltersSource(new HttpFiltersSourceAdapter() {
-
-                @Override
-                public HttpFilters filterRequest(HttpRequest originalRequest) {
-
-                    return new HttpFiltersAdapter(originalRequest) {
-
-                        final String mockedAddress = mockServer + ":" + mockPort;
-
-                        @Override
-                        public HttpResponse clientToProxyRequest(HttpObject httpObject) {
-
-                            final HttpRequest request = (HttpRequest) httpObject;
-
-                            if (request.getUri().contains("google")) {
-                                request.setUri(mockedAddress);
-                            }
-
-                            super.clientToProxyRequest(request);
-
-                            return null;
-                        }
-                    };
-                }
-            }).start();
+            .withFiltersSource(new GCMRedirectFiltersSource(mockServer, mockPort, captureRate))
+            .start();
     }
 
     public static class Builder {
@@ -69,6 +44,8 @@ public class MockingGCMProxyServer {
 
         private int mockPort;
 
+        private double captureRate;
+
         public Builder withHost(String host) {
             this.host = host;
             return this;
@@ -89,6 +66,14 @@ public class MockingGCMProxyServer {
             return this;
         }
 
+        /**
+         * @param captureRate share of proxied requests to log, 0 by default
+         */
+        public Builder withCaptureRate(double captureRate) {
+            this.captureRate = captureRate;
+            return this;
+        }
+
         public MockingGCMProxyServer build() {
             return new MockingGCMProxyServer(this);
         }
@@ -2,26 +2,26 @@ package org.jboss.aerogear.proxy.gcm;
 
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.Channel;
-import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.handler.logging.LogLevel;
 import io.netty.handler.logging.LoggingHandler;
 import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
 
 import java.io.File;
 
 import javax.net.ssl.SSLException;
 
+import org.jboss.aerogear.proxy.utils.EventLoops;
+
 public class MockingGCMServerBackgroundThread extends Thread {
 
     private final String gcmMockServerHost;
 
     private final int gcmMockServePort;
 
-    private final File gcmCertificateFile;
+    private final SslContext sslContext;
 
-    private final File gcmCertificateKeyFile;
+    private final EventLoops sharedEventLoops;
 
     private Channel channel;
 
@@ -29,11 +29,44 @@ public class MockingGCMServerBackgroundThread extends Thread {
         int gcmMockServePort,
         File gcmCertificateFile,
         File gcmCertificateKeyFile) {
+        this(gcmMockServerHost, gcmMockServePort, gcmCertificateFile, gcmCertificateKeyFile, null);
+    }
+
+    /**
+     * @param sharedEventLoops event loops shared with other servers, they are left running when the mock stops, when
+     *        null the mock creates its own
+     */
+    public MockingGCMServerBackgroundThread(String gcmMockServerHost,
+        int gcmMockServePort,
+        File gcmCertificateFile,
+        File gcmCertificateKeyFile,
+        EventLoops sharedEventLoops) {
+        this(gcmMockServerHost, gcmMockServePort, newServerContext(gcmCertificateFile, gcmCertificateKeyFile),
+            sharedEventLoops);
+    }
+
+    /**
+     * @param sslContext context the mock serves TLS with
+     * @param sharedEventLoops event loops shared with other servers, they are left running when the mock stops, when
+     *        null the mock creates its own
+     */
+    public MockingGCMServerBackgroundThread(String gcmMockServerHost,
+        int gcmMockServePort,
+        SslContext sslContext,
+        EventLoops sharedEventLoops) {
 
         this.gcmMockServerHost = gcmMockServerHost;
         this.gcmMockServePort = gcmMockServePort;
-        this.gcmCertificateFile = gcmCertificateFile;
-        this.gcmCertificateKeyFile = gcmCertificateKeyFile;
+        this.sslContext = sslContext;
+        this.sharedEventLoops = sharedEventLoops;
+    }
+
+    private static SslContext newServerContext(File gcmCertificateFile, File gcmCertificateKeyFile) {
+        try {
+            return SslContextBuilder.forServer(gcmCertificateFile, gcmCertificateKeyFile).build();
+        } catch (SSLException ex) {
+            throw new IllegalStateException("Unable to create GCM mock SSL context", ex);
+        }
     }
 
     public String getGcmMockServerHost() {
@@ -47,24 +80,13 @@ public class MockingGCMServerBackgroundThread extends Thread {
     @Override
     public void run() {
 
-        SslContext sslCtx = null;
-
-        try {
-            sslCtx = SslContext.newServerContext(gcmCertificateFile, gcmCertificateKeyFile);
-        } catch (SSLException e) {
-            e.printStackTrace();
-        }
-
         // Configure the server.
-        EventLoopGroup bossGroup = new NioEventLoopGroup(1);
-        EventLoopGroup workerGroup = new NioEventLoopGroup();
+        EventLoops eventLoops = sharedEventLoops != null ? sharedEventLoops : EventLoops.create(0);
 
         try {
-            ServerBootstrap serverBootstrap = new ServerBootstrap();
-            serverBootstrap.group(bossGroup, workerGroup)
-                .channel(NioServerSocketChannel.class)
-                .handler(new LoggingHandler(LogLevel.INFO))
-                .childHandler(new MockingGCMServerInitializer(sslCtx));
+            ServerBootstrap serverBootstrap = eventLoops.serverBootstrap();
+            serverBootstrap.handler(new LoggingHandler(LogLevel.INFO))
+                .childHandler(new MockingGCMServerInitializer(sslContext));
 
             channel = serverBootstrap.bind(gcmMockServerHost, gcmMockServePort).sync().channel();
 
@@ -72,8 +94,9 @@ public class MockingGCMServerBackgroundThread extends Thread {
         } catch (InterruptedException e) {
             e.printStackTrace();
         } finally {
-            bossGroup.shutdownGracefully();
-            workerGroup.shutdownGracefully();
+            if (eventLoops != sharedEventLoops) {
+                eventLoops.shutdownGracefully();
+            }
         }
     }
 
@@ -3,6 +3,8 @@ package org.jboss.aerogear.proxy.gcm;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.PropertyNamingStrategy;
+import org.jboss.aerogear.metrics.MockMetrics;
+import org.jboss.aerogear.metrics.Timer;
 import org.jboss.aerogear.proxy.endpoint.model.GCMNotification;
 import org.jboss.aerogear.proxy.utils.Tokens;
 
@@ -13,9 +15,10 @@ import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.handler.codec.http.DefaultFullHttpResponse;
 import io.netty.handler.codec.http.FullHttpResponse;
 import io.netty.handler.codec.http.HttpContent;
-import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpHeaderValues;
 import io.netty.handler.codec.http.HttpObject;
 import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpUtil;
 import io.netty.handler.codec.http.LastHttpContent;
 import io.netty.util.CharsetUtil;
 
@@ -26,9 +29,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.logging.Logger;
 
-import static io.netty.handler.codec.http.HttpHeaders.Names.CONNECTION;
-import static io.netty.handler.codec.http.HttpHeaders.Names.CONTENT_LENGTH;
-import static io.netty.handler.codec.http.HttpHeaders.Names.CONTENT_TYPE;
+import static io.netty.handler.codec.http.HttpHeaderNames.CONNECTION;
+import static io.netty.handler.codec.http.HttpHeaderNames.CONTENT_LENGTH;
+import static io.netty.handler.codec.http.HttpHeaderNames.CONTENT_TYPE;
 import static io.netty.handler.codec.http.HttpResponseStatus.BAD_REQUEST;
 import static io.netty.handler.codec.http.HttpResponseStatus.CONTINUE;
 import static io.netty.handler.codec.http.HttpResponseStatus.OK;
@@ -38,8 +41,12 @@ public class MockingGCMServerHandler extends SimpleChannelInboundHandler<Object>
 
     private static final Logger logger = Logger.getLogger(MockingGCMServerHandler.class.getName());
 
+    private static final Timer latency = MockMetrics.handlerLatency(MockMetrics.ENDPOINT_GCM);
+
     private HttpRequest request;
 
+    private long requestStart;
+
     /**
      * Buffer that stores the response content
      */
@@ -61,8 +68,9 @@ public class MockingGCMServerHandler extends SimpleChannelInboundHandler<Object>
 
         if (msg instanceof HttpRequest) {
             this.request = (HttpRequest) msg;
+            this.requestStart = System.nanoTime();
 
-            if (HttpHeaders.is100ContinueExpected(request)) {
+            if (HttpUtil.is100ContinueExpected(request)) {
                 context.write(new DefaultFullHttpResponse(HTTP_1_1, CONTINUE));
             }
         }
@@ -76,7 +84,7 @@ public class MockingGCMServerHandler extends SimpleChannelInboundHandler<Object>
             if (msg instanceof LastHttpContent) {
                 buf.setLength(0);
 
-                if (request.getUri().contains("gcm")) {
+                if (request.uri().contains("gcm")) {
                     ObjectMapper mapper = new ObjectMapper();
                     mapper.setPropertyNamingStrategy(PropertyNamingStrategy.CAMEL_CASE_TO_LOWER_CASE_WITH_UNDERSCORES);
                     try {
@@ -99,6 +107,7 @@ public class MockingGCMServerHandler extends SimpleChannelInboundHandler<Object>
                 }
 
                 writeResponse((HttpObject) msg, context);
+                latency.recordSince(requestStart);
             }
         }
     }
@@ -111,11 +120,11 @@ public class MockingGCMServerHandler extends SimpleChannelInboundHandler<Object>
 
     private boolean writeResponse(HttpObject currentObj, ChannelHandlerContext ctx) {
         // Decide whether to close the connection or not.
-        boolean keepAlive = HttpHeaders.isKeepAlive(request);
+        boolean keepAlive = HttpUtil.isKeepAlive(request);
 
         // Build the response object.
         FullHttpResponse response = new DefaultFullHttpResponse(
-            HTTP_1_1, currentObj.getDecoderResult().isSuccess() ? OK : BAD_REQUEST,
+            HTTP_1_1, currentObj.decoderResult().isSuccess() ? OK : BAD_REQUEST,
             Unpooled.copiedBuffer(buf.toString(), CharsetUtil.UTF_8));
 
         response.headers().set(CONTENT_TYPE, "application/json");
@@ -125,7 +134,7 @@ public class MockingGCMServerHandler extends SimpleChannelInboundHandler<Object>
             response.headers().set(CONTENT_LENGTH, response.content().readableBytes());
             // Add keep alive header as per:
             // - http://www.w3.org/Protocols/HTTP/1.1/draft-ietf-http-v11-spec-01.html#Connection
-            response.headers().set(CONNECTION, HttpHeaders.Values.KEEP_ALIVE);
+            response.headers().set(CONNECTION, HttpHeaderValues.KEEP_ALIVE);
         }
 
         // Write the response.
@@ -1,5 +1,10 @@
 package org.jboss.aerogear.proxy.gcm;
 
+import org.jboss.aerogear.metrics.MockMetrics;
+import org.jboss.aerogear.metrics.TlsHandshakeMetrics;
+import org.jboss.aerogear.metrics.TlsHandshakeMetricsHandler;
+import org.jboss.aerogear.metrics.TrafficMetricsHandler;
+
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.socket.SocketChannel;
@@ -9,6 +14,10 @@ import io.netty.handler.ssl.SslContext;
 
 public class MockingGCMServerInitializer extends ChannelInitializer<SocketChannel> {
 
+    private static final TrafficMetricsHandler trafficMetricsHandler = new TrafficMetricsHandler(MockMetrics.ENDPOINT_GCM);
+
+    private static final TlsHandshakeMetrics handshakeMetrics = new TlsHandshakeMetrics(MockMetrics.ENDPOINT_GCM);
+
     private final SslContext sslCtx;
 
     public MockingGCMServerInitializer(SslContext sslCtx) {
@@ -19,8 +28,11 @@ public class MockingGCMServerInitializer extends ChannelInitializer<SocketChanne
     public void initChannel(SocketChannel ch) {
         ChannelPipeline p = ch.pipeline();
 
+        p.addLast(trafficMetricsHandler);
+
         if (sslCtx != null) {
             p.addLast(sslCtx.newHandler(ch.alloc()));
+            p.addLast(new TlsHandshakeMetricsHandler(handshakeMetrics));
         }
 
         p.addLast(new HttpRequestDecoder());
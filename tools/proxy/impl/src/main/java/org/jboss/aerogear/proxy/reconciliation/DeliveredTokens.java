@@ -0,0 +1,129 @@
+package org.jboss.aerogear.proxy.reconciliation;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.jboss.aerogear.proxy.endpoint.model.TokenHashes;
+
+/**
+ * Hashes of all tokens notifications were delivered to, one entry per delivery. Entries take eight bytes, five million
+ * deliveries fit in 40 MB no matter whether the registers keep notifications in memory or not. The index holds at
+ * most {@link #DEFAULT_MAX_CHUNKS} chunks of 65536 entries, 256 MB, deliveries past that are only counted as
+ * {@link #dropped()} so the registers never fail on a full index.
+ *
+ * Hashes are appended to fixed size chunks without locking, a slot is reserved by incrementing the size and written
+ * afterwards. A snapshot taken meanwhile may see a reserved slot still empty, such slots are left out.
+ */
+public final class DeliveredTokens {
+
+    private static final int CHUNK_BITS = 16;
+
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+    // 2^25 deliveries, several times more than a single proxy gets in one test
+    static final int DEFAULT_MAX_CHUNKS = 1 << 9;
+
+    private static volatile int maxChunks = DEFAULT_MAX_CHUNKS;
+
+    private static final AtomicReference<Index> index = new AtomicReference<Index>(new Index(maxChunks));
+
+    private DeliveredTokens() {
+    }
+
+    public static void add(String token) {
+        if (token != null) {
+            index.get().add(TokenHashes.hash(token));
+        }
+    }
+
+    /**
+     * @return sorted hashes of all tokens delivered so far, a token delivered twice is there twice
+     */
+    public static long[] sortedSnapshot() {
+        long[] hashes = index.get().snapshot();
+        Arrays.sort(hashes);
+        return hashes;
+    }
+
+    /**
+     * @return number of deliveries which did not fit in the index and are left out of {@link #sortedSnapshot()}
+     */
+    public static long dropped() {
+        return index.get().dropped();
+    }
+
+    public static void clear() {
+        index.set(new Index(maxChunks));
+    }
+
+    /**
+     * Takes effect on the next {@link #clear()}.
+     */
+    static void setMaxChunks(int maxChunks) {
+        DeliveredTokens.maxChunks = maxChunks;
+    }
+
+    private static final class Index {
+
+        private final AtomicLong size = new AtomicLong();
+
+        private final int maxChunks;
+
+        private final AtomicReferenceArray<AtomicLongArray> chunks;
+
+        private Index(int maxChunks) {
+            this.maxChunks = maxChunks;
+            this.chunks = new AtomicReferenceArray<AtomicLongArray>(maxChunks);
+        }
+
+        private void add(long hash) {
+            // slots past the capacity are still reserved, the size keeps counting the dropped deliveries
+            long slot = size.getAndIncrement();
+            int chunkIndex = (int) Math.min(slot >>> CHUNK_BITS, maxChunks);
+            if (chunkIndex == maxChunks) {
+                return;
+            }
+
+            AtomicLongArray chunk = chunks.get(chunkIndex);
+            if (chunk == null) {
+                chunks.compareAndSet(chunkIndex, null, new AtomicLongArray(CHUNK_SIZE));
+                chunk = chunks.get(chunkIndex);
+            }
+
+            chunk.lazySet((int) (slot & (CHUNK_SIZE - 1)), hash);
+        }
+
+        private long dropped() {
+            return Math.max(0, size.get() - capacity());
+        }
+
+        private long capacity() {
+            return (long) maxChunks * CHUNK_SIZE;
+        }
+
+        private long[] snapshot() {
+            long count = Math.min(size.get(), capacity());
+            long[] hashes = new long[(int) count];
+
+            int filled = 0;
+            for (long slot = 0; slot < count; slot += CHUNK_SIZE) {
+                AtomicLongArray chunk = chunks.get((int) (slot >>> CHUNK_BITS));
+                if (chunk == null) {
+                    continue;
+                }
+                int length = (int) Math.min(CHUNK_SIZE, count - slot);
+                for (int i = 0; i < length; i++) {
+                    long hash = chunk.get(i);
+                    if (hash != 0) {
+                        hashes[filled++] = hash;
+                    }
+                }
+            }
+
+            return filled == hashes.length ? hashes : Arrays.copyOf(hashes, filled);
+        }
+    }
+}
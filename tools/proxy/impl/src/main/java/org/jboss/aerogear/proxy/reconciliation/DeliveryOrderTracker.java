@@ -0,0 +1,339 @@
+package org.jboss.aerogear.proxy.reconciliation;
+
+import java.util.ArrayList;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.jboss.aerogear.metrics.Counter;
+import org.jboss.aerogear.metrics.MockMetrics;
+import org.jboss.aerogear.proxy.endpoint.model.ApnsNotification;
+import org.jboss.aerogear.proxy.endpoint.model.DeliveryAnomalies;
+import org.jboss.aerogear.proxy.endpoint.model.GCMNotification;
+import org.jboss.aerogear.proxy.endpoint.model.TokenHashes;
+
+/**
+ * Notices when a token gets the same message twice or gets messages out of order.
+ *
+ * Messages are identified by the {@value #PUSH_MESSAGE_ID} UPS adds to notifications, or by their content when it is
+ * missing. Every message gets a sequence number when the proxy sees it for the first time. For every token the tracker
+ * remembers the highest sequence it got and which of the 64 sequences before it, the same sliding window IPsec uses
+ * against replayed packets. A message below the highest sequence is a reordering, a message already marked in the
+ * window is a duplicate. Reorderings further back than the window are counted but can not be checked for duplicates.
+ *
+ * The state of a token takes 20 bytes per slot of open addressing tables of primitive arrays, split into segments
+ * locked independently. Once {@link #setMaxTrackedTokens(int)} tokens are tracked further tokens are counted and
+ * ignored, so memory stays bounded no matter how many devices a test notifies. Likewise only the first
+ * {@value #MAX_TRACKED_MESSAGES} distinct messages get a sequence, deliveries of later messages are counted as
+ * untracked rather than the map growing with every message sent.
+ */
+public final class DeliveryOrderTracker {
+
+    public static final String PUSH_MESSAGE_ID = "aerogear-push-id";
+
+    public static final int DEFAULT_MAX_TRACKED_TOKENS = 10000000;
+
+    // a boxed entry takes about 80 bytes, far more distinct messages than a load test sends
+    static final int MAX_TRACKED_MESSAGES = 100000;
+
+    private static final int SEGMENTS = 64;
+
+    private static final int WINDOW = 64;
+
+    // sequence of messages past MAX_TRACKED_MESSAGES
+    private static final int UNTRACKED_SEQUENCE = -1;
+
+    private static final Counter apnsDuplicates = MockMetrics.duplicateDeliveries(MockMetrics.PLATFORM_APNS);
+    private static final Counter apnsReorderings = MockMetrics.reorderedDeliveries(MockMetrics.PLATFORM_APNS);
+    private static final Counter gcmDuplicates = MockMetrics.duplicateDeliveries(MockMetrics.PLATFORM_GCM);
+    private static final Counter gcmReorderings = MockMetrics.reorderedDeliveries(MockMetrics.PLATFORM_GCM);
+
+    private static volatile int maxTrackedTokens = DEFAULT_MAX_TRACKED_TOKENS;
+
+    private static final AtomicReference<Index> index = new AtomicReference<Index>(new Index());
+
+    private DeliveryOrderTracker() {
+    }
+
+    /**
+     * @param maxTrackedTokens tokens tracked at most, 0 disables tracking, applies after the next {@link #clear()}
+     */
+    public static void setMaxTrackedTokens(int maxTrackedTokens) {
+        DeliveryOrderTracker.maxTrackedTokens = maxTrackedTokens;
+    }
+
+    public static void onApnsNotification(ApnsNotification notification) {
+        Index current = index.get();
+        if (current.disabled()) {
+            return;
+        }
+
+        String payload = notification.getPayload();
+        String messageId = parsePushMessageId(payload);
+        int sequence = current.sequence(TokenHashes.hash(messageId != null ? messageId : payload));
+
+        record(current, notification.getDeviceToken(), sequence, apnsDuplicates, apnsReorderings);
+    }
+
+    public static void onGcmNotification(GCMNotification notification) {
+        Index current = index.get();
+        if (current.disabled() || notification.getDeviceTokens() == null) {
+            return;
+        }
+
+        String messageId = notification.getData() != null ? notification.getData().get(PUSH_MESSAGE_ID) : null;
+        if (messageId == null) {
+            messageId = notification.getCollapseKey() + (notification.getData() != null
+                ? new TreeMap<String, String>(notification.getData()).toString() : "");
+        }
+        int sequence = current.sequence(TokenHashes.hash(messageId));
+
+        for (String token : notification.getDeviceTokens()) {
+            record(current, token, sequence, gcmDuplicates, gcmReorderings);
+        }
+    }
+
+    public static DeliveryAnomalies getAnomalies() {
+        Index current = index.get();
+
+        DeliveryAnomalies anomalies = new DeliveryAnomalies();
+        anomalies.setDuplicates(current.duplicates.get());
+        anomalies.setReorderings(current.reorderings.get());
+        anomalies.setUntrackedTokens(current.untracked.get());
+        anomalies.setDuplicateSample(new ArrayList<String>(current.duplicateSample));
+        anomalies.setReorderingSample(new ArrayList<String>(current.reorderingSample));
+
+        anomalies.setTrackedTokens(current.tracked.get());
+
+        return anomalies;
+    }
+
+    public static void clear() {
+        index.set(new Index());
+    }
+
+    private static void record(Index current, String token, int sequence, Counter duplicates, Counter reorderings) {
+        int result;
+        if (sequence == UNTRACKED_SEQUENCE) {
+            result = Segment.UNTRACKED;
+        } else {
+            long key = TokenHashes.hash(token);
+            result = current.segments[(int) (key >>> 58)].record(key, sequence, current);
+        }
+
+        switch (result) {
+            case Segment.DUPLICATE:
+                duplicates.inc();
+                current.duplicates.incrementAndGet();
+                sample(current.duplicateSample, current.duplicateSampleSize, token);
+                break;
+            case Segment.REORDERED:
+                reorderings.inc();
+                current.reorderings.incrementAndGet();
+                sample(current.reorderingSample, current.reorderingSampleSize, token);
+                break;
+            case Segment.UNTRACKED:
+                current.untracked.incrementAndGet();
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static void sample(Queue<String> sample, AtomicInteger size, String token) {
+        if (size.get() < DeliveryAnomalies.SAMPLE_SIZE && size.incrementAndGet() <= DeliveryAnomalies.SAMPLE_SIZE) {
+            sample.offer(token);
+        }
+    }
+
+    /**
+     * Finds the push message id in an APNS payload without parsing all of it.
+     */
+    static String parsePushMessageId(String payload) {
+        int key = payload.indexOf("\"" + PUSH_MESSAGE_ID + "\"");
+        if (key < 0) {
+            return null;
+        }
+
+        int colon = payload.indexOf(':', key + PUSH_MESSAGE_ID.length() + 2);
+        if (colon < 0) {
+            return null;
+        }
+
+        int begin = colon + 1;
+        while (begin < payload.length() && Character.isWhitespace(payload.charAt(begin))) {
+            begin++;
+        }
+
+        int end = begin;
+        if (begin < payload.length() && payload.charAt(begin) == '"') {
+            begin++;
+            end = payload.indexOf('"', begin);
+        } else {
+            while (end < payload.length() && ",}".indexOf(payload.charAt(end)) < 0) {
+                end++;
+            }
+        }
+
+        return end > begin ? payload.substring(begin, end).trim() : null;
+    }
+
+    private static final class Index {
+
+        private final int maxTokens = maxTrackedTokens;
+
+        private final AtomicLong tracked = new AtomicLong();
+
+        private final Segment[] segments = new Segment[SEGMENTS];
+
+        private final ConcurrentMap<Long, Integer> messageSequences = new ConcurrentHashMap<Long, Integer>();
+
+        private final AtomicInteger nextSequence = new AtomicInteger();
+
+        private final AtomicLong duplicates = new AtomicLong();
+
+        private final AtomicLong reorderings = new AtomicLong();
+
+        private final AtomicLong untracked = new AtomicLong();
+
+        private final Queue<String> duplicateSample = new ConcurrentLinkedQueue<String>();
+
+        private final AtomicInteger duplicateSampleSize = new AtomicInteger();
+
+        private final Queue<String> reorderingSample = new ConcurrentLinkedQueue<String>();
+
+        private final AtomicInteger reorderingSampleSize = new AtomicInteger();
+
+        private Index() {
+            for (int i = 0; i < SEGMENTS; i++) {
+                segments[i] = new Segment();
+            }
+        }
+
+        private boolean disabled() {
+            return maxTokens == 0;
+        }
+
+        private boolean reserveToken() {
+            if (tracked.incrementAndGet() <= maxTokens) {
+                return true;
+            }
+            tracked.decrementAndGet();
+            return false;
+        }
+
+        private int sequence(long messageHash) {
+            Integer sequence = messageSequences.get(messageHash);
+            if (sequence == null) {
+                // checked first so the counter stops at the limit instead of growing with every delivery
+                if (nextSequence.get() >= MAX_TRACKED_MESSAGES) {
+                    return UNTRACKED_SEQUENCE;
+                }
+                Integer created = nextSequence.getAndIncrement();
+                if (created >= MAX_TRACKED_MESSAGES) {
+                    return UNTRACKED_SEQUENCE;
+                }
+                sequence = messageSequences.putIfAbsent(messageHash, created);
+                if (sequence == null) {
+                    sequence = created;
+                }
+            }
+            return sequence;
+        }
+    }
+
+    /**
+     * Open addressing table from token hash to the highest sequence and the window below it. Linear probing, key 0
+     * marks a free slot, which {@link TokenHashes} never returns.
+     */
+    private static final class Segment {
+
+        private static final int IN_ORDER = 0;
+        private static final int DUPLICATE = 1;
+        private static final int REORDERED = 2;
+        private static final int UNTRACKED = 3;
+
+        private static final int INITIAL_CAPACITY = 1024;
+
+        private long[] keys = new long[INITIAL_CAPACITY];
+
+        private int[] highest = new int[INITIAL_CAPACITY];
+
+        private long[] windows = new long[INITIAL_CAPACITY];
+
+        private int size;
+
+        private synchronized int record(long key, int sequence, Index index) {
+            int slot = find(keys, key);
+
+            if (keys[slot] == 0) {
+                if (!index.reserveToken()) {
+                    return UNTRACKED;
+                }
+                if (size + 1 > keys.length * 3 / 4) {
+                    grow();
+                    slot = find(keys, key);
+                }
+                keys[slot] = key;
+                highest[slot] = sequence;
+                windows[slot] = 1;
+                size++;
+                return IN_ORDER;
+            }
+
+            int distance = sequence - highest[slot];
+            if (distance > 0) {
+                windows[slot] = distance >= WINDOW ? 1 : windows[slot] << distance | 1;
+                highest[slot] = sequence;
+                return IN_ORDER;
+            }
+
+            int offset = -distance;
+            if (offset >= WINDOW) {
+                return REORDERED;
+            }
+
+            long bit = 1L << offset;
+            if ((windows[slot] & bit) != 0) {
+                return DUPLICATE;
+            }
+
+            windows[slot] |= bit;
+            return REORDERED;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldHighest = highest;
+            long[] oldWindows = windows;
+
+            keys = new long[oldKeys.length * 2];
+            highest = new int[keys.length];
+            windows = new long[keys.length];
+
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    int slot = find(keys, oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    highest[slot] = oldHighest[i];
+                    windows[slot] = oldWindows[i];
+                }
+            }
+        }
+
+        private static int find(long[] keys, long key) {
+            int mask = keys.length - 1;
+            // the top bits picked the segment, the low bits pick the slot
+            int slot = (int) key & mask;
+            while (keys[slot] != 0 && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package org.jboss.aerogear.proxy.reconciliation;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.jboss.aerogear.proxy.endpoint.model.TokenHashes;
+import org.jboss.aerogear.proxy.endpoint.model.TokenReconciliation;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Reads the expected tokens from a request body as it arrives and reconciles them with {@link DeliveredTokens}. The
+ * body is either text with one token per line, or with {@code binary} set, big endian 64 bit {@link TokenHashes} of
+ * the tokens, eight bytes each. Tokens are hashed while read so neither form is ever held as strings.
+ *
+ * Both sets end up as sorted arrays of hashes which are walked once in parallel, five million tokens take a few
+ * hundred milliseconds.
+ */
+public class TokenReconciler {
+
+    private final boolean binary;
+
+    private long[] expected = new long[1024];
+
+    private int size;
+
+    private long hash = TokenHashes.INITIAL;
+
+    private boolean inToken;
+
+    private final byte[] partial = new byte[8];
+
+    private int partialLength;
+
+    /**
+     * @param binary expected tokens are sent as hashes rather than as text
+     */
+    public TokenReconciler(boolean binary) {
+        this.binary = binary;
+    }
+
+    public void update(ByteBuf content) {
+        if (binary) {
+            readHashes(content);
+        } else {
+            readLines(content);
+        }
+    }
+
+    /**
+     * Ends reading the body and compares the expected tokens with the delivered ones.
+     */
+    public TokenReconciliation reconcile() {
+        if (inToken) {
+            endToken();
+        }
+
+        long[] expectedHashes = Arrays.copyOf(expected, size);
+        expected = null;
+        Arrays.sort(expectedHashes);
+
+        TokenReconciliation result = reconcile(expectedHashes, DeliveredTokens.sortedSnapshot());
+        result.setDropped(DeliveredTokens.dropped());
+        return result;
+    }
+
+    /**
+     * @param expected sorted hashes of expected tokens, duplicates are counted once
+     * @param delivered sorted hashes of tokens notified, once per delivery
+     */
+    static TokenReconciliation reconcile(long[] expected, long[] delivered) {
+        TokenReconciliation result = new TokenReconciliation();
+        result.setDelivered(delivered.length);
+
+        long expectedDistinct = 0;
+        long deliveredDistinct = 0;
+        long notified = 0;
+        long missing = 0;
+        long duplicated = 0;
+        long unexpected = 0;
+
+        int e = 0;
+        int d = 0;
+        while (e < expected.length || d < delivered.length) {
+            long current = e < expected.length && (d == delivered.length || expected[e] <= delivered[d])
+                ? expected[e] : delivered[d];
+
+            boolean isExpected = false;
+            while (e < expected.length && expected[e] == current) {
+                isExpected = true;
+                e++;
+            }
+
+            int deliveries = 0;
+            while (d < delivered.length && delivered[d] == current) {
+                deliveries++;
+                d++;
+            }
+
+            if (isExpected) {
+                expectedDistinct++;
+            }
+            if (deliveries > 0) {
+                deliveredDistinct++;
+            }
+            if (deliveries > 1) {
+                duplicated++;
+                sample(result.getDuplicatedSample(), current);
+            }
+
+            if (isExpected && deliveries > 0) {
+                notified++;
+            } else if (isExpected) {
+                missing++;
+                sample(result.getMissingSample(), current);
+            } else {
+                unexpected++;
+                sample(result.getUnexpectedSample(), current);
+            }
+        }
+
+        result.setExpected(expectedDistinct);
+        result.setDeliveredDistinct(deliveredDistinct);
+        result.setNotified(notified);
+        result.setMissing(missing);
+        result.setDuplicated(duplicated);
+        result.setUnexpected(unexpected);
+
+        return result;
+    }
+
+    private void readLines(ByteBuf content) {
+        int end = content.writerIndex();
+        for (int i = content.readerIndex(); i < end; i++) {
+            byte b = content.getByte(i);
+            switch (b) {
+                case '\n':
+                case '\r':
+                case ' ':
+                case '\t':
+                    if (inToken) {
+                        endToken();
+                    }
+                    break;
+                default:
+                    hash = TokenHashes.update(hash, b);
+                    inToken = true;
+            }
+        }
+        content.readerIndex(end);
+    }
+
+    private void endToken() {
+        add(TokenHashes.finish(hash));
+        hash = TokenHashes.INITIAL;
+        inToken = false;
+    }
+
+    private void readHashes(ByteBuf content) {
+        // a hash may be split between two chunks of the body
+        while (partialLength > 0 && partialLength < 8 && content.isReadable()) {
+            partial[partialLength++] = content.readByte();
+            if (partialLength == 8) {
+                long value = 0;
+                for (byte b : partial) {
+                    value = (value << 8) | (b & 0xFF);
+                }
+                add(value);
+                partialLength = 0;
+            }
+        }
+
+        while (content.readableBytes() >= 8) {
+            add(content.readLong());
+        }
+
+        while (content.isReadable()) {
+            partial[partialLength++] = content.readByte();
+        }
+    }
+
+    private void add(long value) {
+        if (size == expected.length) {
+            expected = Arrays.copyOf(expected, expected.length * 2);
+        }
+        expected[size++] = value;
+    }
+
+    private static void sample(List<String> sample, long hash) {
+        if (sample.size() < TokenReconciliation.SAMPLE_SIZE) {
+            sample.add(TokenHashes.toHex(hash));
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package org.jboss.aerogear.proxy.simplepush;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import org.jboss.aerogear.metrics.Counter;
+import org.jboss.aerogear.metrics.Gauge;
+import org.jboss.aerogear.metrics.MockMetrics;
+import org.jboss.aerogear.proxy.endpoint.model.SimplePushEndpointStatistics;
+import org.jboss.aerogear.proxy.endpoint.model.SimplePushNotification;
+import org.jboss.aerogear.proxy.reconciliation.DeliveredTokens;
+import org.jboss.aerogear.proxy.sink.NotificationSinks;
+
+/**
+ * Keeps updates received by the SimplePush endpoint mock. Unlike the other registers it takes no lock, UPS sends
+ * updates to every endpoint in parallel so all event loop threads of the mock add to it at once. Neither updates nor
+ * endpoint statistics are kept when {@link NotificationSinks} do not retain notifications in memory.
+ *
+ * Clearing is not atomic with respect to updates arriving at the same time, those may end up either in the register
+ * or not.
+ */
+public class SimplePushNotificationRegister {
+
+    private static final Logger logger = Logger.getLogger(SimplePushNotificationRegister.class.getName());
+
+    private static final Queue<SimplePushNotification> notifications = new ConcurrentLinkedQueue<SimplePushNotification>();
+
+    private static final ConcurrentMap<String, EndpointRecord> endpoints = new ConcurrentHashMap<String, EndpointRecord>();
+
+    private static final Counter notificationCounter = MockMetrics.notifications(MockMetrics.PLATFORM_SIMPLE_PUSH);
+    private static final Gauge registerSize = MockMetrics.registerSize(MockMetrics.PLATFORM_SIMPLE_PUSH);
+    private static final Counter registerEvictions = MockMetrics.registerEvictions(MockMetrics.PLATFORM_SIMPLE_PUSH);
+
+    /**
+     * @param handlingNanos time it took the mock to process the update
+     */
+    public static void addNotification(SimplePushNotification notification, long handlingNanos) {
+        notificationCounter.inc();
+        DeliveredTokens.add(notification.getEndpoint());
+
+        NotificationSinks.onSimplePushNotification(notification);
+
+        if (!NotificationSinks.isRetainInMemory()) {
+            return;
+        }
+
+        notifications.offer(notification);
+        registerSize.inc();
+
+        EndpointRecord record = endpoints.get(notification.getEndpoint());
+        if (record == null) {
+            EndpointRecord created = new EndpointRecord(System.currentTimeMillis());
+            record = endpoints.putIfAbsent(notification.getEndpoint(), created);
+            if (record == null) {
+                record = created;
+            }
+        }
+
+        record.update(notification.getVersion(), handlingNanos);
+    }
+
+    public static List<SimplePushNotification> getNotifications() {
+        return new ArrayList<SimplePushNotification>(notifications);
+    }
+
+    public static List<SimplePushEndpointStatistics> getEndpointStatistics() {
+        List<SimplePushEndpointStatistics> statistics = new ArrayList<SimplePushEndpointStatistics>(endpoints.size());
+
+        for (ConcurrentMap.Entry<String, EndpointRecord> entry : endpoints.entrySet()) {
+            EndpointRecord record = entry.getValue();
+
+            SimplePushEndpointStatistics endpointStatistics = new SimplePushEndpointStatistics();
+            endpointStatistics.setEndpoint(entry.getKey());
+            endpointStatistics.setCount(record.count.get());
+            endpointStatistics.setLastVersion(record.lastVersion);
+            endpointStatistics.setFirstReceived(record.firstReceived);
+            endpointStatistics.setLastReceived(record.lastReceived);
+            endpointStatistics.setMaxHandlingNanos(record.maxHandlingNanos.get());
+
+            statistics.add(endpointStatistics);
+        }
+
+        return statistics;
+    }
+
+    public static void clear() {
+        logger.info("CLEARING SIMPLEPUSH REGISTER");
+
+        long cleared = 0;
+        while (notifications.poll() != null) {
+            cleared++;
+        }
+        endpoints.clear();
+
+        registerSize.add(-cleared);
+        registerEvictions.add(cleared);
+    }
+
+    private static final class EndpointRecord {
+
+        private final AtomicLong count = new AtomicLong();
+
+        private final AtomicLong maxHandlingNanos = new AtomicLong();
+
+        private final long firstReceived;
+
+        private volatile long lastReceived;
+
+        private volatile long lastVersion;
+
+        private EndpointRecord(long firstReceived) {
+            this.firstReceived = firstReceived;
+        }
+
+        private void update(long version, long handlingNanos) {
+            count.incrementAndGet();
+            lastVersion = version;
+            lastReceived = System.currentTimeMillis();
+
+            long max;
+            do {
+                max = maxHandlingNanos.get();
+            } while (handlingNanos > max && !maxHandlingNanos.compareAndSet(max, handlingNanos));
+        }
+    }
+}
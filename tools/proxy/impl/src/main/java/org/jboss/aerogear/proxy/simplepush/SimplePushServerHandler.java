@@ -0,0 +1,180 @@
+package org.jboss.aerogear.proxy.simplepush;
+
+import static io.netty.handler.codec.http.HttpHeaderNames.CONNECTION;
+import static io.netty.handler.codec.http.HttpHeaderNames.CONTENT_LENGTH;
+import static io.netty.handler.codec.http.HttpHeaderNames.CONTENT_TYPE;
+import static io.netty.handler.codec.http.HttpHeaderNames.HOST;
+import static io.netty.handler.codec.http.HttpResponseStatus.BAD_REQUEST;
+import static io.netty.handler.codec.http.HttpResponseStatus.METHOD_NOT_ALLOWED;
+import static io.netty.handler.codec.http.HttpResponseStatus.NOT_FOUND;
+import static io.netty.handler.codec.http.HttpResponseStatus.OK;
+import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jboss.aerogear.metrics.MockMetrics;
+import org.jboss.aerogear.metrics.Timer;
+import org.jboss.aerogear.proxy.endpoint.model.SimplePushNotification;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.util.CharsetUtil;
+
+/**
+ * Answers version updates UPS sends to SimplePush endpoints, i.e. {@code PUT <endpoint>} with {@code version=<n>} form
+ * body. Only the endpoint URL and the version are captured, an update without version gets the current time in seconds
+ * as the SimplePush server does.
+ *
+ * The handler holds no per-connection state so one instance serves all channels.
+ */
+@Sharable
+public class SimplePushServerHandler extends SimpleChannelInboundHandler<FullHttpRequest> {
+
+    private static final Logger logger = Logger.getLogger(SimplePushServerHandler.class.getName());
+
+    private static final Timer latency = MockMetrics.handlerLatency(MockMetrics.ENDPOINT_SIMPLE_PUSH);
+
+    private static final String VERSION_PARAMETER = "version=";
+
+    // the mock does not terminate TLS
+    private static final String HTTP_SCHEME = "http://";
+
+    private static final ByteBuf OK_BODY = Unpooled.unreleasableBuffer(
+        Unpooled.directBuffer(2).writeBytes("{}".getBytes(CharsetUtil.US_ASCII)));
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest request) {
+        final long start = System.nanoTime();
+
+        if (!request.decoderResult().isSuccess()) {
+            writeResponse(ctx, request, BAD_REQUEST);
+            return;
+        }
+
+        if (!HttpMethod.PUT.equals(request.method()) && !HttpMethod.POST.equals(request.method())) {
+            writeResponse(ctx, request, METHOD_NOT_ALLOWED);
+            return;
+        }
+
+        final String endpoint = parseEndpoint(request);
+        if (endpoint.isEmpty()) {
+            writeResponse(ctx, request, NOT_FOUND);
+            return;
+        }
+
+        final long version;
+        try {
+            version = parseVersion(request.content().toString(CharsetUtil.US_ASCII));
+        } catch (NumberFormatException ex) {
+            writeResponse(ctx, request, BAD_REQUEST);
+            return;
+        }
+
+        final SimplePushNotification notification = new SimplePushNotification(endpoint, version);
+
+        if (logger.isLoggable(Level.FINE)) {
+            logger.fine(String.format("Read SimplePush notification %s", notification));
+        }
+
+        writeResponse(ctx, request, OK);
+
+        final long handlingNanos = System.nanoTime() - start;
+        latency.record(handlingNanos);
+        SimplePushNotificationRegister.addNotification(notification, handlingNanos);
+    }
+
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) {
+        ctx.flush();
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        logger.log(Level.WARNING, "SimplePush endpoint connection failed", cause);
+        ctx.close();
+    }
+
+    private static void writeResponse(ChannelHandlerContext ctx, FullHttpRequest request, HttpResponseStatus status) {
+        final FullHttpResponse response = status == OK
+            ? new DefaultFullHttpResponse(HTTP_1_1, status, OK_BODY.duplicate())
+            : new DefaultFullHttpResponse(HTTP_1_1, status);
+
+        response.headers().set(CONTENT_TYPE, HttpHeaderValues.APPLICATION_JSON);
+        response.headers().set(CONTENT_LENGTH, response.content().readableBytes());
+
+        if (HttpUtil.isKeepAlive(request)) {
+            response.headers().set(CONNECTION, HttpHeaderValues.KEEP_ALIVE);
+            ctx.write(response);
+        } else {
+            ctx.write(response).addListener(ChannelFutureListener.CLOSE);
+        }
+    }
+
+    /**
+     * Rebuilds the URL the update was sent to, installations carry the whole endpoint URL as their device token. The
+     * absolute form used through a proxy is taken as it is, the origin form gets the scheme and the Host header.
+     *
+     * @return the endpoint URL or an empty string when the request has no path or host
+     */
+    static String parseEndpoint(HttpRequest request) {
+        final String uri = request.uri();
+
+        int end = uri.indexOf('?');
+        if (end < 0) {
+            end = uri.length();
+        }
+
+        int scheme = uri.indexOf("://");
+        if (scheme >= 0 && scheme < end) {
+            int path = uri.indexOf('/', scheme + 3);
+            return path >= 0 && hasPath(uri, path, end) ? uri : "";
+        }
+
+        final String host = request.headers().get(HOST);
+        if (host == null || host.isEmpty() || !hasPath(uri, 0, end)) {
+            return "";
+        }
+
+        return uri.startsWith("/") ? HTTP_SCHEME + host + uri : HTTP_SCHEME + host + '/' + uri;
+    }
+
+    private static boolean hasPath(String uri, int begin, int end) {
+        for (int i = begin; i < end; i++) {
+            if (uri.charAt(i) != '/') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static long parseVersion(String body) {
+        int index = 0;
+        while (index < body.length()) {
+            int next = body.indexOf('&', index);
+            if (next < 0) {
+                next = body.length();
+            }
+
+            if (body.startsWith(VERSION_PARAMETER, index)) {
+                return Long.parseLong(body.substring(index + VERSION_PARAMETER.length(), next).trim());
+            }
+
+            index = next + 1;
+        }
+
+        return System.currentTimeMillis() / 1000;
+    }
+}
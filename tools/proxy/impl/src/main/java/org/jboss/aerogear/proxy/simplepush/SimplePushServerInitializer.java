@@ -0,0 +1,30 @@
+package org.jboss.aerogear.proxy.simplepush;
+
+import org.jboss.aerogear.metrics.MockMetrics;
+import org.jboss.aerogear.metrics.TrafficMetricsHandler;
+
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpServerCodec;
+
+public class SimplePushServerInitializer extends ChannelInitializer<SocketChannel> {
+
+    // version updates are tiny, anything bigger is not an update
+    private static final int MAX_CONTENT_LENGTH = 8192;
+
+    private static final TrafficMetricsHandler trafficMetricsHandler = new TrafficMetricsHandler(MockMetrics.ENDPOINT_SIMPLE_PUSH);
+
+    private static final SimplePushServerHandler simplePushServerHandler = new SimplePushServerHandler();
+
+    @Override
+    public void initChannel(SocketChannel ch) {
+        ChannelPipeline p = ch.pipeline();
+
+        p.addLast(trafficMetricsHandler);
+        p.addLast(new HttpServerCodec());
+        p.addLast(new HttpObjectAggregator(MAX_CONTENT_LENGTH));
+        p.addLast(simplePushServerHandler);
+    }
+}
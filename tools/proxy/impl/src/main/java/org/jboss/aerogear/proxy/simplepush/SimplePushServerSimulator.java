@@ -0,0 +1,129 @@
+package org.jboss.aerogear.proxy.simplepush;
+
+import java.net.InetSocketAddress;
+import java.util.logging.Logger;
+
+import org.jboss.aerogear.proxy.utils.EventLoops;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelOption;
+
+/**
+ * Simulates SimplePush endpoints UPS sends version updates to, every path is accepted as an endpoint.
+ *
+ * @see SimplePushServerHandler
+ */
+public class SimplePushServerSimulator {
+
+    private static final Logger logger = Logger.getLogger(SimplePushServerSimulator.class.getName());
+
+    private final String host;
+
+    private final int port;
+
+    private final int workerThreads;
+
+    private final EventLoops sharedEventLoops;
+
+    private EventLoops eventLoops;
+
+    private Channel channel;
+
+    private int effectivePort;
+
+    private SimplePushServerSimulator(Builder builder) {
+        host = builder.host;
+        port = builder.port;
+        workerThreads = builder.workerThreads;
+        sharedEventLoops = builder.eventLoops;
+    }
+
+    public synchronized void start() {
+        logger.info("Starting SimplePushServerSimulator");
+
+        eventLoops = sharedEventLoops != null ? sharedEventLoops : EventLoops.create(workerThreads);
+
+        try {
+            ServerBootstrap serverBootstrap = eventLoops.serverBootstrap();
+            // UPS opens many connections at once when it fans out to all endpoints
+            serverBootstrap.option(ChannelOption.SO_BACKLOG, 4096);
+            serverBootstrap.childOption(ChannelOption.TCP_NODELAY, true)
+                .childHandler(new SimplePushServerInitializer());
+
+            channel = serverBootstrap.bind(host, port).sync().channel();
+            effectivePort = ((InetSocketAddress) channel.localAddress()).getPort();
+
+            logger.info(String.format("SimplePush simulator started at %s:%s", host, effectivePort));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            stop();
+            throw new IllegalStateException("Interrupted while starting SimplePush simulator.", ex);
+        }
+    }
+
+    public synchronized void stop() {
+        logger.info("Stopping SimplePushServerSimulator");
+
+        if (channel != null) {
+            channel.close().syncUninterruptibly();
+            channel = null;
+        }
+
+        if (eventLoops != null && eventLoops != sharedEventLoops) {
+            eventLoops.shutdownGracefully();
+        }
+        eventLoops = null;
+    }
+
+    public synchronized boolean isStarted() {
+        return channel != null;
+    }
+
+    public int getEffectivePort() {
+        return effectivePort;
+    }
+
+    public static class Builder {
+
+        private String host = "127.0.0.1";
+
+        private int port = 8081;
+
+        private int workerThreads;
+
+        private EventLoops eventLoops;
+
+        public Builder withHost(String host) {
+            this.host = host;
+            return this;
+        }
+
+        public Builder withPort(int port) {
+            this.port = port;
+            return this;
+        }
+
+        /**
+         * @param workerThreads number of event loop threads, 0 lets Netty use twice the number of cores, ignored when
+         *        shared event loops are set
+         */
+        public Builder withWorkerThreads(int workerThreads) {
+            this.workerThreads = workerThreads;
+            return this;
+        }
+
+        /**
+         * @param eventLoops event loops shared with other servers, they are not shut down when the simulator stops, when
+         *        not set the simulator creates its own
+         */
+        public Builder withEventLoops(EventLoops eventLoops) {
+            this.eventLoops = eventLoops;
+            return this;
+        }
+
+        public SimplePushServerSimulator build() {
+            return new SimplePushServerSimulator(this);
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package org.jboss.aerogear.proxy.sink;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import org.jboss.aerogear.proxy.endpoint.model.ApnsNotification;
+import org.jboss.aerogear.proxy.endpoint.model.GCMNotification;
+import org.jboss.aerogear.proxy.endpoint.model.SimplePushNotification;
+
+/**
+ * Binary format of the notification journal. The file starts with {@link #MAGIC} and {@link #VERSION} followed by
+ * records, all numbers are big endian:
+ *
+ * <pre>
+ * int    length of the rest of the record
+ * byte   platform, 1 APNS, 2 GCM, 3 SimplePush
+ * long   time the notification was received, milliseconds since epoch
+ * ...    platform specific body
+ * int    CRC32 of platform, time and body
+ * </pre>
+ *
+ * Strings are written as int length and UTF-8 bytes, -1 length stands for null.
+ */
+final class JournalFormat {
+
+    static final byte[] MAGIC = { 'U', 'P', 'S', 'J' };
+
+    static final byte VERSION = 1;
+
+    static final int HEADER_LENGTH = MAGIC.length + 1;
+
+    static final byte PLATFORM_APNS = 1;
+    static final byte PLATFORM_GCM = 2;
+    static final byte PLATFORM_SIMPLE_PUSH = 3;
+
+    // platform, time and CRC, the length itself is not counted
+    static final int MIN_RECORD_LENGTH = 1 + 8 + 4;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private JournalFormat() {
+    }
+
+    static byte[] header() {
+        byte[] header = new byte[HEADER_LENGTH];
+        System.arraycopy(MAGIC, 0, header, 0, MAGIC.length);
+        header[MAGIC.length] = VERSION;
+        return header;
+    }
+
+    static byte[] encode(ApnsNotification notification, long time) {
+        Encoder encoder = new Encoder(PLATFORM_APNS, time);
+        encoder.writeByte(notification.getType());
+        encoder.writeInt(notification.getIdentifier());
+        encoder.writeInt(notification.getExpiry());
+        encoder.writeByte(notification.getPriority());
+        encoder.writeString(notification.getDeviceToken());
+        encoder.writeString(notification.getPayload());
+        return encoder.finish();
+    }
+
+    static byte[] encode(GCMNotification notification, long time) {
+        Encoder encoder = new Encoder(PLATFORM_GCM, time);
+        encoder.writeString(notification.getCollapseKey());
+        encoder.writeInt(notification.getTimeToLive() != null ? notification.getTimeToLive() : -1);
+        encoder.writeByte(notification.getDelayWhileIdle() == null ? -1 : notification.getDelayWhileIdle() ? 1 : 0);
+
+        Map<String, String> data = notification.getData();
+        encoder.writeInt(data != null ? data.size() : -1);
+        if (data != null) {
+            for (Map.Entry<String, String> entry : data.entrySet()) {
+                encoder.writeString(entry.getKey());
+                encoder.writeString(entry.getValue());
+            }
+        }
+
+        List<String> tokens = notification.getDeviceTokens();
+        encoder.writeInt(tokens != null ? tokens.size() : -1);
+        if (tokens != null) {
+            for (String token : tokens) {
+                encoder.writeString(token);
+            }
+        }
+        return encoder.finish();
+    }
+
+    static byte[] encode(SimplePushNotification notification, long time) {
+        Encoder encoder = new Encoder(PLATFORM_SIMPLE_PUSH, time);
+        encoder.writeString(notification.getEndpoint());
+        encoder.writeLong(notification.getVersion());
+        return encoder.finish();
+    }
+
+    static ApnsNotification decodeApns(DataInput in) throws IOException {
+        int type = in.readByte();
+        int identifier = in.readInt();
+        int expiry = in.readInt();
+        byte priority = in.readByte();
+        String deviceToken = readString(in);
+        String payload = readString(in);
+        return new ApnsNotification(type, identifier, expiry, deviceToken, payload, priority);
+    }
+
+    static GCMNotification decodeGcm(DataInput in) throws IOException {
+        GCMNotification notification = new GCMNotification();
+        notification.setCollapseKey(readString(in));
+
+        int timeToLive = in.readInt();
+        notification.setTimeToLive(timeToLive >= 0 ? timeToLive : null);
+
+        byte delayWhileIdle = in.readByte();
+        notification.setDelayWhileIdle(delayWhileIdle < 0 ? null : delayWhileIdle == 1);
+
+        int dataSize = in.readInt();
+        if (dataSize >= 0) {
+            Map<String, String> data = new LinkedHashMap<String, String>();
+            for (int i = 0; i < dataSize; i++) {
+                data.put(readString(in), readString(in));
+            }
+            notification.setData(data);
+        }
+
+        int tokenCount = in.readInt();
+        if (tokenCount >= 0) {
+            List<String> tokens = new ArrayList<String>(tokenCount);
+            for (int i = 0; i < tokenCount; i++) {
+                tokens.add(readString(in));
+            }
+            notification.setRegistrationIds(tokens);
+        }
+        return notification;
+    }
+
+    static SimplePushNotification decodeSimplePush(DataInput in) throws IOException {
+        String endpoint = readString(in);
+        long version = in.readLong();
+        return new SimplePushNotification(endpoint, version);
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    /**
+     * Builds one complete record, length and CRC included.
+     */
+    private static final class Encoder {
+
+        private byte[] buffer = new byte[256];
+
+        private int position;
+
+        private Encoder(byte platform, long time) {
+            // length is filled in by finish()
+            position = 4;
+            writeByte(platform);
+            writeLong(time);
+        }
+
+        private void writeByte(int value) {
+            ensure(1);
+            buffer[position++] = (byte) value;
+        }
+
+        private void writeInt(int value) {
+            ensure(4);
+            buffer[position++] = (byte) (value >>> 24);
+            buffer[position++] = (byte) (value >>> 16);
+            buffer[position++] = (byte) (value >>> 8);
+            buffer[position++] = (byte) value;
+        }
+
+        private void writeLong(long value) {
+            writeInt((int) (value >>> 32));
+            writeInt((int) value);
+        }
+
+        private void writeString(String value) {
+            if (value == null) {
+                writeInt(-1);
+                return;
+            }
+            byte[] bytes = value.getBytes(UTF_8);
+            writeInt(bytes.length);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        private byte[] finish() {
+            CRC32 crc = new CRC32();
+            crc.update(buffer, 4, position - 4);
+            writeInt((int) crc.getValue());
+
+            int length = position - 4;
+            buffer[0] = (byte) (length >>> 24);
+            buffer[1] = (byte) (length >>> 16);
+            buffer[2] = (byte) (length >>> 8);
+            buffer[3] = (byte) length;
+
+            byte[] record = new byte[position];
+            System.arraycopy(buffer, 0, record, 0, position);
+            return record;
+        }
+
+        private void ensure(int length) {
+            if (position + length > buffer.length) {
+                byte[] grown = new byte[Math.max(buffer.length * 2, position + length)];
+                System.arraycopy(buffer, 0, grown, 0, position);
+                buffer = grown;
+            }
+        }
+    }
+}
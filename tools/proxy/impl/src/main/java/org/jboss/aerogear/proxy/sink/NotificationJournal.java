@@ -0,0 +1,292 @@
+package org.jboss.aerogear.proxy.sink;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jboss.aerogear.metrics.Counter;
+import org.jboss.aerogear.metrics.MetricsRegistry;
+import org.jboss.aerogear.metrics.Timer;
+import org.jboss.aerogear.proxy.endpoint.model.ApnsNotification;
+import org.jboss.aerogear.proxy.endpoint.model.GCMNotification;
+import org.jboss.aerogear.proxy.endpoint.model.SimplePushNotification;
+
+/**
+ * Appends notifications to a file in {@link JournalFormat}. Mock threads only encode records and queue them, a single
+ * writer thread gathers queued records into a buffer, writes it with one call and forces the file to disk
+ * periodically, so a crash loses at most the records of the last interval.
+ *
+ * When the writer falls behind, the queue fills up and mock threads wait for it rather than growing the heap. After a
+ * write failure records are counted as dropped and discarded.
+ *
+ * Appends share a read lock that close takes exclusively, so every record accepted before close is queued ahead of the
+ * close marker and written, later records are counted as dropped.
+ */
+public class NotificationJournal implements NotificationSink {
+
+    private static final Logger logger = Logger.getLogger(NotificationJournal.class.getName());
+
+    public static final long DEFAULT_FSYNC_INTERVAL_MILLIS = 1000;
+
+    private static final int QUEUE_CAPACITY = 64 * 1024;
+
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    private static final int DRAIN_BATCH = 1024;
+
+    private static final byte[] CLOSE = new byte[0];
+
+    private static final Counter records = MetricsRegistry.getDefault().counter("ups_mock_journal_records_total",
+        "Records appended to the notification journal");
+    private static final Counter bytes = MetricsRegistry.getDefault().counter("ups_mock_journal_bytes_total",
+        "Bytes appended to the notification journal");
+    private static final Counter dropped = MetricsRegistry.getDefault().counter("ups_mock_journal_dropped_total",
+        "Records lost because the notification journal could not be written");
+    private static final Timer fsyncLatency = MetricsRegistry.getDefault().timer("ups_mock_journal_fsync_seconds",
+        "Time spent forcing the notification journal to disk");
+
+    private final File file;
+
+    private final FileChannel channel;
+
+    private final long fsyncIntervalNanos;
+
+    private final BlockingQueue<byte[]> queue = new ArrayBlockingQueue<byte[]>(QUEUE_CAPACITY);
+
+    private final Thread writer;
+
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+
+    private volatile boolean failed;
+
+    private boolean closed;
+
+    /**
+     * Opens the journal for appending, a new or empty file gets the format header.
+     *
+     * @param fsyncIntervalMillis time between forcing written records to disk, 0 forces after every write
+     */
+    public NotificationJournal(File file, long fsyncIntervalMillis) throws IOException {
+        this.file = file;
+        this.fsyncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(fsyncIntervalMillis);
+
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.APPEND);
+
+        if (channel.size() == 0) {
+            writeFully(ByteBuffer.wrap(JournalFormat.header()));
+        }
+
+        writer = new Thread(new Writer(), "NotificationJournal-" + file.getName());
+        writer.setDaemon(true);
+        writer.start();
+
+        logger.info(String.format("Appending notifications to %s", file.getAbsolutePath()));
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public void onApnsNotification(ApnsNotification notification) {
+        append(JournalFormat.encode(notification, System.currentTimeMillis()));
+    }
+
+    @Override
+    public void onGcmNotification(GCMNotification notification) {
+        append(JournalFormat.encode(notification, System.currentTimeMillis()));
+    }
+
+    @Override
+    public void onSimplePushNotification(SimplePushNotification notification) {
+        append(JournalFormat.encode(notification, System.currentTimeMillis()));
+    }
+
+    /**
+     * Writes all queued records, forces them to disk and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        closeLock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            putUninterruptibly(CLOSE);
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+
+        try {
+            writer.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void append(byte[] record) {
+        // the writer keeps draining until it takes the close marker, so waiting for queue space under the lock is safe
+        closeLock.readLock().lock();
+        try {
+            if (closed || failed) {
+                dropped.inc();
+                return;
+            }
+            putUninterruptibly(record);
+        } finally {
+            closeLock.readLock().unlock();
+        }
+    }
+
+    private void putUninterruptibly(byte[] record) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                queue.put(record);
+                break;
+            } catch (InterruptedException ex) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private final class Writer implements Runnable {
+
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        private final List<byte[]> batch = new ArrayList<byte[]>(DRAIN_BATCH);
+
+        private long lastFsync = System.nanoTime();
+
+        private boolean dirty;
+
+        @Override
+        public void run() {
+            boolean closing = false;
+
+            while (!closing) {
+                try {
+                    byte[] first = queue.poll(fsyncIntervalNanos > 0 ? fsyncIntervalNanos : 1000000, TimeUnit.NANOSECONDS);
+                    if (first != null) {
+                        batch.add(first);
+                        queue.drainTo(batch, DRAIN_BATCH - 1);
+                    }
+                } catch (InterruptedException ex) {
+                    closing = true;
+                }
+
+                for (byte[] record : batch) {
+                    if (record == CLOSE) {
+                        closing = true;
+                    } else {
+                        write(record);
+                    }
+                }
+                batch.clear();
+
+                // keep gathering while records are coming, otherwise hand the buffer over to the file
+                if (closing || queue.isEmpty() || buffer.position() > BUFFER_SIZE / 2) {
+                    flush();
+                }
+
+                if (dirty && (closing || System.nanoTime() - lastFsync >= fsyncIntervalNanos)) {
+                    force();
+                }
+            }
+
+            try {
+                channel.close();
+            } catch (IOException ex) {
+                logger.log(Level.WARNING, "Unable to close notification journal", ex);
+            }
+        }
+
+        private void write(byte[] record) {
+            if (failed) {
+                dropped.inc();
+                return;
+            }
+
+            if (record.length > buffer.remaining()) {
+                flush();
+            }
+
+            if (record.length > buffer.capacity()) {
+                try {
+                    writeFully(ByteBuffer.wrap(record));
+                    dirty = true;
+                    records.inc();
+                    bytes.add(record.length);
+                } catch (IOException ex) {
+                    fail(ex);
+                    dropped.inc();
+                }
+                return;
+            }
+
+            buffer.put(record);
+            records.inc();
+            bytes.add(record.length);
+        }
+
+        private void flush() {
+            if (buffer.position() == 0) {
+                return;
+            }
+
+            buffer.flip();
+            try {
+                if (!failed) {
+                    writeFully(buffer);
+                    dirty = true;
+                }
+            } catch (IOException ex) {
+                fail(ex);
+            } finally {
+                buffer.clear();
+            }
+        }
+
+        private void force() {
+            long start = System.nanoTime();
+            try {
+                channel.force(false);
+            } catch (IOException ex) {
+                fail(ex);
+            }
+            fsyncLatency.recordSince(start);
+            lastFsync = System.nanoTime();
+            dirty = false;
+        }
+
+        private void fail(IOException ex) {
+            if (!failed) {
+                failed = true;
+                logger.log(Level.SEVERE, String.format("Writing notification journal %s failed, further notifications are "
+                    + "not journaled", file.getAbsolutePath()), ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package org.jboss.aerogear.proxy.sink;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Reads a journal written by {@link NotificationJournal} and replays its records into a sink. A record cut short at
+ * the end of the file, as left by a crash, ends the replay; records failing their checksum are skipped.
+ */
+public class NotificationJournalReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    // a single record is never close to this, a larger length means the file is damaged
+    private static final int MAX_RECORD_LENGTH = 64 * 1024 * 1024;
+
+    private final DataInputStream in;
+
+    private long records;
+
+    private long corruptedRecords;
+
+    private boolean truncated;
+
+    private long firstTime;
+
+    private long lastTime;
+
+    public NotificationJournalReader(File file) throws IOException {
+        in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE));
+
+        byte[] header = new byte[JournalFormat.HEADER_LENGTH];
+        try {
+            in.readFully(header);
+        } catch (EOFException ex) {
+            in.close();
+            throw new IOException(file + " is not a notification journal, it is too short.");
+        }
+
+        if (!Arrays.equals(Arrays.copyOf(header, JournalFormat.MAGIC.length), JournalFormat.MAGIC)) {
+            in.close();
+            throw new IOException(file + " is not a notification journal.");
+        }
+        if (header[JournalFormat.MAGIC.length] != JournalFormat.VERSION) {
+            in.close();
+            throw new IOException(String.format("Unsupported version %d of notification journal %s.",
+                header[JournalFormat.MAGIC.length], file));
+        }
+    }
+
+    /**
+     * Replays all remaining records.
+     *
+     * @return number of records replayed
+     */
+    public long replay(NotificationSink sink) throws IOException {
+        long replayed = 0;
+
+        while (true) {
+            final int length;
+            try {
+                length = in.readInt();
+            } catch (EOFException ex) {
+                break;
+            }
+
+            if (length < JournalFormat.MIN_RECORD_LENGTH || length > MAX_RECORD_LENGTH) {
+                truncated = true;
+                break;
+            }
+
+            byte[] record = new byte[length];
+            try {
+                in.readFully(record);
+            } catch (EOFException ex) {
+                truncated = true;
+                break;
+            }
+
+            CRC32 crc = new CRC32();
+            crc.update(record, 0, length - 4);
+            int expectedCrc = ((record[length - 4] & 0xFF) << 24) | ((record[length - 3] & 0xFF) << 16)
+                | ((record[length - 2] & 0xFF) << 8) | (record[length - 1] & 0xFF);
+
+            if ((int) crc.getValue() != expectedCrc) {
+                corruptedRecords++;
+                continue;
+            }
+
+            DataInputStream body = new DataInputStream(new ByteArrayInputStream(record, 0, length - 4));
+            byte platform = body.readByte();
+            long time = body.readLong();
+
+            switch (platform) {
+                case JournalFormat.PLATFORM_APNS:
+                    sink.onApnsNotification(JournalFormat.decodeApns(body));
+                    break;
+                case JournalFormat.PLATFORM_GCM:
+                    sink.onGcmNotification(JournalFormat.decodeGcm(body));
+                    break;
+                case JournalFormat.PLATFORM_SIMPLE_PUSH:
+                    sink.onSimplePushNotification(JournalFormat.decodeSimplePush(body));
+                    break;
+                default:
+                    corruptedRecords++;
+                    continue;
+            }
+
+            if (records == 0) {
+                firstTime = time;
+            }
+            lastTime = time;
+            records++;
+            replayed++;
+        }
+
+        return replayed;
+    }
+
+    public long getRecords() {
+        return records;
+    }
+
+    public long getCorruptedRecords() {
+        return corruptedRecords;
+    }
+
+    /**
+     * @return true when the journal ends with an incomplete record
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * @return time of the first replayed record in milliseconds since epoch
+     */
+    public long getFirstTime() {
+        return firstTime;
+    }
+
+    public long getLastTime() {
+        return lastTime;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,20 @@
+package org.jboss.aerogear.proxy.sink;
+
+import java.io.Closeable;
+
+import org.jboss.aerogear.proxy.endpoint.model.ApnsNotification;
+import org.jboss.aerogear.proxy.endpoint.model.GCMNotification;
+import org.jboss.aerogear.proxy.endpoint.model.SimplePushNotification;
+
+/**
+ * Receives every notification the notification registers get. Methods are called on the threads of the mocks, so
+ * implementations have to be thread safe.
+ */
+public interface NotificationSink extends Closeable {
+
+    void onApnsNotification(ApnsNotification notification);
+
+    void onGcmNotification(GCMNotification notification);
+
+    void onSimplePushNotification(SimplePushNotification notification);
+}
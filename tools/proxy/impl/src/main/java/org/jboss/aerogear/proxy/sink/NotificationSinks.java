@@ -0,0 +1,78 @@
+package org.jboss.aerogear.proxy.sink;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jboss.aerogear.proxy.endpoint.model.ApnsNotification;
+import org.jboss.aerogear.proxy.endpoint.model.GCMNotification;
+import org.jboss.aerogear.proxy.endpoint.model.SimplePushNotification;
+
+/**
+ * Sinks the notification registers pass notifications on to, and whether the registers keep notifications in memory
+ * at all. Long running tests usually write to a journal only, lists in memory would grow without limit.
+ */
+public final class NotificationSinks {
+
+    private static final Logger logger = Logger.getLogger(NotificationSinks.class.getName());
+
+    private static final List<NotificationSink> sinks = new CopyOnWriteArrayList<NotificationSink>();
+
+    private static volatile boolean retainInMemory = true;
+
+    private NotificationSinks() {
+    }
+
+    public static void add(NotificationSink sink) {
+        sinks.add(sink);
+    }
+
+    /**
+     * Removes and closes the sink.
+     */
+    public static void remove(NotificationSink sink) {
+        if (sinks.remove(sink)) {
+            close(sink);
+        }
+    }
+
+    public static boolean isRetainInMemory() {
+        return retainInMemory;
+    }
+
+    /**
+     * @param retainInMemory false makes the registers hand notifications to the sinks only, the notification register
+     *        endpoint then returns empty lists
+     */
+    public static void setRetainInMemory(boolean retainInMemory) {
+        NotificationSinks.retainInMemory = retainInMemory;
+    }
+
+    public static void onApnsNotification(ApnsNotification notification) {
+        for (NotificationSink sink : sinks) {
+            sink.onApnsNotification(notification);
+        }
+    }
+
+    public static void onGcmNotification(GCMNotification notification) {
+        for (NotificationSink sink : sinks) {
+            sink.onGcmNotification(notification);
+        }
+    }
+
+    public static void onSimplePushNotification(SimplePushNotification notification) {
+        for (NotificationSink sink : sinks) {
+            sink.onSimplePushNotification(notification);
+        }
+    }
+
+    private static void close(NotificationSink sink) {
+        try {
+            sink.close();
+        } catch (IOException ex) {
+            logger.log(Level.WARNING, "Unable to close notification sink", ex);
+        }
+    }
+}
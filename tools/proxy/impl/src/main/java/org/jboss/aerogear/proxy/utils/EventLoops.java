@@ -0,0 +1,85 @@
+package org.jboss.aerogear.proxy.utils;
+
+import java.util.logging.Logger;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+
+/**
+ * Boss and worker event loops together with the matching server channel type. One instance can be shared by all
+ * Netty servers of the process, servers which are not given one create their own.
+ */
+public final class EventLoops {
+
+    private static final Logger logger = Logger.getLogger(EventLoops.class.getName());
+
+    private final EventLoopGroup bossGroup;
+
+    private final EventLoopGroup workerGroup;
+
+    private final Class<? extends ServerChannel> serverChannelClass;
+
+    private EventLoops(EventLoopGroup bossGroup, EventLoopGroup workerGroup, Class<? extends ServerChannel> serverChannelClass) {
+        this.bossGroup = bossGroup;
+        this.workerGroup = workerGroup;
+        this.serverChannelClass = serverChannelClass;
+    }
+
+    /**
+     * Creates NIO based event loops.
+     *
+     * @param workerThreads number of worker threads, 0 lets Netty use twice the number of cores
+     */
+    public static EventLoops create(int workerThreads) {
+        return create(workerThreads, false);
+    }
+
+    /**
+     * @param workerThreads number of worker threads, 0 lets Netty use twice the number of cores
+     * @param epoll use native epoll transport, NIO is used when it is not available on this platform
+     */
+    public static EventLoops create(int workerThreads, boolean epoll) {
+        if (epoll) {
+            if (Epoll.isAvailable()) {
+                return new EventLoops(new EpollEventLoopGroup(1), new EpollEventLoopGroup(workerThreads),
+                    EpollServerSocketChannel.class);
+            }
+            logger.warning(String.format("Native epoll transport is not available, falling back to NIO: %s",
+                Epoll.unavailabilityCause()));
+        }
+
+        return new EventLoops(new NioEventLoopGroup(1), new NioEventLoopGroup(workerThreads), NioServerSocketChannel.class);
+    }
+
+    /**
+     * @return bootstrap with groups and channel type already set
+     */
+    public ServerBootstrap serverBootstrap() {
+        return new ServerBootstrap()
+            .group(bossGroup, workerGroup)
+            .channel(serverChannelClass);
+    }
+
+    public EventLoopGroup getBossGroup() {
+        return bossGroup;
+    }
+
+    public EventLoopGroup getWorkerGroup() {
+        return workerGroup;
+    }
+
+    public boolean isEpoll() {
+        return serverChannelClass == EpollServerSocketChannel.class;
+    }
+
+    public void shutdownGracefully() {
+        bossGroup.shutdownGracefully();
+        workerGroup.shutdownGracefully();
+    }
+}
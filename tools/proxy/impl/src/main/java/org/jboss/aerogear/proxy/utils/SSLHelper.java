@@ -28,12 +28,33 @@ public class SSLHelper {
         }
     }
 
-    public static SSLContext newSSLContext(final KeyStore ks, final String password,
+    public static KeyManagerFactory newKeyManagerFactory(final InputStream cert, final String password,
+        final String ksType, final String ksAlgorithm) throws InvalidSSLConfig {
+        try {
+            final KeyStore ks = KeyStore.getInstance(ksType);
+            ks.load(cert, password.toCharArray());
+            return newKeyManagerFactory(ks, password, ksAlgorithm);
+        } catch (final Exception e) {
+            throw new InvalidSSLConfig(e);
+        }
+    }
+
+    public static KeyManagerFactory newKeyManagerFactory(final KeyStore ks, final String password,
         final String ksAlgorithm) throws InvalidSSLConfig {
         try {
-            // Get a KeyManager and initialize it
             final KeyManagerFactory kmf = KeyManagerFactory.getInstance(ksAlgorithm);
             kmf.init(ks, password.toCharArray());
+            return kmf;
+        } catch (final GeneralSecurityException e) {
+            throw new InvalidSSLConfig(e);
+        }
+    }
+
+    public static SSLContext newSSLContext(final KeyStore ks, final String password,
+        final String ksAlgorithm) throws InvalidSSLConfig {
+        try {
+            // Get a KeyManager and initialize it
+            final KeyManagerFactory kmf = newKeyManagerFactory(ks, password, ksAlgorithm);
 
             // Get a TrustManagerFactory with the DEFAULT KEYSTORE, so we have all the certificates in cacerts trusted
             final TrustManagerFactory tmf = TrustManagerFactory.getInstance(ksAlgorithm);
@@ -0,0 +1,135 @@
+package org.jboss.aerogear.proxy.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
+
+import io.airlift.airline.Option;
+import io.netty.handler.ssl.OpenSsl;
+import io.netty.handler.ssl.OpenSslSessionContext;
+import io.netty.handler.ssl.OpenSslSessionTicketKey;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslProvider;
+import io.netty.handler.ssl.SupportedCipherSuiteFilter;
+
+/**
+ * TLS settings shared by the mocks. Netty based servers use OpenSSL when netty-tcnative is on the classpath unless
+ * told otherwise, the binary APNS simulator is based on JDK sockets and takes only the session cache and cipher
+ * settings.
+ */
+public class TlsOptions {
+
+    private static final Logger logger = Logger.getLogger(TlsOptions.class.getName());
+
+    // 16 bytes of name, HMAC key and AES key each
+    private static final int TICKET_KEY_LENGTH = OpenSslSessionTicketKey.TICKET_KEY_SIZE;
+
+    @Option(name = "--tlsProvider", description = "JDK or OPENSSL, defaults to OPENSSL when netty-tcnative with ALPN "
+        + "support is available")
+    public String tlsProvider;
+
+    @Option(name = "--tlsSessionCacheSize", description = "TLS sessions cached for resumption, defaults to 0 "
+        + "(provider default)")
+    public long tlsSessionCacheSize;
+
+    @Option(name = "--tlsSessionTimeout", description = "seconds a cached TLS session can be resumed for, defaults "
+        + "to 0 (provider default)")
+    public long tlsSessionTimeout;
+
+    @Option(name = "--tlsSessionTicketKeys", description = "file with 48 byte session ticket keys, the first one "
+        + "encrypts new tickets, OPENSSL only")
+    public String tlsSessionTicketKeys;
+
+    @Option(name = "--tlsCiphers", description = "comma separated cipher suites, defaults to those of the provider")
+    public String tlsCiphers;
+
+    public SslProvider provider() {
+        if (tlsProvider == null) {
+            return OpenSsl.isAlpnSupported() ? SslProvider.OPENSSL : SslProvider.JDK;
+        }
+        return SslProvider.valueOf(tlsProvider.toUpperCase());
+    }
+
+    /**
+     * @return configured cipher suites, null when the defaults are used
+     */
+    public List<String> ciphers() {
+        if (tlsCiphers == null || tlsCiphers.trim().isEmpty()) {
+            return null;
+        }
+
+        List<String> ciphers = new ArrayList<String>();
+        for (String cipher : tlsCiphers.split(",")) {
+            if (!cipher.trim().isEmpty()) {
+                ciphers.add(cipher.trim());
+            }
+        }
+        return ciphers;
+    }
+
+    /**
+     * Builds context of a Netty server.
+     *
+     * @param defaultCiphers ciphers used when none are configured, null for the defaults of the provider
+     */
+    public SslContext build(SslContextBuilder builder, Iterable<String> defaultCiphers) throws IOException {
+        List<String> ciphers = ciphers();
+
+        builder.sslProvider(provider())
+            .ciphers(ciphers != null ? ciphers : defaultCiphers, SupportedCipherSuiteFilter.INSTANCE)
+            .sessionCacheSize(tlsSessionCacheSize)
+            .sessionTimeout(tlsSessionTimeout);
+
+        SslContext sslContext = builder.build();
+
+        if (tlsSessionTicketKeys != null) {
+            if (sslContext.sessionContext() instanceof OpenSslSessionContext) {
+                ((OpenSslSessionContext) sslContext.sessionContext()).setTicketKeys(readTicketKeys());
+            } else {
+                logger.warning("Session ticket keys are supported by OPENSSL provider only, ignoring them");
+            }
+        }
+
+        return sslContext;
+    }
+
+    /**
+     * Applies session cache settings to context of JDK sockets.
+     */
+    public void configure(SSLContext sslContext) {
+        SSLSessionContext sessionContext = sslContext.getServerSessionContext();
+        if (tlsSessionCacheSize > 0) {
+            sessionContext.setSessionCacheSize((int) Math.min(tlsSessionCacheSize, Integer.MAX_VALUE));
+        }
+        if (tlsSessionTimeout > 0) {
+            sessionContext.setSessionTimeout((int) Math.min(tlsSessionTimeout, Integer.MAX_VALUE));
+        }
+    }
+
+    private OpenSslSessionTicketKey[] readTicketKeys() throws IOException {
+        byte[] keys = Files.readAllBytes(new File(tlsSessionTicketKeys).toPath());
+        if (keys.length == 0 || keys.length % TICKET_KEY_LENGTH != 0) {
+            throw new IllegalArgumentException("Session ticket keys file " + tlsSessionTicketKeys + " has to consist "
+                + "of " + TICKET_KEY_LENGTH + " byte keys, it has " + keys.length + " bytes");
+        }
+
+        OpenSslSessionTicketKey[] ticketKeys = new OpenSslSessionTicketKey[keys.length / TICKET_KEY_LENGTH];
+        for (int i = 0; i < ticketKeys.length; i++) {
+            int name = i * TICKET_KEY_LENGTH;
+            int hmacKey = name + OpenSslSessionTicketKey.NAME_SIZE;
+            int aesKey = hmacKey + OpenSslSessionTicketKey.HMAC_KEY_SIZE;
+            ticketKeys[i] = new OpenSslSessionTicketKey(Arrays.copyOfRange(keys, name, hmacKey),
+                Arrays.copyOfRange(keys, hmacKey, aesKey),
+                Arrays.copyOfRange(keys, aesKey, aesKey + OpenSslSessionTicketKey.AES_KEY_SIZE));
+        }
+        return ticketKeys;
+    }
+}
@@ -0,0 +1,102 @@
+package org.jboss.aerogear.proxy.endpoint;
+
+import static io.netty.handler.codec.http.HttpHeaderNames.CONTENT_TYPE;
+
+import org.jboss.aerogear.proxy.endpoint.model.TokenHashes;
+import org.jboss.aerogear.proxy.endpoint.model.TokenReconciliation;
+import org.jboss.aerogear.proxy.reconciliation.DeliveredTokens;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import com.google.gson.Gson;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultHttpRequest;
+import io.netty.handler.codec.http.DefaultLastHttpContent;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.util.CharsetUtil;
+
+@RunWith(JUnit4.class)
+public class NotificationRegisterServerHandlerTestCase {
+
+    @After
+    public void clearDeliveredTokens() {
+        DeliveredTokens.clear();
+    }
+
+    @Test
+    public void binaryReconcileWithCharsetTest() {
+        DeliveredTokens.add("token1");
+        DeliveredTokens.add("token2");
+
+        ByteBuf body = Unpooled.buffer();
+        body.writeLong(TokenHashes.hash("token1"));
+        body.writeLong(TokenHashes.hash("token2"));
+
+        // RestAssured 2.3 adds a charset even to binary content
+        TokenReconciliation result = reconcile("application/octet-stream; charset=ISO-8859-1", body);
+
+        Assert.assertTrue(result.toString(), result.isExactlyOnce());
+        Assert.assertEquals(2, result.getExpected());
+        Assert.assertEquals(2, result.getNotified());
+    }
+
+    @Test
+    public void textReconcileWithCharsetTest() {
+        DeliveredTokens.add("token1");
+
+        TokenReconciliation result = reconcile("text/plain; charset=UTF-8",
+            Unpooled.copiedBuffer("token1\ntoken2\n", CharsetUtil.UTF_8));
+
+        Assert.assertEquals(2, result.getExpected());
+        Assert.assertEquals(1, result.getNotified());
+        Assert.assertEquals(1, result.getMissing());
+    }
+
+    @Test
+    public void mediaTypeTest() {
+        Assert.assertTrue(NotificationRegisterServerHandler.isBinary(request("application/octet-stream")));
+        Assert.assertTrue(NotificationRegisterServerHandler.isBinary(request("Application/Octet-Stream ;charset=UTF-8")));
+        Assert.assertFalse(NotificationRegisterServerHandler.isBinary(request("text/plain; charset=UTF-8")));
+        Assert.assertFalse(NotificationRegisterServerHandler.isBinary(request(null)));
+    }
+
+    private static TokenReconciliation reconcile(String contentType, ByteBuf body) {
+        EmbeddedChannel channel = new EmbeddedChannel(new NotificationRegisterServerHandler());
+
+        channel.writeInbound(request(contentType));
+        // split the body so a hash crosses the chunk boundary
+        int half = body.readableBytes() / 2 + 3;
+        channel.writeInbound(new DefaultHttpContent(body.readRetainedSlice(half)));
+        channel.writeInbound(new DefaultLastHttpContent(body.readRetainedSlice(body.readableBytes())));
+        body.release();
+        channel.flush();
+
+        FullHttpResponse response = channel.readOutbound();
+        try {
+            Assert.assertEquals(HttpResponseStatus.OK, response.status());
+            return new Gson().fromJson(response.content().toString(CharsetUtil.UTF_8), TokenReconciliation.class);
+        } finally {
+            response.release();
+            channel.finish();
+        }
+    }
+
+    private static HttpRequest request(String contentType) {
+        HttpRequest request = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/reconcile");
+        if (contentType != null) {
+            request.headers().set(CONTENT_TYPE, contentType);
+        }
+        return request;
+    }
+}
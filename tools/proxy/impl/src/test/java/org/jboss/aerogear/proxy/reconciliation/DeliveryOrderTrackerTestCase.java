@@ -0,0 +1,186 @@
+package org.jboss.aerogear.proxy.reconciliation;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.jboss.aerogear.proxy.endpoint.model.ApnsNotification;
+import org.jboss.aerogear.proxy.endpoint.model.DeliveryAnomalies;
+import org.jboss.aerogear.proxy.endpoint.model.GCMNotification;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class DeliveryOrderTrackerTestCase {
+
+    @Before
+    public void clearTracker() {
+        DeliveryOrderTracker.clear();
+    }
+
+    @After
+    public void resetTracker() {
+        DeliveryOrderTracker.setMaxTrackedTokens(DeliveryOrderTracker.DEFAULT_MAX_TRACKED_TOKENS);
+        DeliveryOrderTracker.clear();
+    }
+
+    @Test
+    public void inOrderTest() {
+        deliver("token", 0, 1, 2, 5);
+
+        DeliveryAnomalies anomalies = DeliveryOrderTracker.getAnomalies();
+        Assert.assertEquals(0, anomalies.getDuplicates());
+        Assert.assertEquals(0, anomalies.getReorderings());
+        Assert.assertEquals(1, anomalies.getTrackedTokens());
+    }
+
+    @Test
+    public void duplicateTest() {
+        deliver("token", 0, 1, 1);
+
+        DeliveryAnomalies anomalies = DeliveryOrderTracker.getAnomalies();
+        Assert.assertEquals(1, anomalies.getDuplicates());
+        Assert.assertEquals(0, anomalies.getReorderings());
+        Assert.assertEquals(Arrays.asList("token"), anomalies.getDuplicateSample());
+    }
+
+    @Test
+    public void reorderingWithinWindowTest() {
+        // sequences follow the order the proxy sees messages in first
+        deliver("other", 0, 1, 2);
+        deliver("token", 0, 2, 1, 1);
+
+        DeliveryAnomalies anomalies = DeliveryOrderTracker.getAnomalies();
+        Assert.assertEquals(1, anomalies.getReorderings());
+        Assert.assertEquals(1, anomalies.getDuplicates());
+        Assert.assertEquals(Arrays.asList("token"), anomalies.getReorderingSample());
+    }
+
+    @Test
+    public void reorderingBeyondWindowTest() {
+        int[] messages = new int[70];
+        for (int i = 0; i < messages.length; i++) {
+            messages[i] = i;
+        }
+        deliver("other", messages);
+
+        deliver("token", 69, 0, 0);
+
+        // the window no longer covers message 0, so the second delivery can not be told from the first
+        DeliveryAnomalies anomalies = DeliveryOrderTracker.getAnomalies();
+        Assert.assertEquals(2, anomalies.getReorderings());
+        Assert.assertEquals(0, anomalies.getDuplicates());
+    }
+
+    @Test
+    public void tableGrowthTest() {
+        // spread over 64 segments this is several times their initial capacity
+        int tokens = 200000;
+        deliver("other", 0, 1);
+        for (int i = 0; i < tokens; i++) {
+            deliver("token" + i, 1);
+        }
+        for (int i = 0; i < tokens; i++) {
+            deliver("token" + i, 0);
+        }
+        for (int i = 0; i < tokens; i += 2) {
+            deliver("token" + i, 0);
+        }
+
+        DeliveryAnomalies anomalies = DeliveryOrderTracker.getAnomalies();
+        Assert.assertEquals(tokens + 1, anomalies.getTrackedTokens());
+        Assert.assertEquals(tokens, anomalies.getReorderings());
+        Assert.assertEquals(tokens / 2, anomalies.getDuplicates());
+        Assert.assertEquals(DeliveryAnomalies.SAMPLE_SIZE, anomalies.getDuplicateSample().size());
+    }
+
+    @Test
+    public void maxTrackedTokensTest() {
+        DeliveryOrderTracker.setMaxTrackedTokens(10);
+        DeliveryOrderTracker.clear();
+
+        for (int i = 0; i < 25; i++) {
+            deliver("token" + i, 0, 0);
+        }
+
+        DeliveryAnomalies anomalies = DeliveryOrderTracker.getAnomalies();
+        Assert.assertEquals(10, anomalies.getTrackedTokens());
+        Assert.assertEquals(30, anomalies.getUntrackedTokens());
+        Assert.assertEquals(10, anomalies.getDuplicates());
+    }
+
+    @Test
+    public void disabledTest() {
+        DeliveryOrderTracker.setMaxTrackedTokens(0);
+        DeliveryOrderTracker.clear();
+
+        deliver("token", 0, 0);
+
+        DeliveryAnomalies anomalies = DeliveryOrderTracker.getAnomalies();
+        Assert.assertEquals(0, anomalies.getTrackedTokens());
+        Assert.assertEquals(0, anomalies.getUntrackedTokens());
+        Assert.assertEquals(0, anomalies.getDuplicates());
+    }
+
+    @Test
+    public void maxTrackedMessagesTest() {
+        for (int i = 0; i < DeliveryOrderTracker.MAX_TRACKED_MESSAGES; i++) {
+            deliver("token", i);
+        }
+
+        // past the limit messages are not checked but counted
+        int untracked = DeliveryOrderTracker.MAX_TRACKED_MESSAGES;
+        deliver("other", untracked, untracked, untracked + 1);
+        DeliveryAnomalies anomalies = DeliveryOrderTracker.getAnomalies();
+        Assert.assertEquals(0, anomalies.getDuplicates());
+        Assert.assertEquals(3, anomalies.getUntrackedTokens());
+        Assert.assertEquals(1, anomalies.getTrackedTokens());
+
+        // messages seen before the limit are still checked
+        deliver("other", 1, 0);
+        Assert.assertEquals(1, DeliveryOrderTracker.getAnomalies().getReorderings());
+        deliver("token", DeliveryOrderTracker.MAX_TRACKED_MESSAGES - 1);
+        Assert.assertEquals(1, DeliveryOrderTracker.getAnomalies().getDuplicates());
+    }
+
+    @Test
+    public void gcmMulticastTest() {
+        Map<String, String> data = new HashMap<String, String>();
+        data.put(DeliveryOrderTracker.PUSH_MESSAGE_ID, "message");
+
+        GCMNotification notification = new GCMNotification();
+        notification.setData(data);
+        notification.setRegistrationIds(Arrays.asList("token1", "token2"));
+
+        DeliveryOrderTracker.onGcmNotification(notification);
+        DeliveryOrderTracker.onGcmNotification(notification);
+
+        DeliveryAnomalies anomalies = DeliveryOrderTracker.getAnomalies();
+        Assert.assertEquals(2, anomalies.getTrackedTokens());
+        Assert.assertEquals(2, anomalies.getDuplicates());
+    }
+
+    @Test
+    public void parsePushMessageIdTest() {
+        Assert.assertEquals("abc", DeliveryOrderTracker.parsePushMessageId(
+            "{\"aps\":{\"alert\":\"hi\"},\"aerogear-push-id\":\"abc\"}"));
+        Assert.assertEquals("abc", DeliveryOrderTracker.parsePushMessageId("{\"aerogear-push-id\" :  \"abc\"}"));
+        Assert.assertEquals("42", DeliveryOrderTracker.parsePushMessageId("{\"aerogear-push-id\":42,\"a\":1}"));
+        Assert.assertEquals("42", DeliveryOrderTracker.parsePushMessageId("{\"aerogear-push-id\": 42 }"));
+        Assert.assertNull(DeliveryOrderTracker.parsePushMessageId("{\"aps\":{\"alert\":\"hi\"}}"));
+        Assert.assertNull(DeliveryOrderTracker.parsePushMessageId("{\"aerogear-push-id\""));
+        Assert.assertNull(DeliveryOrderTracker.parsePushMessageId("{\"aerogear-push-id\":\"\"}"));
+    }
+
+    private static void deliver(String token, int... messages) {
+        for (int message : messages) {
+            String payload = "{\"aps\":{\"alert\":\"hi\"},\"" + DeliveryOrderTracker.PUSH_MESSAGE_ID + "\":\"" + message
+                + "\"}";
+            DeliveryOrderTracker.onApnsNotification(new ApnsNotification(1, token, payload));
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package org.jboss.aerogear.proxy.reconciliation;
+
+import java.util.Arrays;
+
+import org.jboss.aerogear.proxy.endpoint.model.TokenHashes;
+import org.jboss.aerogear.proxy.endpoint.model.TokenReconciliation;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+
+@RunWith(JUnit4.class)
+public class TokenReconcilerTestCase {
+
+    @After
+    public void clearDeliveredTokens() {
+        DeliveredTokens.setMaxChunks(DeliveredTokens.DEFAULT_MAX_CHUNKS);
+        DeliveredTokens.clear();
+    }
+
+    @Test
+    public void exactlyOnceTest() {
+        TokenReconciliation result = TokenReconciler.reconcile(new long[] { 1, 2, 3 }, new long[] { 1, 2, 3 });
+
+        Assert.assertTrue(result.isExactlyOnce());
+        Assert.assertEquals(3, result.getExpected());
+        Assert.assertEquals(3, result.getDelivered());
+        Assert.assertEquals(3, result.getNotified());
+    }
+
+    @Test
+    public void duplicatesTest() {
+        TokenReconciliation result = TokenReconciler.reconcile(new long[] { 1, 1, 2, 3 }, new long[] { 1, 2, 2, 2, 3 });
+
+        // a duplicated expected token counts once, a duplicated delivery counts per token
+        Assert.assertEquals(3, result.getExpected());
+        Assert.assertEquals(5, result.getDelivered());
+        Assert.assertEquals(3, result.getDeliveredDistinct());
+        Assert.assertEquals(3, result.getNotified());
+        Assert.assertEquals(1, result.getDuplicated());
+        Assert.assertEquals(Arrays.asList(TokenHashes.toHex(2)), result.getDuplicatedSample());
+        Assert.assertFalse(result.isExactlyOnce());
+    }
+
+    @Test
+    public void missingTokensTest() {
+        TokenReconciliation result = TokenReconciler.reconcile(new long[] { 1, 2, 3, 4 }, new long[] { 2, 4 });
+
+        Assert.assertEquals(2, result.getNotified());
+        Assert.assertEquals(2, result.getMissing());
+        Assert.assertEquals(Arrays.asList(TokenHashes.toHex(1), TokenHashes.toHex(3)), result.getMissingSample());
+        Assert.assertEquals(0, result.getUnexpected());
+    }
+
+    @Test
+    public void unexpectedTokensTest() {
+        TokenReconciliation result = TokenReconciler.reconcile(new long[] { 2 }, new long[] { -5, 2, 7, 7 });
+
+        Assert.assertEquals(1, result.getNotified());
+        Assert.assertEquals(2, result.getUnexpected());
+        Assert.assertEquals(Arrays.asList(TokenHashes.toHex(-5), TokenHashes.toHex(7)), result.getUnexpectedSample());
+        // an unexpected token delivered twice is a duplicate as well
+        Assert.assertEquals(1, result.getDuplicated());
+    }
+
+    @Test
+    public void samplesAreBoundedTest() {
+        long[] expected = new long[TokenReconciliation.SAMPLE_SIZE * 3];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = i + 1;
+        }
+
+        TokenReconciliation result = TokenReconciler.reconcile(expected, new long[0]);
+
+        Assert.assertEquals(expected.length, result.getMissing());
+        Assert.assertEquals(TokenReconciliation.SAMPLE_SIZE, result.getMissingSample().size());
+    }
+
+    @Test
+    public void textBodyTest() {
+        DeliveredTokens.add("token1");
+        DeliveredTokens.add("token2");
+
+        TokenReconciler reconciler = new TokenReconciler(false);
+        // the second token is split between chunks, the last one has no line end
+        reconciler.update(text("token1\r\ntok"));
+        reconciler.update(text("en2\n\n  token3"));
+
+        TokenReconciliation result = reconciler.reconcile();
+
+        Assert.assertEquals(3, result.getExpected());
+        Assert.assertEquals(2, result.getNotified());
+        Assert.assertEquals(Arrays.asList(TokenHashes.toHex(TokenHashes.hash("token3"))), result.getMissingSample());
+    }
+
+    @Test
+    public void hashSplitAcrossChunksTest() {
+        DeliveredTokens.add("token1");
+        DeliveredTokens.add("token2");
+        DeliveredTokens.add("token3");
+
+        ByteBuf body = Unpooled.buffer();
+        body.writeLong(TokenHashes.hash("token1"));
+        body.writeLong(TokenHashes.hash("token2"));
+        body.writeLong(TokenHashes.hash("token3"));
+
+        TokenReconciler reconciler = new TokenReconciler(true);
+        // chunks of 5, 1, 12 and 6 bytes, the second hash is split three ways
+        reconciler.update(body.readSlice(5));
+        reconciler.update(body.readSlice(1));
+        reconciler.update(body.readSlice(12));
+        reconciler.update(body.readSlice(6));
+
+        TokenReconciliation result = reconciler.reconcile();
+
+        Assert.assertTrue(result.toString(), result.isExactlyOnce());
+        Assert.assertEquals(3, result.getExpected());
+        Assert.assertEquals(3, result.getNotified());
+    }
+
+    @Test
+    public void deliveredTokensSnapshotTest() {
+        DeliveredTokens.add("b");
+        DeliveredTokens.add("a");
+        DeliveredTokens.add("b");
+        DeliveredTokens.add(null);
+
+        long[] expected = { TokenHashes.hash("a"), TokenHashes.hash("b"), TokenHashes.hash("b") };
+        Arrays.sort(expected);
+
+        Assert.assertArrayEquals(expected, DeliveredTokens.sortedSnapshot());
+
+        DeliveredTokens.clear();
+        Assert.assertEquals(0, DeliveredTokens.sortedSnapshot().length);
+    }
+
+    @Test
+    public void fullIndexDropsDeliveriesTest() {
+        DeliveredTokens.setMaxChunks(1);
+        DeliveredTokens.clear();
+
+        int capacity = 1 << 16;
+        for (int i = 0; i < capacity + 5; i++) {
+            DeliveredTokens.add("token" + i);
+        }
+
+        Assert.assertEquals(capacity, DeliveredTokens.sortedSnapshot().length);
+        Assert.assertEquals(5, DeliveredTokens.dropped());
+
+        TokenReconciler reconciler = new TokenReconciler(false);
+        reconciler.update(text("token0\n"));
+        TokenReconciliation result = reconciler.reconcile();
+
+        Assert.assertEquals(5, result.getDropped());
+        Assert.assertFalse(result.isExactlyOnce());
+
+        DeliveredTokens.clear();
+        Assert.assertEquals(0, DeliveredTokens.dropped());
+    }
+
+    private static ByteBuf text(String text) {
+        return Unpooled.copiedBuffer(text, CharsetUtil.US_ASCII);
+    }
+}
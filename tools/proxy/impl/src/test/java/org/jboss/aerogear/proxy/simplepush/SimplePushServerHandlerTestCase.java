@@ -0,0 +1,92 @@
+package org.jboss.aerogear.proxy.simplepush;
+
+import static io.netty.handler.codec.http.HttpHeaderNames.HOST;
+
+import java.util.List;
+
+import org.jboss.aerogear.proxy.endpoint.model.SimplePushNotification;
+import org.jboss.aerogear.proxy.endpoint.model.TokenHashes;
+import org.jboss.aerogear.proxy.reconciliation.DeliveredTokens;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.util.CharsetUtil;
+
+@RunWith(JUnit4.class)
+public class SimplePushServerHandlerTestCase {
+
+    // what installations carry as their device token
+    private static final String ENDPOINT = "http://localhost:8081/endpoint/0123456789abcdef";
+
+    @After
+    public void clearRegisters() {
+        SimplePushNotificationRegister.clear();
+        DeliveredTokens.clear();
+    }
+
+    @Test
+    public void originFormEndpointTest() {
+        Assert.assertEquals(ENDPOINT, SimplePushServerHandler.parseEndpoint(
+            request("/endpoint/0123456789abcdef", "localhost:8081")));
+    }
+
+    @Test
+    public void absoluteFormEndpointTest() {
+        Assert.assertEquals(ENDPOINT, SimplePushServerHandler.parseEndpoint(request(ENDPOINT, "ignored:1")));
+        Assert.assertEquals(ENDPOINT, SimplePushServerHandler.parseEndpoint(request(ENDPOINT, null)));
+    }
+
+    @Test
+    public void missingEndpointTest() {
+        Assert.assertEquals("", SimplePushServerHandler.parseEndpoint(request("/", "localhost:8081")));
+        Assert.assertEquals("", SimplePushServerHandler.parseEndpoint(request("/?version=1", "localhost:8081")));
+        Assert.assertEquals("", SimplePushServerHandler.parseEndpoint(request("http://localhost:8081/", null)));
+        Assert.assertEquals("", SimplePushServerHandler.parseEndpoint(request("http://localhost:8081?a=/b", null)));
+        Assert.assertEquals("", SimplePushServerHandler.parseEndpoint(request("/endpoint/0123", null)));
+    }
+
+    @Test
+    public void deliveredEndpointMatchesInstallationTest() {
+        EmbeddedChannel channel = new EmbeddedChannel(new SimplePushServerHandler());
+
+        FullHttpRequest request = request("/endpoint/0123456789abcdef", "localhost:8081");
+        request.content().writeBytes("version=42".getBytes(CharsetUtil.US_ASCII));
+        channel.writeInbound(request);
+        channel.flush();
+
+        FullHttpResponse response = channel.readOutbound();
+        try {
+            Assert.assertEquals(HttpResponseStatus.OK, response.status());
+        } finally {
+            response.release();
+            channel.finish();
+        }
+
+        List<SimplePushNotification> notifications = SimplePushNotificationRegister.getNotifications();
+        Assert.assertEquals(1, notifications.size());
+        Assert.assertEquals(new SimplePushNotification(ENDPOINT, 42), notifications.get(0));
+
+        // reconciliation compares hashes of installation tokens with the delivered ones
+        Assert.assertArrayEquals(new long[] { TokenHashes.hash(ENDPOINT) }, DeliveredTokens.sortedSnapshot());
+    }
+
+    private static FullHttpRequest request(String uri, String host) {
+        FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.PUT, uri,
+            Unpooled.buffer());
+        if (host != null) {
+            request.headers().set(HOST, host);
+        }
+        return request;
+    }
+}
@@ -0,0 +1,263 @@
+package org.jboss.aerogear.proxy.sink;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import org.jboss.aerogear.proxy.endpoint.model.ApnsNotification;
+import org.jboss.aerogear.proxy.endpoint.model.GCMNotification;
+import org.jboss.aerogear.proxy.endpoint.model.SimplePushNotification;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class NotificationJournalTestCase {
+
+    private File file;
+
+    @Before
+    public void createFile() throws IOException {
+        file = File.createTempFile("notification-journal", ".bin");
+        file.delete();
+    }
+
+    @After
+    public void deleteFile() {
+        file.delete();
+    }
+
+    @Test
+    public void apnsRoundTripTest() throws IOException {
+        ApnsNotification notification = new ApnsNotification(2, 42, 1400000000, "token", "{\"aps\":{}}", (byte) 10);
+
+        write(JournalFormat.encode(notification, 1000L));
+
+        RecordingSink sink = replay(1);
+        ApnsNotification read = sink.apns.get(0);
+        Assert.assertEquals(notification, read);
+        Assert.assertEquals(42, read.getIdentifier());
+        Assert.assertEquals(1400000000, read.getExpiry());
+        Assert.assertEquals(10, read.getPriority());
+    }
+
+    @Test
+    public void gcmRoundTripTest() throws IOException {
+        Map<String, String> data = new LinkedHashMap<String, String>();
+        data.put("alert", "Hello");
+        data.put("sound", "default");
+
+        GCMNotification notification = new GCMNotification();
+        notification.setData(data);
+        notification.setRegistrationIds(Arrays.asList("token1", "token2"));
+        notification.setCollapseKey("key");
+        notification.setDelayWhileIdle(true);
+        notification.setTimeToLive(3600);
+
+        write(JournalFormat.encode(notification, 1000L));
+
+        Assert.assertEquals(notification, replay(1).gcm.get(0));
+    }
+
+    @Test
+    public void gcmWithoutOptionalFieldsRoundTripTest() throws IOException {
+        GCMNotification notification = new GCMNotification();
+        notification.setRegistrationIds(Arrays.asList("token"));
+
+        write(JournalFormat.encode(notification, 1000L));
+
+        GCMNotification read = replay(1).gcm.get(0);
+        Assert.assertNull(read.getCollapseKey());
+        Assert.assertNull(read.getData());
+        Assert.assertNull(read.getDelayWhileIdle());
+        Assert.assertNull(read.getTimeToLive());
+        Assert.assertEquals(Arrays.asList("token"), read.getDeviceTokens());
+    }
+
+    @Test
+    public void simplePushRoundTripTest() throws IOException {
+        SimplePushNotification notification = new SimplePushNotification("endpoint/\u00e9t\u00e9", 7);
+
+        write(JournalFormat.encode(notification, 1000L), JournalFormat.encode(notification, 2000L));
+
+        NotificationJournalReader reader = new NotificationJournalReader(file);
+        RecordingSink sink = new RecordingSink();
+        try {
+            Assert.assertEquals(2, reader.replay(sink));
+            Assert.assertEquals(1000L, reader.getFirstTime());
+            Assert.assertEquals(2000L, reader.getLastTime());
+        } finally {
+            reader.close();
+        }
+        Assert.assertEquals(notification, sink.simplePush.get(0));
+    }
+
+    @Test
+    public void truncatedTrailingRecordTest() throws IOException {
+        byte[] first = JournalFormat.encode(new SimplePushNotification("first", 1), 1000L);
+        byte[] second = JournalFormat.encode(new SimplePushNotification("second", 2), 2000L);
+
+        write(first, Arrays.copyOf(second, second.length - 3));
+
+        NotificationJournalReader reader = new NotificationJournalReader(file);
+        RecordingSink sink = new RecordingSink();
+        try {
+            Assert.assertEquals(1, reader.replay(sink));
+            Assert.assertTrue(reader.isTruncated());
+            Assert.assertEquals(0, reader.getCorruptedRecords());
+        } finally {
+            reader.close();
+        }
+        Assert.assertEquals("first", sink.simplePush.get(0).getEndpoint());
+    }
+
+    @Test
+    public void crcMismatchTest() throws IOException {
+        byte[] first = JournalFormat.encode(new SimplePushNotification("first", 1), 1000L);
+        byte[] second = JournalFormat.encode(new SimplePushNotification("second", 2), 2000L);
+        byte[] third = JournalFormat.encode(new SimplePushNotification("third", 3), 3000L);
+
+        // flip a byte of the version, the length stays intact so the reader can skip the record
+        second[second.length - 10] ^= 0x01;
+
+        write(first, second, third);
+
+        NotificationJournalReader reader = new NotificationJournalReader(file);
+        RecordingSink sink = new RecordingSink();
+        try {
+            Assert.assertEquals(2, reader.replay(sink));
+            Assert.assertEquals(1, reader.getCorruptedRecords());
+            Assert.assertFalse(reader.isTruncated());
+        } finally {
+            reader.close();
+        }
+        Assert.assertEquals("first", sink.simplePush.get(0).getEndpoint());
+        Assert.assertEquals("third", sink.simplePush.get(1).getEndpoint());
+    }
+
+    @Test(expected = IOException.class)
+    public void wrongMagicTest() throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.write(new byte[] { 'N', 'O', 'P', 'E', JournalFormat.VERSION });
+        } finally {
+            raf.close();
+        }
+        new NotificationJournalReader(file).close();
+    }
+
+    @Test
+    public void journalRoundTripTest() throws IOException {
+        NotificationJournal journal = new NotificationJournal(file, 0);
+        journal.onApnsNotification(new ApnsNotification(1, "token", "payload"));
+        journal.onSimplePushNotification(new SimplePushNotification("endpoint", 1));
+        journal.close();
+
+        RecordingSink sink = replay(2);
+        Assert.assertEquals("token", sink.apns.get(0).getDeviceToken());
+        Assert.assertEquals("endpoint", sink.simplePush.get(0).getEndpoint());
+    }
+
+    @Test(timeout = 30000)
+    public void appendsRacingCloseTest() throws Exception {
+        final NotificationJournal journal = new NotificationJournal(file, 1000);
+        final int threads = 4;
+        final CountDownLatch started = new CountDownLatch(threads);
+
+        List<Thread> appenders = new ArrayList<Thread>();
+        for (int i = 0; i < threads; i++) {
+            final String endpoint = "endpoint" + i;
+            Thread appender = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    started.countDown();
+                    for (int version = 0; version < 100000; version++) {
+                        journal.onSimplePushNotification(new SimplePushNotification(endpoint, version));
+                    }
+                }
+            });
+            appender.start();
+            appenders.add(appender);
+        }
+
+        started.await();
+        journal.close();
+
+        // appends after close are dropped rather than blocking on a queue nobody drains
+        for (Thread appender : appenders) {
+            appender.join();
+        }
+
+        NotificationJournalReader reader = new NotificationJournalReader(file);
+        try {
+            reader.replay(new RecordingSink());
+            Assert.assertFalse(reader.isTruncated());
+            Assert.assertEquals(0, reader.getCorruptedRecords());
+        } finally {
+            reader.close();
+        }
+    }
+
+    private void write(byte[]... records) throws IOException {
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(JournalFormat.header());
+            for (byte[] record : records) {
+                out.write(record);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    private RecordingSink replay(int expectedRecords) throws IOException {
+        NotificationJournalReader reader = new NotificationJournalReader(file);
+        RecordingSink sink = new RecordingSink();
+        try {
+            Assert.assertEquals(expectedRecords, reader.replay(sink));
+            Assert.assertFalse(reader.isTruncated());
+            Assert.assertEquals(0, reader.getCorruptedRecords());
+        } finally {
+            reader.close();
+        }
+        return sink;
+    }
+
+    private static final class RecordingSink implements NotificationSink {
+
+        private final List<ApnsNotification> apns = new ArrayList<ApnsNotification>();
+
+        private final List<GCMNotification> gcm = new ArrayList<GCMNotification>();
+
+        private final List<SimplePushNotification> simplePush = new ArrayList<SimplePushNotification>();
+
+        @Override
+        public void onApnsNotification(ApnsNotification notification) {
+            apns.add(notification);
+        }
+
+        @Override
+        public void onGcmNotification(GCMNotification notification) {
+            gcm.add(notification);
+        }
+
+        @Override
+        public void onSimplePushNotification(SimplePushNotification notification) {
+            simplePush.add(notification);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package org.jboss.aerogear.proxy.endpoint.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.gson.Gson;
+
+/**
+ * Duplicate and out of order deliveries a proxy noticed since it was last cleared. A delivery is a duplicate when the
+ * token already got the same message, it is reordered when the token already got a message which reached the proxy
+ * later than this one.
+ */
+public class DeliveryAnomalies {
+
+    public static final int SAMPLE_SIZE = 20;
+
+    private long duplicates;
+
+    private long reorderings;
+
+    private long trackedTokens;
+
+    private long untrackedTokens;
+
+    private List<String> duplicateSample = new ArrayList<String>();
+
+    private List<String> reorderingSample = new ArrayList<String>();
+
+    public long getDuplicates() {
+        return duplicates;
+    }
+
+    public void setDuplicates(long duplicates) {
+        this.duplicates = duplicates;
+    }
+
+    public long getReorderings() {
+        return reorderings;
+    }
+
+    public void setReorderings(long reorderings) {
+        this.reorderings = reorderings;
+    }
+
+    public long getTrackedTokens() {
+        return trackedTokens;
+    }
+
+    public void setTrackedTokens(long trackedTokens) {
+        this.trackedTokens = trackedTokens;
+    }
+
+    /**
+     * @return number of deliveries which were not checked because the proxy already tracked as many tokens or as
+     *         many distinct messages as allowed
+     */
+    public long getUntrackedTokens() {
+        return untrackedTokens;
+    }
+
+    public void setUntrackedTokens(long untrackedTokens) {
+        this.untrackedTokens = untrackedTokens;
+    }
+
+    public List<String> getDuplicateSample() {
+        return duplicateSample;
+    }
+
+    public void setDuplicateSample(List<String> duplicateSample) {
+        this.duplicateSample = duplicateSample;
+    }
+
+    public List<String> getReorderingSample() {
+        return reorderingSample;
+    }
+
+    public void setReorderingSample(List<String> reorderingSample) {
+        this.reorderingSample = reorderingSample;
+    }
+
+    public boolean isEmpty() {
+        return duplicates == 0 && reorderings == 0;
+    }
+
+    /**
+     * Adds up anomalies of proxies serving disjoint sets of tokens, e.g. of different platforms.
+     */
+    public static DeliveryAnomalies merge(DeliveryAnomalies... anomalies) {
+        DeliveryAnomalies merged = new DeliveryAnomalies();
+
+        for (DeliveryAnomalies item : anomalies) {
+            merged.duplicates += item.duplicates;
+            merged.reorderings += item.reorderings;
+            merged.trackedTokens += item.trackedTokens;
+            merged.untrackedTokens += item.untrackedTokens;
+            addSample(merged.duplicateSample, item.duplicateSample);
+            addSample(merged.reorderingSample, item.reorderingSample);
+        }
+
+        return merged;
+    }
+
+    private static void addSample(List<String> to, List<String> from) {
+        for (String token : from) {
+            if (to.size() == SAMPLE_SIZE) {
+                return;
+            }
+            to.add(token);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return new Gson().toJson(this);
+    }
+}
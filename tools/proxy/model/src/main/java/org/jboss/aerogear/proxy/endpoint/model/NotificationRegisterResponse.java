@@ -15,6 +15,10 @@ public class NotificationRegisterResponse {
 
     private List<GCMNotification> gcmNotifications = new ArrayList<GCMNotification>();
 
+    private List<SimplePushNotification> simplePushNotifications = new ArrayList<SimplePushNotification>();
+
+    private List<SimplePushEndpointStatistics> simplePushEndpoints = new ArrayList<SimplePushEndpointStatistics>();
+
     public List<ApnsNotification> getApnsNotifications() {
         return apnsNotifications;
     }
@@ -31,6 +35,22 @@ public class NotificationRegisterResponse {
         this.gcmNotifications = gcmNotifications;
     }
 
+    public List<SimplePushNotification> getSimplePushNotifications() {
+        return simplePushNotifications;
+    }
+
+    public void setSimplePushNotifications(List<SimplePushNotification> simplePushNotifications) {
+        this.simplePushNotifications = simplePushNotifications;
+    }
+
+    public List<SimplePushEndpointStatistics> getSimplePushEndpoints() {
+        return simplePushEndpoints;
+    }
+
+    public void setSimplePushEndpoints(List<SimplePushEndpointStatistics> simplePushEndpoints) {
+        this.simplePushEndpoints = simplePushEndpoints;
+    }
+
     @Override
     public String toString() {
         return new Gson().toJson(this);
@@ -32,6 +32,8 @@ public class NotificationRegisterResponseHelper {
         for (final NotificationRegisterResponse response : responses) {
             mergedNotificationRegisterResponse.getApnsNotifications().addAll(response.getApnsNotifications());
             mergedNotificationRegisterResponse.getGcmNotifications().addAll(response.getGcmNotifications());
+            mergedNotificationRegisterResponse.getSimplePushNotifications().addAll(response.getSimplePushNotifications());
+            mergedNotificationRegisterResponse.getSimplePushEndpoints().addAll(response.getSimplePushEndpoints());
         }
 
         return mergedNotificationRegisterResponse;
@@ -0,0 +1,83 @@
+package org.jboss.aerogear.proxy.endpoint.model;
+
+import com.google.gson.Gson;
+
+/**
+ * Summary of the updates one SimplePush endpoint received.
+ */
+public class SimplePushEndpointStatistics {
+
+    private String endpoint;
+
+    private long count;
+
+    private long lastVersion;
+
+    private long firstReceived;
+
+    private long lastReceived;
+
+    private long maxHandlingNanos;
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public void setEndpoint(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public long getLastVersion() {
+        return lastVersion;
+    }
+
+    public void setLastVersion(long lastVersion) {
+        this.lastVersion = lastVersion;
+    }
+
+    /**
+     * @return time in milliseconds since epoch the first update arrived
+     */
+    public long getFirstReceived() {
+        return firstReceived;
+    }
+
+    public void setFirstReceived(long firstReceived) {
+        this.firstReceived = firstReceived;
+    }
+
+    /**
+     * @return time in milliseconds since epoch the last update arrived
+     */
+    public long getLastReceived() {
+        return lastReceived;
+    }
+
+    public void setLastReceived(long lastReceived) {
+        this.lastReceived = lastReceived;
+    }
+
+    /**
+     * @return longest time the mock spent answering an update of this endpoint
+     */
+    public long getMaxHandlingNanos() {
+        return maxHandlingNanos;
+    }
+
+    public void setMaxHandlingNanos(long maxHandlingNanos) {
+        this.maxHandlingNanos = maxHandlingNanos;
+    }
+
+    @Override
+    public String toString() {
+        return new Gson().toJson(this);
+    }
+}
@@ -0,0 +1,62 @@
+package org.jboss.aerogear.proxy.endpoint.model;
+
+import com.google.gson.Gson;
+
+/**
+ * Version update received by SimplePush endpoint mock.
+ */
+public class SimplePushNotification {
+
+    private final String endpoint;
+    private final long version;
+
+    /**
+     * @param endpoint URL the update was sent to, as installations carry it in their device token
+     * @param version version carried by the update
+     */
+    public SimplePushNotification(final String endpoint, final long version) {
+        this.endpoint = endpoint;
+        this.version = version;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public String toString() {
+        return new Gson().toJson(this);
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + ((endpoint == null) ? 0 : endpoint.hashCode());
+        result = prime * result + (int) (version ^ (version >>> 32));
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null)
+            return false;
+        if (getClass() != obj.getClass())
+            return false;
+        SimplePushNotification other = (SimplePushNotification) obj;
+        if (endpoint == null) {
+            if (other.endpoint != null)
+                return false;
+        } else if (!endpoint.equals(other.endpoint))
+            return false;
+        if (version != other.version)
+            return false;
+        return true;
+    }
+}
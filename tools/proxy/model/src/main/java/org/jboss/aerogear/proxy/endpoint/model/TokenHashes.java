@@ -0,0 +1,49 @@
+package org.jboss.aerogear.proxy.endpoint.model;
+
+import java.nio.charset.Charset;
+
+/**
+ * 64 bit hashes device tokens are reconciled by. The proxy and its clients have to hash the same way, so the function
+ * lives in the model. At five million tokens the chance of any two colliding is below one in a million.
+ *
+ * The hash is FNV-1a over the UTF-8 bytes of the token followed by the MurmurHash3 finalizer. It can be computed
+ * incrementally, which lets the proxy hash tokens while reading them from a request body. Zero is never returned, it
+ * marks an empty slot.
+ */
+public final class TokenHashes {
+
+    public static final long INITIAL = 0xcbf29ce484222325L;
+
+    private static final long PRIME = 0x100000001b3L;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private TokenHashes() {
+    }
+
+    public static long hash(String token) {
+        long hash = INITIAL;
+        for (byte b : token.getBytes(UTF_8)) {
+            hash = update(hash, b);
+        }
+        return finish(hash);
+    }
+
+    public static long update(long hash, byte b) {
+        return (hash ^ (b & 0xFF)) * PRIME;
+    }
+
+    public static long finish(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash == 0 ? 1 : hash;
+    }
+
+    public static String toHex(long hash) {
+        String hex = Long.toHexString(hash);
+        return hex.length() == 16 ? hex : "0000000000000000".substring(hex.length()) + hex;
+    }
+}
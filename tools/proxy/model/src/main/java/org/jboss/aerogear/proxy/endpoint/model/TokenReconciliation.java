@@ -0,0 +1,210 @@
+package org.jboss.aerogear.proxy.endpoint.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.gson.Gson;
+
+/**
+ * Result of comparing the tokens a proxy delivered notifications to with the tokens it was expected to deliver to.
+ * Tokens are compared by {@link TokenHashes}, samples hold hex hashes of up to {@link #SAMPLE_SIZE} offending tokens,
+ * clients knowing the tokens can map them back with {@link #resolveSamples(Iterable)}.
+ */
+public class TokenReconciliation {
+
+    public static final int SAMPLE_SIZE = 10;
+
+    private long expected;
+
+    private long delivered;
+
+    private long deliveredDistinct;
+
+    private long notified;
+
+    private long missing;
+
+    private long duplicated;
+
+    private long unexpected;
+
+    private long dropped;
+
+    private List<String> missingSample = new ArrayList<String>();
+
+    private List<String> duplicatedSample = new ArrayList<String>();
+
+    private List<String> unexpectedSample = new ArrayList<String>();
+
+    /**
+     * @return number of distinct expected tokens
+     */
+    public long getExpected() {
+        return expected;
+    }
+
+    public void setExpected(long expected) {
+        this.expected = expected;
+    }
+
+    /**
+     * @return number of deliveries, a token notified twice counts twice
+     */
+    public long getDelivered() {
+        return delivered;
+    }
+
+    public void setDelivered(long delivered) {
+        this.delivered = delivered;
+    }
+
+    public long getDeliveredDistinct() {
+        return deliveredDistinct;
+    }
+
+    public void setDeliveredDistinct(long deliveredDistinct) {
+        this.deliveredDistinct = deliveredDistinct;
+    }
+
+    /**
+     * @return number of expected tokens notified at least once
+     */
+    public long getNotified() {
+        return notified;
+    }
+
+    public void setNotified(long notified) {
+        this.notified = notified;
+    }
+
+    /**
+     * @return number of expected tokens not notified
+     */
+    public long getMissing() {
+        return missing;
+    }
+
+    public void setMissing(long missing) {
+        this.missing = missing;
+    }
+
+    /**
+     * @return number of tokens, expected or not, notified more than once
+     */
+    public long getDuplicated() {
+        return duplicated;
+    }
+
+    public void setDuplicated(long duplicated) {
+        this.duplicated = duplicated;
+    }
+
+    /**
+     * @return number of distinct notified tokens which were not expected
+     */
+    public long getUnexpected() {
+        return unexpected;
+    }
+
+    public void setUnexpected(long unexpected) {
+        this.unexpected = unexpected;
+    }
+
+    /**
+     * @return number of deliveries the proxy could not index and which are not reconciled
+     */
+    public long getDropped() {
+        return dropped;
+    }
+
+    public void setDropped(long dropped) {
+        this.dropped = dropped;
+    }
+
+    public List<String> getMissingSample() {
+        return missingSample;
+    }
+
+    public void setMissingSample(List<String> missingSample) {
+        this.missingSample = missingSample;
+    }
+
+    public List<String> getDuplicatedSample() {
+        return duplicatedSample;
+    }
+
+    public void setDuplicatedSample(List<String> duplicatedSample) {
+        this.duplicatedSample = duplicatedSample;
+    }
+
+    public List<String> getUnexpectedSample() {
+        return unexpectedSample;
+    }
+
+    public void setUnexpectedSample(List<String> unexpectedSample) {
+        this.unexpectedSample = unexpectedSample;
+    }
+
+    /**
+     * @return true when every expected token was notified exactly once and no other token was notified
+     */
+    public boolean isExactlyOnce() {
+        return missing == 0 && duplicated == 0 && unexpected == 0 && dropped == 0;
+    }
+
+    /**
+     * Replaces hashes in the samples by the tokens they were computed from, hashes of unknown tokens are kept.
+     */
+    public void resolveSamples(Iterable<String> tokens) {
+        for (String token : tokens) {
+            String hash = TokenHashes.toHex(TokenHashes.hash(token));
+            replace(missingSample, hash, token);
+            replace(duplicatedSample, hash, token);
+            replace(unexpectedSample, hash, token);
+        }
+    }
+
+    /**
+     * Adds up reconciliations of proxies serving disjoint sets of tokens, e.g. of different platforms.
+     */
+    public static TokenReconciliation merge(TokenReconciliation... reconciliations) {
+        TokenReconciliation merged = new TokenReconciliation();
+
+        for (TokenReconciliation reconciliation : reconciliations) {
+            merged.expected += reconciliation.expected;
+            merged.delivered += reconciliation.delivered;
+            merged.deliveredDistinct += reconciliation.deliveredDistinct;
+            merged.notified += reconciliation.notified;
+            merged.missing += reconciliation.missing;
+            merged.duplicated += reconciliation.duplicated;
+            merged.unexpected += reconciliation.unexpected;
+            merged.dropped += reconciliation.dropped;
+            addSample(merged.missingSample, reconciliation.missingSample);
+            addSample(merged.duplicatedSample, reconciliation.duplicatedSample);
+            addSample(merged.unexpectedSample, reconciliation.unexpectedSample);
+        }
+
+        return merged;
+    }
+
+    private static void replace(List<String> sample, String hash, String token) {
+        int index = sample.indexOf(hash);
+        if (index >= 0) {
+            sample.set(index, token);
+        }
+    }
+
+    private static void addSample(List<String> to, List<String> from) {
+        for (String item : from) {
+            if (to.size() == SAMPLE_SIZE) {
+                return;
+            }
+            to.add(item);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return new Gson().toJson(this);
+    }
+}
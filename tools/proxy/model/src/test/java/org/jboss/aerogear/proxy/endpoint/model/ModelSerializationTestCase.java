@@ -24,6 +24,17 @@ public class ModelSerializationTestCase {
         Assert.assertEquals(notification, demarshalled);
     }
 
+    @Test
+    public void simplePushNotificationSerializationTest() {
+        SimplePushNotification notification = new SimplePushNotification("endpoint", 42);
+
+        String marshalled = notification.toString();
+
+        SimplePushNotification demarshalled = new Gson().fromJson(marshalled, SimplePushNotification.class);
+
+        Assert.assertEquals(notification, demarshalled);
+    }
+
     @Test
     public void gcmNotificationSerializationTest() {
         GCMNotification notification = new GCMNotification();
@@ -1,13 +1,21 @@
 package org.jboss.aerogear.test.api.extension;
 
+import java.nio.ByteBuffer;
+import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 
 import org.apache.http.HttpStatus;
+import org.jboss.aerogear.proxy.endpoint.model.DeliveryAnomalies;
 import org.jboss.aerogear.proxy.endpoint.model.NotificationRegisterResponse;
 import org.jboss.aerogear.proxy.endpoint.model.NotificationRegisterResponseHelper;
+import org.jboss.aerogear.proxy.endpoint.model.TokenHashes;
+import org.jboss.aerogear.proxy.endpoint.model.TokenReconciliation;
+import org.jboss.aerogear.test.Session;
 import org.jboss.aerogear.test.UnexpectedResponseException;
 import org.jboss.aerogear.test.Utilities;
 
@@ -15,7 +23,6 @@ import com.google.gson.Gson;
 import com.jayway.awaitility.Awaitility;
 import com.jayway.awaitility.Duration;
 import com.jayway.awaitility.core.ConditionTimeoutException;
-import com.jayway.restassured.RestAssured;
 import com.jayway.restassured.response.Response;
 
 public class NotificationRegisterResponseRequest {
@@ -26,6 +33,9 @@ public class NotificationRegisterResponseRequest {
 
     private static final String DEFAULT_APNS_NOTIFICATION_ENDPOINT_PORT = "17001";
 
+    // sessions to the notification endpoints by port, kept for the JVM so their connections are reused by requests
+    private static final ConcurrentMap<String, Session> sessions = new ConcurrentHashMap<String, Session>();
+
     private final String gcmNotificationEndpointPort;
 
     private final String apnsNotificationEndpointPort;
@@ -53,8 +63,7 @@ public class NotificationRegisterResponseRequest {
 
         // gcm request
 
-        Response gcmProxyResponse = RestAssured.given()
-            .baseUri("http://127.0.0.1:" + gcmNotificationEndpointPort)
+        Response gcmProxyResponse = session(gcmNotificationEndpointPort).given()
             .contentType(Utilities.ContentTypes.json())
             .header(Utilities.Headers.acceptJson())
             .get();
@@ -65,8 +74,7 @@ public class NotificationRegisterResponseRequest {
 
         // apns request
 
-        Response apnsProxyResponse = RestAssured.given()
-            .baseUri("http://127.0.0.1:" + apnsNotificationEndpointPort)
+        Response apnsProxyResponse = session(apnsNotificationEndpointPort).given()
             .contentType(Utilities.ContentTypes.json())
             .header(Utilities.Headers.acceptJson())
             .get();
@@ -78,18 +86,33 @@ public class NotificationRegisterResponseRequest {
         return NotificationRegisterResponseHelper.merge(gcmNotificationRegisterResponse, apnsNotificationRegisterResponse);
     }
 
+    /**
+     * @return duplicate and out of order notifications both proxies noticed since they were last cleared
+     */
+    public DeliveryAnomalies getAnomalies() {
+        return DeliveryAnomalies.merge(getAnomalies(gcmNotificationEndpointPort), getAnomalies(apnsNotificationEndpointPort));
+    }
+
+    private DeliveryAnomalies getAnomalies(String port) {
+        Response response = session(port).given()
+            .header(Utilities.Headers.acceptJson())
+            .get("/anomalies");
+
+        UnexpectedResponseException.verifyResponse(response, HttpStatus.SC_OK);
+
+        return new Gson().fromJson(response.getBody().asString(), DeliveryAnomalies.class);
+    }
+
     public void clear() {
 
         // clearing GCM proxy
-        Response gcmProxyResponse = RestAssured.given()
-            .baseUri("http://127.0.0.1:" + gcmNotificationEndpointPort)
+        Response gcmProxyResponse = session(gcmNotificationEndpointPort).given()
             .contentType(Utilities.ContentTypes.json())
             .header(Utilities.Headers.acceptJson())
             .get("/clear");
 
         // clearing APNS
-        Response apnsProxyResponse = RestAssured.given()
-            .baseUri("http://127.0.0.1:" + apnsNotificationEndpointPort)
+        Response apnsProxyResponse = session(apnsNotificationEndpointPort).given()
             .contentType(Utilities.ContentTypes.json())
             .header(Utilities.Headers.acceptJson())
             .get("/clear");
@@ -98,6 +121,53 @@ public class NotificationRegisterResponseRequest {
         UnexpectedResponseException.verifyResponse(apnsProxyResponse, HttpStatus.SC_OK);
     }
 
+    /**
+     * Lets the proxies compare the tokens they delivered to with the expected ones. Only 64 bit hashes of the tokens are
+     * sent and compared, which keeps checking millions of tokens fast; samples of offending tokens in the result are
+     * resolved back to tokens where possible.
+     */
+    public TokenReconciliation reconcile(Collection<String> expectedGcmTokens, Collection<String> expectedApnsTokens) {
+        TokenReconciliation gcm = reconcile(gcmNotificationEndpointPort, expectedGcmTokens);
+        TokenReconciliation apns = reconcile(apnsNotificationEndpointPort, expectedApnsTokens);
+
+        TokenReconciliation reconciliation = TokenReconciliation.merge(gcm, apns);
+        reconciliation.resolveSamples(expectedGcmTokens);
+        reconciliation.resolveSamples(expectedApnsTokens);
+
+        return reconciliation;
+    }
+
+    private TokenReconciliation reconcile(String port, Collection<String> expectedTokens) {
+        ByteBuffer hashes = ByteBuffer.allocate(expectedTokens.size() * 8);
+        for (String token : expectedTokens) {
+            hashes.putLong(TokenHashes.hash(token));
+        }
+
+        Response response = session(port).given()
+            .contentType("application/octet-stream")
+            .header(Utilities.Headers.acceptJson())
+            .body(hashes.array())
+            .post("/reconcile");
+
+        UnexpectedResponseException.verifyResponse(response, HttpStatus.SC_OK);
+
+        return new Gson().fromJson(response.getBody().asString(), TokenReconciliation.class);
+    }
+
+    private static Session session(String port) {
+        Session session = sessions.get(port);
+        if (session == null) {
+            Session created = Session.newSession("http://127.0.0.1:" + port);
+            session = sessions.putIfAbsent(port, created);
+            if (session == null) {
+                session = created;
+            } else {
+                created.invalidate();
+            }
+        }
+        return session;
+    }
+
     public void await(final int expectedTokenCount, Duration timeout) {
 
         final AtomicInteger found = new AtomicInteger();
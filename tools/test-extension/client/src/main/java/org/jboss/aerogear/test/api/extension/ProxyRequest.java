@@ -0,0 +1,84 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.test.api.extension;
+
+import com.jayway.restassured.response.Response;
+import org.apache.http.HttpStatus;
+import org.jboss.aerogear.test.UnexpectedResponseException;
+import org.jboss.aerogear.test.Utilities;
+import org.jboss.aerogear.unifiedpush.test.ProxyConfig;
+import org.jboss.aerogear.unifiedpush.test.ProxyStatus;
+
+public class ProxyRequest extends AbstractTestExtensionRequest<ProxyRequest> {
+
+    private ProxyRequest() {
+    }
+
+    /**
+     * Activates the proxy with ports resolved from system properties, an active proxy is left running.
+     */
+    public ProxyStatus activate() {
+        Response response = getSession().given()
+                .header(Utilities.Headers.acceptJson())
+                .get("/proxy/activate");
+
+        UnexpectedResponseException.verifyResponse(response, HttpStatus.SC_OK);
+
+        return response.as(ProxyStatus.class);
+    }
+
+    /**
+     * (Re)starts the proxy and the mocks with given configuration. Ports set to 0 are allocated by the system, the
+     * returned status tells which ones were picked.
+     */
+    public ProxyStatus activate(ProxyConfig config) {
+        Response response = getSession().given()
+                .contentType(Utilities.ContentTypes.json())
+                .header(Utilities.Headers.acceptJson())
+                .body(config)
+                .post("/proxy/activate");
+
+        UnexpectedResponseException.verifyResponse(response, HttpStatus.SC_OK);
+
+        return response.as(ProxyStatus.class);
+    }
+
+    public ProxyStatus getStatus() {
+        Response response = getSession().given()
+                .header(Utilities.Headers.acceptJson())
+                .get("/proxy/status");
+
+        UnexpectedResponseException.verifyResponse(response, HttpStatus.SC_OK);
+
+        return response.as(ProxyStatus.class);
+    }
+
+    public ProxyStatus deactivate() {
+        Response response = getSession().given()
+                .header(Utilities.Headers.acceptJson())
+                .get("/proxy/deactivate");
+
+        UnexpectedResponseException.verifyResponse(response, HttpStatus.SC_OK);
+
+        return response.as(ProxyStatus.class);
+    }
+
+    public static ProxyRequest request() {
+        return new ProxyRequest();
+    }
+
+}
@@ -25,8 +25,10 @@ import com.jayway.restassured.response.Response;
 import org.apache.http.HttpStatus;
 import org.jboss.aerogear.test.UnexpectedResponseException;
 import org.jboss.aerogear.test.Utilities;
+import org.jboss.aerogear.unifiedpush.test.MessageStatistics;
 import org.jboss.aerogear.unifiedpush.test.SenderStatistics;
 
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -37,10 +39,23 @@ public class SenderStatisticsRequest extends AbstractTestExtensionRequest<Sender
     }
 
     public SenderStatistics get() {
+        return get(true);
+    }
+
+    /**
+     * Gets the statistics without the list of device tokens, only their count. Use it when millions of tokens are
+     * expected.
+     */
+    public SenderStatistics getAggregated() {
+        return get(false);
+    }
+
+    private SenderStatistics get(boolean includeTokens) {
 
         Response response = getSession().givenAuthorized()
                 .contentType(Utilities.ContentTypes.json())
                 .header(Utilities.Headers.acceptJson())
+                .queryParam("includeTokens", includeTokens)
                 .get("/senderStats");
 
         UnexpectedResponseException.verifyResponse(response, HttpStatus.SC_OK);
@@ -68,7 +83,16 @@ public class SenderStatisticsRequest extends AbstractTestExtensionRequest<Sender
             statistics.gcmMessage = builder.build();
         }
 
-        statistics.deviceTokens = jsonPath.getList("deviceTokens");
+        if (includeTokens) {
+            statistics.deviceTokens = jsonPath.getList("deviceTokens");
+        }
+        statistics.tokenCount = jsonPath.getLong("tokenCount");
+        List<Map<String, Object>> messages = jsonPath.getList("messages");
+        if (messages != null) {
+            for (Map<String, Object> message : messages) {
+                statistics.messages.add(toMessageStatistics(message));
+            }
+        }
         statistics.apnsPayload = jsonPath.getString("apnsPayload");
         statistics.apnsExpiry = jsonPath.getInt("apnsExpiry");
         statistics.gcmForChromeAlert = jsonPath.getString("gcmForChromeAlert");
@@ -76,6 +100,25 @@ public class SenderStatisticsRequest extends AbstractTestExtensionRequest<Sender
         return statistics;
     }
 
+    private static MessageStatistics toMessageStatistics(Map<String, Object> json) {
+        MessageStatistics message = new MessageStatistics();
+        message.platform = (String) json.get("platform");
+        message.payload = (String) json.get("payload");
+        message.count = ((Number) json.get("count")).longValue();
+        message.tokenCount = ((Number) json.get("tokenCount")).longValue();
+        message.firstReceived = ((Number) json.get("firstReceived")).longValue();
+        message.lastReceived = ((Number) json.get("lastReceived")).longValue();
+
+        @SuppressWarnings("unchecked")
+        Map<String, Number> variants = (Map<String, Number>) json.get("variants");
+        if (variants != null) {
+            for (Map.Entry<String, Number> variant : variants.entrySet()) {
+                message.variants.put(variant.getKey(), variant.getValue().longValue());
+            }
+        }
+        return message;
+    }
+
     public SenderStatistics getAndClear() {
         SenderStatistics statistics = get();
 
@@ -101,8 +144,7 @@ public class SenderStatisticsRequest extends AbstractTestExtensionRequest<Sender
             Awaitility.await().atMost(timeout).until(new Callable<Boolean>() {
                 @Override
                 public Boolean call() throws Exception {
-                    SenderStatistics statistics = get();
-                    found.set(statistics.deviceTokens != null ? statistics.deviceTokens.size() : 0);
+                    found.set((int) getAggregated().tokenCount);
                     return found.get() == expectedTokenCount;
                 }
             });
@@ -0,0 +1,42 @@
+package org.jboss.aerogear.unifiedpush.test;
+
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Min;
+
+/**
+ * Faults a push network mock injects. Failed notifications are not counted in the sender statistics, the same way the
+ * real network would not deliver them.
+ */
+public class FaultProfile {
+
+    @Min(0)
+    private int latencyMillis;
+
+    @DecimalMin("0.0")
+    @DecimalMax("1.0")
+    private double errorRate;
+
+    /**
+     * @return time the mock waits before answering, GCM delays the response, APNS delays reading the next notification
+     */
+    public int getLatencyMillis() {
+        return latencyMillis;
+    }
+
+    public void setLatencyMillis(int latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    /**
+     * @return share of requests which fail, GCM answers 503 Service Unavailable, APNS answers processing error and
+     *         closes the connection
+     */
+    public double getErrorRate() {
+        return errorRate;
+    }
+
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+}
@@ -0,0 +1,27 @@
+package org.jboss.aerogear.unifiedpush.test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Aggregated deliveries of one push message, i.e. of one distinct payload sent to one platform.
+ */
+public class MessageStatistics {
+
+    public static final String UNKNOWN_VARIANT = "unknown";
+
+    public String platform;
+    public String payload;
+    /**
+     * Number of APNS notifications or GCM requests carrying the message.
+     */
+    public long count;
+    public long tokenCount;
+    /**
+     * Counts per variant, the variant is identified by the GCM API key, APNS notifications are counted under
+     * {@link #UNKNOWN_VARIANT} since the mock can not tell the variant of an APNS connection.
+     */
+    public Map<String, Long> variants = new HashMap<String, Long>();
+    public long firstReceived;
+    public long lastReceived;
+}
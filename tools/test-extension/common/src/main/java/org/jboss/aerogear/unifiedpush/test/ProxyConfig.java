@@ -0,0 +1,128 @@
+package org.jboss.aerogear.unifiedpush.test;
+
+import javax.validation.Valid;
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+
+/**
+ * Configuration the proxy and the push network mocks are started with. Ports left out are resolved from system
+ * properties as when the proxy is activated without configuration, port 0 lets the system pick a free one, so several
+ * test runs can share one machine.
+ */
+public class ProxyConfig {
+
+    @Min(0)
+    @Max(65535)
+    private Integer httpProxyPort;
+
+    @Min(0)
+    @Max(65535)
+    private Integer gcmMockServerPort;
+
+    @Min(0)
+    @Max(65535)
+    private Integer apnsGatewayPort;
+
+    @Min(0)
+    @Max(65535)
+    private Integer apnsFeedbackPort;
+
+    @Min(0)
+    private int gcmWorkerThreads;
+
+    @DecimalMin("0.0")
+    @DecimalMax("1.0")
+    private double httpProxyCaptureRate;
+
+    @Valid
+    private FaultProfile gcmFaults;
+
+    @Valid
+    private FaultProfile apnsFaults;
+
+    @Valid
+    private TlsConfig tls;
+
+    public Integer getHttpProxyPort() {
+        return httpProxyPort;
+    }
+
+    public void setHttpProxyPort(Integer httpProxyPort) {
+        this.httpProxyPort = httpProxyPort;
+    }
+
+    public Integer getGcmMockServerPort() {
+        return gcmMockServerPort;
+    }
+
+    public void setGcmMockServerPort(Integer gcmMockServerPort) {
+        this.gcmMockServerPort = gcmMockServerPort;
+    }
+
+    public Integer getApnsGatewayPort() {
+        return apnsGatewayPort;
+    }
+
+    public void setApnsGatewayPort(Integer apnsGatewayPort) {
+        this.apnsGatewayPort = apnsGatewayPort;
+    }
+
+    public Integer getApnsFeedbackPort() {
+        return apnsFeedbackPort;
+    }
+
+    public void setApnsFeedbackPort(Integer apnsFeedbackPort) {
+        this.apnsFeedbackPort = apnsFeedbackPort;
+    }
+
+    /**
+     * @return worker threads of the GCM mock, 0 lets Netty use twice the number of cores
+     */
+    public int getGcmWorkerThreads() {
+        return gcmWorkerThreads;
+    }
+
+    public void setGcmWorkerThreads(int gcmWorkerThreads) {
+        this.gcmWorkerThreads = gcmWorkerThreads;
+    }
+
+    /**
+     * @return share of requests going through the HTTP proxy which are logged
+     */
+    public double getHttpProxyCaptureRate() {
+        return httpProxyCaptureRate;
+    }
+
+    public void setHttpProxyCaptureRate(double httpProxyCaptureRate) {
+        this.httpProxyCaptureRate = httpProxyCaptureRate;
+    }
+
+    public FaultProfile getGcmFaults() {
+        return gcmFaults;
+    }
+
+    public void setGcmFaults(FaultProfile gcmFaults) {
+        this.gcmFaults = gcmFaults;
+    }
+
+    public FaultProfile getApnsFaults() {
+        return apnsFaults;
+    }
+
+    public void setApnsFaults(FaultProfile apnsFaults) {
+        this.apnsFaults = apnsFaults;
+    }
+
+    /**
+     * @return TLS settings of the mocks, null for the defaults
+     */
+    public TlsConfig getTls() {
+        return tls;
+    }
+
+    public void setTls(TlsConfig tls) {
+        this.tls = tls;
+    }
+}
@@ -0,0 +1,67 @@
+package org.jboss.aerogear.unifiedpush.test;
+
+/**
+ * State of the proxy with the ports it actually listens on, ports are 0 while it is not active.
+ */
+public class ProxyStatus {
+
+    private boolean active;
+
+    private String httpProxyHost;
+
+    private int httpProxyPort;
+
+    private int gcmMockServerPort;
+
+    private int apnsGatewayPort;
+
+    private int apnsFeedbackPort;
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public void setActive(boolean active) {
+        this.active = active;
+    }
+
+    public String getHttpProxyHost() {
+        return httpProxyHost;
+    }
+
+    public void setHttpProxyHost(String httpProxyHost) {
+        this.httpProxyHost = httpProxyHost;
+    }
+
+    public int getHttpProxyPort() {
+        return httpProxyPort;
+    }
+
+    public void setHttpProxyPort(int httpProxyPort) {
+        this.httpProxyPort = httpProxyPort;
+    }
+
+    public int getGcmMockServerPort() {
+        return gcmMockServerPort;
+    }
+
+    public void setGcmMockServerPort(int gcmMockServerPort) {
+        this.gcmMockServerPort = gcmMockServerPort;
+    }
+
+    public int getApnsGatewayPort() {
+        return apnsGatewayPort;
+    }
+
+    public void setApnsGatewayPort(int apnsGatewayPort) {
+        this.apnsGatewayPort = apnsGatewayPort;
+    }
+
+    public int getApnsFeedbackPort() {
+        return apnsFeedbackPort;
+    }
+
+    public void setApnsFeedbackPort(int apnsFeedbackPort) {
+        this.apnsFeedbackPort = apnsFeedbackPort;
+    }
+}
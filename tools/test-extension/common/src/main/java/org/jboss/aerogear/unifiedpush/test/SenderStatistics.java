@@ -10,6 +10,12 @@ import java.util.ArrayList;
  */
 public class SenderStatistics {
     public List<String> deviceTokens = new ArrayList<String>();
+    /**
+     * Number of device tokens received, filled in even when the tokens themselves are left out of the view.
+     */
+    public long tokenCount;
+    public List<MessageStatistics> messages = new ArrayList<MessageStatistics>();
+    // the most recently received message of each platform
     public Message gcmMessage;
     public String apnsPayload;
     public int apnsExpiry;
@@ -0,0 +1,62 @@
+package org.jboss.aerogear.unifiedpush.test;
+
+import javax.validation.constraints.Min;
+import java.util.List;
+
+/**
+ * TLS settings of the push network mocks. Zero values and no ciphers keep the defaults of the provider.
+ */
+public class TlsConfig {
+
+    @Min(0)
+    private long sessionCacheSize;
+
+    @Min(0)
+    private long sessionTimeout;
+
+    private List<String> ciphers;
+
+    private boolean openSsl;
+
+    /**
+     * @return number of sessions kept for resumption
+     */
+    public long getSessionCacheSize() {
+        return sessionCacheSize;
+    }
+
+    public void setSessionCacheSize(long sessionCacheSize) {
+        this.sessionCacheSize = sessionCacheSize;
+    }
+
+    /**
+     * @return seconds a cached session can be resumed for
+     */
+    public long getSessionTimeout() {
+        return sessionTimeout;
+    }
+
+    public void setSessionTimeout(long sessionTimeout) {
+        this.sessionTimeout = sessionTimeout;
+    }
+
+    public List<String> getCiphers() {
+        return ciphers;
+    }
+
+    public void setCiphers(List<String> ciphers) {
+        this.ciphers = ciphers;
+    }
+
+    /**
+     * @return whether the GCM mock uses OpenSSL, it falls back to JDK when netty-tcnative is not available; the APNS
+     *         mock is always based on JDK sockets
+     */
+    public boolean isOpenSsl() {
+        return openSsl;
+    }
+
+    public void setOpenSsl(boolean openSsl) {
+        this.openSsl = openSsl;
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2015, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.unifiedpush.test;
+
+import org.jboss.aerogear.metrics.MetricsRegistry;
+
+import javax.ejb.Stateless;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.core.Response;
+
+/**
+ * Exposes metrics of the push network mocks in Prometheus text format so they can be scraped during load runs.
+ */
+@Stateless
+@Path("/metrics")
+public class MetricsEndpoint {
+
+    @GET
+    public Response scrape() {
+        return Response.ok(MetricsRegistry.getDefault().scrape(), MetricsRegistry.PROMETHEUS_CONTENT_TYPE).build();
+    }
+}
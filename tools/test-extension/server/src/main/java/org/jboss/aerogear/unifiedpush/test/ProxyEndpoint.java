@@ -18,13 +18,21 @@ package org.jboss.aerogear.unifiedpush.test;
 
 import org.jboss.aerogear.unifiedpush.test.sender.ProxySetup;
 
+import javax.ejb.EJBException;
 import javax.ejb.Stateless;
 import javax.inject.Inject;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
+import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Starts and stops proxy on demand.
@@ -36,9 +44,14 @@ import javax.ws.rs.core.Response;
 @Path("/proxy")
 public class ProxyEndpoint {
 
+    private static final Logger logger = Logger.getLogger(ProxyEndpoint.class.getName());
+
     @Inject
     private ProxySetup proxySetup;
 
+    @Inject
+    private Validator validator;
+
     @GET
     @Produces(MediaType.APPLICATION_JSON)
     @Path("/activate")
@@ -48,7 +61,47 @@ public class ProxyEndpoint {
             proxySetup.startProxyServer();
         }
 
-        return Response.ok().build();
+        return Response.ok(proxySetup.getStatus()).build();
+    }
+
+    /**
+     * (Re)starts the proxy and the mocks with given configuration, an already active proxy is stopped first.
+     *
+     * @return status with the ports the proxy and the mocks listen on
+     */
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @Path("/activate")
+    public Response activateProxy(ProxyConfig config) {
+
+        Set<ConstraintViolation<ProxyConfig>> violations = validator.validate(config);
+        if (!violations.isEmpty()) {
+            ConstraintViolation<ProxyConfig> violation = violations.iterator().next();
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(violation.getPropertyPath() + " " + violation.getMessage())
+                    .type(MediaType.TEXT_PLAIN)
+                    .build();
+        }
+
+        try {
+            return Response.ok(proxySetup.start(config)).build();
+        } catch (EJBException ex) {
+            // the container wraps the failure, e.g. a port already in use
+            Exception cause = ex.getCausedByException() != null ? ex.getCausedByException() : ex;
+            logger.log(Level.WARNING, "Unable to activate proxy", cause);
+            return Response.status(Response.Status.CONFLICT)
+                    .entity(cause.getMessage())
+                    .type(MediaType.TEXT_PLAIN)
+                    .build();
+        }
+    }
+
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    @Path("/status")
+    public Response status() {
+        return Response.ok(proxySetup.getStatus()).build();
     }
 
     @GET
@@ -60,6 +113,6 @@ public class ProxyEndpoint {
             proxySetup.stopProxyServer();
         }
 
-        return Response.ok().build();
+        return Response.ok(proxySetup.getStatus()).build();
     }
 }
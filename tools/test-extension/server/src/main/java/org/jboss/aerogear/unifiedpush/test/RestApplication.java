@@ -44,6 +44,7 @@ public class RestApplication extends Application {
         classes.add(SenderStatisticsEndpoint.class);
         classes.add(JavaSenderTestEndpoint.class);
         classes.add(ProxyEndpoint.class);
+        classes.add(MetricsEndpoint.class);
 
         return classes;
     }
@@ -18,43 +18,57 @@ package org.jboss.aerogear.unifiedpush.test.sender;
 
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
-import io.netty.handler.codec.http.HttpContent;
-import io.netty.handler.codec.http.HttpObject;
-import io.netty.handler.codec.http.HttpRequest;
-import io.netty.handler.codec.http.HttpResponse;
 import io.netty.handler.logging.LogLevel;
 import io.netty.handler.logging.LoggingHandler;
+import io.netty.handler.ssl.OpenSsl;
 import io.netty.handler.ssl.SslContext;
-import org.jboss.aerogear.unifiedpush.test.sender.apns.ApnsServerSimulator;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslProvider;
+import org.jboss.aerogear.apns.ApnsServerSimulator;
+import org.jboss.aerogear.gcm.GCMRedirectFiltersSource;
+import org.jboss.aerogear.metrics.MetricsRegistry;
+import org.jboss.aerogear.unifiedpush.test.FaultProfile;
+import org.jboss.aerogear.unifiedpush.test.ProxyConfig;
+import org.jboss.aerogear.unifiedpush.test.ProxyStatus;
+import org.jboss.aerogear.unifiedpush.test.TlsConfig;
+import org.jboss.aerogear.unifiedpush.test.sender.apns.SenderStatisticsSink;
 import org.jboss.aerogear.unifiedpush.test.sender.util.CertificateLoader;
 import org.jboss.aerogear.unifiedpush.test.sender.gcm.HttpMockingServerInitializer;
 import org.jboss.aerogear.unifiedpush.test.sender.util.InetAddressPropertyUtil;
 import org.jboss.aerogear.unifiedpush.test.sender.util.PortVerifier;
 import org.jboss.aerogear.unifiedpush.test.sender.util.PropertyResolver;
-import org.littleshoot.proxy.HttpFilters;
-import org.littleshoot.proxy.HttpFiltersAdapter;
-import org.littleshoot.proxy.HttpFiltersSourceAdapter;
 import org.littleshoot.proxy.HttpProxyServer;
 import org.littleshoot.proxy.impl.DefaultHttpProxyServer;
 
+import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import javax.ejb.Singleton;
 import javax.ejb.Startup;
+import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLSessionContext;
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
-import java.nio.charset.Charset;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * Class which creates a proxy when deployed and shuts it down when undeployed.
  *
+ * The proxy and the mocks can be restarted with a different {@link ProxyConfig} at any time. Ports given as 0 are
+ * picked by the system, {@link #getStatus()} tells the ones actually used. The effective ports are also written to
+ * the system properties UPS in this JVM sends through ({@code http(s).proxyPort}, {@code
+ * custom.aerogear.apns.push.port} and {@code custom.aerogear.apns.feedback.port}), the previous values are put back
+ * when the proxy stops. Being a singleton bean with container managed concurrency, starting and stopping never
+ * overlap.
+ *
  * FIXME missing proper implementation, currently only works as pass-through proxy, but it should validate the sent push
  * messages.
  */
@@ -64,6 +78,8 @@ public class ProxySetup {
 
     private static final Logger logger = Logger.getLogger(ProxySetup.class.getName());
 
+    private static final String METRICS_DOMAIN = "org.jboss.aerogear.unifiedpush.test";
+
     private static final PropertyResolver<String> HTTP_PROXY_HOST = PropertyResolver
             .with("127.0.0.1", "http.proxyHost", "https.proxyHost");
 
@@ -102,91 +118,97 @@ public class ProxySetup {
     private EventLoopGroup bossGroup;
     private EventLoopGroup workerGroup;
 
+    private Channel gcmChannel;
+
     private ApnsServerSimulator apnsServerSimulator;
 
-    private static HttpProxyServer server;
+    private HttpProxyServer server;
+
+    // values the properties had before the effective ports were written to them, null when they were not set
+    private final Map<String, String> overriddenProperties = new LinkedHashMap<String, String>();
 
-    private static BackgroundThread backgroundThread;
+    @PostConstruct
+    public void registerMetrics() {
+        MetricsRegistry.getDefault().registerMBean(METRICS_DOMAIN);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        stopProxyServer();
+        MetricsRegistry.getDefault().unregisterMBean(METRICS_DOMAIN);
+    }
 
     public boolean isActive() {
         return server != null;
     }
 
     public void startProxyServer() {
-        if (backgroundThread == null) {
-            backgroundThread = startBackgroundThread();
-        }
-
-        apnsServerSimulator = ApnsServerSimulator.prepareAndStart(
-                CertificateLoader.apnsSocketFactory(),
-                APNS_MOCK_GATEWAY_HOST.resolve(),
-                APNS_MOCK_GATEWAY_PORT.resolve(),
-                APNS_MOCK_FEEDBACK_HOST.resolve(),
-                APNS_MOCK_FEEDBACK_PORT.resolve());
-
-        server = DefaultHttpProxyServer.bootstrap()
-                .withAddress(resolveBindAddress())
-                .withFiltersSource(new HttpFiltersSourceAdapter() {
-
-                    @Override
-                    public HttpFilters filterRequest(HttpRequest originalRequest) {
-
-                        return new HttpFiltersAdapter(originalRequest) {
-
-                            @Override
-                            public HttpResponse clientToProxyRequest(HttpObject httpObject) {
-
-                                HttpRequest request = (HttpRequest) httpObject;
-
-                                logger.log(Level.WARNING, "clientToProxyRequest uri: " + request.getUri());
-                                if (request.getUri().contains("google")) {
-                                    logger.log(Level.WARNING, "contains google!: " + request.getUri());
-                                    request.setUri(backgroundThread.getGcmMockServerHost() + ":" + backgroundThread.getGcmMockServePort());
-                                }
-                                logger.log(Level.WARNING, "clientToProxyRequest after if uri: " + request.getUri());
-
-                                super.clientToProxyRequest(request);
-
-                                return null;
-                            }
-
-                            @Override
-                            public HttpResponse proxyToServerRequest(HttpObject httpObject) {
-                                return null;
-                            }
+        start(new ProxyConfig());
+    }
 
-                            @Override
-                            public HttpObject serverToProxyResponse(HttpObject httpObject) {
+    /**
+     * Stops the proxy and the mocks when running and starts them with given configuration. Either all of them start
+     * or, when one fails, the others are stopped again and the failure is thrown.
+     *
+     * @return status with the effective ports
+     */
+    public ProxyStatus start(ProxyConfig config) {
+        stopProxyServer();
+
+        try {
+            String host = HTTP_PROXY_HOST.resolve();
+
+            InetSocketAddress gcmAddress = startGcmMockServer(host,
+                    port(config.getGcmMockServerPort(), GCM_MOCK_SERVER_PORT),
+                    config.getGcmWorkerThreads(),
+                    config.getGcmFaults(),
+                    config.getTls());
+
+            startApnsServerSimulator(
+                    port(config.getApnsGatewayPort(), APNS_MOCK_GATEWAY_PORT),
+                    port(config.getApnsFeedbackPort(), APNS_MOCK_FEEDBACK_PORT),
+                    config.getApnsFaults(),
+                    config.getTls());
+
+            server = startHttpProxy(new InetSocketAddress(host, port(config.getHttpProxyPort(), HTTP_PROXY_PORT)),
+                    gcmAddress, config.getHttpProxyCaptureRate());
+        } catch (RuntimeException ex) {
+            stopProxyServer();
+            throw ex;
+        }
 
-                                if (httpObject instanceof HttpResponse) {
-                                    originalRequest.getMethod();
-                                } else if (httpObject instanceof HttpContent) {
-                                    ((HttpContent) httpObject).content().toString(Charset.forName("UTF-8"));
-                                }
+        ProxyStatus status = getStatus();
+        overrideProperty("http.proxyPort", status.getHttpProxyPort());
+        overrideProperty("https.proxyPort", status.getHttpProxyPort());
+        overrideProperty("custom.aerogear.apns.push.port", status.getApnsGatewayPort());
+        overrideProperty("custom.aerogear.apns.feedback.port", status.getApnsFeedbackPort());
 
-                                return httpObject;
-                            }
+        logger.log(Level.INFO, "Proxy server started on port {0}, GCM mock on {1}, APNS mock on {2} and {3}.",
+                new Object[] { status.getHttpProxyPort(), status.getGcmMockServerPort(), status.getApnsGatewayPort(),
+                        status.getApnsFeedbackPort() });
 
-                            @Override
-                            public HttpObject proxyToClientResponse(HttpObject httpObject) {
+        return status;
+    }
 
-                                if (httpObject instanceof HttpResponse) {
-                                    originalRequest.getMethod();
-                                } else if (httpObject instanceof HttpContent) {
-                                    ((HttpContent) httpObject).content().toString(Charset.forName("UTF-8"));
-                                }
+    public ProxyStatus getStatus() {
+        ProxyStatus status = new ProxyStatus();
+        status.setActive(isActive());
 
-                                return httpObject;
-                            }
-                        };
-                    }
-                })
-                .start();
+        if (server != null) {
+            status.setHttpProxyHost(server.getListenAddress().getHostString());
+            status.setHttpProxyPort(server.getListenAddress().getPort());
+        }
+        if (gcmChannel != null) {
+            status.setGcmMockServerPort(((InetSocketAddress) gcmChannel.localAddress()).getPort());
+        }
+        if (apnsServerSimulator != null) {
+            status.setApnsGatewayPort(apnsServerSimulator.getEffectiveGatewayPort());
+            status.setApnsFeedbackPort(apnsServerSimulator.getEffectiveFeedbackPort());
+        }
 
-        logger.log(Level.INFO, "Proxy server started.");
+        return status;
     }
 
-    @PreDestroy
     public void stopProxyServer() {
         if (server != null) {
             server.stop();
@@ -200,112 +222,150 @@ public class ProxySetup {
             logger.log(Level.INFO, "APNS mock server stopped.");
         }
 
-        if (backgroundThread != null) {
-            if (backgroundThread.isAlive() && !backgroundThread.isInterrupted()) {
-                backgroundThread.closeChannel();
-                backgroundThread.interrupt();
-                logger.log(Level.INFO, "Background thread interrupted in ProxySetup.");
-            }
-            backgroundThread = null;
+        if (gcmChannel != null) {
+            // waiting for the close frees the port for a restart right away
+            gcmChannel.close().syncUninterruptibly();
+            gcmChannel = null;
+            logger.log(Level.INFO, "GCM mock server stopped.");
         }
-    }
-
-    private BackgroundThread startBackgroundThread() {
 
-        String gcmMockServerHost = HTTP_PROXY_HOST.resolve();
-        int gcmMockServePort = GCM_MOCK_SERVER_PORT.resolve();
-
-        BackgroundThread backgroundThread = new BackgroundThread(gcmMockServerHost, gcmMockServePort);
-
-        backgroundThread.start();
+        if (bossGroup != null) {
+            bossGroup.shutdownGracefully();
+            workerGroup.shutdownGracefully();
+            bossGroup = null;
+            workerGroup = null;
+        }
 
-        logger.log(Level.INFO, "Background thread started in ProxySetup.");
+        restoreProperties();
+    }
 
-        return backgroundThread;
+    private void overrideProperty(String name, int value) {
+        if (!overriddenProperties.containsKey(name)) {
+            overriddenProperties.put(name, System.getProperty(name));
+        }
+        System.setProperty(name, String.valueOf(value));
     }
 
-    private static class BackgroundThread extends Thread {
+    private void restoreProperties() {
+        for (Map.Entry<String, String> property : overriddenProperties.entrySet()) {
+            if (property.getValue() == null) {
+                System.clearProperty(property.getKey());
+            } else {
+                System.setProperty(property.getKey(), property.getValue());
+            }
+        }
+        overriddenProperties.clear();
+    }
 
-        private final String gcmMockServerHost;
-        private final int gcmMockServePort;
+    private InetSocketAddress startGcmMockServer(String host, int port, int workerThreads, FaultProfile faults,
+            TlsConfig tls) {
+        bossGroup = new NioEventLoopGroup(1);
+        workerGroup = new NioEventLoopGroup(workerThreads);
 
-        private Channel channel;
+        ServerBootstrap serverBootstrap = new ServerBootstrap();
+        serverBootstrap.group(bossGroup, workerGroup)
+                .channel(NioServerSocketChannel.class)
+                .handler(new LoggingHandler(LogLevel.INFO))
+                .childHandler(new HttpMockingServerInitializer(gcmSslContext(tls), faults));
 
-        public BackgroundThread(String gcmMockServerHost, int gcmMockServePort) {
-            this.gcmMockServerHost = gcmMockServerHost;
-            this.gcmMockServePort = gcmMockServePort;
+        ChannelFuture bind = serverBootstrap.bind(host, port).awaitUninterruptibly();
+        if (!bind.isSuccess()) {
+            throw new IllegalStateException("Unable to start GCM mock server on " + host + ":" + port, bind.cause());
         }
+        gcmChannel = bind.channel();
 
-        public String getGcmMockServerHost() {
-            return gcmMockServerHost;
+        return (InetSocketAddress) gcmChannel.localAddress();
+    }
+
+    private SslContext gcmSslContext(TlsConfig tls) {
+        File certificateFile;
+        File certificateKeyFile;
+        try {
+            certificateFile = GCM_CERTIFICATE_FILE.resolve();
+            certificateKeyFile = GCM_CERTIFICATE_KEY_FILE.resolve();
+        } catch (IllegalStateException e) {
+            // certificate properties are not set, the mock is started without TLS
+            logger.log(Level.WARNING, e.getMessage());
+
+            return null;
         }
 
-        public int getGcmMockServePort() {
-            return gcmMockServePort;
+        if (!certificateFile.exists()) {
+            throw new IllegalStateException("File " + certificateFile.getAbsolutePath() + " needs to exist.");
         }
 
-        @Override
-        public void run() {
-            // Configure SSL.
-            SslContext sslCtx;
-            try {
-                File certificateFile = GCM_CERTIFICATE_FILE.resolve();
-                File certificateKeyFile = GCM_CERTIFICATE_KEY_FILE.resolve();
+        if (!certificateKeyFile.exists()) {
+            throw new IllegalStateException("File " + certificateKeyFile.getAbsolutePath() + " needs to exist.");
+        }
 
-                if (!certificateFile.exists()) {
-                    throw new FileNotFoundException("File " + certificateFile.getAbsolutePath() + " needs to exist.");
-                }
+        try {
+            SslContextBuilder builder = SslContextBuilder.forServer(certificateFile, certificateKeyFile);
+            if (tls == null) {
+                return builder.build();
+            }
 
-                if (!certificateKeyFile.exists()) {
-                    throw new FileNotFoundException("File " + certificateKeyFile.getAbsolutePath() + " needs to exist.");
+            SslProvider provider = SslProvider.JDK;
+            if (tls.isOpenSsl()) {
+                if (OpenSsl.isAvailable()) {
+                    provider = SslProvider.OPENSSL;
+                } else {
+                    logger.log(Level.WARNING, "OpenSSL is not available, GCM mock uses JDK provider",
+                            OpenSsl.unavailabilityCause());
                 }
-                sslCtx = SslContext.newServerContext(certificateFile, certificateKeyFile);
-            } catch (SSLException e) {
-                sslCtx = null;
-            } catch (FileNotFoundException e) {
-                e.printStackTrace();
+            }
+            return builder.sslProvider(provider)
+                    .ciphers(tls.getCiphers())
+                    .sessionCacheSize(tls.getSessionCacheSize())
+                    .sessionTimeout(tls.getSessionTimeout())
+                    .build();
+        } catch (SSLException e) {
+            throw new IllegalStateException("Unable to create GCM mock SSL context", e);
+        }
+    }
 
-                sslCtx = null;
+    private void startApnsServerSimulator(int gatewayPort, int feedbackPort, FaultProfile faults, TlsConfig tls) {
+        SSLContext sslContext = CertificateLoader.apnsSslContext();
+        if (tls != null) {
+            SSLSessionContext sessionContext = sslContext.getServerSessionContext();
+            if (tls.getSessionCacheSize() > 0) {
+                sessionContext.setSessionCacheSize((int) Math.min(tls.getSessionCacheSize(), Integer.MAX_VALUE));
             }
-            // Configure the server.
-            EventLoopGroup bossGroup = new NioEventLoopGroup(1);
-            EventLoopGroup workerGroup = new NioEventLoopGroup();
-
-            try {
-                ServerBootstrap serverBootstrap = new ServerBootstrap();
-                serverBootstrap.group(bossGroup, workerGroup)
-                        .channel(NioServerSocketChannel.class)
-                        .handler(new LoggingHandler(LogLevel.INFO))
-                        .childHandler(new HttpMockingServerInitializer(sslCtx));
-
-                channel = serverBootstrap.bind(gcmMockServerHost, gcmMockServePort).sync().channel();
-
-                channel.closeFuture().sync();
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            } finally {
-                bossGroup.shutdownGracefully();
-                workerGroup.shutdownGracefully();
+            if (tls.getSessionTimeout() > 0) {
+                sessionContext.setSessionTimeout((int) Math.min(tls.getSessionTimeout(), Integer.MAX_VALUE));
             }
         }
 
-        public void closeChannel() {
-
-            if (channel != null) {
+        apnsServerSimulator = new ApnsServerSimulator(
+                sslContext.getServerSocketFactory(),
+                APNS_MOCK_GATEWAY_HOST.resolve(),
+                gatewayPort,
+                APNS_MOCK_FEEDBACK_HOST.resolve(),
+                feedbackPort,
+                new SenderStatisticsSink());
+        if (faults != null) {
+            apnsServerSimulator.setFaults(faults.getLatencyMillis(), faults.getErrorRate());
+        }
+        if (tls != null && tls.getCiphers() != null) {
+            apnsServerSimulator.setEnabledCipherSuites(tls.getCiphers().toArray(new String[0]));
+        }
+        apnsServerSimulator.start();
 
-                try {
-                    channel.close().get();
-                } catch (Exception ex) {
-                    logger.log(Level.INFO, "Error while closing a channel.", ex.getCause());
-                } finally {
-                    channel = null;
-                }
-            }
+        if (apnsServerSimulator.getEffectiveGatewayPort() <= 0 || apnsServerSimulator.getEffectiveFeedbackPort() <= 0) {
+            throw new IllegalStateException("Unable to start APNS mock server on ports " + gatewayPort + " and "
+                    + feedbackPort);
         }
+    }
 
+    private static HttpProxyServer startHttpProxy(InetSocketAddress address, InetSocketAddress gcmAddress,
+            double captureRate) {
+        return DefaultHttpProxyServer.bootstrap()
+                .withAddress(address)
+                .withFiltersSource(new GCMRedirectFiltersSource(gcmAddress.getHostString(), gcmAddress.getPort(),
+                        captureRate))
+                .start();
     }
 
-    private InetSocketAddress resolveBindAddress() {
-        return new InetSocketAddress(HTTP_PROXY_HOST.resolve(), HTTP_PROXY_PORT.resolve());
+    private static int port(Integer configured, PropertyResolver<Integer> resolver) {
+        return configured != null ? configured : resolver.resolve();
     }
 }
@@ -16,17 +16,20 @@
  */
 package org.jboss.aerogear.unifiedpush.test.sender;
 
-import com.google.android.gcm.server.Message;
-import org.jboss.aerogear.unifiedpush.test.SenderStatistics;
-import org.jboss.aerogear.unifiedpush.test.sender.apns.ApnsServerSimulator;
+import org.jboss.aerogear.apns.Notification;
+import org.jboss.aerogear.metrics.Counter;
+import org.jboss.aerogear.metrics.Gauge;
+import org.jboss.aerogear.metrics.MockMetrics;
 import org.jboss.aerogear.unifiedpush.test.sender.gcm.GCMMessage;
 
 import javax.ejb.Stateless;
 import javax.ejb.TransactionAttribute;
 import javax.ws.rs.DELETE;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import java.util.concurrent.atomic.AtomicReference;
@@ -39,53 +42,55 @@ import java.util.concurrent.atomic.AtomicReference;
 @Path("/senderStats")
 public class SenderStatisticsEndpoint {
 
-    private static final AtomicReference<SenderStatistics> senderStatisticsRef =
-            new AtomicReference<SenderStatistics>(new SenderStatistics());
+    // replaced as a whole on clear, messages arriving during the swap may still land in the old store
+    private static final AtomicReference<SenderStatisticsStore> storeRef =
+            new AtomicReference<SenderStatisticsStore>(new SenderStatisticsStore());
 
-    public static void addGCMMessage(GCMMessage message) {
-        synchronized (senderStatisticsRef) {
-            SenderStatistics senderStatistics = senderStatisticsRef.get();
+    private static final Counter apnsNotifications = MockMetrics.notifications(MockMetrics.PLATFORM_APNS);
+    private static final Counter gcmNotifications = MockMetrics.notifications(MockMetrics.PLATFORM_GCM);
 
-            Message.Builder gcmMessage = new Message.Builder();
+    // device tokens held by the statistics per platform
+    private static final Gauge apnsRegisterSize = MockMetrics.registerSize(MockMetrics.PLATFORM_APNS);
+    private static final Gauge gcmRegisterSize = MockMetrics.registerSize(MockMetrics.PLATFORM_GCM);
+    private static final Counter apnsRegisterEvictions = MockMetrics.registerEvictions(MockMetrics.PLATFORM_APNS);
+    private static final Counter gcmRegisterEvictions = MockMetrics.registerEvictions(MockMetrics.PLATFORM_GCM);
 
-            gcmMessage.setData(message.data);
-            if (message.collapseKey != null) {
-                gcmMessage.collapseKey(message.collapseKey);
-            }
-            if (message.delayWhileIdle != null) {
-                gcmMessage.delayWhileIdle(message.delayWhileIdle);
-            }
-            if (message.timeToLive != null) {
-                gcmMessage.timeToLive(message.timeToLive);
-            }
+    /**
+     * @param variant GCM API key the message was sent with, may be null
+     */
+    public static void addGCMMessage(GCMMessage message, String variant) {
+        storeRef.get().addGCMMessage(message, variant);
 
-            senderStatistics.gcmMessage = gcmMessage.build();
-            senderStatistics.deviceTokens.addAll(message.registrationIds);
+        gcmNotifications.inc();
+        if (message.registrationIds != null) {
+            gcmRegisterSize.add(message.registrationIds.size());
         }
     }
 
-    public static void addAPNSNotification(ApnsServerSimulator.Notification notification) {
-        synchronized (senderStatisticsRef) {
-            String deviceToken = ApnsServerSimulator.encodeHex(notification.getDeviceToken()).toLowerCase();
-            SenderStatistics senderStatistics = senderStatisticsRef.get();
-            senderStatistics.deviceTokens.add(deviceToken);
-            senderStatistics.apnsPayload = new String(notification.getPayload());
-            senderStatistics.apnsExpiry = notification.getExpiry();
-        }
+    public static void addAPNSNotification(Notification notification) {
+        storeRef.get().addAPNSNotification(new String(notification.getPayload()), notification.getExpiry(),
+                notification.getDeviceTokenHex());
+
+        apnsNotifications.inc();
+        apnsRegisterSize.inc();
     }
 
     public static void clearSenderStatistics() {
-        synchronized (senderStatisticsRef) {
-            senderStatisticsRef.set(new SenderStatistics());
-        }
+        SenderStatisticsStore cleared = storeRef.getAndSet(new SenderStatisticsStore());
+
+        apnsRegisterEvictions.add(cleared.getAPNSTokenCount());
+        apnsRegisterSize.add(-cleared.getAPNSTokenCount());
+        gcmRegisterEvictions.add(cleared.getGCMTokenCount());
+        gcmRegisterSize.add(-cleared.getGCMTokenCount());
     }
 
+    /**
+     * @param includeTokens false leaves the device token list out, which keeps the response small during load runs
+     */
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    public Response listAllStatistics() {
-        synchronized (senderStatisticsRef) {
-            return Response.ok(senderStatisticsRef.get()).build();
-        }
+    public Response listAllStatistics(@QueryParam("includeTokens") @DefaultValue("true") boolean includeTokens) {
+        return Response.ok(storeRef.get().toSenderStatistics(includeTokens)).build();
     }
 
     @DELETE
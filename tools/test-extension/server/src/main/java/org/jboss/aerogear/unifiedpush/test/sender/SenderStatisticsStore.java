@@ -0,0 +1,231 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2015, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.unifiedpush.test.sender;
+
+import com.google.android.gcm.server.Message;
+import org.jboss.aerogear.unifiedpush.test.MessageStatistics;
+import org.jboss.aerogear.unifiedpush.test.SenderStatistics;
+import org.jboss.aerogear.unifiedpush.test.sender.gcm.GCMMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Statistics of messages received by the APNS and GCM mocks, aggregated per push message. Nothing in here takes a
+ * lock, message records live in a concurrent map and device tokens are spread over shards by their hash so that mock
+ * threads do not all append to the same queue.
+ *
+ * Views are built from live data, a view taken during sending may miss the tokens of a message it already counted.
+ */
+class SenderStatisticsStore {
+
+    static final String PLATFORM_APNS = "apns";
+    static final String PLATFORM_GCM = "gcm";
+
+    private static final int TOKEN_SHARDS = 32;
+
+    private final ConcurrentMap<String, MessageRecord> messages = new ConcurrentHashMap<String, MessageRecord>();
+
+    private final Queue<String>[] tokenShards;
+
+    private final AtomicLong apnsTokenCount = new AtomicLong();
+
+    private final AtomicLong gcmTokenCount = new AtomicLong();
+
+    @SuppressWarnings("unchecked")
+    SenderStatisticsStore() {
+        tokenShards = new Queue[TOKEN_SHARDS];
+        for (int i = 0; i < TOKEN_SHARDS; i++) {
+            tokenShards[i] = new ConcurrentLinkedQueue<String>();
+        }
+    }
+
+    void addAPNSNotification(String payload, int expiry, String deviceToken) {
+        MessageRecord record = record(PLATFORM_APNS, payload, null);
+        record.apnsExpiry = expiry;
+        record.update(MessageStatistics.UNKNOWN_VARIANT, 1);
+
+        addToken(deviceToken);
+        apnsTokenCount.incrementAndGet();
+    }
+
+    /**
+     * @param variant GCM API key the message was sent with or null when the request had none
+     */
+    void addGCMMessage(GCMMessage message, String variant) {
+        Message.Builder builder = new Message.Builder();
+        if (message.data != null) {
+            // sorted so that the same data always results in the same payload
+            builder.setData(new TreeMap<String, String>(message.data));
+        }
+        if (message.collapseKey != null) {
+            builder.collapseKey(message.collapseKey);
+        }
+        if (message.delayWhileIdle != null) {
+            builder.delayWhileIdle(message.delayWhileIdle);
+        }
+        if (message.timeToLive != null) {
+            builder.timeToLive(message.timeToLive);
+        }
+        Message gcmMessage = builder.build();
+
+        int tokens = message.registrationIds != null ? message.registrationIds.size() : 0;
+
+        record(PLATFORM_GCM, gcmMessage.toString(), gcmMessage)
+            .update(variant != null ? variant : MessageStatistics.UNKNOWN_VARIANT, tokens);
+
+        if (tokens > 0) {
+            for (String registrationId : message.registrationIds) {
+                addToken(registrationId);
+            }
+            gcmTokenCount.addAndGet(tokens);
+        }
+    }
+
+    long getAPNSTokenCount() {
+        return apnsTokenCount.get();
+    }
+
+    long getGCMTokenCount() {
+        return gcmTokenCount.get();
+    }
+
+    /**
+     * @param includeTokens whether to list all device tokens, their count is always filled in
+     */
+    SenderStatistics toSenderStatistics(boolean includeTokens) {
+        SenderStatistics statistics = new SenderStatistics();
+
+        MessageRecord latestAPNS = null;
+        MessageRecord latestGCM = null;
+
+        for (MessageRecord record : messages.values()) {
+            statistics.messages.add(record.toMessageStatistics());
+
+            if (PLATFORM_APNS.equals(record.platform)) {
+                if (latestAPNS == null || record.lastReceived > latestAPNS.lastReceived) {
+                    latestAPNS = record;
+                }
+            } else if (latestGCM == null || record.lastReceived > latestGCM.lastReceived) {
+                latestGCM = record;
+            }
+        }
+
+        if (latestAPNS != null) {
+            statistics.apnsPayload = latestAPNS.payload;
+            statistics.apnsExpiry = latestAPNS.apnsExpiry;
+        }
+        if (latestGCM != null) {
+            statistics.gcmMessage = latestGCM.gcmMessage;
+        }
+
+        statistics.tokenCount = apnsTokenCount.get() + gcmTokenCount.get();
+
+        if (includeTokens) {
+            List<String> deviceTokens = new ArrayList<String>((int) Math.min(statistics.tokenCount, Integer.MAX_VALUE));
+            for (Queue<String> shard : tokenShards) {
+                deviceTokens.addAll(shard);
+            }
+            statistics.deviceTokens = deviceTokens;
+        }
+
+        return statistics;
+    }
+
+    private void addToken(String deviceToken) {
+        tokenShards[(deviceToken.hashCode() & Integer.MAX_VALUE) % TOKEN_SHARDS].offer(deviceToken);
+    }
+
+    private MessageRecord record(String platform, String payload, Message gcmMessage) {
+        String key = platform + ':' + payload;
+
+        MessageRecord record = messages.get(key);
+        if (record == null) {
+            MessageRecord created = new MessageRecord(platform, payload, gcmMessage);
+            record = messages.putIfAbsent(key, created);
+            if (record == null) {
+                record = created;
+            }
+        }
+        return record;
+    }
+
+    private static final class MessageRecord {
+
+        private final String platform;
+
+        private final String payload;
+
+        private final Message gcmMessage;
+
+        private final long firstReceived = System.currentTimeMillis();
+
+        private final AtomicLong count = new AtomicLong();
+
+        private final AtomicLong tokenCount = new AtomicLong();
+
+        private final ConcurrentMap<String, AtomicLong> variants = new ConcurrentHashMap<String, AtomicLong>();
+
+        private volatile long lastReceived;
+
+        private volatile int apnsExpiry;
+
+        private MessageRecord(String platform, String payload, Message gcmMessage) {
+            this.platform = platform;
+            this.payload = payload;
+            this.gcmMessage = gcmMessage;
+        }
+
+        private void update(String variant, int tokens) {
+            count.incrementAndGet();
+            tokenCount.addAndGet(tokens);
+
+            AtomicLong variantCount = variants.get(variant);
+            if (variantCount == null) {
+                AtomicLong created = new AtomicLong();
+                variantCount = variants.putIfAbsent(variant, created);
+                if (variantCount == null) {
+                    variantCount = created;
+                }
+            }
+            variantCount.incrementAndGet();
+
+            lastReceived = System.currentTimeMillis();
+        }
+
+        private MessageStatistics toMessageStatistics() {
+            MessageStatistics statistics = new MessageStatistics();
+            statistics.platform = platform;
+            statistics.payload = payload;
+            statistics.count = count.get();
+            statistics.tokenCount = tokenCount.get();
+            for (Map.Entry<String, AtomicLong> entry : variants.entrySet()) {
+                statistics.variants.put(entry.getKey(), entry.getValue().get());
+            }
+            statistics.firstReceived = firstReceived;
+            statistics.lastReceived = lastReceived;
+            return statistics;
+        }
+    }
+}
@@ -10,24 +10,34 @@ import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.handler.codec.http.DefaultFullHttpResponse;
 import io.netty.handler.codec.http.FullHttpResponse;
 import io.netty.handler.codec.http.HttpContent;
-import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpHeaderValues;
 import io.netty.handler.codec.http.HttpObject;
 import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
 import io.netty.handler.codec.http.LastHttpContent;
 import io.netty.util.CharsetUtil;
+import org.jboss.aerogear.metrics.MockMetrics;
+import org.jboss.aerogear.metrics.Timer;
+import org.jboss.aerogear.unifiedpush.test.FaultProfile;
 import org.jboss.aerogear.unifiedpush.test.Tokens;
 import org.jboss.aerogear.unifiedpush.test.sender.SenderStatisticsEndpoint;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
-
-import static io.netty.handler.codec.http.HttpHeaders.Names.CONNECTION;
-import static io.netty.handler.codec.http.HttpHeaders.Names.CONTENT_LENGTH;
-import static io.netty.handler.codec.http.HttpHeaders.Names.CONTENT_TYPE;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static io.netty.handler.codec.http.HttpHeaderNames.AUTHORIZATION;
+import static io.netty.handler.codec.http.HttpHeaderNames.CONNECTION;
+import static io.netty.handler.codec.http.HttpHeaderNames.CONTENT_LENGTH;
+import static io.netty.handler.codec.http.HttpHeaderNames.CONTENT_TYPE;
+import static io.netty.handler.codec.http.HttpHeaderNames.RETRY_AFTER;
 import static io.netty.handler.codec.http.HttpResponseStatus.BAD_REQUEST;
 import static io.netty.handler.codec.http.HttpResponseStatus.CONTINUE;
 import static io.netty.handler.codec.http.HttpResponseStatus.OK;
+import static io.netty.handler.codec.http.HttpResponseStatus.SERVICE_UNAVAILABLE;
 import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
 
 /**
@@ -35,8 +45,14 @@ import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
  */
 public class HttpMockingServerHandler extends SimpleChannelInboundHandler<Object> {
 
+    private static final Timer latency = MockMetrics.handlerLatency(MockMetrics.ENDPOINT_GCM);
+
+    private final FaultProfile faults;
+
     private HttpRequest request;
 
+    private long requestStart;
+
     /**
      * Buffer that stores the response content
      */
@@ -50,6 +66,17 @@ public class HttpMockingServerHandler extends SimpleChannelInboundHandler<Object
 
     private String uri = null;
 
+    public HttpMockingServerHandler() {
+        this(null);
+    }
+
+    /**
+     * @param faults faults to inject, null for none
+     */
+    public HttpMockingServerHandler(FaultProfile faults) {
+        this.faults = faults;
+    }
+
     @Override
     public void channelReadComplete(ChannelHandlerContext ctx) {
         ctx.flush();
@@ -92,8 +119,9 @@ public class HttpMockingServerHandler extends SimpleChannelInboundHandler<Object
     protected void channelRead0(ChannelHandlerContext context, Object msg) {
         if (msg instanceof HttpRequest) {
             HttpRequest request = this.request = (HttpRequest) msg;
-            uri = request.getUri();
-            if (HttpHeaders.is100ContinueExpected(request)) {
+            uri = request.uri();
+            requestStart = System.nanoTime();
+            if (HttpUtil.is100ContinueExpected(request)) {
                 send100Continue(context);
             }
         }
@@ -106,12 +134,21 @@ public class HttpMockingServerHandler extends SimpleChannelInboundHandler<Object
 
             if (msg instanceof LastHttpContent) {
                 buf.setLength(0);
+                if (faults != null && faults.getErrorRate() > 0
+                        && ThreadLocalRandom.current().nextDouble() < faults.getErrorRate()) {
+                    // GCM asks to retry later, the message is not delivered
+                    requestContentBuffer.setLength(0);
+                    writeResponse(SERVICE_UNAVAILABLE, context);
+                    latency.recordSince(requestStart);
+                    return;
+                }
+
                 if (uri.contains("gcm")) {
                     ObjectMapper mapper = new ObjectMapper();
                     mapper.setPropertyNamingStrategy(PropertyNamingStrategy.CAMEL_CASE_TO_LOWER_CASE_WITH_UNDERSCORES);
                     try {
                         GCMMessage message = mapper.readValue(requestContentBuffer.toString(), GCMMessage.class);
-                        SenderStatisticsEndpoint.addGCMMessage(message);
+                        SenderStatisticsEndpoint.addGCMMessage(message, parseApiKey(request));
 
                         requestContentBuffer.delete(0, requestContentBuffer.length());
                         try {
@@ -126,20 +163,30 @@ public class HttpMockingServerHandler extends SimpleChannelInboundHandler<Object
                 }
 
 
-                writeResponse((HttpObject) msg, context);
+                writeResponse(((HttpObject) msg).decoderResult().isSuccess() ? OK : BAD_REQUEST, context);
+                latency.recordSince(requestStart);
             }
         }
 
     }
 
 
-    private boolean writeResponse(HttpObject currentObj, ChannelHandlerContext ctx) {
+    // each Android variant sends with its own API key so it identifies the variant
+    private static String parseApiKey(HttpRequest request) {
+        String authorization = request != null ? request.headers().get(AUTHORIZATION) : null;
+        if (authorization == null) {
+            return null;
+        }
+        return authorization.startsWith("key=") ? authorization.substring(4) : authorization;
+    }
+
+    private boolean writeResponse(HttpResponseStatus status, final ChannelHandlerContext ctx) {
         // Decide whether to close the connection or not.
-        boolean keepAlive = HttpHeaders.isKeepAlive(request);
+        boolean keepAlive = HttpUtil.isKeepAlive(request);
 
         // Build the response object.
-        FullHttpResponse response = new DefaultFullHttpResponse(
-                HTTP_1_1, currentObj.getDecoderResult().isSuccess() ? OK : BAD_REQUEST,
+        final FullHttpResponse response = new DefaultFullHttpResponse(
+                HTTP_1_1, status,
                 Unpooled.copiedBuffer(buf.toString(), CharsetUtil.UTF_8));
 
         response.headers().set(CONTENT_TYPE, "application/json");
@@ -149,11 +196,24 @@ public class HttpMockingServerHandler extends SimpleChannelInboundHandler<Object
             response.headers().set(CONTENT_LENGTH, response.content().readableBytes());
             // Add keep alive header as per:
             // - http://www.w3.org/Protocols/HTTP/1.1/draft-ietf-http-v11-spec-01.html#Connection
-            response.headers().set(CONNECTION, HttpHeaders.Values.KEEP_ALIVE);
+            response.headers().set(CONNECTION, HttpHeaderValues.KEEP_ALIVE);
         }
 
-        // Write the response.
-        ctx.write(response);
+        if (status == SERVICE_UNAVAILABLE) {
+            response.headers().set(RETRY_AFTER, 1);
+        }
+
+        // Write the response, injected latency delays it without blocking the event loop.
+        if (faults != null && faults.getLatencyMillis() > 0) {
+            ctx.executor().schedule(new Runnable() {
+                @Override
+                public void run() {
+                    ctx.writeAndFlush(response);
+                }
+            }, faults.getLatencyMillis(), TimeUnit.MILLISECONDS);
+        } else {
+            ctx.write(response);
+        }
 
         return keepAlive;
     }
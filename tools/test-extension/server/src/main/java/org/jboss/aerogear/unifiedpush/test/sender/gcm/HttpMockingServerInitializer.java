@@ -6,23 +6,44 @@ import io.netty.channel.socket.SocketChannel;
 import io.netty.handler.codec.http.HttpRequestDecoder;
 import io.netty.handler.codec.http.HttpResponseEncoder;
 import io.netty.handler.ssl.SslContext;
+import org.jboss.aerogear.metrics.MockMetrics;
+import org.jboss.aerogear.metrics.TlsHandshakeMetrics;
+import org.jboss.aerogear.metrics.TlsHandshakeMetricsHandler;
+import org.jboss.aerogear.metrics.TrafficMetricsHandler;
+import org.jboss.aerogear.unifiedpush.test.FaultProfile;
 
 /**
  * Created by asaleh on 12/11/14.
  */
 public class HttpMockingServerInitializer extends ChannelInitializer<SocketChannel> {
 
+    private static final TrafficMetricsHandler trafficMetricsHandler = new TrafficMetricsHandler(MockMetrics.ENDPOINT_GCM);
+
+    private static final TlsHandshakeMetrics handshakeMetrics = new TlsHandshakeMetrics(MockMetrics.ENDPOINT_GCM);
+
     private final SslContext sslCtx;
 
+    private final FaultProfile faults;
+
     public HttpMockingServerInitializer(SslContext sslCtx) {
+        this(sslCtx, null);
+    }
+
+    /**
+     * @param faults faults the mock injects, null for none
+     */
+    public HttpMockingServerInitializer(SslContext sslCtx, FaultProfile faults) {
         this.sslCtx = sslCtx;
+        this.faults = faults;
     }
 
     @Override
     public void initChannel(SocketChannel ch) {
         ChannelPipeline p = ch.pipeline();
+        p.addLast(trafficMetricsHandler);
         if (sslCtx != null) {
             p.addLast(sslCtx.newHandler(ch.alloc()));
+            p.addLast(new TlsHandshakeMetricsHandler(handshakeMetrics));
         }
         p.addLast(new HttpRequestDecoder());
         // Uncomment the following line if you don't want to handle HttpChunks.
@@ -30,6 +51,6 @@ public class HttpMockingServerInitializer extends ChannelInitializer<SocketChann
         p.addLast(new HttpResponseEncoder());
         // Remove the following line if you don't want automatic content compression.
         //p.addLast(new HttpContentCompressor());
-        p.addLast(new HttpMockingServerHandler());
+        p.addLast(new HttpMockingServerHandler(faults));
     }
 }
\ No newline at end of file
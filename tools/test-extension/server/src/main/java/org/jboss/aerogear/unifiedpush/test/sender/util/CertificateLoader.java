@@ -46,6 +46,10 @@ public class CertificateLoader {
     public static final String RESOURCE_SERVER_STORE = "serverStore.p12";
 
     public static SSLServerSocketFactory apnsSocketFactory() {
+        return apnsSslContext().getServerSocketFactory();
+    }
+
+    public static SSLContext apnsSslContext() {
         try {
             InputStream stream;
             File externalApnsCertificateFile = APNS_KEYSTORE_FILE.resolve();
@@ -55,7 +59,7 @@ public class CertificateLoader {
                 stream = CertificateLoader.class.getResourceAsStream("/" + RESOURCE_SERVER_STORE);
             }
             assert stream != null;
-            return newSSLSocketFactory(stream,
+            return newSSLContext(stream,
                     APNS_KEYSTORE_PASSWORD.resolve(),
                     APNS_KEYSTORE_TYPE.resolve(),
                     APNS_KEYSTORE_ALGORITHM.resolve());